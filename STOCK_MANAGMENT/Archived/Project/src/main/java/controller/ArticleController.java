@@ -13,21 +13,23 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import model.dao.ArticleDAO;
 import model.dao.ArticleDAOImpl;
+import model.dao.ReferenceDataCache;
+import model.dao.SortDirection;
 import model.entities.Article;
-import utils.DatabaseConnection;
+import utils.DataAccessExecutor;
+import utils.ExpiryNotificationService;
+import utils.PagedTableLoader;
+import utils.TableFilter;
 import utils.UserSession;
 
 import java.net.URL;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Controller for the article management interface.
@@ -35,9 +37,9 @@ import java.util.ResourceBundle;
  */
 public class ArticleController implements Initializable {
 
+    private static final Logger LOGGER = Logger.getLogger(ArticleController.class.getName());
+
     private final ArticleDAO articleDAO = new ArticleDAOImpl();
-    private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-    private static final DateTimeFormatter DISPLAY_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     // Filter section
     @FXML private TextField filterId;
@@ -84,7 +86,11 @@ public class ArticleController implements Initializable {
     @FXML private Label notificationBadge;
 
     private ObservableList<Article> articleList = FXCollections.observableArrayList();
-    private ObservableList<String> expiringArticles = FXCollections.observableArrayList();
+    private TableFilter<Article> articleFilter;
+    private PagedTableLoader<Article> articlePager;
+    private boolean articleIndexRequested;
+    private final ObservableList<String> expiringArticles = ExpiryNotificationService.getInstance().getExpiringArticles();
+    private DataAccessExecutor.Scope dataAccess;
     private static final DateTimeFormatter displayFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
     private boolean isEditing = false;
     private Article currentArticle;
@@ -94,12 +100,14 @@ public class ArticleController implements Initializable {
 
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
+        // Database work runs in the background and is cancelled when this window closes
+        dataAccess = DataAccessExecutor.scopeFor(menuContainer);
+
         // Set the magasinier's name
         String magasinierName = getLoggedInMagasinierName();
         usernameLabel.setText(magasinierName);
 
-        // Initialize notifications
-        refreshNotifications();
+        // Notifications come from the shared expiry service
         notificationBadge.textProperty().bind(Bindings.createStringBinding(
                 () -> String.valueOf(expiringArticles.size()), expiringArticles));
 
@@ -125,7 +133,6 @@ public class ArticleController implements Initializable {
      */
     @FXML
     private void handleNotificationClick() {
-        refreshNotifications();
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Notifications - Articles en Péremption");
         alert.setHeaderText(null);
@@ -141,42 +148,6 @@ public class ArticleController implements Initializable {
         alert.showAndWait();
     }
 
-    /**
-     * Refreshes the list of expiring articles.
-     */
-    private void refreshNotifications() {
-        List<String> updatedArticles = getExpiringArticles();
-        expiringArticles.setAll(updatedArticles);
-    }
-
-    /**
-     * Queries the database for articles with date_peremption within 7 days.
-     */
-    private List<String> getExpiringArticles() {
-        List<String> expiring = new ArrayList<>();
-        String sql = "SELECT nom, date_peremption FROM article WHERE date_peremption IS NOT NULL AND date_peremption <= ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            LocalDateTime oneWeekFromNow = LocalDateTime.now().plusDays(7);
-            pstmt.setString(1, oneWeekFromNow.format(SQLITE_DATETIME_FORMATTER));
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    String nom = rs.getString("nom");
-                    String datePeremptionStr = rs.getString("date_peremption");
-                    LocalDateTime datePeremption = LocalDateTime.parse(datePeremptionStr, SQLITE_DATETIME_FORMATTER);
-                    String formattedDate = datePeremption.format(DISPLAY_DATE_FORMATTER);
-                    expiring.add(nom + " (Périme le: " + formattedDate + ")");
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Erreur lors de la récupération des articles en péremption: " + e.getMessage());
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Erreur",
-                    "Erreur lors de la récupération des articles en péremption: " + e.getMessage());
-        }
-        return expiring;
-    }
-
     /**
      * Initializes the sidebar menu.
      */
@@ -249,7 +220,7 @@ public class ArticleController implements Initializable {
                 }
                 ((Stage) menuContainer.getScene().getWindow()).close();
             } catch (Exception ex) {
-                ex.printStackTrace();
+                LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
             }
         });
 
@@ -281,28 +252,53 @@ public class ArticleController implements Initializable {
             if (newVal.doubleValue() > filterStockMinMax.getValue()) {
                 filterStockMinMax.setValue(newVal.doubleValue());
             }
-            applyFilters();
         });
 
         filterStockMinMax.valueProperty().addListener((obs, oldVal, newVal) -> {
             if (newVal.doubleValue() < filterStockMinMin.getValue()) {
                 filterStockMinMin.setValue(newVal.doubleValue());
             }
-            applyFilters();
         });
 
         // Default checkbox states
         filterEstCritique.setSelected(false);
         filterEstConsommable.setSelected(false);
 
-        // Add dynamic filter listeners
-        filterId.textProperty().addListener((obs, oldVal, newVal) -> applyFilters());
-        filterReference.textProperty().addListener((obs, oldVal, newVal) -> applyFilters());
-        filterNom.textProperty().addListener((obs, oldVal, newVal) -> applyFilters());
-        filterCategorie.valueProperty().addListener((obs, oldVal, newVal) -> applyFilters());
-        filterDatePeremption.valueProperty().addListener((obs, oldVal, newVal) -> applyFilters());
-        filterEstCritique.selectedProperty().addListener((obs, oldVal, newVal) -> applyFilters());
-        filterEstConsommable.selectedProperty().addListener((obs, oldVal, newVal) -> applyFilters());
+        // Each filter input is one criterion; text inputs are debounced
+        articleFilter = new TableFilter<>(articleList, dataAccess);
+        articleFilter.addTextCriterion(filterId.textProperty(),
+                (article, id) -> String.valueOf(article.getId()).startsWith(id));
+        // Reference and name prefixes are looked up in the article cache's prefix index, read
+        // the first time one of these filters is used
+        ReferenceDataCache cache = ReferenceDataCache.getInstance();
+        articleFilter.addTextCriterion(filterReference.textProperty(), ref -> {
+            requestArticleIndex();
+            return cache.referenceStartsWith(ReferenceDataCache.ARTICLES, ref);
+        });
+        articleFilter.addTextCriterion(filterNom.textProperty(), nom -> {
+            requestArticleIndex();
+            return cache.nomStartsWith(ReferenceDataCache.ARTICLES, nom);
+        });
+        articleFilter.addCriterion(() -> {
+            String categorie = filterCategorie.getValue();
+            return categorie == null ? null : article -> categorie.equals(article.getCategorie());
+        }, filterCategorie.valueProperty());
+        articleFilter.addCriterion(() -> {
+            double stockMin = filterStockMinMin.getValue();
+            double stockMax = filterStockMinMax.getValue();
+            return article -> article.getStockMinimal() >= stockMin && article.getStockMinimal() <= stockMax;
+        }, filterStockMinMin.valueProperty(), filterStockMinMax.valueProperty());
+        articleFilter.addCriterion(() -> {
+            java.time.LocalDate date = filterDatePeremption.getValue();
+            return date == null ? null : article -> article.getDatePeremption() != null
+                    && article.getDatePeremption().toLocalDate().equals(date);
+        }, filterDatePeremption.valueProperty());
+        articleFilter.addCriterion(() -> filterEstCritique.isSelected() ? Article::isEstCritique : null,
+                filterEstCritique.selectedProperty());
+        articleFilter.addCriterion(() -> filterEstConsommable.isSelected() ? Article::isEstConsommable : null,
+                filterEstConsommable.selectedProperty());
+        // Pull more pages if the filter leaves the visible table short
+        articleFilter.setOnFiltered(() -> articlePager.fillViewport());
     }
 
     /**
@@ -354,23 +350,27 @@ public class ArticleController implements Initializable {
                 modifyButton.getStyleClass().addAll("btn", "btn-modify");
                 deleteButton.getStyleClass().addAll("btn", "btn-delete");
                 buttons.setAlignment(javafx.geometry.Pos.CENTER);
+                // Read the row on click: filtering can move another article into this row
+                modifyButton.setOnAction(e -> handleModify(getTableRow().getItem()));
+                deleteButton.setOnAction(e -> handleDelete(getTableRow().getItem()));
             }
 
             @Override
             protected void updateItem(Void item, boolean empty) {
                 super.updateItem(item, empty);
-                if (empty || getTableRow() == null || getTableRow().getItem() == null) {
-                    setGraphic(null);
-                } else {
-                    Article article = getTableRow().getItem();
-                    modifyButton.setOnAction(e -> handleModify(article));
-                    deleteButton.setOnAction(e -> handleDelete(article));
-                    setGraphic(buttons);
-                }
+                boolean hasArticle = !empty && getTableRow() != null && getTableRow().getItem() != null;
+                setGraphic(hasArticle ? buttons : null);
             }
         });
 
-        tableArticles.setItems(articleList);
+        articleFilter.bind(tableArticles);
+
+        // Articles are fetched one page at a time as the user scrolls
+        articlePager = new PagedTableLoader<>(articleList, PagedTableLoader.DEFAULT_PAGE_SIZE, Article::getId,
+                (afterId, limit) -> articleDAO.getPage(afterId, limit, SortDirection.ASC), dataAccess);
+        articlePager.setOnPageLoaded(this::extendSliderRanges);
+        articlePager.setOnError(this::handleLoadError);
+        articlePager.attachTo(tableArticles);
     }
 
     /**
@@ -398,23 +398,34 @@ public class ArticleController implements Initializable {
      * Loads articles from the database and updates slider ranges.
      */
     private void loadArticles() {
-        try {
-            List<Article> articles = articleDAO.getAll();
-            articleList.setAll(articles);
-            System.out.println("Nombre d'articles chargés: " + articles.size());
+        articlePager.reset(firstPage -> {
+            LOGGER.fine(() -> "Nombre d'articles chargés: " + articleList.size());
             updateSliderRanges();
-            applyFilters();
-            refreshNotifications();
-        } catch (Exception e) {
-            System.err.println("Erreur lors du chargement des articles: " + e.getMessage());
-            if (e.getCause() != null) {
-                System.err.println("Cause: " + e.getCause().getMessage());
-                e.getCause().printStackTrace();
-            }
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors du chargement des articles: " + e.getMessage());
-            articleList.clear();
+            articleFilter.refilter();
+        });
+    }
+
+    /**
+     * Reads the cached articles in the background if they are not in memory yet. The filters
+     * normalize each name until then, and use the prefix index once it is there; writes keep
+     * it up to date without reading it again.
+     */
+    private void requestArticleIndex() {
+        ReferenceDataCache cache = ReferenceDataCache.getInstance();
+        if (articleIndexRequested || cache.isLoaded(ReferenceDataCache.ARTICLES)) {
+            return;
         }
+        articleIndexRequested = true;
+        dataAccess.submit(() -> cache.getAll(ReferenceDataCache.ARTICLES), articles -> articleIndexRequested = false, e -> {
+            articleIndexRequested = false;
+            LOGGER.warning("Index des articles indisponible: " + e.getMessage());
+        });
+    }
+
+    private void handleLoadError(Throwable e) {
+        // The stack trace includes the cause
+        LOGGER.log(Level.SEVERE, "Erreur lors du chargement des articles: " + e.getMessage(), e);
+        showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors du chargement des articles: " + e.getMessage());
     }
 
     /**
@@ -441,65 +452,29 @@ public class ArticleController implements Initializable {
     }
 
     /**
-     * Applies filters to the table based on all filter inputs.
+     * Widens the slider ranges to cover a newly loaded page. A slider left at the edge of
+     * its range follows the new edge so the new rows are not filtered out.
      */
-    private void applyFilters() {
-        String idFilter = filterId.getText().trim();
-        String refFilter = filterReference.getText().trim().toLowerCase();
-        String nomFilter = filterNom.getText().trim().toLowerCase();
-        String catFilter = filterCategorie.getValue();
-        double stockMin = filterStockMinMin.getValue();
-        double stockMax = filterStockMinMax.getValue();
-        java.time.LocalDate dateFilter = filterDatePeremption.getValue();
-        boolean filterCritique = filterEstCritique.isSelected();
-        boolean filterConsommable = filterEstConsommable.isSelected();
-
-        ObservableList<Article> filteredList = FXCollections.observableArrayList();
-        for (Article article : articleList) {
-            boolean matches = true;
-
-            if (!idFilter.isEmpty()) {
-                try {
-                    String idString = String.valueOf(article.getId());
-                    if (!idString.startsWith(idFilter)) {
-                        matches = false;
-                    }
-                } catch (NumberFormatException e) {
-                    matches = false; // Invalid ID format
-                }
-            }
-            if (!refFilter.isEmpty() && !article.getReference().toLowerCase().startsWith(refFilter)) {
-                matches = false;
-            }
-            if (!nomFilter.isEmpty() && !article.getNom().toLowerCase().startsWith(nomFilter)) {
-                matches = false;
-            }
-            if (catFilter != null && !article.getCategorie().equals(catFilter)) {
-                matches = false;
-            }
-            if (article.getStockMinimal() < stockMin || article.getStockMinimal() > stockMax) {
-                matches = false;
-            }
-            if (dateFilter != null) {
-                java.time.LocalDate articleDate = article.getDatePeremption() != null ?
-                        article.getDatePeremption().toLocalDate() : null;
-                if (articleDate == null || !articleDate.equals(dateFilter)) {
-                    matches = false;
-                }
-            }
-            if (filterCritique && !article.isEstCritique()) {
-                matches = false;
-            }
-            if (filterConsommable && !article.isEstConsommable()) {
-                matches = false;
+    private void extendSliderRanges(List<Article> page) {
+        int pageMin = page.stream().mapToInt(Article::getStockMinimal).min().orElse(0);
+        int pageMax = page.stream().mapToInt(Article::getStockMinimal).max().orElse(0);
+
+        if (pageMax > filterStockMinMax.getMax()) {
+            boolean atMax = filterStockMinMax.getValue() >= filterStockMinMax.getMax();
+            filterStockMinMin.setMax(pageMax);
+            filterStockMinMax.setMax(pageMax);
+            if (atMax) {
+                filterStockMinMax.setValue(pageMax);
             }
-
-            if (matches) {
-                filteredList.add(article);
+        }
+        if (pageMin < filterStockMinMin.getMin()) {
+            boolean atMin = filterStockMinMin.getValue() <= filterStockMinMin.getMin();
+            filterStockMinMin.setMin(pageMin);
+            filterStockMinMax.setMin(pageMin);
+            if (atMin) {
+                filterStockMinMin.setValue(pageMin);
             }
         }
-        tableArticles.setItems(filteredList);
-        tableArticles.refresh(); // Force refresh to ensure buttons render
     }
 
     /**
@@ -512,16 +487,15 @@ public class ArticleController implements Initializable {
         if (!isEditing) {
             // Add new article
             Article newArticle = createArticleFromForm();
-            try {
-                articleDAO.insert(newArticle);
+            dataAccess.run(() -> articleDAO.insert(newArticle), () -> {
                 // Reload articles to ensure database consistency
                 loadArticles();
-                System.out.println("Article added: " + newArticle.getNom());
+                LOGGER.fine(() -> "Article added: " + newArticle.getNom());
                 showAlert(Alert.AlertType.INFORMATION, "Succès", "Article ajouté avec succès");
-            } catch (Exception e) {
+            }, e -> {
                 showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de l'ajout de l'article: " + e.getMessage());
-                e.printStackTrace();
-            }
+                LOGGER.log(Level.SEVERE, e.getMessage(), e);
+            });
         } else {
             // Update existing article
             currentArticle.setReference(formReference.getText());
@@ -536,15 +510,15 @@ public class ArticleController implements Initializable {
             }
             currentArticle.setEstCritique(formEstCritique.isSelected());
             currentArticle.setEstConsommable(formEstConsommable.isSelected());
-            try {
-                articleDAO.update(currentArticle);
+            Article updated = currentArticle;
+            dataAccess.run(() -> articleDAO.update(updated), () -> {
                 loadArticles();
-                System.out.println("Article updated: " + currentArticle.getNom());
+                LOGGER.fine(() -> "Article updated: " + updated.getNom());
                 showAlert(Alert.AlertType.INFORMATION, "Succès", "Article mis à jour avec succès");
-            } catch (Exception e) {
+            }, e -> {
                 showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la mise à jour de l'article: " + e.getMessage());
-                e.printStackTrace();
-            }
+                LOGGER.log(Level.SEVERE, e.getMessage(), e);
+            });
             isEditing = false;
             btnAjouter.setText("Ajouter");
         }
@@ -582,15 +556,14 @@ public class ArticleController implements Initializable {
 
         Optional<ButtonType> result = confirmAlert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            try {
-                articleDAO.delete(article.getId());
+            dataAccess.run(() -> articleDAO.delete(article.getId()), () -> {
                 loadArticles();
-                System.out.println("Article deleted: " + article.getNom());
+                LOGGER.fine(() -> "Article deleted: " + article.getNom());
                 showAlert(Alert.AlertType.INFORMATION, "Succès", "Article supprimé avec succès");
-            } catch (Exception e) {
+            }, e -> {
                 showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la suppression de l'article: " + e.getMessage());
-                e.printStackTrace();
-            }
+                LOGGER.log(Level.SEVERE, e.getMessage(), e);
+            });
         }
     }
 
@@ -609,8 +582,7 @@ public class ArticleController implements Initializable {
 
         // Reset sliders to full range
         updateSliderRanges();
-        applyFilters();
-        tableArticles.refresh(); // Force refresh to ensure buttons render
+        articleFilter.refilter();
     }
 
     /**
@@ -631,7 +603,7 @@ public class ArticleController implements Initializable {
             new LoginApp().start(new Stage());
             ((Stage) logoutBtn.getScene().getWindow()).close();
         } catch (Exception ex) {
-            ex.printStackTrace();
+            LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
         }
     }
 
@@ -1,35 +1,38 @@
 package controller;
 
 import javafx.beans.binding.Bindings;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import model.dao.CommandeExterneDAO;
 import model.dao.CommandeExterneDAOImpl;
+import model.dao.ReferenceDataCache;
+import model.dao.SortDirection;
 import model.entities.*;
 import org.controlsfx.control.CheckComboBox;
-import utils.DatabaseConnection;
+import utils.BitmapIndex;
+import utils.DataAccessExecutor;
+import utils.ExpiryNotificationService;
+import utils.PagedTableLoader;
+import utils.TableFilter;
 import utils.UserSession;
 
 import java.net.URL;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
 import java.util.stream.Collectors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Controller for the external order management interface.
@@ -37,9 +40,9 @@ import java.util.stream.Collectors;
  */
 public class CommandeExterneController implements Initializable {
 
+    private static final Logger LOGGER = Logger.getLogger(CommandeExterneController.class.getName());
+
     private final CommandeExterneDAO commandeExterneDAO = new CommandeExterneDAOImpl();
-    private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-    private static final DateTimeFormatter DISPLAY_DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
     // Filter section
     @FXML private TextField filterId;
@@ -52,15 +55,15 @@ public class CommandeExterneController implements Initializable {
     @FXML private Button btnReset;
 
     // Table section
-    @FXML private TableView<CommandeExterne> tableCommandes;
-    @FXML private TableColumn<CommandeExterne, Long> colId;
-    @FXML private TableColumn<CommandeExterne, String> colStatut;
-    @FXML private TableColumn<CommandeExterne, String> colMagasinier;
-    @FXML private TableColumn<CommandeExterne, String> colFournisseur;
-    @FXML private TableColumn<CommandeExterne, String> colLocal;
-    @FXML private TableColumn<CommandeExterne, String> colArticles;
-    @FXML private TableColumn<CommandeExterne, String> colCreatedAt;
-    @FXML private TableColumn<CommandeExterne, Void> colActions;
+    @FXML private TableView<CommandeRow<CommandeExterne>> tableCommandes;
+    @FXML private TableColumn<CommandeRow<CommandeExterne>, Long> colId;
+    @FXML private TableColumn<CommandeRow<CommandeExterne>, String> colStatut;
+    @FXML private TableColumn<CommandeRow<CommandeExterne>, String> colMagasinier;
+    @FXML private TableColumn<CommandeRow<CommandeExterne>, String> colFournisseur;
+    @FXML private TableColumn<CommandeRow<CommandeExterne>, String> colLocal;
+    @FXML private TableColumn<CommandeRow<CommandeExterne>, String> colArticles;
+    @FXML private TableColumn<CommandeRow<CommandeExterne>, String> colCreatedAt;
+    @FXML private TableColumn<CommandeRow<CommandeExterne>, Void> colActions;
 
     // Form section
     @FXML private ComboBox<String> formStatut;
@@ -78,8 +81,14 @@ public class CommandeExterneController implements Initializable {
     @FXML private ImageView notificationIcon;
     @FXML private Label notificationBadge;
 
-    private ObservableList<CommandeExterne> commandeList = FXCollections.observableArrayList();
-    private ObservableList<String> expiringArticles = FXCollections.observableArrayList();
+    private ObservableList<CommandeRow<CommandeExterne>> commandeList = FXCollections.observableArrayList();
+    private TableFilter<CommandeRow<CommandeExterne>> commandeFilter;
+    /** Loaded orders by local and by article, for the multi-select filters. */
+    private BitmapIndex<CommandeRow<CommandeExterne>> localIndex;
+    private BitmapIndex<CommandeRow<CommandeExterne>> articleIndex;
+    private PagedTableLoader<CommandeRow<CommandeExterne>> commandePager;
+    private final ObservableList<String> expiringArticles = ExpiryNotificationService.getInstance().getExpiringArticles();
+    private DataAccessExecutor.Scope dataAccess;
     private ObservableList<Magasinier> magasinierList = FXCollections.observableArrayList();
     private ObservableList<Fournisseur> fournisseurList = FXCollections.observableArrayList();
     private ObservableList<Local> localList = FXCollections.observableArrayList();
@@ -94,14 +103,13 @@ public class CommandeExterneController implements Initializable {
 
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
+        // Database work runs in the background and is cancelled when this window closes
+        dataAccess = DataAccessExecutor.scopeFor(menuContainer);
+
         String magasinierName = getLoggedInMagasinierName();
         usernameLabel.setText(magasinierName);
 
-        loadMagasiniers();
-        loadFournisseurs();
-        loadLocals();
-        loadArticles();
-        refreshNotifications();
+        loadReferenceData();
         notificationBadge.textProperty().bind(Bindings.createStringBinding(
                 () -> String.valueOf(expiringArticles.size()), expiringArticles));
 
@@ -118,95 +126,37 @@ public class CommandeExterneController implements Initializable {
         return (fullName != null && !fullName.isEmpty()) ? fullName : "Utilisateur Inconnu";
     }
 
-    private void loadMagasiniers() {
-        String sql = "SELECT id, nom FROM magasinier";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-            magasinierList.clear();
-            while (rs.next()) {
-                Magasinier magasinier = new Magasinier();
-                magasinier.setId(rs.getLong("id"));
-                magasinier.setNom(rs.getString("nom"));
-                magasinierList.add(magasinier);
-            }
-            System.out.println("Loaded " + magasinierList.size() + " magasiniers");
-        } catch (SQLException e) {
-            System.err.println("Error loading magasiniers: " + e.getMessage());
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la récupération des magasiniers: " + e.getMessage());
-        }
-    }
-
-    private void loadFournisseurs() {
-        String sql = "SELECT id, nom FROM fournisseur";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-            fournisseurList.clear();
-            while (rs.next()) {
-                Fournisseur fournisseur = new Fournisseur();
-                fournisseur.setId(rs.getLong("id"));
-                fournisseur.setNom(rs.getString("nom"));
-                fournisseurList.add(fournisseur);
-            }
-            System.out.println("Loaded " + fournisseurList.size() + " fournisseurs");
-        } catch (SQLException e) {
-            System.err.println("Error loading fournisseurs: " + e.getMessage());
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la récupération des fournisseurs: " + e.getMessage());
-        }
-    }
-
-    private void loadLocals() {
-        String sql = "SELECT id, nom FROM local";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-            localList.clear();
-            while (rs.next()) {
-                Local local = new Local();
-                local.setId(rs.getLong("id"));
-                local.setNom(rs.getString("nom"));
-                localList.add(local);
-            }
-            System.out.println("Loaded " + localList.size() + " locals: " + localList.stream().map(Local::getNom).collect(Collectors.joining(", ")));
+    /**
+     * Loads the magasiniers, fournisseurs, locals and articles offered by the filters and the form,
+     * from the shared reference-data cache.
+     */
+    private void loadReferenceData() {
+        ReferenceDataCache cache = ReferenceDataCache.getInstance();
+        dataAccess.submit(() -> new ReferenceData(cache.getAll(ReferenceDataCache.MAGASINIERS),
+                cache.getAll(ReferenceDataCache.FOURNISSEURS), cache.getAll(ReferenceDataCache.LOCALS),
+                cache.getAll(ReferenceDataCache.ARTICLES)), data -> {
+            magasinierList.setAll(data.magasiniers);
+            fournisseurList.setAll(data.fournisseurs);
+            localList.setAll(data.locals);
+            articleList.setAll(data.articles);
+            LOGGER.fine(() -> "Loaded " + magasinierList.size() + " magasiniers, " + fournisseurList.size() + " fournisseurs, "
+                    + localList.size() + " locals, " + articleList.size() + " articles (cache: " + cache.getStats() + ")");
             if (localList.isEmpty()) {
                 showAlert(Alert.AlertType.WARNING, "Avertissement", "Aucun local chargé. Vérifiez la table 'local'.");
             }
-        } catch (SQLException e) {
-            System.err.println("Error loading locals: " + e.getMessage());
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la récupération des locaux: " + e.getMessage());
-        }
-    }
-
-    private void loadArticles() {
-        String sql = "SELECT id, nom FROM article";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-            articleList.clear();
-            while (rs.next()) {
-                Article article = new Article();
-                article.setId(rs.getLong("id"));
-                article.setNom(rs.getString("nom"));
-                articleList.add(article);
-            }
-            System.out.println("Loaded " + articleList.size() + " articles: " + articleList.stream().map(Article::getNom).collect(Collectors.joining(", ")));
             if (articleList.isEmpty()) {
                 showAlert(Alert.AlertType.WARNING, "Avertissement", "Aucun article chargé. Vérifiez la table 'article'.");
             }
-        } catch (SQLException e) {
-            System.err.println("Error loading articles: " + e.getMessage());
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la récupération des articles: " + e.getMessage());
-        }
+            // The filters and the form were set up with copies of the (then empty) lists
+            filterLocal.getItems().setAll(localList);
+            filterArticles.getItems().setAll(articleList);
+            filteredLocalList.setAll(localList);
+            filteredArticleList.setAll(articleList);
+        }, e -> showAlert(Alert.AlertType.ERROR, "Erreur", e.getMessage()));
     }
 
     @FXML
     private void handleNotificationClick() {
-        refreshNotifications();
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Notifications - Articles en Péremption");
         alert.setHeaderText(null);
@@ -222,35 +172,6 @@ public class CommandeExterneController implements Initializable {
         alert.showAndWait();
     }
 
-    private void refreshNotifications() {
-        List<String> updatedArticles = getExpiringArticles();
-        expiringArticles.setAll(updatedArticles);
-    }
-
-    private List<String> getExpiringArticles() {
-        List<String> expiring = new ArrayList<>();
-        String sql = "SELECT nom, date_peremption FROM article WHERE date_peremption IS NOT NULL AND date_peremption <= ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            LocalDateTime oneWeekFromNow = LocalDateTime.now().plusDays(7);
-            pstmt.setString(1, oneWeekFromNow.format(SQLITE_DATETIME_FORMATTER));
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    String nom = rs.getString("nom");
-                    String datePeremptionStr = rs.getString("date_peremption");
-                    LocalDateTime datePeremption = LocalDateTime.parse(datePeremptionStr, SQLITE_DATETIME_FORMATTER);
-                    String formattedDate = datePeremption.format(DISPLAY_DATE_FORMATTER);
-                    expiring.add(nom + " (Périme le: " + formattedDate + ")");
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Erreur lors de la récupération des articles en péremption: " + e.getMessage());
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la récupération des articles en péremption: " + e.getMessage());
-        }
-        return expiring;
-    }
-
     private void setupSidebar() {
         for (int i = 0; i < MENU_ITEMS.length; i++) {
             VBox menuItem = createMenuItem(MENU_ITEMS[i], MENU_ICONS[i], i == 6); // Commandes externes is active
@@ -317,7 +238,7 @@ public class CommandeExterneController implements Initializable {
                 }
                 ((Stage) menuContainer.getScene().getWindow()).close();
             } catch (Exception ex) {
-                ex.printStackTrace();
+                LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
             }
         });
 
@@ -337,7 +258,7 @@ public class CommandeExterneController implements Initializable {
 
             @Override
             public Magasinier fromString(String string) {
-                return magasinierList.stream().filter(m -> m.getNom() != null && m.getNom().equals(string)).findFirst().orElse(null);
+                return ReferenceDataCache.getInstance().getByNom(ReferenceDataCache.MAGASINIERS, string);
             }
         });
 
@@ -350,7 +271,7 @@ public class CommandeExterneController implements Initializable {
 
             @Override
             public Fournisseur fromString(String string) {
-                return fournisseurList.stream().filter(f -> f.getNom() != null && f.getNom().equals(string)).findFirst().orElse(null);
+                return ReferenceDataCache.getInstance().getByNom(ReferenceDataCache.FOURNISSEURS, string);
             }
         });
 
@@ -363,7 +284,7 @@ public class CommandeExterneController implements Initializable {
 
             @Override
             public Local fromString(String string) {
-                return localList.stream().filter(l -> l.getNom() != null && l.getNom().equals(string)).findFirst().orElse(null);
+                return ReferenceDataCache.getInstance().getByNom(ReferenceDataCache.LOCALS, string);
             }
         });
 
@@ -376,77 +297,63 @@ public class CommandeExterneController implements Initializable {
 
             @Override
             public Article fromString(String string) {
-                return articleList.stream().filter(a -> a.getNom() != null && a.getNom().equals(string)).findFirst().orElse(null);
+                return ReferenceDataCache.getInstance().getByNom(ReferenceDataCache.ARTICLES, string);
             }
         });
 
-        filterId.textProperty().addListener((obs, oldVal, newVal) -> applyFilters());
-        filterStatut.valueProperty().addListener((obs, oldVal, newVal) -> applyFilters());
-        filterMagasinier.valueProperty().addListener((obs, oldVal, newVal) -> applyFilters());
-        filterFournisseur.valueProperty().addListener((obs, oldVal, newVal) -> applyFilters());
-        filterLocal.getCheckModel().getCheckedItems().addListener((javafx.collections.ListChangeListener<Local>) c -> applyFilters());
-        filterArticles.getCheckModel().getCheckedItems().addListener((javafx.collections.ListChangeListener<Article>) c -> applyFilters());
-        filterCreatedAt.valueProperty().addListener((obs, oldVal, newVal) -> applyFilters());
+        // Kept in step with the loaded pages, and rebuilt when a write reloads the table
+        localIndex = new BitmapIndex<>(commandeList, CommandeRow::getId,
+                row -> row.getCommande().getCommandeExterneLocals().stream()
+                        .map(line -> line.getLocal() != null ? line.getLocal().getId() : null)
+                        .collect(Collectors.toSet()));
+        articleIndex = new BitmapIndex<>(commandeList, CommandeRow::getId,
+                row -> row.getCommande().getCommandeExterneArticles().stream()
+                        .map(line -> line.getArticle() != null ? line.getArticle().getId() : null)
+                        .collect(Collectors.toSet()));
+
+        // Each filter input is one criterion; the id is debounced
+        commandeFilter = new TableFilter<>(commandeList, dataAccess);
+        commandeFilter.addTextCriterion(filterId.textProperty(),
+                (row, id) -> String.valueOf(row.getId()).startsWith(id));
+        commandeFilter.addCriterion(() -> {
+            String statut = filterStatut.getValue();
+            return statut == null ? null : row -> statut.equals(row.getCommande().getStatut());
+        }, filterStatut.valueProperty());
+        commandeFilter.addCriterion(() -> {
+            Magasinier magasinier = filterMagasinier.getValue();
+            return magasinier == null ? null : row -> row.getCommande().getMagasinier() != null
+                    && row.getCommande().getMagasinier().getId().equals(magasinier.getId());
+        }, filterMagasinier.valueProperty());
+        commandeFilter.addCriterion(() -> {
+            Fournisseur fournisseur = filterFournisseur.getValue();
+            return fournisseur == null ? null : row -> row.getCommande().getFournisseur() != null
+                    && row.getCommande().getFournisseur().getId().equals(fournisseur.getId());
+        }, filterFournisseur.valueProperty());
+        // Orders holding every checked local (or article): one AND of their bitmaps
+        commandeFilter.addCriterion(() -> localIndex.containingAll(filterLocal.getCheckModel().getCheckedItems()
+                .stream().map(Local::getId).collect(Collectors.toList())), filterLocal.getCheckModel().getCheckedItems());
+        commandeFilter.addCriterion(() -> articleIndex.containingAll(filterArticles.getCheckModel().getCheckedItems()
+                .stream().map(Article::getId).collect(Collectors.toList())), filterArticles.getCheckModel().getCheckedItems());
+        commandeFilter.addCriterion(() -> {
+            java.time.LocalDate createdAt = filterCreatedAt.getValue();
+            return createdAt == null ? null : row -> row.getCommande().getCreerA() != null
+                    && row.getCommande().getCreerA().toLocalDate().equals(createdAt);
+        }, filterCreatedAt.valueProperty());
+        // Pull more pages if the filter leaves the visible table short
+        commandeFilter.setOnFiltered(() -> commandePager.fillViewport());
     }
 
     private void setupTable() {
         tableCommandes.setPlaceholder(new Label("Aucune commande externe trouvée"));
 
-        colId.setCellValueFactory(new PropertyValueFactory<>("id"));
-        colStatut.setCellValueFactory(new PropertyValueFactory<>("statut"));
-
-        colMagasinier.setCellValueFactory(cellData -> {
-            Magasinier magasinier = cellData.getValue().getMagasinier();
-            String magasinierName = "N/A";
-            if (magasinier != null && magasinier.getNom() != null && !magasinier.getNom().isEmpty()) {
-                magasinierName = magasinier.getNom();
-            } else {
-                System.err.println("Magasinier is null or nom is empty for commande ID: " + cellData.getValue().getId());
-            }
-            return new SimpleStringProperty(magasinierName);
-        });
-
-        colFournisseur.setCellValueFactory(cellData -> {
-            Fournisseur fournisseur = cellData.getValue().getFournisseur();
-            return new SimpleStringProperty(fournisseur != null ? fournisseur.getNom() != null ? fournisseur.getNom() : "N/A" : "N/A");
-        });
-
-        colLocal.setCellValueFactory(cellData -> {
-            List<CommandeExterneLocal> locals = cellData.getValue().getCommandeExterneLocals();
-            System.out.println("Commande ID " + cellData.getValue().getId() + " has " + (locals != null ? locals.size() : 0) + " locals");
-            if (locals == null || locals.isEmpty()) {
-                System.out.println("No locals for commande ID " + cellData.getValue().getId());
-                return new SimpleStringProperty("N/A");
-            }
-            String localNames = locals.stream()
-                    .map(cl -> cl.getLocal() != null && cl.getLocal().getNom() != null ? cl.getLocal().getNom() : "Unknown")
-                    .collect(Collectors.joining(", "));
-            System.out.println("Local names for commande ID " + cellData.getValue().getId() + ": " + localNames);
-            return new SimpleStringProperty(localNames.isEmpty() ? "N/A" : localNames);
-        });
-
-        colArticles.setCellValueFactory(cellData -> {
-            List<CommandeExterneArticle> articles = cellData.getValue().getCommandeExterneArticles();
-            System.out.println("Commande ID " + cellData.getValue().getId() + " has " + (articles != null ? articles.size() : 0) + " articles");
-            if (articles == null || articles.isEmpty()) {
-                System.out.println("No articles for commande ID " + cellData.getValue().getId());
-                return new SimpleStringProperty("N/A");
-            }
-            String articleNames = articles.stream()
-                    .map(ca -> {
-                        String name = ca.getArticle() != null && ca.getArticle().getNom() != null ? ca.getArticle().getNom() : "Unknown";
-                        int quantite = ca.getQuantite();
-                        return name + " (" + quantite + ")";
-                    })
-                    .collect(Collectors.joining(", "));
-            System.out.println("Article names for commande ID " + cellData.getValue().getId() + ": " + articleNames);
-            return new SimpleStringProperty(articleNames.isEmpty() ? "N/A" : articleNames);
-        });
-
-        colCreatedAt.setCellValueFactory(cellData -> {
-            LocalDateTime createdAt = cellData.getValue().getCreerA();
-            return new SimpleStringProperty(createdAt != null ? createdAt.format(DISPLAY_DATE_FORMATTER) : "N/A");
-        });
+        // Rows carry their display text, built when the page was fetched
+        colId.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().getId()));
+        colStatut.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getStatut()));
+        colMagasinier.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getMagasinier()));
+        colFournisseur.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getPartenaire()));
+        colLocal.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getLocaux()));
+        colArticles.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getArticles()));
+        colCreatedAt.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getCreerA()));
 
         colActions.setCellFactory(col -> new TableCell<>() {
             private final Button modifyButton = new Button("Modifier");
@@ -457,23 +364,26 @@ public class CommandeExterneController implements Initializable {
                 modifyButton.getStyleClass().addAll("btn", "btn-modify");
                 deleteButton.getStyleClass().addAll("btn", "btn-delete");
                 buttons.setAlignment(javafx.geometry.Pos.CENTER);
+                // Read the row on click: filtering can move another commande into this row
+                modifyButton.setOnAction(e -> handleModify(getTableRow().getItem().getCommande()));
+                deleteButton.setOnAction(e -> handleDelete(getTableRow().getItem().getCommande()));
             }
 
             @Override
             protected void updateItem(Void item, boolean empty) {
                 super.updateItem(item, empty);
-                if (empty || getTableRow() == null || getTableRow().getItem() == null) {
-                    setGraphic(null);
-                } else {
-                    CommandeExterne commande = getTableRow().getItem();
-                    modifyButton.setOnAction(e -> handleModify(commande));
-                    deleteButton.setOnAction(e -> handleDelete(commande));
-                    setGraphic(buttons);
-                }
+                boolean hasCommande = !empty && getTableRow() != null && getTableRow().getItem() != null;
+                setGraphic(hasCommande ? buttons : null);
             }
         });
 
-        tableCommandes.setItems(commandeList);
+        commandeFilter.bind(tableCommandes);
+
+        // Commandes are fetched one page at a time as the user scrolls
+        commandePager = new PagedTableLoader<>(commandeList, PagedTableLoader.DEFAULT_PAGE_SIZE, CommandeRow::getId,
+                this::fetchCommandesPage, dataAccess);
+        commandePager.setOnError(this::handleLoadError);
+        commandePager.attachTo(tableCommandes);
     }
 
     private void setupForm() {
@@ -489,12 +399,12 @@ public class CommandeExterneController implements Initializable {
 
             @Override
             public Fournisseur fromString(String string) {
-                return fournisseurList.stream().filter(f -> f.getNom() != null && f.getNom().equals(string)).findFirst().orElse(null);
+                return ReferenceDataCache.getInstance().getByNom(ReferenceDataCache.FOURNISSEURS, string);
             }
         });
 
         filteredLocalList.setAll(localList);
-        System.out.println("Initial filteredLocalList size: " + filteredLocalList.size());
+        LOGGER.fine(() -> "Initial filteredLocalList size: " + filteredLocalList.size());
         formLocal.getItems().clear();
         formLocal.getItems().addAll(filteredLocalList);
         formLocal.setConverter(new javafx.util.StringConverter<Local>() {
@@ -505,15 +415,12 @@ public class CommandeExterneController implements Initializable {
 
             @Override
             public Local fromString(String string) {
-                return filteredLocalList.stream()
-                        .filter(l -> l.getNom() != null && l.getNom().equals(string))
-                        .findFirst()
-                        .orElse(null);
+                return ReferenceDataCache.getInstance().getByNom(ReferenceDataCache.LOCALS, string);
             }
         });
 
         filteredArticleList.setAll(articleList);
-        System.out.println("Initial filteredArticleList size: " + filteredArticleList.size());
+        LOGGER.fine(() -> "Initial filteredArticleList size: " + filteredArticleList.size());
         formArticles.getItems().clear();
         formArticles.getItems().addAll(filteredArticleList);
         formArticles.setConverter(new javafx.util.StringConverter<Article>() {
@@ -524,10 +431,7 @@ public class CommandeExterneController implements Initializable {
 
             @Override
             public Article fromString(String string) {
-                return filteredArticleList.stream()
-                        .filter(a -> a.getNom() != null && a.getNom().equals(string))
-                        .findFirst()
-                        .orElse(null);
+                return ReferenceDataCache.getInstance().getByNom(ReferenceDataCache.ARTICLES, string);
             }
         });
 
@@ -536,150 +440,73 @@ public class CommandeExterneController implements Initializable {
             formLocal.getCheckModel().clearChecks();
             formArticles.getCheckModel().clearChecks();
             filteredArticleList.setAll(articleList);
-            System.out.println("Fournisseur selected, showing all articles: " + articleList.size());
+            LOGGER.fine(() -> "Fournisseur selected, showing all articles: " + articleList.size());
             formArticles.getItems().setAll(filteredArticleList);
         });
 
         formLocal.getCheckModel().getCheckedItems().addListener((javafx.collections.ListChangeListener<Local>) c -> {
             ObservableList<Local> selectedLocals = formLocal.getCheckModel().getCheckedItems();
-            System.out.println("Selected locals: " + selectedLocals.stream().map(Local::getNom).collect(Collectors.joining(", ")));
+            LOGGER.fine(() -> "Selected locals: " + selectedLocals.stream().map(Local::getNom).collect(Collectors.joining(", ")));
         });
     }
 
     private void loadCommandes() {
-        try {
-            if (commandeExterneDAO == null) {
-                throw new IllegalStateException("CommandeExterneDAO is not initialized");
-            }
-            List<CommandeExterne> commandes = commandeExterneDAO.getAll();
-            if (commandes == null) {
-                System.err.println("CommandeExterneDAO returned null list");
-                commandes = new ArrayList<>();
-            }
-            for (CommandeExterne commande : commandes) {
-                try {
-                    if (commande.getCommandeExterneArticles() == null) {
-                        commande.setCommandeExterneArticles(new ArrayList<>());
-                        System.out.println("No articles loaded for commande_externe_id: " + commande.getId());
-                    }
-                    if (commande.getCommandeExterneLocals() == null) {
-                        commande.setCommandeExterneLocals(new ArrayList<>());
-                        System.out.println("No locals loaded for commande_externe_id: " + commande.getId());
-                    }
-                    if (commande.getMagasinier() == null) {
-                        System.err.println("Magasinier is null for commande_externe_id: " + commande.getId());
-                    } else {
-                        System.out.println("Magasinier loaded for commande_externe_id: " + commande.getId() + ": " + commande.getMagasinier().getNom());
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error loading articles/locals for commande_externe_id " + commande.getId() + ": " + e.getMessage());
-                    commande.setCommandeExterneArticles(new ArrayList<>());
-                    commande.setCommandeExterneLocals(new ArrayList<>());
-                }
-            }
-            commandeList.setAll(commandes);
-            System.out.println("Nombre de commandes externes chargées: " + commandes.size());
-            applyFilters();
-            refreshNotifications();
-        } catch (Exception e) {
-            System.err.println("Erreur lors du chargement des commandes externes: " + e.getMessage());
-            e.printStackTrace();
-            String errorMessage = "Erreur lors du chargement des commandes externes: " + e.getMessage();
-            if (e.getCause() != null) {
-                errorMessage += "\nCause: " + e.getCause().getMessage();
-            }
-            showAlert(Alert.AlertType.ERROR, "Erreur", errorMessage);
-            commandeList.clear();
-            applyFilters();
-            tableCommandes.refresh();
+        if (commandeExterneDAO == null) {
+            handleLoadError(new IllegalStateException("CommandeExterneDAO is not initialized"));
+            return;
         }
+        commandePager.reset(firstPage -> {
+            LOGGER.fine(() -> "Nombre de commandes externes chargées: " + commandeList.size());
+            commandeFilter.refilter();
+        });
     }
 
-    private void applyFilters() {
-        String idFilter = filterId.getText() != null ? filterId.getText().trim() : "";
-        String statutFilter = filterStatut.getValue();
-        Magasinier magasinierFilter = filterMagasinier.getValue();
-        Fournisseur fournisseurFilter = filterFournisseur.getValue();
-        ObservableList<Local> localFilters = filterLocal.getCheckModel().getCheckedItems();
-        ObservableList<Article> articleFilters = filterArticles.getCheckModel().getCheckedItems();
-        java.time.LocalDate createdAtFilter = filterCreatedAt.getValue();
-
-        ObservableList<CommandeExterne> filteredList = FXCollections.observableArrayList();
-        for (CommandeExterne commande : commandeList) {
-            if (commande == null) continue;
-            boolean matches = true;
-
-            if (!idFilter.isEmpty()) {
-                try {
-                    String idString = String.valueOf(commande.getId());
-                    if (!idString.startsWith(idFilter)) {
-                        matches = false;
-                    }
-                } catch (NumberFormatException e) {
-                    matches = false;
-                }
-            }
-            if (statutFilter != null && !commande.getStatut().equals(statutFilter)) {
-                matches = false;
-            }
-            if (magasinierFilter != null && (commande.getMagasinier() == null || !commande.getMagasinier().getId().equals(magasinierFilter.getId()))) {
-                matches = false;
-            }
-            if (fournisseurFilter != null && (commande.getFournisseur() == null || !commande.getFournisseur().getId().equals(fournisseurFilter.getId()))) {
-                matches = false;
-            }
-            if (!localFilters.isEmpty()) {
-                boolean allLocalsMatch = true;
-                for (Local filterLocal : localFilters) {
-                    boolean localMatch = false;
-                    for (CommandeExterneLocal cel : commande.getCommandeExterneLocals()) {
-                        if (cel.getLocal() != null && cel.getLocal().getId().equals(filterLocal.getId())) {
-                            localMatch = true;
-                            break;
-                        }
-                    }
-                    if (!localMatch) {
-                        allLocalsMatch = false;
-                        break;
-                    }
-                }
-                if (!allLocalsMatch) {
-                    matches = false;
-                }
-            }
-            if (!articleFilters.isEmpty()) {
-                boolean allArticlesMatch = true;
-                for (Article filterArticle : articleFilters) {
-                    boolean articleMatch = false;
-                    for (CommandeExterneArticle cea : commande.getCommandeExterneArticles()) {
-                        if (cea.getArticle() != null && cea.getArticle().getId().equals(filterArticle.getId())) {
-                            articleMatch = true;
-                            break;
-                        }
-                    }
-                    if (!articleMatch) {
-                        allArticlesMatch = false;
-                        break;
-                    }
+    private void handleLoadError(Throwable e) {
+        LOGGER.log(Level.SEVERE, "Erreur lors du chargement des commandes externes: " + e.getMessage(), e);
+        String errorMessage = "Erreur lors du chargement des commandes externes: " + e.getMessage();
+        if (e.getCause() != null) {
+            errorMessage += "\nCause: " + e.getCause().getMessage();
+        }
+        showAlert(Alert.AlertType.ERROR, "Erreur", errorMessage);
+        commandeList.clear();
+    }
+
+    /**
+     * Fetches one page of commandes, makes sure their article and local lists are never null
+     * and builds their table rows, all in the background.
+     */
+    private List<CommandeRow<CommandeExterne>> fetchCommandesPage(Long afterId, int limit) {
+        List<CommandeExterne> commandes = commandeExterneDAO.getPage(afterId, limit, SortDirection.ASC);
+        if (commandes == null) {
+            LOGGER.warning("CommandeExterneDAO returned null list");
+            commandes = new ArrayList<>();
+        }
+        for (CommandeExterne commande : commandes) {
+            try {
+                if (commande.getCommandeExterneArticles() == null) {
+                    commande.setCommandeExterneArticles(new ArrayList<>());
+                    LOGGER.fine(() -> "No articles loaded for commande_externe_id: " + commande.getId());
                 }
-                if (!allArticlesMatch) {
-                    matches = false;
+                if (commande.getCommandeExterneLocals() == null) {
+                    commande.setCommandeExterneLocals(new ArrayList<>());
+                    LOGGER.fine(() -> "No locals loaded for commande_externe_id: " + commande.getId());
                 }
-            }
-            if (createdAtFilter != null) {
-                java.time.LocalDate commandeDate = commande.getCreerA() != null ?
-                        commande.getCreerA().toLocalDate() : null;
-                if (commandeDate == null || !commandeDate.equals(createdAtFilter)) {
-                    matches = false;
+                if (commande.getMagasinier() == null) {
+                    LOGGER.warning("Magasinier is null for commande_externe_id: " + commande.getId());
+                } else {
+                    LOGGER.fine(() -> "Magasinier loaded for commande_externe_id: " + commande.getId() + ": " + commande.getMagasinier().getNom());
                 }
+            } catch (Exception e) {
+                LOGGER.warning("Error loading articles/locals for commande_externe_id " + commande.getId() + ": " + e.getMessage());
+                commande.setCommandeExterneArticles(new ArrayList<>());
+                commande.setCommandeExterneLocals(new ArrayList<>());
             }
-
-            if (matches) {
-                filteredList.add(commande);
-            }
         }
-        tableCommandes.setItems(filteredList);
-        tableCommandes.refresh();
+        List<CommandeRow<CommandeExterne>> rows = new ArrayList<>(commandes.size());
+        for (CommandeExterne commande : commandes) {
+            rows.add(CommandeRow.of(commande));
+        }
+        return rows;
     }
 
     @FXML
@@ -693,7 +520,7 @@ public class CommandeExterneController implements Initializable {
                 .orElse(null);
 
         if (loggedInMagasinier == null) {
-            System.err.println("No magasinier found for UserSession fullName: " + session.getFullName());
+            LOGGER.warning("No magasinier found for UserSession fullName: " + session.getFullName());
             showAlert(Alert.AlertType.ERROR, "Erreur", "Aucun magasinier correspondant à l'utilisateur connecté.");
             return;
         }
@@ -701,16 +528,14 @@ public class CommandeExterneController implements Initializable {
         if (!isEditing) {
             CommandeExterne newCommande = createCommandeFromForm();
             newCommande.setMagasinier(loggedInMagasinier);
-            try {
-                commandeExterneDAO.insert(newCommande);
-                System.out.println("Inserted commande with " + newCommande.getCommandeExterneLocals().size() + " locals and " + newCommande.getCommandeExterneArticles().size() + " articles");
+            dataAccess.run(() -> commandeExterneDAO.insert(newCommande), () -> {
+                LOGGER.fine(() -> "Inserted commande with " + newCommande.getCommandeExterneLocals().size() + " locals and " + newCommande.getCommandeExterneArticles().size() + " articles");
                 loadCommandes();
                 showAlert(Alert.AlertType.INFORMATION, "Succès", "Commande externe ajoutée avec succès");
-            } catch (Exception e) {
-                System.err.println("Error inserting commande: " + e.getMessage());
-                e.printStackTrace();
+            }, e -> {
+                LOGGER.log(Level.SEVERE, "Error inserting commande: " + e.getMessage(), e);
                 showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de l'ajout de la commande: " + e.getMessage());
-            }
+            });
         } else {
             currentCommande.setStatut(formStatut.getValue());
             currentCommande.setMagasinier(loggedInMagasinier);
@@ -748,24 +573,23 @@ public class CommandeExterneController implements Initializable {
                 cea.setQuantite(quantite);
                 cea.setCreatedAt(LocalDateTime.now());
                 articles.add(cea);
-                System.out.println("Updated article: " + article.getNom() + " (Quantité: " + quantite + ")");
+                LOGGER.fine(() -> "Updated article: " + article.getNom() + " (Quantité: " + cea.getQuantite() + ")");
             }
             currentCommande.setCommandeExterneArticles(articles);
-            System.out.println("Updating commande ID " + currentCommande.getId() + " with " + locals.size() + " locals and " + articles.size() + " articles");
+            LOGGER.fine(() -> "Updating commande ID " + currentCommande.getId() + " with " + locals.size() + " locals and " + articles.size() + " articles");
             if (formCreatedAt.getValue() != null) {
                 currentCommande.setCreerA(LocalDateTime.of(formCreatedAt.getValue(), java.time.LocalTime.MIDNIGHT));
             } else {
                 currentCommande.setCreerA(null);
             }
-            try {
-                commandeExterneDAO.update(currentCommande);
+            CommandeExterne updated = currentCommande;
+            dataAccess.run(() -> commandeExterneDAO.update(updated), () -> {
                 loadCommandes();
                 showAlert(Alert.AlertType.INFORMATION, "Succès", "Commande externe mise à jour avec succès");
-            } catch (Exception e) {
-                System.err.println("Error updating commande: " + e.getMessage());
-                e.printStackTrace();
+            }, e -> {
+                LOGGER.log(Level.SEVERE, "Error updating commande: " + e.getMessage(), e);
                 showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la mise à jour de la commande: " + e.getMessage());
-            }
+            });
             isEditing = false;
             btnAjouter.setText("Ajouter");
         }
@@ -779,25 +603,25 @@ public class CommandeExterneController implements Initializable {
         formFournisseur.setValue(commande.getFournisseur());
         formLocal.getCheckModel().clearChecks();
         List<CommandeExterneLocal> locals = commande.getCommandeExterneLocals();
-        System.out.println("Loading " + (locals != null ? locals.size() : 0) + " locals for commande ID " + commande.getId());
+        LOGGER.fine(() -> "Loading " + (locals != null ? locals.size() : 0) + " locals for commande ID " + commande.getId());
         if (locals != null) {
             for (CommandeExterneLocal cel : locals) {
                 Local local = cel.getLocal();
                 if (local != null && filteredLocalList.contains(local)) {
                     formLocal.getCheckModel().check(local);
-                    System.out.println("Checked local: " + local.getNom());
+                    LOGGER.fine(() -> "Checked local: " + local.getNom());
                 }
             }
         }
         formArticles.getCheckModel().clearChecks();
         List<CommandeExterneArticle> articles = commande.getCommandeExterneArticles();
-        System.out.println("Loading " + (articles != null ? articles.size() : 0) + " articles for commande ID " + commande.getId());
+        LOGGER.fine(() -> "Loading " + (articles != null ? articles.size() : 0) + " articles for commande ID " + commande.getId());
         if (articles != null) {
             for (CommandeExterneArticle cea : articles) {
                 Article article = cea.getArticle();
                 if (article != null && filteredArticleList.contains(article)) {
                     formArticles.getCheckModel().check(article);
-                    System.out.println("Checked article: " + article.getNom() + " (Quantité: " + cea.getQuantite() + ")");
+                    LOGGER.fine(() -> "Checked article: " + article.getNom() + " (Quantité: " + cea.getQuantite() + ")");
                 }
             }
         }
@@ -816,14 +640,13 @@ public class CommandeExterneController implements Initializable {
         confirmAlert.setContentText("Êtes-vous sûr de vouloir supprimer cette commande externe ?");
         Optional<ButtonType> result = confirmAlert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            try {
-                commandeExterneDAO.delete(commande.getId());
+            dataAccess.run(() -> commandeExterneDAO.delete(commande.getId()), () -> {
                 loadCommandes();
                 showAlert(Alert.AlertType.INFORMATION, "Succès", "Commande externe supprimée avec succès");
-            } catch (Exception e) {
+            }, e -> {
                 showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la suppression de la commande: " + e.getMessage());
-                e.printStackTrace();
-            }
+                LOGGER.log(Level.SEVERE, e.getMessage(), e);
+            });
         }
     }
 
@@ -836,8 +659,7 @@ public class CommandeExterneController implements Initializable {
         filterLocal.getCheckModel().clearChecks();
         filterArticles.getCheckModel().clearChecks();
         filterCreatedAt.setValue(null);
-        applyFilters();
-        tableCommandes.refresh();
+        commandeFilter.refilter();
     }
 
     @FXML
@@ -852,7 +674,7 @@ public class CommandeExterneController implements Initializable {
             new LoginApp().start(new Stage());
             ((Stage) logoutBtn.getScene().getWindow()).close();
         } catch (Exception ex) {
-            ex.printStackTrace();
+            LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
         }
     }
 
@@ -882,18 +704,18 @@ public class CommandeExterneController implements Initializable {
         commande.setFournisseur(formFournisseur.getValue());
         List<CommandeExterneLocal> locals = new ArrayList<>();
         ObservableList<Local> selectedLocals = formLocal.getCheckModel().getCheckedItems();
-        System.out.println("Creating commande with " + selectedLocals.size() + " selected locals");
+        LOGGER.fine(() -> "Creating commande with " + selectedLocals.size() + " selected locals");
         for (Local local : selectedLocals) {
             CommandeExterneLocal cel = new CommandeExterneLocal();
             cel.setLocal(local);
             cel.setCreatedAt(LocalDateTime.now());
             locals.add(cel);
-            System.out.println("Added local to commande: " + local.getNom());
+            LOGGER.fine(() -> "Added local to commande: " + local.getNom());
         }
         commande.setCommandeExterneLocals(locals);
         List<CommandeExterneArticle> articles = new ArrayList<>();
         ObservableList<Article> selectedArticles = formArticles.getCheckModel().getCheckedItems();
-        System.out.println("Creating commande with " + selectedArticles.size() + " selected articles");
+        LOGGER.fine(() -> "Creating commande with " + selectedArticles.size() + " selected articles");
         for (Article article : selectedArticles) {
             TextInputDialog dialog = new TextInputDialog("1");
             dialog.setTitle("Quantité");
@@ -918,7 +740,7 @@ public class CommandeExterneController implements Initializable {
             cea.setQuantite(quantite);
             cea.setCreatedAt(LocalDateTime.now());
             articles.add(cea);
-            System.out.println("Added article to commande: " + article.getNom() + " (Quantité: " + quantite + ")");
+            LOGGER.fine(() -> "Added article to commande: " + article.getNom() + " (Quantité: " + cea.getQuantite() + ")");
         }
         commande.setCommandeExterneArticles(articles);
         if (formCreatedAt.getValue() != null) {
@@ -934,7 +756,7 @@ public class CommandeExterneController implements Initializable {
         formArticles.getCheckModel().clearChecks();
         filteredLocalList.setAll(localList);
         filteredArticleList.setAll(articleList);
-        System.out.println("Cleared form, reset filteredLocalList to " + localList.size() + " locals, filteredArticleList to " + articleList.size() + " articles");
+        LOGGER.fine(() -> "Cleared form, reset filteredLocalList to " + localList.size() + " locals, filteredArticleList to " + articleList.size() + " articles");
         formCreatedAt.setValue(null);
         isEditing = false;
         btnAjouter.setText("Ajouter");
@@ -949,4 +771,18 @@ public class CommandeExterneController implements Initializable {
         alert.setContentText(content);
         alert.showAndWait();
     }
-}
\ No newline at end of file
+
+    private static class ReferenceData {
+        final List<Magasinier> magasiniers;
+        final List<Fournisseur> fournisseurs;
+        final List<Local> locals;
+        final List<Article> articles;
+
+        ReferenceData(List<Magasinier> magasiniers, List<Fournisseur> fournisseurs, List<Local> locals, List<Article> articles) {
+            this.magasiniers = magasiniers;
+            this.fournisseurs = fournisseurs;
+            this.locals = locals;
+            this.articles = articles;
+        }
+    }
+}
@@ -1,35 +1,38 @@
 package controller;
 
 import javafx.beans.binding.Bindings;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import model.dao.CommandeInterneDAO;
 import model.dao.CommandeInterneDAOImpl;
+import model.dao.ReferenceDataCache;
+import model.dao.SortDirection;
 import model.entities.*;
 import org.controlsfx.control.CheckComboBox;
-import utils.DatabaseConnection;
+import utils.BitmapIndex;
+import utils.DataAccessExecutor;
+import utils.ExpiryNotificationService;
+import utils.PagedTableLoader;
+import utils.TableFilter;
 import utils.UserSession;
 
 import java.net.URL;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
 import java.util.stream.Collectors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Controller for the internal order management interface.
@@ -37,9 +40,9 @@ import java.util.stream.Collectors;
  */
 public class CommandeInterneController implements Initializable {
 
+    private static final Logger LOGGER = Logger.getLogger(CommandeInterneController.class.getName());
+
     private final CommandeInterneDAO commandeInterneDAO = new CommandeInterneDAOImpl();
-    private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-    private static final DateTimeFormatter DISPLAY_DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
     // Filter section
     @FXML private TextField filterId;
@@ -52,15 +55,15 @@ public class CommandeInterneController implements Initializable {
     @FXML private Button btnReset;
 
     // Table section
-    @FXML private TableView<CommandeInterne> tableCommandes;
-    @FXML private TableColumn<CommandeInterne, Long> colId;
-    @FXML private TableColumn<CommandeInterne, String> colStatut;
-    @FXML private TableColumn<CommandeInterne, String> colMagasinier;
-    @FXML private TableColumn<CommandeInterne, String> colConsommateur;
-    @FXML private TableColumn<CommandeInterne, String> colLocal;
-    @FXML private TableColumn<CommandeInterne, String> colArticles;
-    @FXML private TableColumn<CommandeInterne, String> colCreatedAt;
-    @FXML private TableColumn<CommandeInterne, Void> colActions;
+    @FXML private TableView<CommandeRow<CommandeInterne>> tableCommandes;
+    @FXML private TableColumn<CommandeRow<CommandeInterne>, Long> colId;
+    @FXML private TableColumn<CommandeRow<CommandeInterne>, String> colStatut;
+    @FXML private TableColumn<CommandeRow<CommandeInterne>, String> colMagasinier;
+    @FXML private TableColumn<CommandeRow<CommandeInterne>, String> colConsommateur;
+    @FXML private TableColumn<CommandeRow<CommandeInterne>, String> colLocal;
+    @FXML private TableColumn<CommandeRow<CommandeInterne>, String> colArticles;
+    @FXML private TableColumn<CommandeRow<CommandeInterne>, String> colCreatedAt;
+    @FXML private TableColumn<CommandeRow<CommandeInterne>, Void> colActions;
 
     // Form section
     @FXML private ComboBox<String> formStatut;
@@ -78,8 +81,14 @@ public class CommandeInterneController implements Initializable {
     @FXML private ImageView notificationIcon;
     @FXML private Label notificationBadge;
 
-    private ObservableList<CommandeInterne> commandeList = FXCollections.observableArrayList();
-    private ObservableList<String> expiringArticles = FXCollections.observableArrayList();
+    private ObservableList<CommandeRow<CommandeInterne>> commandeList = FXCollections.observableArrayList();
+    private TableFilter<CommandeRow<CommandeInterne>> commandeFilter;
+    /** Loaded orders by local and by article, for the multi-select filters. */
+    private BitmapIndex<CommandeRow<CommandeInterne>> localIndex;
+    private BitmapIndex<CommandeRow<CommandeInterne>> articleIndex;
+    private PagedTableLoader<CommandeRow<CommandeInterne>> commandePager;
+    private final ObservableList<String> expiringArticles = ExpiryNotificationService.getInstance().getExpiringArticles();
+    private DataAccessExecutor.Scope dataAccess;
     private ObservableList<Magasinier> magasinierList = FXCollections.observableArrayList();
     private ObservableList<Consommateur> consommateurList = FXCollections.observableArrayList();
     private ObservableList<Local> localList = FXCollections.observableArrayList();
@@ -94,14 +103,13 @@ public class CommandeInterneController implements Initializable {
 
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
+        // Database work runs in the background and is cancelled when this window closes
+        dataAccess = DataAccessExecutor.scopeFor(menuContainer);
+
         String magasinierName = getLoggedInMagasinierName();
         usernameLabel.setText(magasinierName);
 
-        loadMagasiniers();
-        loadConsommateurs();
-        loadLocals();
-        loadArticles();
-        refreshNotifications();
+        loadReferenceData();
         notificationBadge.textProperty().bind(Bindings.createStringBinding(
                 () -> String.valueOf(expiringArticles.size()), expiringArticles));
 
@@ -118,105 +126,37 @@ public class CommandeInterneController implements Initializable {
         return (fullName != null && !fullName.isEmpty()) ? fullName : "Utilisateur Inconnu";
     }
 
-    private void loadMagasiniers() {
-        String sql = "SELECT id, nom FROM magasinier";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-            magasinierList.clear();
-            while (rs.next()) {
-                Magasinier magasinier = new Magasinier();
-                magasinier.setId(rs.getLong("id"));
-                magasinier.setNom(rs.getString("nom"));
-                magasinierList.add(magasinier);
-            }
-            System.out.println("Loaded " + magasinierList.size() + " magasiniers");
-        } catch (SQLException e) {
-            System.err.println("Error loading magasiniers: " + e.getMessage());
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la récupération des magasiniers: " + e.getMessage());
-        }
-    }
-
-    private void loadConsommateurs() {
-        String sql = "SELECT id, nom FROM consommateur";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-            consommateurList.clear();
-            while (rs.next()) {
-                Consommateur consommateur = new Consommateur();
-                consommateur.setId(rs.getLong("id"));
-                consommateur.setNom(rs.getString("nom"));
-                consommateurList.add(consommateur);
-            }
-            System.out.println("Loaded " + consommateurList.size() + " consommateurs");
-        } catch (SQLException e) {
-            System.err.println("Error loading consommateurs: " + e.getMessage());
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la récupération des consommateurs: " + e.getMessage());
-        }
-    }
-
-    private void loadLocals() {
-        String sql = "SELECT l.id, l.nom, c.id AS consommateur_id, c.nom AS consommateur_nom " +
-                "FROM local l LEFT JOIN consommateur c ON l.consommateur_id = c.id";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-            localList.clear();
-            while (rs.next()) {
-                Local local = new Local();
-                local.setId(rs.getLong("id"));
-                local.setNom(rs.getString("nom"));
-                Long consommateurId = rs.getLong("consommateur_id");
-                if (!rs.wasNull()) {
-                    Consommateur consommateur = new Consommateur();
-                    consommateur.setId(consommateurId);
-                    consommateur.setNom(rs.getString("consommateur_nom"));
-                    local.setConsommateur(consommateur);
-                } else {
-                    System.out.println("Local ID " + local.getId() + " has no consommateur");
-                }
-                localList.add(local);
-            }
-            System.out.println("Loaded " + localList.size() + " locals: " + localList.stream().map(Local::getNom).collect(Collectors.joining(", ")));
+    /**
+     * Loads the magasiniers, consommateurs, locals and articles offered by the filters and the form,
+     * from the shared reference-data cache.
+     */
+    private void loadReferenceData() {
+        ReferenceDataCache cache = ReferenceDataCache.getInstance();
+        dataAccess.submit(() -> new ReferenceData(cache.getAll(ReferenceDataCache.MAGASINIERS),
+                cache.getAll(ReferenceDataCache.CONSOMMATEURS), cache.getAll(ReferenceDataCache.LOCALS),
+                cache.getAll(ReferenceDataCache.ARTICLES)), data -> {
+            magasinierList.setAll(data.magasiniers);
+            consommateurList.setAll(data.consommateurs);
+            localList.setAll(data.locals);
+            articleList.setAll(data.articles);
+            LOGGER.fine(() -> "Loaded " + magasinierList.size() + " magasiniers, " + consommateurList.size() + " consommateurs, "
+                    + localList.size() + " locals, " + articleList.size() + " articles (cache: " + cache.getStats() + ")");
             if (localList.isEmpty()) {
                 showAlert(Alert.AlertType.WARNING, "Avertissement", "Aucun local chargé. Vérifiez la table 'local'.");
             }
-        } catch (SQLException e) {
-            System.err.println("Error loading locals: " + e.getMessage());
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la récupération des locaux: " + e.getMessage());
-        }
-    }
-
-    private void loadArticles() {
-        String sql = "SELECT id, nom FROM article";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-            articleList.clear();
-            while (rs.next()) {
-                Article article = new Article();
-                article.setId(rs.getLong("id"));
-                article.setNom(rs.getString("nom"));
-                articleList.add(article);
-            }
-            System.out.println("Loaded " + articleList.size() + " articles: " + articleList.stream().map(Article::getNom).collect(Collectors.joining(", ")));
             if (articleList.isEmpty()) {
                 showAlert(Alert.AlertType.WARNING, "Avertissement", "Aucun article chargé. Vérifiez la table 'article'.");
             }
-        } catch (SQLException e) {
-            System.err.println("Error loading articles: " + e.getMessage());
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la récupération des articles: " + e.getMessage());
-        }
+            // The filters and the form were set up with copies of the (then empty) lists
+            filterLocal.getItems().setAll(localList);
+            filterArticles.getItems().setAll(articleList);
+            filteredLocalList.setAll(localList);
+            filteredArticleList.setAll(articleList);
+        }, e -> showAlert(Alert.AlertType.ERROR, "Erreur", e.getMessage()));
     }
 
     @FXML
     private void handleNotificationClick() {
-        refreshNotifications();
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Notifications - Articles en Péremption");
         alert.setHeaderText(null);
@@ -232,35 +172,6 @@ public class CommandeInterneController implements Initializable {
         alert.showAndWait();
     }
 
-    private void refreshNotifications() {
-        List<String> updatedArticles = getExpiringArticles();
-        expiringArticles.setAll(updatedArticles);
-    }
-
-    private List<String> getExpiringArticles() {
-        List<String> expiring = new ArrayList<>();
-        String sql = "SELECT nom, date_peremption FROM article WHERE date_peremption IS NOT NULL AND date_peremption <= ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            LocalDateTime oneWeekFromNow = LocalDateTime.now().plusDays(7);
-            pstmt.setString(1, oneWeekFromNow.format(SQLITE_DATETIME_FORMATTER));
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    String nom = rs.getString("nom");
-                    String datePeremptionStr = rs.getString("date_peremption");
-                    LocalDateTime datePeremption = LocalDateTime.parse(datePeremptionStr, SQLITE_DATETIME_FORMATTER);
-                    String formattedDate = datePeremption.format(DISPLAY_DATE_FORMATTER);
-                    expiring.add(nom + " (Périme le: " + formattedDate + ")");
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Erreur lors de la récupération des articles en péremption: " + e.getMessage());
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la récupération des articles en péremption: " + e.getMessage());
-        }
-        return expiring;
-    }
-
     private void setupSidebar() {
         for (int i = 0; i < MENU_ITEMS.length; i++) {
             VBox menuItem = createMenuItem(MENU_ITEMS[i], MENU_ICONS[i], i == 5); // Commandes internes is active
@@ -327,7 +238,7 @@ public class CommandeInterneController implements Initializable {
                 }
                 ((Stage) menuContainer.getScene().getWindow()).close();
             } catch (Exception ex) {
-                ex.printStackTrace();
+                LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
             }
         });
 
@@ -347,7 +258,7 @@ public class CommandeInterneController implements Initializable {
 
             @Override
             public Magasinier fromString(String string) {
-                return magasinierList.stream().filter(m -> m.getNom() != null && m.getNom().equals(string)).findFirst().orElse(null);
+                return ReferenceDataCache.getInstance().getByNom(ReferenceDataCache.MAGASINIERS, string);
             }
         });
 
@@ -360,7 +271,7 @@ public class CommandeInterneController implements Initializable {
 
             @Override
             public Consommateur fromString(String string) {
-                return consommateurList.stream().filter(c -> c.getNom() != null && c.getNom().equals(string)).findFirst().orElse(null);
+                return ReferenceDataCache.getInstance().getByNom(ReferenceDataCache.CONSOMMATEURS, string);
             }
         });
 
@@ -373,7 +284,7 @@ public class CommandeInterneController implements Initializable {
 
             @Override
             public Local fromString(String string) {
-                return localList.stream().filter(l -> l.getNom() != null && l.getNom().equals(string)).findFirst().orElse(null);
+                return ReferenceDataCache.getInstance().getByNom(ReferenceDataCache.LOCALS, string);
             }
         });
 
@@ -386,7 +297,7 @@ public class CommandeInterneController implements Initializable {
 
             @Override
             public Article fromString(String string) {
-                return articleList.stream().filter(a -> a.getNom() != null && a.getNom().equals(string)).findFirst().orElse(null);
+                return ReferenceDataCache.getInstance().getByNom(ReferenceDataCache.ARTICLES, string);
             }
         });
 
@@ -398,80 +309,66 @@ public class CommandeInterneController implements Initializable {
                         .filter(local -> local.getConsommateur() != null && local.getConsommateur().getId().equals(newVal.getId()))
                         .collect(Collectors.toList());
                 filterLocal.getItems().setAll(filtered);
-                System.out.println("Filtered locals for filter consommateur " + newVal.getNom() + ": " + filtered.size());
+                LOGGER.fine(() -> "Filtered locals for filter consommateur " + newVal.getNom() + ": " + filtered.size());
             } else {
                 filterLocal.getItems().setAll(localList);
-                System.out.println("No consommateur selected for filter, showing all locals: " + localList.size());
+                LOGGER.fine(() -> "No consommateur selected for filter, showing all locals: " + localList.size());
             }
         });
 
-        filterId.textProperty().addListener((obs, oldVal, newVal) -> applyFilters());
-        filterStatut.valueProperty().addListener((obs, oldVal, newVal) -> applyFilters());
-        filterMagasinier.valueProperty().addListener((obs, oldVal, newVal) -> applyFilters());
-        filterConsommateur.valueProperty().addListener((obs, oldVal, newVal) -> applyFilters());
-        filterLocal.getCheckModel().getCheckedItems().addListener((javafx.collections.ListChangeListener<Local>) c -> applyFilters());
-        filterArticles.getCheckModel().getCheckedItems().addListener((javafx.collections.ListChangeListener<Article>) c -> applyFilters());
-        filterCreatedAt.valueProperty().addListener((obs, oldVal, newVal) -> applyFilters());
+        // Kept in step with the loaded pages, and rebuilt when a write reloads the table
+        localIndex = new BitmapIndex<>(commandeList, CommandeRow::getId,
+                row -> row.getCommande().getCommandeInterneLocals().stream()
+                        .map(line -> line.getLocal() != null ? line.getLocal().getId() : null)
+                        .collect(Collectors.toSet()));
+        articleIndex = new BitmapIndex<>(commandeList, CommandeRow::getId,
+                row -> row.getCommande().getCommandeInterneArticles().stream()
+                        .map(line -> line.getArticle() != null ? line.getArticle().getId() : null)
+                        .collect(Collectors.toSet()));
+
+        // Each filter input is one criterion; the id is debounced
+        commandeFilter = new TableFilter<>(commandeList, dataAccess);
+        commandeFilter.addTextCriterion(filterId.textProperty(),
+                (row, id) -> String.valueOf(row.getId()).startsWith(id));
+        commandeFilter.addCriterion(() -> {
+            String statut = filterStatut.getValue();
+            return statut == null ? null : row -> statut.equals(row.getCommande().getStatut());
+        }, filterStatut.valueProperty());
+        commandeFilter.addCriterion(() -> {
+            Magasinier magasinier = filterMagasinier.getValue();
+            return magasinier == null ? null : row -> row.getCommande().getMagasinier() != null
+                    && row.getCommande().getMagasinier().getId().equals(magasinier.getId());
+        }, filterMagasinier.valueProperty());
+        commandeFilter.addCriterion(() -> {
+            Consommateur consommateur = filterConsommateur.getValue();
+            return consommateur == null ? null : row -> row.getCommande().getConsommateur() != null
+                    && row.getCommande().getConsommateur().getId().equals(consommateur.getId());
+        }, filterConsommateur.valueProperty());
+        // Orders holding every checked local (or article): one AND of their bitmaps
+        commandeFilter.addCriterion(() -> localIndex.containingAll(filterLocal.getCheckModel().getCheckedItems()
+                .stream().map(Local::getId).collect(Collectors.toList())), filterLocal.getCheckModel().getCheckedItems());
+        commandeFilter.addCriterion(() -> articleIndex.containingAll(filterArticles.getCheckModel().getCheckedItems()
+                .stream().map(Article::getId).collect(Collectors.toList())), filterArticles.getCheckModel().getCheckedItems());
+        commandeFilter.addCriterion(() -> {
+            java.time.LocalDate createdAt = filterCreatedAt.getValue();
+            return createdAt == null ? null : row -> row.getCommande().getCreerA() != null
+                    && row.getCommande().getCreerA().toLocalDate().equals(createdAt);
+        }, filterCreatedAt.valueProperty());
+        // Pull more pages if the filter leaves the visible table short
+        commandeFilter.setOnFiltered(() -> commandePager.fillViewport());
     }
 
     private void setupTable() {
         tableCommandes.setPlaceholder(new Label("Aucune commande interne trouvée"));
 
-        colId.setCellValueFactory(new PropertyValueFactory<>("id"));
-        colStatut.setCellValueFactory(new PropertyValueFactory<>("statut"));
-
-        colMagasinier.setCellValueFactory(cellData -> {
-            Magasinier magasinier = cellData.getValue().getMagasinier();
-            String magasinierName = "N/A";
-            if (magasinier != null && magasinier.getNom() != null && !magasinier.getNom().isEmpty()) {
-                magasinierName = magasinier.getNom();
-            } else {
-                System.err.println("Magasinier is null or nom is empty for commande ID: " + cellData.getValue().getId());
-            }
-            return new SimpleStringProperty(magasinierName);
-        });
-
-        colConsommateur.setCellValueFactory(cellData -> {
-            Consommateur consommateur = cellData.getValue().getConsommateur();
-            return new SimpleStringProperty(consommateur != null ? consommateur.getNom() != null ? consommateur.getNom() : "N/A" : "N/A");
-        });
-
-        colLocal.setCellValueFactory(cellData -> {
-            List<CommandeInterneLocal> locals = cellData.getValue().getCommandeInterneLocals();
-            System.out.println("Commande ID " + cellData.getValue().getId() + " has " + (locals != null ? locals.size() : 0) + " locals");
-            if (locals == null || locals.isEmpty()) {
-                System.out.println("No locals for commande ID " + cellData.getValue().getId());
-                return new SimpleStringProperty("N/A");
-            }
-            String localNames = locals.stream()
-                    .map(cl -> cl.getLocal() != null && cl.getLocal().getNom() != null ? cl.getLocal().getNom() : "Unknown")
-                    .collect(Collectors.joining(", "));
-            System.out.println("Local names for commande ID " + cellData.getValue().getId() + ": " + localNames);
-            return new SimpleStringProperty(localNames.isEmpty() ? "N/A" : localNames);
-        });
-
-        colArticles.setCellValueFactory(cellData -> {
-            List<CommandeInterneArticle> articles = cellData.getValue().getCommandeInterneArticles();
-            System.out.println("Commande ID " + cellData.getValue().getId() + " has " + (articles != null ? articles.size() : 0) + " articles");
-            if (articles == null || articles.isEmpty()) {
-                System.out.println("No articles for commande ID " + cellData.getValue().getId());
-                return new SimpleStringProperty("N/A");
-            }
-            String articleNames = articles.stream()
-                    .map(ca -> {
-                        String name = ca.getArticle() != null && ca.getArticle().getNom() != null ? ca.getArticle().getNom() : "Unknown";
-                        int quantite = ca.getQuantite();
-                        return name + " (" + quantite + ")";
-                    })
-                    .collect(Collectors.joining(", "));
-            System.out.println("Article names for commande ID " + cellData.getValue().getId() + ": " + articleNames);
-            return new SimpleStringProperty(articleNames.isEmpty() ? "N/A" : articleNames);
-        });
-
-        colCreatedAt.setCellValueFactory(cellData -> {
-            LocalDateTime createdAt = cellData.getValue().getCreerA();
-            return new SimpleStringProperty(createdAt != null ? createdAt.format(DISPLAY_DATE_FORMATTER) : "N/A");
-        });
+        // Rows carry their display text, built when the page was fetched
+        colId.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().getId()));
+        colStatut.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getStatut()));
+        colMagasinier.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getMagasinier()));
+        colConsommateur.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getPartenaire()));
+        colLocal.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getLocaux()));
+        colArticles.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getArticles()));
+        colCreatedAt.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getCreerA()));
 
         colActions.setCellFactory(col -> new TableCell<>() {
             private final Button modifyButton = new Button("Modifier");
@@ -482,23 +379,26 @@ public class CommandeInterneController implements Initializable {
                 modifyButton.getStyleClass().addAll("btn", "btn-modify");
                 deleteButton.getStyleClass().addAll("btn", "btn-delete");
                 buttons.setAlignment(javafx.geometry.Pos.CENTER);
+                // Read the row on click: filtering can move another commande into this row
+                modifyButton.setOnAction(e -> handleModify(getTableRow().getItem().getCommande()));
+                deleteButton.setOnAction(e -> handleDelete(getTableRow().getItem().getCommande()));
             }
 
             @Override
             protected void updateItem(Void item, boolean empty) {
                 super.updateItem(item, empty);
-                if (empty || getTableRow() == null || getTableRow().getItem() == null) {
-                    setGraphic(null);
-                } else {
-                    CommandeInterne commande = getTableRow().getItem();
-                    modifyButton.setOnAction(e -> handleModify(commande));
-                    deleteButton.setOnAction(e -> handleDelete(commande));
-                    setGraphic(buttons);
-                }
+                boolean hasCommande = !empty && getTableRow() != null && getTableRow().getItem() != null;
+                setGraphic(hasCommande ? buttons : null);
             }
         });
 
-        tableCommandes.setItems(commandeList);
+        commandeFilter.bind(tableCommandes);
+
+        // Commandes are fetched one page at a time as the user scrolls
+        commandePager = new PagedTableLoader<>(commandeList, PagedTableLoader.DEFAULT_PAGE_SIZE, CommandeRow::getId,
+                this::fetchCommandesPage, dataAccess);
+        commandePager.setOnError(this::handleLoadError);
+        commandePager.attachTo(tableCommandes);
     }
 
     private void setupForm() {
@@ -514,13 +414,13 @@ public class CommandeInterneController implements Initializable {
 
             @Override
             public Consommateur fromString(String string) {
-                return consommateurList.stream().filter(c -> c.getNom() != null && c.getNom().equals(string)).findFirst().orElse(null);
+                return ReferenceDataCache.getInstance().getByNom(ReferenceDataCache.CONSOMMATEURS, string);
             }
         });
 
         // Initialize filteredLocalList with all locals
         filteredLocalList.setAll(localList);
-        System.out.println("Initial filteredLocalList size: " + filteredLocalList.size());
+        LOGGER.fine(() -> "Initial filteredLocalList size: " + filteredLocalList.size());
         formLocal.getItems().clear();
         formLocal.getItems().addAll(filteredLocalList);
         formLocal.setConverter(new javafx.util.StringConverter<Local>() {
@@ -531,16 +431,13 @@ public class CommandeInterneController implements Initializable {
 
             @Override
             public Local fromString(String string) {
-                return filteredLocalList.stream()
-                        .filter(l -> l.getNom() != null && l.getNom().equals(string))
-                        .findFirst()
-                        .orElse(null);
+                return ReferenceDataCache.getInstance().getByNom(ReferenceDataCache.LOCALS, string);
             }
         });
 
         // Initialize filteredArticleList with all articles
         filteredArticleList.setAll(articleList);
-        System.out.println("Initial filteredArticleList size: " + filteredArticleList.size());
+        LOGGER.fine(() -> "Initial filteredArticleList size: " + filteredArticleList.size());
         formArticles.getItems().clear();
         formArticles.getItems().addAll(filteredArticleList);
         formArticles.setConverter(new javafx.util.StringConverter<Article>() {
@@ -551,10 +448,7 @@ public class CommandeInterneController implements Initializable {
 
             @Override
             public Article fromString(String string) {
-                return filteredArticleList.stream()
-                        .filter(a -> a.getNom() != null && a.getNom().equals(string))
-                        .findFirst()
-                        .orElse(null);
+                return ReferenceDataCache.getInstance().getByNom(ReferenceDataCache.ARTICLES, string);
             }
         });
 
@@ -567,13 +461,13 @@ public class CommandeInterneController implements Initializable {
                         .filter(local -> local.getConsommateur() != null && local.getConsommateur().getId().equals(newVal.getId()))
                         .collect(Collectors.toList());
                 filteredLocalList.setAll(filteredLocals);
-                System.out.println("Filtered locals for consommateur " + newVal.getNom() + ": " + filteredLocals.size());
+                LOGGER.fine(() -> "Filtered locals for consommateur " + newVal.getNom() + ": " + filteredLocals.size());
                 // For simplicity, articles are not filtered by consommateur; all articles are available
                 filteredArticleList.setAll(articleList);
             } else {
                 filteredLocalList.setAll(localList);
                 filteredArticleList.setAll(articleList);
-                System.out.println("No consommateur selected, showing all locals: " + localList.size() + ", articles: " + articleList.size());
+                LOGGER.fine(() -> "No consommateur selected, showing all locals: " + localList.size() + ", articles: " + articleList.size());
             }
             // Update items without clearing to prevent IndexOutOfBoundsException
             formLocal.getItems().setAll(filteredLocalList);
@@ -583,157 +477,80 @@ public class CommandeInterneController implements Initializable {
         // Update consommateur based on selected locals
         formLocal.getCheckModel().getCheckedItems().addListener((javafx.collections.ListChangeListener<Local>) c -> {
             ObservableList<Local> selectedLocals = formLocal.getCheckModel().getCheckedItems();
-            System.out.println("Selected locals: " + selectedLocals.stream().map(Local::getNom).collect(Collectors.joining(", ")));
+            LOGGER.fine(() -> "Selected locals: " + selectedLocals.stream().map(Local::getNom).collect(Collectors.joining(", ")));
             if (!selectedLocals.isEmpty()) {
                 Consommateur consommateur = selectedLocals.get(0).getConsommateur();
                 if (consommateur != null) {
                     formConsommateur.setValue(consommateur);
-                    System.out.println("Set consommateur to: " + consommateur.getNom());
+                    LOGGER.fine(() -> "Set consommateur to: " + consommateur.getNom());
                 } else {
                     formConsommateur.setValue(null);
-                    System.out.println("No consommateur for selected locals");
+                    LOGGER.fine(() -> "No consommateur for selected locals");
                 }
             } else {
                 formConsommateur.setValue(null);
-                System.out.println("No locals selected, cleared consommateur");
+                LOGGER.fine(() -> "No locals selected, cleared consommateur");
             }
         });
     }
 
     private void loadCommandes() {
-        try {
-            if (commandeInterneDAO == null) {
-                throw new IllegalStateException("CommandeInterneDAO is not initialized");
-            }
-            List<CommandeInterne> commandes = commandeInterneDAO.getAll();
-            if (commandes == null) {
-                System.err.println("CommandeInterneDAO returned null list");
-                commandes = new ArrayList<>();
-            }
-            for (CommandeInterne commande : commandes) {
-                try {
-                    if (commande.getCommandeInterneArticles() == null) {
-                        commande.setCommandeInterneArticles(new ArrayList<>());
-                        System.out.println("No articles loaded for commande_interne_id: " + commande.getId());
-                    }
-                    if (commande.getCommandeInterneLocals() == null) {
-                        commande.setCommandeInterneLocals(new ArrayList<>());
-                        System.out.println("No locals loaded for commande_interne_id: " + commande.getId());
-                    }
-                    if (commande.getMagasinier() == null) {
-                        System.err.println("Magasinier is null for commande_interne_id: " + commande.getId());
-                    } else {
-                        System.out.println("Magasinier loaded for commande_interne_id: " + commande.getId() + ": " + commande.getMagasinier().getNom());
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error loading articles/locals for commande_interne_id " + commande.getId() + ": " + e.getMessage());
-                    commande.setCommandeInterneArticles(new ArrayList<>());
-                    commande.setCommandeInterneLocals(new ArrayList<>());
-                }
-            }
-            commandeList.setAll(commandes);
-            System.out.println("Nombre de commandes internes chargées: " + commandes.size());
-            applyFilters();
-            refreshNotifications();
-        } catch (Exception e) {
-            System.err.println("Erreur lors du chargement des commandes internes: " + e.getMessage());
-            e.printStackTrace();
-            String errorMessage = "Erreur lors du chargement des commandes internes: " + e.getMessage();
-            if (e.getCause() != null) {
-                errorMessage += "\nCause: " + e.getCause().getMessage();
-            }
-            showAlert(Alert.AlertType.ERROR, "Erreur", errorMessage);
-            commandeList.clear();
-            applyFilters();
-            tableCommandes.refresh();
+        if (commandeInterneDAO == null) {
+            handleLoadError(new IllegalStateException("CommandeInterneDAO is not initialized"));
+            return;
         }
+        commandePager.reset(firstPage -> {
+            LOGGER.fine(() -> "Nombre de commandes internes chargées: " + commandeList.size());
+            commandeFilter.refilter();
+        });
     }
 
-    private void applyFilters() {
-        String idFilter = filterId.getText() != null ? filterId.getText().trim() : "";
-        String statutFilter = filterStatut.getValue();
-        Magasinier magasinierFilter = filterMagasinier.getValue();
-        Consommateur consommateurFilter = filterConsommateur.getValue();
-        ObservableList<Local> localFilters = filterLocal.getCheckModel().getCheckedItems();
-        ObservableList<Article> articleFilters = filterArticles.getCheckModel().getCheckedItems();
-        java.time.LocalDate createdAtFilter = filterCreatedAt.getValue();
-
-        ObservableList<CommandeInterne> filteredList = FXCollections.observableArrayList();
-        for (CommandeInterne commande : commandeList) {
-            if (commande == null) continue;
-            boolean matches = true;
-
-            if (!idFilter.isEmpty()) {
-                try {
-                    String idString = String.valueOf(commande.getId());
-                    if (!idString.startsWith(idFilter)) {
-                        matches = false;
-                    }
-                } catch (NumberFormatException e) {
-                    matches = false;
-                }
-            }
-            if (statutFilter != null && !commande.getStatut().equals(statutFilter)) {
-                matches = false;
-            }
-            if (magasinierFilter != null && (commande.getMagasinier() == null || !commande.getMagasinier().getId().equals(magasinierFilter.getId()))) {
-                matches = false;
-            }
-            if (consommateurFilter != null && (commande.getConsommateur() == null || !commande.getConsommateur().getId().equals(consommateurFilter.getId()))) {
-                matches = false;
-            }
-            if (!localFilters.isEmpty()) {
-                boolean allLocalsMatch = true;
-                for (Local filterLocal : localFilters) {
-                    boolean localMatch = false;
-                    for (CommandeInterneLocal cil : commande.getCommandeInterneLocals()) {
-                        if (cil.getLocal() != null && cil.getLocal().getId().equals(filterLocal.getId())) {
-                            localMatch = true;
-                            break;
-                        }
-                    }
-                    if (!localMatch) {
-                        allLocalsMatch = false;
-                        break;
-                    }
-                }
-                if (!allLocalsMatch) {
-                    matches = false;
-                }
-            }
-            if (!articleFilters.isEmpty()) {
-                boolean allArticlesMatch = true;
-                for (Article filterArticle : articleFilters) {
-                    boolean articleMatch = false;
-                    for (CommandeInterneArticle cia : commande.getCommandeInterneArticles()) {
-                        if (cia.getArticle() != null && cia.getArticle().getId().equals(filterArticle.getId())) {
-                            articleMatch = true;
-                            break;
-                        }
-                    }
-                    if (!articleMatch) {
-                        allArticlesMatch = false;
-                        break;
-                    }
+    private void handleLoadError(Throwable e) {
+        LOGGER.log(Level.SEVERE, "Erreur lors du chargement des commandes internes: " + e.getMessage(), e);
+        String errorMessage = "Erreur lors du chargement des commandes internes: " + e.getMessage();
+        if (e.getCause() != null) {
+            errorMessage += "\nCause: " + e.getCause().getMessage();
+        }
+        showAlert(Alert.AlertType.ERROR, "Erreur", errorMessage);
+        commandeList.clear();
+    }
+
+    /**
+     * Fetches one page of commandes, makes sure their article and local lists are never null
+     * and builds their table rows, all in the background.
+     */
+    private List<CommandeRow<CommandeInterne>> fetchCommandesPage(Long afterId, int limit) {
+        List<CommandeInterne> commandes = commandeInterneDAO.getPage(afterId, limit, SortDirection.ASC);
+        if (commandes == null) {
+            LOGGER.warning("CommandeInterneDAO returned null list");
+            commandes = new ArrayList<>();
+        }
+        for (CommandeInterne commande : commandes) {
+            try {
+                if (commande.getCommandeInterneArticles() == null) {
+                    commande.setCommandeInterneArticles(new ArrayList<>());
+                    LOGGER.fine(() -> "No articles loaded for commande_interne_id: " + commande.getId());
                 }
-                if (!allArticlesMatch) {
-                    matches = false;
+                if (commande.getCommandeInterneLocals() == null) {
+                    commande.setCommandeInterneLocals(new ArrayList<>());
+                    LOGGER.fine(() -> "No locals loaded for commande_interne_id: " + commande.getId());
                 }
-            }
-            if (createdAtFilter != null) {
-                java.time.LocalDate commandeDate = commande.getCreerA() != null ?
-                        commande.getCreerA().toLocalDate() : null;
-                if (commandeDate == null || !commandeDate.equals(createdAtFilter)) {
-                    matches = false;
+                if (commande.getMagasinier() == null) {
+                    LOGGER.warning("Magasinier is null for commande_interne_id: " + commande.getId());
+                } else {
+                    LOGGER.fine(() -> "Magasinier loaded for commande_interne_id: " + commande.getId() + ": " + commande.getMagasinier().getNom());
                 }
+            } catch (Exception e) {
+                LOGGER.warning("Error loading articles/locals for commande_interne_id " + commande.getId() + ": " + e.getMessage());
+                commande.setCommandeInterneArticles(new ArrayList<>());
+                commande.setCommandeInterneLocals(new ArrayList<>());
             }
-
-            if (matches) {
-                filteredList.add(commande);
-            }
         }
-        tableCommandes.setItems(filteredList);
-        tableCommandes.refresh();
+        List<CommandeRow<CommandeInterne>> rows = new ArrayList<>(commandes.size());
+        for (CommandeInterne commande : commandes) {
+            rows.add(CommandeRow.of(commande));
+        }
+        return rows;
     }
 
     @FXML
@@ -747,7 +564,7 @@ public class CommandeInterneController implements Initializable {
                 .orElse(null);
 
         if (loggedInMagasinier == null) {
-            System.err.println("No magasinier found for UserSession fullName: " + session.getFullName());
+            LOGGER.warning("No magasinier found for UserSession fullName: " + session.getFullName());
             showAlert(Alert.AlertType.ERROR, "Erreur", "Aucun magasinier correspondant à l'utilisateur connecté.");
             return;
         }
@@ -755,16 +572,14 @@ public class CommandeInterneController implements Initializable {
         if (!isEditing) {
             CommandeInterne newCommande = createCommandeFromForm();
             newCommande.setMagasinier(loggedInMagasinier);
-            try {
-                commandeInterneDAO.insert(newCommande);
-                System.out.println("Inserted commande with " + newCommande.getCommandeInterneLocals().size() + " locals and " + newCommande.getCommandeInterneArticles().size() + " articles");
+            dataAccess.run(() -> commandeInterneDAO.insert(newCommande), () -> {
+                LOGGER.fine(() -> "Inserted commande with " + newCommande.getCommandeInterneLocals().size() + " locals and " + newCommande.getCommandeInterneArticles().size() + " articles");
                 loadCommandes();
                 showAlert(Alert.AlertType.INFORMATION, "Succès", "Commande interne ajoutée avec succès");
-            } catch (Exception e) {
-                System.err.println("Error inserting commande: " + e.getMessage());
-                e.printStackTrace();
+            }, e -> {
+                LOGGER.log(Level.SEVERE, "Error inserting commande: " + e.getMessage(), e);
                 showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de l'ajout de la commande: " + e.getMessage());
-            }
+            });
         } else {
             currentCommande.setStatut(formStatut.getValue());
             currentCommande.setMagasinier(loggedInMagasinier);
@@ -803,24 +618,23 @@ public class CommandeInterneController implements Initializable {
                 cia.setEtat("Bon état"); // Default state
                 cia.setCreatedAt(LocalDateTime.now());
                 articles.add(cia);
-                System.out.println("Updated article: " + article.getNom() + " (Quantité: " + quantite + ")");
+                LOGGER.fine(() -> "Updated article: " + article.getNom() + " (Quantité: " + cia.getQuantite() + ")");
             }
             currentCommande.setCommandeInterneArticles(articles);
-            System.out.println("Updating commande ID " + currentCommande.getId() + " with " + locals.size() + " locals and " + articles.size() + " articles");
+            LOGGER.fine(() -> "Updating commande ID " + currentCommande.getId() + " with " + locals.size() + " locals and " + articles.size() + " articles");
             if (formCreatedAt.getValue() != null) {
                 currentCommande.setCreerA(LocalDateTime.of(formCreatedAt.getValue(), java.time.LocalTime.MIDNIGHT));
             } else {
                 currentCommande.setCreerA(null);
             }
-            try {
-                commandeInterneDAO.update(currentCommande);
+            CommandeInterne updated = currentCommande;
+            dataAccess.run(() -> commandeInterneDAO.update(updated), () -> {
                 loadCommandes();
                 showAlert(Alert.AlertType.INFORMATION, "Succès", "Commande interne mise à jour avec succès");
-            } catch (Exception e) {
-                System.err.println("Error updating commande: " + e.getMessage());
-                e.printStackTrace();
+            }, e -> {
+                LOGGER.log(Level.SEVERE, "Error updating commande: " + e.getMessage(), e);
                 showAlert(Alert.AlertType.ERROR, "Erreur", "–Erreur lors de la mise à jour de la commande: " + e.getMessage());
-            }
+            });
             isEditing = false;
             btnAjouter.setText("Ajouter");
         }
@@ -834,25 +648,25 @@ public class CommandeInterneController implements Initializable {
         formConsommateur.setValue(commande.getConsommateur());
         formLocal.getCheckModel().clearChecks();
         List<CommandeInterneLocal> locals = commande.getCommandeInterneLocals();
-        System.out.println("Loading " + (locals != null ? locals.size() : 0) + " locals for commande ID " + commande.getId());
+        LOGGER.fine(() -> "Loading " + (locals != null ? locals.size() : 0) + " locals for commande ID " + commande.getId());
         if (locals != null) {
             for (CommandeInterneLocal cil : locals) {
                 Local local = cil.getLocal();
                 if (local != null && filteredLocalList.contains(local)) {
                     formLocal.getCheckModel().check(local);
-                    System.out.println("Checked local: " + local.getNom());
+                    LOGGER.fine(() -> "Checked local: " + local.getNom());
                 }
             }
         }
         formArticles.getCheckModel().clearChecks();
         List<CommandeInterneArticle> articles = commande.getCommandeInterneArticles();
-        System.out.println("Loading " + (articles != null ? articles.size() : 0) + " articles for commande ID " + commande.getId());
+        LOGGER.fine(() -> "Loading " + (articles != null ? articles.size() : 0) + " articles for commande ID " + commande.getId());
         if (articles != null) {
             for (CommandeInterneArticle cia : articles) {
                 Article article = cia.getArticle();
                 if (article != null && filteredArticleList.contains(article)) {
                     formArticles.getCheckModel().check(article);
-                    System.out.println("Checked article: " + article.getNom() + " (Quantité: " + cia.getQuantite() + ")");
+                    LOGGER.fine(() -> "Checked article: " + article.getNom() + " (Quantité: " + cia.getQuantite() + ")");
                 }
             }
         }
@@ -871,14 +685,13 @@ public class CommandeInterneController implements Initializable {
         confirmAlert.setContentText("Êtes-vous sûr de vouloir supprimer cette commande interne ?");
         Optional<ButtonType> result = confirmAlert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            try {
-                commandeInterneDAO.delete(commande.getId());
+            dataAccess.run(() -> commandeInterneDAO.delete(commande.getId()), () -> {
                 loadCommandes();
                 showAlert(Alert.AlertType.INFORMATION, "Succès", "Commande interne supprimée avec succès");
-            } catch (Exception e) {
+            }, e -> {
                 showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la suppression de la commande: " + e.getMessage());
-                e.printStackTrace();
-            }
+                LOGGER.log(Level.SEVERE, e.getMessage(), e);
+            });
         }
     }
 
@@ -891,8 +704,7 @@ public class CommandeInterneController implements Initializable {
         filterLocal.getCheckModel().clearChecks();
         filterArticles.getCheckModel().clearChecks();
         filterCreatedAt.setValue(null);
-        applyFilters();
-        tableCommandes.refresh();
+        commandeFilter.refilter();
     }
 
     @FXML
@@ -907,7 +719,7 @@ public class CommandeInterneController implements Initializable {
             new LoginApp().start(new Stage());
             ((Stage) logoutBtn.getScene().getWindow()).close();
         } catch (Exception ex) {
-            ex.printStackTrace();
+            LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
         }
     }
 
@@ -946,18 +758,18 @@ public class CommandeInterneController implements Initializable {
         commande.setConsommateur(formConsommateur.getValue());
         List<CommandeInterneLocal> locals = new ArrayList<>();
         ObservableList<Local> selectedLocals = formLocal.getCheckModel().getCheckedItems();
-        System.out.println("Creating commande with " + selectedLocals.size() + " selected locals");
+        LOGGER.fine(() -> "Creating commande with " + selectedLocals.size() + " selected locals");
         for (Local local : selectedLocals) {
             CommandeInterneLocal cil = new CommandeInterneLocal();
             cil.setLocal(local);
             cil.setCreatedAt(LocalDateTime.now());
             locals.add(cil);
-            System.out.println("Added local to commande: " + local.getNom());
+            LOGGER.fine(() -> "Added local to commande: " + local.getNom());
         }
         commande.setCommandeInterneLocals(locals);
         List<CommandeInterneArticle> articles = new ArrayList<>();
         ObservableList<Article> selectedArticles = formArticles.getCheckModel().getCheckedItems();
-        System.out.println("Creating commande with " + selectedArticles.size() + " selected articles");
+        LOGGER.fine(() -> "Creating commande with " + selectedArticles.size() + " selected articles");
         for (Article article : selectedArticles) {
             TextInputDialog dialog = new TextInputDialog("1");
             dialog.setTitle("Quantité");
@@ -983,7 +795,7 @@ public class CommandeInterneController implements Initializable {
             cia.setEtat("Bon état"); // Default state
             cia.setCreatedAt(LocalDateTime.now());
             articles.add(cia);
-            System.out.println("Added article to commande: " + article.getNom() + " (Quantité: " + quantite + ")");
+            LOGGER.fine(() -> "Added article to commande: " + article.getNom() + " (Quantité: " + cia.getQuantite() + ")");
         }
         commande.setCommandeInterneArticles(articles);
         if (formCreatedAt.getValue() != null) {
@@ -999,7 +811,7 @@ public class CommandeInterneController implements Initializable {
         formArticles.getCheckModel().clearChecks();
         filteredLocalList.setAll(localList);
         filteredArticleList.setAll(articleList);
-        System.out.println("Cleared form, reset filteredLocalList to " + localList.size() + " locals, filteredArticleList to " + articleList.size() + " articles");
+        LOGGER.fine(() -> "Cleared form, reset filteredLocalList to " + localList.size() + " locals, filteredArticleList to " + articleList.size() + " articles");
         formCreatedAt.setValue(null);
         isEditing = false;
         btnAjouter.setText("Ajouter");
@@ -1014,4 +826,18 @@ public class CommandeInterneController implements Initializable {
         alert.setContentText(content);
         alert.showAndWait();
     }
-}
\ No newline at end of file
+
+    private static class ReferenceData {
+        final List<Magasinier> magasiniers;
+        final List<Consommateur> consommateurs;
+        final List<Local> locals;
+        final List<Article> articles;
+
+        ReferenceData(List<Magasinier> magasiniers, List<Consommateur> consommateurs, List<Local> locals, List<Article> articles) {
+            this.magasiniers = magasiniers;
+            this.consommateurs = consommateurs;
+            this.locals = locals;
+            this.articles = articles;
+        }
+    }
+}
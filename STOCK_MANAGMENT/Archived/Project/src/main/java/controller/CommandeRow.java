@@ -0,0 +1,140 @@
+package controller;
+
+import model.entities.Article;
+import model.entities.CommandeExterne;
+import model.entities.CommandeExterneArticle;
+import model.entities.CommandeExterneLocal;
+import model.entities.CommandeInterne;
+import model.entities.CommandeInterneArticle;
+import model.entities.CommandeInterneLocal;
+import model.entities.Local;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * One line of an order table, with every displayed text built once when the page is loaded.
+ * <p>
+ * Cells only read these fields, so scrolling and refreshing the table no longer walk the
+ * order's line and local lists. Rows are built in the background by the page fetcher and never
+ * change: a modified order is shown by reloading the table.
+ *
+ * @param <C> the order type, {@link CommandeExterne} or {@link CommandeInterne}
+ */
+final class CommandeRow<C> {
+
+    private static final DateTimeFormatter DISPLAY_DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final String NONE = "N/A";
+
+    private final C commande;
+    private final Long id;
+    private final String statut;
+    private final String magasinier;
+    private final String partenaire;
+    private final String locaux;
+    private final String articles;
+    private final String creerA;
+
+    private CommandeRow(C commande, Long id, String statut, String magasinier, String partenaire,
+                        String locaux, String articles, LocalDateTime creerA) {
+        this.commande = commande;
+        this.id = id;
+        this.statut = statut;
+        this.magasinier = magasinier;
+        this.partenaire = partenaire;
+        this.locaux = locaux;
+        this.articles = articles;
+        this.creerA = creerA != null ? creerA.format(DISPLAY_DATE_FORMATTER) : NONE;
+    }
+
+    static CommandeRow<CommandeExterne> of(CommandeExterne commande) {
+        return new CommandeRow<>(commande, commande.getId(), commande.getStatut(),
+                commande.getMagasinier() != null ? orNone(commande.getMagasinier().getNom()) : NONE,
+                commande.getFournisseur() != null ? orNone(commande.getFournisseur().getNom()) : NONE,
+                joinLocals(commande.getCommandeExterneLocals(), CommandeExterneLocal::getLocal),
+                joinArticles(commande.getCommandeExterneArticles(), CommandeExterneArticle::getArticle,
+                        CommandeExterneArticle::getQuantite),
+                commande.getCreerA());
+    }
+
+    static CommandeRow<CommandeInterne> of(CommandeInterne commande) {
+        return new CommandeRow<>(commande, commande.getId(), commande.getStatut(),
+                commande.getMagasinier() != null ? orNone(commande.getMagasinier().getNom()) : NONE,
+                commande.getConsommateur() != null ? orNone(commande.getConsommateur().getNom()) : NONE,
+                joinLocals(commande.getCommandeInterneLocals(), CommandeInterneLocal::getLocal),
+                joinArticles(commande.getCommandeInterneArticles(), CommandeInterneArticle::getArticle,
+                        CommandeInterneArticle::getQuantite),
+                commande.getCreerA());
+    }
+
+    /**
+     * The order this row shows, for the modify and delete actions and the filters.
+     */
+    C getCommande() {
+        return commande;
+    }
+
+    Long getId() {
+        return id;
+    }
+
+    String getStatut() {
+        return statut;
+    }
+
+    String getMagasinier() {
+        return magasinier;
+    }
+
+    /**
+     * The fournisseur of an external order, or the consommateur of an internal one.
+     */
+    String getPartenaire() {
+        return partenaire;
+    }
+
+    String getLocaux() {
+        return locaux;
+    }
+
+    String getArticles() {
+        return articles;
+    }
+
+    String getCreerA() {
+        return creerA;
+    }
+
+    private static <L> String joinLocals(List<L> lines, Function<L, Local> local) {
+        if (lines == null || lines.isEmpty()) {
+            return NONE;
+        }
+        StringJoiner names = new StringJoiner(", ");
+        for (L line : lines) {
+            Local l = local.apply(line);
+            names.add(l != null && l.getNom() != null ? l.getNom() : "Unknown");
+        }
+        return names.toString();
+    }
+
+    private static <L> String joinArticles(List<L> lines, Function<L, Article> article, ToIntFunction<L> quantite) {
+        if (lines == null || lines.isEmpty()) {
+            return NONE;
+        }
+        StringJoiner names = new StringJoiner(", ");
+        for (L line : lines) {
+            Article a = article.apply(line);
+            String name = a != null && a.getNom() != null ? a.getNom() : "Unknown";
+            names.add(name + " (" + quantite.applyAsInt(line) + ")");
+        }
+        return names.toString();
+    }
+
+    private static String orNone(String nom) {
+        return nom != null && !nom.isEmpty() ? nom : NONE;
+    }
+}
@@ -4,15 +4,20 @@ import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import utils.LogConfig;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Main application class to launch the JavaFX consommateur management application.
  */
 public class ConsommateurApp extends Application {
 
+    private static final Logger LOGGER = Logger.getLogger(ConsommateurApp.class.getName());
+
     @Override
     public void start(Stage primaryStage) {
         try {
@@ -30,21 +35,21 @@ public class ConsommateurApp extends Application {
             if (dashboardCss != null) {
                 scene.getStylesheets().add(dashboardCss.toExternalForm());
             } else {
-                System.err.println("Warning: Cannot find dashboard.css");
+                LOGGER.warning("Cannot find dashboard.css");
             }
 
             URL loginCss = getClass().getResource("/styles/login.css");
             if (loginCss != null) {
                 scene.getStylesheets().add(loginCss.toExternalForm());
             } else {
-                System.err.println("Warning: Cannot find login.css");
+                LOGGER.warning("Cannot find login.css");
             }
 
             URL consommateurCss = getClass().getResource("/styles/consommateur.css");
             if (consommateurCss != null) {
                 scene.getStylesheets().add(consommateurCss.toExternalForm());
             } else {
-                System.err.println("Warning: Cannot find consommateur.css");
+                LOGGER.warning("Cannot find consommateur.css");
             }
 
             primaryStage.setTitle("ISIMM - Gestion de Stock - Consommateurs");
@@ -52,7 +57,7 @@ public class ConsommateurApp extends Application {
             primaryStage.setMaximized(true); // Open in fullscreen
             primaryStage.show();
         } catch (IOException e) {
-            e.printStackTrace();
+            LOGGER.log(Level.SEVERE, e.getMessage(), e);
             // Show error alert
             javafx.scene.control.Alert alert = new javafx.scene.control.Alert(javafx.scene.control.Alert.AlertType.ERROR);
             alert.setTitle("Error");
@@ -63,6 +68,7 @@ public class ConsommateurApp extends Application {
     }
 
     public static void main(String[] args) {
+        LogConfig.install();
         // Note: Ensure VM option --enable-native-access=javafx.graphics if required
         launch(args);
     }
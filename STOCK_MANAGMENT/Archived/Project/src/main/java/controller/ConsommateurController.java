@@ -13,21 +13,18 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import model.dao.ConsommateurDAO;
 import model.dao.ConsommateurDAOImpl;
+import model.dao.ReferenceDataCache;
 import model.entities.Consommateur;
-import utils.DatabaseConnection;
+import utils.DataAccessExecutor;
+import utils.ExpiryNotificationService;
 import utils.UserSession;
 
 import java.net.URL;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Controller for the consommateur management interface.
@@ -35,9 +32,9 @@ import java.util.ResourceBundle;
  */
 public class ConsommateurController implements Initializable {
 
+    private static final Logger LOGGER = Logger.getLogger(ConsommateurController.class.getName());
+
     private final ConsommateurDAO consommateurDAO = new ConsommateurDAOImpl();
-    private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-    private static final DateTimeFormatter DISPLAY_DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
     // Filter section
     @FXML private TextField filterId;
@@ -75,7 +72,8 @@ public class ConsommateurController implements Initializable {
     @FXML private Label notificationBadge;
 
     private ObservableList<Consommateur> consommateurList = FXCollections.observableArrayList();
-    private ObservableList<String> expiringArticles = FXCollections.observableArrayList();
+    private final ObservableList<String> expiringArticles = ExpiryNotificationService.getInstance().getExpiringArticles();
+    private DataAccessExecutor.Scope dataAccess;
     private boolean isEditing = false;
     private Consommateur currentConsommateur;
 
@@ -84,12 +82,14 @@ public class ConsommateurController implements Initializable {
 
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
+        // Database work runs in the background and is cancelled when this window closes
+        dataAccess = DataAccessExecutor.scopeFor(menuContainer);
+
         // Set the magasinier's name
         String magasinierName = getLoggedInMagasinierName();
         usernameLabel.setText(magasinierName);
 
-        // Initialize notifications
-        refreshNotifications();
+        // Notifications come from the shared expiry service
         notificationBadge.textProperty().bind(Bindings.createStringBinding(
                 () -> String.valueOf(expiringArticles.size()), expiringArticles));
 
@@ -114,7 +114,6 @@ public class ConsommateurController implements Initializable {
      */
     @FXML
     private void handleNotificationClick() {
-        refreshNotifications();
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Notifications - Articles en Péremption");
         alert.setHeaderText(null);
@@ -130,42 +129,6 @@ public class ConsommateurController implements Initializable {
         alert.showAndWait();
     }
 
-    /**
-     * Refreshes the list of expiring articles.
-     */
-    private void refreshNotifications() {
-        List<String> updatedArticles = getExpiringArticles();
-        expiringArticles.setAll(updatedArticles);
-    }
-
-    /**
-     * Queries the article table for products with date_peremption within 7 days.
-     */
-    private List<String> getExpiringArticles() {
-        List<String> expiring = new ArrayList<>();
-        String sql = "SELECT nom, date_peremption FROM article WHERE date_peremption IS NOT NULL AND date_peremption <= ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            LocalDateTime oneWeekFromNow = LocalDateTime.now().plusDays(7);
-            pstmt.setString(1, oneWeekFromNow.format(SQLITE_DATETIME_FORMATTER));
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    String nom = rs.getString("nom");
-                    String datePeremptionStr = rs.getString("date_peremption");
-                    LocalDateTime datePeremption = LocalDateTime.parse(datePeremptionStr, SQLITE_DATETIME_FORMATTER);
-                    String formattedDate = datePeremption.format(DISPLAY_DATE_FORMATTER);
-                    expiring.add(nom + " (Périme le: " + formattedDate + ")");
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Erreur lors de la récupération des articles en péremption: " + e.getMessage());
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Erreur",
-                    "Erreur lors de la récupération des articles en péremption: " + e.getMessage());
-        }
-        return expiring;
-    }
-
     /**
      * Initializes the sidebar menu.
      */
@@ -238,7 +201,7 @@ public class ConsommateurController implements Initializable {
                 }
                 ((Stage) menuContainer.getScene().getWindow()).close();
             } catch (Exception ex) {
-                ex.printStackTrace();
+                LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
             }
         });
 
@@ -316,29 +279,22 @@ public class ConsommateurController implements Initializable {
      * Loads consommateurs from the database.
      */
     private void loadConsommateurs() {
-        try {
-            if (consommateurDAO == null) {
-                throw new IllegalStateException("ConsommateurDAO is not initialized");
-            }
-            List<Consommateur> consommateurs = consommateurDAO.getAll();
-            if (consommateurs == null) {
-                System.err.println("ConsommateurDAO returned null list");
-                consommateurs = new ArrayList<>();
-            }
+        Runnable restorePlaceholder = DataAccessExecutor.showLoading(tableConsommateurs);
+        dataAccess.submit(() -> ReferenceDataCache.getInstance().getAll(ReferenceDataCache.CONSOMMATEURS), consommateurs -> {
+            restorePlaceholder.run();
             consommateurList.setAll(consommateurs);
-            System.out.println("Nombre de consommateurs chargés: " + consommateurs.size());
+            LOGGER.fine(() -> "Nombre de consommateurs chargés: " + consommateurs.size());
             applyFilters();
-            refreshNotifications();
-        } catch (Exception e) {
-            System.err.println("Erreur lors du chargement des consommateurs: " + e.getMessage());
-            e.printStackTrace();
+        }, e -> {
+            restorePlaceholder.run();
+            LOGGER.log(Level.SEVERE, "Erreur lors du chargement des consommateurs: " + e.getMessage(), e);
             String errorMessage = "Erreur lors du chargement des consommateurs: " + e.getMessage();
             if (e.getCause() != null) {
                 errorMessage += "\nCause: " + e.getCause().getMessage();
             }
             showAlert(Alert.AlertType.ERROR, "Erreur", errorMessage);
             applyFilters();
-        }
+        });
     }
 
     /**
@@ -401,14 +357,13 @@ public class ConsommateurController implements Initializable {
         if (!isEditing) {
             // Add new consommateur
             Consommateur newConsommateur = createConsommateurFromForm();
-            try {
-                consommateurDAO.insert(newConsommateur);
+            dataAccess.run(() -> consommateurDAO.insert(newConsommateur), () -> {
                 loadConsommateurs();
                 showAlert(Alert.AlertType.INFORMATION, "Succès", "Consommateur ajouté avec succès");
-            } catch (Exception e) {
+            }, e -> {
                 showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de l'ajout du consommateur: " + e.getMessage());
-                e.printStackTrace();
-            }
+                LOGGER.log(Level.SEVERE, e.getMessage(), e);
+            });
         } else {
             // Update existing consommateur
             currentConsommateur.setNom(formNom.getText().trim());
@@ -416,14 +371,14 @@ public class ConsommateurController implements Initializable {
             currentConsommateur.setTelephone(formTelephone.getText().trim().isEmpty() ? null : formTelephone.getText().trim());
             currentConsommateur.setType(formType.getValue());
             currentConsommateur.setDescription(formDescription.getText().trim().isEmpty() ? null : formDescription.getText().trim());
-            try {
-                consommateurDAO.update(currentConsommateur);
+            Consommateur updated = currentConsommateur;
+            dataAccess.run(() -> consommateurDAO.update(updated), () -> {
                 loadConsommateurs();
                 showAlert(Alert.AlertType.INFORMATION, "Succès", "Consommateur mis à jour avec succès");
-            } catch (Exception e) {
+            }, e -> {
                 showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la mise à jour du consommateur: " + e.getMessage());
-                e.printStackTrace();
-            }
+                LOGGER.log(Level.SEVERE, e.getMessage(), e);
+            });
             isEditing = false;
             btnAjouter.setText("Ajouter");
         }
@@ -455,14 +410,13 @@ public class ConsommateurController implements Initializable {
 
         Optional<ButtonType> result = confirmAlert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            try {
-                consommateurDAO.delete(consommateur.getId());
+            dataAccess.run(() -> consommateurDAO.delete(consommateur.getId()), () -> {
                 loadConsommateurs();
                 showAlert(Alert.AlertType.INFORMATION, "Succès", "Consommateur supprimé avec succès");
-            } catch (Exception e) {
+            }, e -> {
                 showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la suppression du consommateur: " + e.getMessage());
-                e.printStackTrace();
-            }
+                LOGGER.log(Level.SEVERE, e.getMessage(), e);
+            });
         }
     }
 
@@ -499,7 +453,7 @@ public class ConsommateurController implements Initializable {
             new LoginApp().start(new Stage());
             ((Stage) logoutBtn.getScene().getWindow()).close();
         } catch (Exception ex) {
-            ex.printStackTrace();
+            LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
         }
     }
 
@@ -2,18 +2,21 @@ package controller;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.logging.Logger;
 
 import utils.DatabaseConnection;
 
 public class DatabaseController {
 
+    private static final Logger LOGGER = Logger.getLogger(DatabaseController.class.getName());
+
     private Connection connection;
 
     public DatabaseController() {
         try {
             this.connection = DatabaseConnection.getConnection();
         } catch (SQLException e) {
-            System.err.println("Erreur lors de l'obtention de la connexion à la base de données : " + e.getMessage());
+            LOGGER.warning("Erreur lors de l'obtention de la connexion à la base de données : " + e.getMessage());
         }
     }
 
@@ -13,21 +13,19 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import model.dao.FournisseurDAO;
 import model.dao.FournisseurDAOImpl;
+import model.dao.ReferenceDataCache;
 import model.entities.Fournisseur;
-import utils.DatabaseConnection;
+import utils.DataAccessExecutor;
+import utils.ExpiryNotificationService;
 import utils.UserSession;
 
 import java.net.URL;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Controller for the fournisseur management interface.
@@ -35,9 +33,9 @@ import java.util.ResourceBundle;
  */
 public class FournisseurController implements Initializable {
 
+    private static final Logger LOGGER = Logger.getLogger(FournisseurController.class.getName());
+
     private final FournisseurDAO fournisseurDAO = new FournisseurDAOImpl();
-    private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-    private static final DateTimeFormatter DISPLAY_DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
     // Filter section
     @FXML private TextField filterId;
@@ -81,7 +79,8 @@ public class FournisseurController implements Initializable {
     @FXML private Label notificationBadge;
 
     private ObservableList<Fournisseur> fournisseurList = FXCollections.observableArrayList();
-    private ObservableList<String> expiringArticles = FXCollections.observableArrayList();
+    private final ObservableList<String> expiringArticles = ExpiryNotificationService.getInstance().getExpiringArticles();
+    private DataAccessExecutor.Scope dataAccess;
     private boolean isEditing = false;
     private Fournisseur currentFournisseur;
 
@@ -90,12 +89,14 @@ public class FournisseurController implements Initializable {
 
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
+        // Database work runs in the background and is cancelled when this window closes
+        dataAccess = DataAccessExecutor.scopeFor(menuContainer);
+
         // Set the magasinier's name
         String magasinierName = getLoggedInMagasinierName();
         usernameLabel.setText(magasinierName);
 
-        // Initialize notifications
-        refreshNotifications();
+        // Notifications come from the shared expiry service
         notificationBadge.textProperty().bind(Bindings.createStringBinding(
                 () -> String.valueOf(expiringArticles.size()), expiringArticles));
 
@@ -120,7 +121,6 @@ public class FournisseurController implements Initializable {
      */
     @FXML
     private void handleNotificationClick() {
-        refreshNotifications();
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Notifications - Articles en Péremption");
         alert.setHeaderText(null);
@@ -136,42 +136,6 @@ public class FournisseurController implements Initializable {
         alert.showAndWait();
     }
 
-    /**
-     * Refreshes the list of expiring articles.
-     */
-    private void refreshNotifications() {
-        List<String> updatedArticles = getExpiringArticles();
-        expiringArticles.setAll(updatedArticles);
-    }
-
-    /**
-     * Queries the article table for products with date_peremption within 7 days.
-     */
-    private List<String> getExpiringArticles() {
-        List<String> expiring = new ArrayList<>();
-        String sql = "SELECT nom, date_peremption FROM article WHERE date_peremption IS NOT NULL AND date_peremption <= ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            LocalDateTime oneWeekFromNow = LocalDateTime.now().plusDays(7);
-            pstmt.setString(1, oneWeekFromNow.format(SQLITE_DATETIME_FORMATTER));
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    String nom = rs.getString("nom");
-                    String datePeremptionStr = rs.getString("date_peremption");
-                    LocalDateTime datePeremption = LocalDateTime.parse(datePeremptionStr, SQLITE_DATETIME_FORMATTER);
-                    String formattedDate = datePeremption.format(DISPLAY_DATE_FORMATTER);
-                    expiring.add(nom + " (Périme le: " + formattedDate + ")");
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Erreur lors de la récupération des articles en péremption: " + e.getMessage());
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Erreur",
-                    "Erreur lors de la récupération des articles en péremption: " + e.getMessage());
-        }
-        return expiring;
-    }
-
     /**
      * Initializes the sidebar menu.
      */
@@ -244,7 +208,7 @@ public class FournisseurController implements Initializable {
                 }
                 ((Stage) menuContainer.getScene().getWindow()).close();
             } catch (Exception ex) {
-                ex.printStackTrace();
+                LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
             }
         });
 
@@ -319,22 +283,22 @@ public class FournisseurController implements Initializable {
      * Loads fournisseurs from the database.
      */
     private void loadFournisseurs() {
-        try {
-            List<Fournisseur> fournisseurs = fournisseurDAO.findAll();
+        Runnable restorePlaceholder = DataAccessExecutor.showLoading(tableFournisseurs);
+        dataAccess.submit(() -> ReferenceDataCache.getInstance().getAll(ReferenceDataCache.FOURNISSEURS), fournisseurs -> {
+            restorePlaceholder.run();
             fournisseurList.setAll(fournisseurs);
-            System.out.println("Nombre de fournisseurs chargés: " + fournisseurs.size());
+            LOGGER.fine(() -> "Nombre de fournisseurs chargés: " + fournisseurs.size());
             applyFilters();
-            refreshNotifications();
-        } catch (Exception e) {
-            System.err.println("Erreur lors du chargement des fournisseurs: " + e.getMessage());
-            e.printStackTrace();
+        }, e -> {
+            restorePlaceholder.run();
+            LOGGER.log(Level.SEVERE, "Erreur lors du chargement des fournisseurs: " + e.getMessage(), e);
             String errorMessage = "Erreur lors du chargement des fournisseurs: " + e.getMessage();
             if (e.getCause() != null) {
                 errorMessage += "\nCause: " + e.getCause().getMessage();
             }
             showAlert(Alert.AlertType.ERROR, "Erreur", errorMessage);
             applyFilters();
-        }
+        });
     }
 
     /**
@@ -350,6 +314,9 @@ public class FournisseurController implements Initializable {
         String personneContactFilter = filterPersonneContact.getText() != null ? filterPersonneContact.getText().trim().toLowerCase() : "";
         String notesFilter = filterNotes.getText() != null ? filterNotes.getText().trim().toLowerCase() : "";
 
+        // Names are matched through the cache's prefix index, ignoring accents
+        Predicate<Fournisseur> nomMatches = nomFilter.isEmpty() ? null
+                : ReferenceDataCache.getInstance().nomStartsWith(ReferenceDataCache.FOURNISSEURS, nomFilter);
         ObservableList<Fournisseur> filteredList = FXCollections.observableArrayList();
         for (Fournisseur fournisseur : fournisseurList) {
             if (fournisseur == null) continue;
@@ -365,7 +332,7 @@ public class FournisseurController implements Initializable {
                     matches = false;
                 }
             }
-            if (!nomFilter.isEmpty() && (fournisseur.getNom() == null || !fournisseur.getNom().toLowerCase().startsWith(nomFilter))) {
+            if (nomMatches != null && !nomMatches.test(fournisseur)) {
                 matches = false;
             }
             if (!adresseFilter.isEmpty() && (fournisseur.getAdresse() == null || !fournisseur.getAdresse().toLowerCase().startsWith(adresseFilter))) {
@@ -405,14 +372,13 @@ public class FournisseurController implements Initializable {
         if (!isEditing) {
             // Add new fournisseur
             Fournisseur newFournisseur = createFournisseurFromForm();
-            try {
-                fournisseurDAO.create(newFournisseur);
+            dataAccess.run(() -> fournisseurDAO.create(newFournisseur), () -> {
                 loadFournisseurs();
                 showAlert(Alert.AlertType.INFORMATION, "Succès", "Fournisseur ajouté avec succès");
-            } catch (Exception e) {
+            }, e -> {
                 showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de l'ajout du fournisseur: " + e.getMessage());
-                e.printStackTrace();
-            }
+                LOGGER.log(Level.SEVERE, e.getMessage(), e);
+            });
         } else {
             // Update existing fournisseur
             currentFournisseur.setNom(formNom.getText().trim());
@@ -422,14 +388,14 @@ public class FournisseurController implements Initializable {
             currentFournisseur.setSiteWeb(formSiteWeb.getText().trim().isEmpty() ? null : formSiteWeb.getText().trim());
             currentFournisseur.setPersonneContact(formPersonneContact.getText().trim().isEmpty() ? null : formPersonneContact.getText().trim());
             currentFournisseur.setNotes(formNotes.getText().trim().isEmpty() ? null : formNotes.getText().trim());
-            try {
-                fournisseurDAO.update(currentFournisseur);
+            Fournisseur updated = currentFournisseur;
+            dataAccess.run(() -> fournisseurDAO.update(updated), () -> {
                 loadFournisseurs();
                 showAlert(Alert.AlertType.INFORMATION, "Succès", "Fournisseur mis à jour avec succès");
-            } catch (Exception e) {
+            }, e -> {
                 showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la mise à jour du fournisseur: " + e.getMessage());
-                e.printStackTrace();
-            }
+                LOGGER.log(Level.SEVERE, e.getMessage(), e);
+            });
             isEditing = false;
             btnAjouter.setText("Ajouter");
         }
@@ -463,14 +429,13 @@ public class FournisseurController implements Initializable {
 
         Optional<ButtonType> result = confirmAlert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            try {
-                fournisseurDAO.delete(fournisseur.getId());
+            dataAccess.run(() -> fournisseurDAO.delete(fournisseur.getId()), () -> {
                 loadFournisseurs();
                 showAlert(Alert.AlertType.INFORMATION, "Succès", "Fournisseur supprimé avec succès");
-            } catch (Exception e) {
+            }, e -> {
                 showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la suppression du fournisseur: " + e.getMessage());
-                e.printStackTrace();
-            }
+                LOGGER.log(Level.SEVERE, e.getMessage(), e);
+            });
         }
     }
 
@@ -509,7 +474,7 @@ public class FournisseurController implements Initializable {
             new LoginApp().start(new Stage());
             ((Stage) logoutBtn.getScene().getWindow()).close();
         } catch (Exception ex) {
-            ex.printStackTrace();
+            LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
         }
     }
 
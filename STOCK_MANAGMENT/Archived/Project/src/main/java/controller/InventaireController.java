@@ -9,30 +9,34 @@ import javafx.scene.control.*;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
-import utils.DatabaseConnection;
+import model.dao.MouvementStockDAO;
+import model.dao.MouvementStockDAOImpl;
+import model.entities.Stock;
+import utils.DataAccessExecutor;
+import utils.ExpiryNotificationService;
+import utils.PrefixIndex;
+import utils.TableFilter;
 import utils.UserSession;
 
 import java.net.URL;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
 import java.util.logging.Logger;
 
 /**
  * Controller for the inventory management interface.
- * Displays articles with their quantities (CommandeExterne - CommandeInterne) and associated locals.
+ * Displays articles with their quantities (CommandeExterne - CommandeInterne) and associated locals,
+ * read from the per-(article, local) balances of the stock movement ledger.
  */
 public class InventaireController implements Initializable {
 
     private static final Logger LOGGER = Logger.getLogger(InventaireController.class.getName());
-    private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-    private static final DateTimeFormatter DISPLAY_DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
     // Filter section
     @FXML private TextField filterLocal;
@@ -53,8 +57,11 @@ public class InventaireController implements Initializable {
     @FXML private ImageView notificationIcon;
     @FXML private Label notificationBadge;
 
+    private final MouvementStockDAO mouvementStockDAO = new MouvementStockDAOImpl();
     private ObservableList<ArticleInventory> inventoryList = FXCollections.observableArrayList();
-    private ObservableList<String> expiringArticles = FXCollections.observableArrayList();
+    private TableFilter<ArticleInventory> inventoryFilter;
+    private final ObservableList<String> expiringArticles = ExpiryNotificationService.getInstance().getExpiringArticles();
+    private DataAccessExecutor.Scope dataAccess;
 
     private static final String[] MENU_ITEMS = {"Accueil", "Produits", "Locaux", "Fournisseurs", "Consommateurs", "Commandes internes", "Commandes externes", "Inventaire"};
     private static final String[] MENU_ICONS = {"🏠", "📦", "🏢", "🚚", "👥", "📥", "📤", "📊"};
@@ -66,11 +73,20 @@ public class InventaireController implements Initializable {
         private final String articleName;
         private final int quantite;
         private final String locals;
+        /** Names as compared by the filters, normalized once. */
+        private final String articleKey;
+        private final List<String> localKeys = new ArrayList<>();
 
         public ArticleInventory(String articleName, int quantite, String locals) {
             this.articleName = articleName;
             this.quantite = quantite;
             this.locals = locals;
+            this.articleKey = articleName != null ? PrefixIndex.normalize(articleName) : "";
+            if (locals != null && !locals.equals("N/A")) {
+                for (String local : locals.split(",")) {
+                    localKeys.add(PrefixIndex.normalize(local));
+                }
+            }
         }
 
         public String getArticleName() {
@@ -88,6 +104,9 @@ public class InventaireController implements Initializable {
 
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
+        // Database work runs in the background and is cancelled when this window closes
+        dataAccess = DataAccessExecutor.scopeFor(menuContainer);
+
         if (notificationBadge == null) {
             LOGGER.severe("notificationBadge is null. Check FXML fx:id.");
         }
@@ -112,7 +131,6 @@ public class InventaireController implements Initializable {
         setupFilters();
         setupTable();
         loadInventory();
-        refreshNotifications();
     }
 
     private String getLoggedInMagasinierName() {
@@ -123,7 +141,6 @@ public class InventaireController implements Initializable {
 
     @FXML
     private void handleNotificationClick() {
-        refreshNotifications();
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Notifications - Articles en Péremption");
         alert.setHeaderText(null);
@@ -139,34 +156,6 @@ public class InventaireController implements Initializable {
         alert.showAndWait();
     }
 
-    private void refreshNotifications() {
-        List<String> expiring = getExpiringArticles();
-        expiringArticles.setAll(expiring);
-    }
-
-    private List<String> getExpiringArticles() {
-        List<String> expiring = new ArrayList<>();
-        String sql = "SELECT nom, date_peremption FROM article WHERE date_peremption IS NOT NULL AND date_peremption <= ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            LocalDateTime oneWeekFromNow = LocalDateTime.now().plusDays(7);
-            pstmt.setString(1, oneWeekFromNow.format(SQLITE_DATETIME_FORMATTER));
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    String nom = rs.getString("nom");
-                    String datePeremptionStr = rs.getString("date_peremption");
-                    LocalDateTime datePeremption = LocalDateTime.parse(datePeremptionStr, SQLITE_DATETIME_FORMATTER);
-                    String formattedDate = datePeremption.format(DISPLAY_DATE_FORMATTER);
-                    expiring.add(nom + " (Périme le: " + formattedDate + ")");
-                }
-            }
-        } catch (SQLException e) {
-            LOGGER.severe("Erreur lors de la récupération des articles en péremption: " + e.getMessage());
-            showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la récupération des articles en péremption: " + e.getMessage());
-        }
-        return expiring;
-    }
-
     private void setupSidebar() {
         for (int i = 0; i < MENU_ITEMS.length; i++) {
             VBox menuItem = createMenuItem(MENU_ITEMS[i], MENU_ICONS[i], i == 7); // Inventaire is active
@@ -245,9 +234,19 @@ public class InventaireController implements Initializable {
     }
 
     private void setupFilters() {
-        filterLocal.textProperty().addListener((obs, oldVal, newVal) -> applyFilters());
-        filterArticle.textProperty().addListener((obs, oldVal, newVal) -> applyFilters());
-        filterQuantite.textProperty().addListener((obs, oldVal, newVal) -> applyFilters());
+        inventoryFilter = new TableFilter<>(inventoryList, dataAccess);
+        inventoryFilter.addTextCriterion(filterLocal.textProperty(), (inventory, local) ->
+                inventory.localKeys.stream().anyMatch(key -> key.startsWith(local)));
+        inventoryFilter.addTextCriterion(filterArticle.textProperty(), (inventory, article) ->
+                inventory.articleKey.startsWith(article));
+        inventoryFilter.addTextCriterion(filterQuantite.textProperty(), (inventory, quantite) ->
+                String.valueOf(inventory.getQuantite()).startsWith(quantite));
+        inventoryFilter.setOnFiltered(() -> {
+            boolean empty = inventoryFilter.getFiltered().isEmpty();
+            tableStock.setPlaceholder(new Label(empty && !inventoryList.isEmpty()
+                    ? "Aucun résultat ne correspond aux filtres" : "Aucun inventaire trouvé"));
+            LOGGER.fine(() -> "Filtered list size: " + inventoryFilter.getFiltered().size());
+        });
     }
 
     private void setupTable() {
@@ -257,119 +256,54 @@ public class InventaireController implements Initializable {
         colQuantite.setCellValueFactory(cellData -> new javafx.beans.property.SimpleIntegerProperty(cellData.getValue().getQuantite()).asObject());
         colLocals.setCellValueFactory(cellData -> new javafx.beans.property.SimpleStringProperty(cellData.getValue().getLocals()));
 
-        tableStock.setItems(inventoryList);
+        inventoryFilter.bind(tableStock);
     }
 
     private void loadInventory() {
-        try {
-            List<ArticleInventory> inventories = getArticleInventories();
+        Runnable restorePlaceholder = DataAccessExecutor.showLoading(tableStock);
+        dataAccess.submit(this::getArticleInventories, inventories -> {
+            restorePlaceholder.run();
             inventoryList.setAll(inventories);
             LOGGER.info("Nombre d'inventaires chargés: " + inventories.size());
-        } catch (RuntimeException e) {
+            inventoryFilter.refilter();
+        }, e -> {
             LOGGER.severe("Erreur lors du chargement de l'inventaire: " + e.getMessage());
             inventoryList.clear();
             tableStock.setPlaceholder(new Label("Erreur lors du chargement de l'inventaire"));
             showAlert(Alert.AlertType.ERROR, "Erreur", "Impossible de charger l'inventaire: " + e.getMessage());
-        }
-        applyFilters();
+        });
     }
 
+    /**
+     * Builds one row per article from the stock balances kept by the movement ledger,
+     * so opening the screen no longer scans every order line ever written.
+     */
     private List<ArticleInventory> getArticleInventories() {
-        List<ArticleInventory> inventories = new ArrayList<>();
-        String sql = """
-            SELECT 
-                a.nom AS article_name,
-                COALESCE(SUM(cea.quantite), 0) - COALESCE(SUM(cia.quantite), 0) AS total_quantite,
-                GROUP_CONCAT(DISTINCT l.nom) AS locals
-            FROM article a
-            LEFT JOIN commande_externe_article cea ON a.id = cea.article_id
-            LEFT JOIN commande_externe_local cel ON cea.commande_externe_id = cel.commande_externe_id
-            LEFT JOIN commande_interne_article cia ON a.id = cia.article_id
-            LEFT JOIN commande_interne_local cil ON cia.commande_interne_id = cil.commande_interne_id
-            LEFT JOIN local l ON l.id = cel.local_id OR l.id = cil.local_id
-            GROUP BY a.id, a.nom
-            HAVING total_quantite != 0 OR locals IS NOT NULL
-        """;
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-            while (rs.next()) {
-                String articleName = rs.getString("article_name");
-                int quantite = rs.getInt("total_quantite");
-                String locals = rs.getString("locals") != null ? rs.getString("locals") : "N/A";
-                LOGGER.fine("Loaded inventory: article=" + articleName + ", quantite=" + quantite + ", locals=" + locals);
-                inventories.add(new ArticleInventory(articleName, quantite, locals));
+        Map<Long, String> names = new LinkedHashMap<>();
+        Map<Long, Integer> totals = new HashMap<>();
+        Map<Long, Set<String>> locals = new HashMap<>();
+        for (Stock solde : mouvementStockDAO.getSoldes()) {
+            Long articleId = solde.getArticle().getId();
+            names.putIfAbsent(articleId, solde.getArticle().getNom());
+            totals.merge(articleId, solde.getQuantite(), Integer::sum);
+            Set<String> articleLocals = locals.computeIfAbsent(articleId, id -> new LinkedHashSet<>());
+            if (solde.getQuantite() != 0 && solde.getLocal() != null && solde.getLocal().getNom() != null) {
+                articleLocals.add(solde.getLocal().getNom());
             }
-        } catch (SQLException e) {
-            LOGGER.severe("Erreur lors de la récupération des inventaires: " + e.getMessage());
-            throw new RuntimeException("Erreur SQL: " + e.getMessage(), e);
         }
-        return inventories;
-    }
-
-    private void applyFilters() {
-        String localFilter = filterLocal.getText() != null ? filterLocal.getText().trim().toLowerCase() : "";
-        String articleFilter = filterArticle.getText() != null ? filterArticle.getText().trim().toLowerCase() : "";
-        String quantiteFilter = filterQuantite.getText() != null ? filterQuantite.getText().trim() : "";
-
-        ObservableList<ArticleInventory> filteredList = FXCollections.observableArrayList();
-        LOGGER.info("Applying filters: local=" + localFilter + ", article=" + articleFilter + ", quantite=" + quantiteFilter);
 
-        for (ArticleInventory inventory : inventoryList) {
-            if (inventory == null) {
-                LOGGER.warning("Null inventory entry found, skipping.");
+        List<ArticleInventory> inventories = new ArrayList<>();
+        for (Map.Entry<Long, String> article : names.entrySet()) {
+            int quantite = totals.get(article.getKey());
+            Set<String> articleLocals = locals.get(article.getKey());
+            if (quantite == 0 && articleLocals.isEmpty()) {
                 continue;
             }
-            boolean matches = true;
-
-            // Local filter
-            String locals = inventory.getLocals() != null ? inventory.getLocals().toLowerCase() : "";
-            if (!localFilter.isEmpty()) {
-                boolean localMatches = false;
-                if (locals.equals("n/a") || locals.isEmpty()) {
-                    matches = false;
-                } else {
-                    String[] localArray = locals.split(",");
-                    for (String local : localArray) {
-                        String trimmedLocal = local.trim();
-                        LOGGER.fine("Checking local: " + trimmedLocal + " against filter: " + localFilter);
-                        if (trimmedLocal.startsWith(localFilter)) {
-                            localMatches = true;
-                            break;
-                        }
-                    }
-                    if (!localMatches) {
-                        matches = false;
-                    }
-                }
-            }
-
-            // Article filter
-            String articleName = inventory.getArticleName() != null ? inventory.getArticleName().toLowerCase() : "";
-            if (!articleFilter.isEmpty() && !articleName.startsWith(articleFilter)) {
-                matches = false;
-            }
-
-            // Quantity filter
-            if (!quantiteFilter.isEmpty()) {
-                String quantiteStr = String.valueOf(inventory.getQuantite());
-                LOGGER.fine("Checking quantity: " + quantiteStr + " against filter: " + quantiteFilter);
-                if (!quantiteStr.startsWith(quantiteFilter)) {
-                    matches = false;
-                }
-            }
-
-            if (matches) {
-                filteredList.add(inventory);
-                LOGGER.fine("Match found: " + inventory.getArticleName() + ", " + inventory.getQuantite() + ", " + inventory.getLocals());
-            }
+            String localNames = articleLocals.isEmpty() ? "N/A" : String.join(",", articleLocals);
+            LOGGER.fine(() -> "Loaded inventory: article=" + article.getValue() + ", quantite=" + quantite + ", locals=" + localNames);
+            inventories.add(new ArticleInventory(article.getValue(), quantite, localNames));
         }
-
-        tableStock.setItems(filteredList);
-        tableStock.setPlaceholder(new Label(filteredList.isEmpty() ? "Aucun résultat ne correspond aux filtres" : "Aucun inventaire trouvé"));
-        tableStock.refresh();
-        LOGGER.info("Filtered list size: " + filteredList.size());
+        return inventories;
     }
 
     @FXML
@@ -377,7 +311,7 @@ public class InventaireController implements Initializable {
         filterLocal.clear();
         filterArticle.clear();
         filterQuantite.clear();
-        applyFilters();
+        inventoryFilter.refilter();
     }
 
     @FXML
@@ -4,15 +4,20 @@ import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import utils.LogConfig;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Main application class to launch the JavaFX local management application.
  */
 public class LocalApp extends Application {
 
+    private static final Logger LOGGER = Logger.getLogger(LocalApp.class.getName());
+
     @Override
     public void start(Stage primaryStage) {
         try {
@@ -30,21 +35,21 @@ public class LocalApp extends Application {
             if (dashboardCss != null) {
                 scene.getStylesheets().add(dashboardCss.toExternalForm());
             } else {
-                System.err.println("Warning: Cannot find dashboard.css");
+                LOGGER.warning("Cannot find dashboard.css");
             }
 
             URL loginCss = getClass().getResource("/styles/login.css");
             if (loginCss != null) {
                 scene.getStylesheets().add(loginCss.toExternalForm());
             } else {
-                System.err.println("Warning: Cannot find login.css");
+                LOGGER.warning("Cannot find login.css");
             }
 
             URL localCss = getClass().getResource("/styles/local.css");
             if (localCss != null) {
                 scene.getStylesheets().add(localCss.toExternalForm());
             } else {
-                System.err.println("Warning: Cannot find local.css");
+                LOGGER.warning("Cannot find local.css");
             }
 
             primaryStage.setTitle("ISIMM - Gestion de Stock - Locaux");
@@ -52,7 +57,7 @@ public class LocalApp extends Application {
             primaryStage.setMaximized(true);
             primaryStage.show();
         } catch (IOException e) {
-            e.printStackTrace();
+            LOGGER.log(Level.SEVERE, e.getMessage(), e);
             javafx.scene.control.Alert alert = new javafx.scene.control.Alert(javafx.scene.control.Alert.AlertType.ERROR);
             alert.setTitle("Error");
             alert.setHeaderText("Application Failed to Start");
@@ -62,6 +67,7 @@ public class LocalApp extends Application {
     }
 
     public static void main(String[] args) {
+        LogConfig.install();
         launch(args);
     }
 }
\ No newline at end of file
@@ -13,9 +13,12 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import model.dao.LocalDAO;
 import model.dao.LocalDAOImpl;
+import model.dao.ReferenceDataCache;
 import model.entities.Local;
 import model.entities.Consommateur;
+import utils.DataAccessExecutor;
 import utils.DatabaseConnection;
+import utils.ExpiryNotificationService;
 import utils.UserSession;
 
 import java.net.URL;
@@ -26,10 +29,11 @@ import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Controller for the local management interface.
@@ -37,9 +41,9 @@ import java.util.ResourceBundle;
  */
 public class LocalController implements Initializable {
 
+    private static final Logger LOGGER = Logger.getLogger(LocalController.class.getName());
+
     private final LocalDAO localDAO = new LocalDAOImpl();
-    private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-    private static final DateTimeFormatter DISPLAY_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     // Filter section
     @FXML private TextField filterId;
@@ -77,7 +81,8 @@ public class LocalController implements Initializable {
     @FXML private Label notificationBadge;
 
     private ObservableList<Local> localList = FXCollections.observableArrayList();
-    private ObservableList<String> expiringArticles = FXCollections.observableArrayList();
+    private final ObservableList<String> expiringArticles = ExpiryNotificationService.getInstance().getExpiringArticles();
+    private DataAccessExecutor.Scope dataAccess;
     private ObservableList<Consommateur> consommateurList = FXCollections.observableArrayList();
     private static final DateTimeFormatter displayFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
     private boolean isEditing = false;
@@ -88,12 +93,14 @@ public class LocalController implements Initializable {
 
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
+        // Database work runs in the background and is cancelled when this window closes
+        dataAccess = DataAccessExecutor.scopeFor(menuContainer);
+
         String magasinierName = getLoggedInMagasinierName();
         usernameLabel.setText(magasinierName);
 
         loadConsommateurs();
         debugArticleDates();
-        refreshNotifications();
         notificationBadge.textProperty().bind(Bindings.createStringBinding(
                 () -> String.valueOf(expiringArticles.size()), expiringArticles));
 
@@ -114,39 +121,41 @@ public class LocalController implements Initializable {
     }
 
     private void loadConsommateurs() {
-        String sql = "SELECT id, nom FROM consommateur";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-            while (rs.next()) {
-                Consommateur consommateur = new Consommateur();
-                consommateur.setId(rs.getLong("id"));
-                consommateur.setNom(rs.getString("nom"));
-                consommateurList.add(consommateur);
-            }
-        } catch (SQLException e) {
-            showAlert(Alert.AlertType.ERROR, "Erreur",
-                    "Erreur lors de la récupération des consommateurs: " + e.getMessage());
-        }
+        dataAccess.submit(() -> ReferenceDataCache.getInstance().getAll(ReferenceDataCache.CONSOMMATEURS), consommateurs -> {
+            consommateurList.setAll(consommateurs);
+            // The consommateur column looks names up in this list
+            tableLocaux.refresh();
+        }, e -> showAlert(Alert.AlertType.ERROR, "Erreur",
+                "Erreur lors de la récupération des consommateurs: " + e.getMessage()));
     }
 
     /**
-     * Debugs all date_peremption values in the article table.
+     * Debugs all date_peremption values in the article table. The scan only runs when FINE
+     * logging is on.
      */
     private void debugArticleDates() {
+        if (!LOGGER.isLoggable(Level.FINE)) {
+            return;
+        }
+        dataAccess.submit(() -> {
+            logArticleDates();
+            return null;
+        }, ignored -> { }, e -> {
+            LOGGER.log(Level.SEVERE, "Erreur lors du débogage des dates de péremption: " + e.getMessage(), e);
+        });
+    }
+
+    private void logArticleDates() throws SQLException {
         String sql = "SELECT nom, date_peremption FROM article WHERE date_peremption IS NOT NULL";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
-            System.out.println("Debugging article date_peremption values:");
+            LOGGER.fine(() -> "Debugging article date_peremption values:");
             while (rs.next()) {
                 String nom = rs.getString("nom");
                 String datePeremption = rs.getString("date_peremption");
-                System.out.println("Article: " + nom + ", date_peremption: " + datePeremption);
+                LOGGER.fine(() -> "Article: " + nom + ", date_peremption: " + datePeremption);
             }
-        } catch (SQLException e) {
-            System.err.println("Erreur lors du débogage des dates de péremption: " + e.getMessage());
-            e.printStackTrace();
         }
     }
 
@@ -155,7 +164,6 @@ public class LocalController implements Initializable {
      */
     @FXML
     private void handleNotificationClick() {
-        refreshNotifications();
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Notifications - Articles en Péremption");
         alert.setHeaderText(null);
@@ -171,56 +179,6 @@ public class LocalController implements Initializable {
         alert.showAndWait();
     }
 
-    /**
-     * Refreshes the list of expiring articles.
-     */
-    private void refreshNotifications() {
-        List<String> updatedArticles = getExpiringArticles();
-        expiringArticles.setAll(updatedArticles);
-    }
-
-    /**
-     * Queries the article table for products with date_peremption within 7 days.
-     */
-    private List<String> getExpiringArticles() {
-        List<String> expiring = new ArrayList<>();
-        String sql = "SELECT nom, date_peremption FROM article " +
-                "WHERE date_peremption IS NOT NULL " +
-                "AND DATE(date_peremption) BETWEEN ? AND ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            LocalDate now = LocalDate.now();
-            LocalDate oneWeekFromNow = now.plusDays(7);
-            pstmt.setString(1, now.toString());
-            pstmt.setString(2, oneWeekFromNow.toString());
-            System.out.println("Executing query with date range: " + now + " to " + oneWeekFromNow);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                int count = 0;
-                while (rs.next()) {
-                    String nom = rs.getString("nom");
-                    String datePeremptionStr = rs.getString("date_peremption");
-                    try {
-                        LocalDateTime datePeremption = LocalDateTime.parse(datePeremptionStr, SQLITE_DATETIME_FORMATTER);
-                        String formattedDate = datePeremption.format(DISPLAY_DATE_FORMATTER);
-                        expiring.add(nom + " (Périme le: " + formattedDate + ")");
-                        count++;
-                        System.out.println("Found article: " + nom + ", Expires: " + datePeremptionStr);
-                    } catch (Exception e) {
-                        System.err.println("Error parsing date_peremption for article " + nom + ": " + datePeremptionStr + ", Error: " + e.getMessage());
-                        e.printStackTrace();
-                    }
-                }
-                System.out.println("Found " + count + " expiring articles");
-            }
-        } catch (SQLException e) {
-            System.err.println("Erreur lors de la récupération des articles en péremption: " + e.getMessage());
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Erreur",
-                    "Erreur lors de la récupération des articles en péremption: " + e.getMessage());
-        }
-        return expiring;
-    }
-
     /**
      * Initializes the sidebar menu.
      */
@@ -290,7 +248,7 @@ public class LocalController implements Initializable {
                 }
                 ((Stage) menuContainer.getScene().getWindow()).close();
             } catch (Exception ex) {
-                ex.printStackTrace();
+                LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
             }
         });
 
@@ -312,10 +270,7 @@ public class LocalController implements Initializable {
 
             @Override
             public Consommateur fromString(String string) {
-                return consommateurList.stream()
-                        .filter(c -> c.getNom().equals(string))
-                        .findFirst()
-                        .orElse(null);
+                return ReferenceDataCache.getInstance().getByNom(ReferenceDataCache.CONSOMMATEURS, string);
             }
         });
 
@@ -398,24 +353,22 @@ public class LocalController implements Initializable {
 
             @Override
             public Consommateur fromString(String string) {
-                return consommateurList.stream()
-                        .filter(c -> c.getNom().equals(string))
-                        .findFirst()
-                        .orElse(null);
+                return ReferenceDataCache.getInstance().getByNom(ReferenceDataCache.CONSOMMATEURS, string);
             }
         });
     }
 
     private void loadLocals() {
-        try {
-            List<Local> locals = localDAO.getAll();
+        Runnable restorePlaceholder = DataAccessExecutor.showLoading(tableLocaux);
+        dataAccess.submit(() -> ReferenceDataCache.getInstance().getAll(ReferenceDataCache.LOCALS), locals -> {
+            restorePlaceholder.run();
             localList.setAll(locals);
             applyFilters();
-            refreshNotifications();
-        } catch (Exception e) {
+        }, e -> {
+            restorePlaceholder.run();
             showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors du chargement des locaux: " + e.getMessage());
             localList.clear();
-        }
+        });
     }
 
     private void applyFilters() {
@@ -426,6 +379,9 @@ public class LocalController implements Initializable {
         Consommateur consommateurFilter = filterConsommateur.getValue();
         java.time.LocalDate createdAtFilter = filterCreatedAt.getValue();
 
+        // Names are matched through the cache's prefix index, ignoring accents
+        Predicate<Local> nomMatches = nomFilter.isEmpty() ? null
+                : ReferenceDataCache.getInstance().nomStartsWith(ReferenceDataCache.LOCALS, nomFilter);
         ObservableList<Local> filteredList = FXCollections.observableArrayList();
         for (Local local : localList) {
             boolean matches = true;
@@ -440,7 +396,7 @@ public class LocalController implements Initializable {
                     matches = false;
                 }
             }
-            if (!nomFilter.isEmpty() && !local.getNom().toLowerCase().startsWith(nomFilter)) {
+            if (nomMatches != null && !nomMatches.test(local)) {
                 matches = false;
             }
             if (!emplacementFilter.isEmpty() && !local.getEmplacement().toLowerCase().startsWith(emplacementFilter)) {
@@ -476,13 +432,12 @@ public class LocalController implements Initializable {
 
         if (!isEditing) {
             Local newLocal = createLocalFromForm();
-            try {
-                localDAO.insert(newLocal);
+            dataAccess.run(() -> localDAO.insert(newLocal), () -> {
                 loadLocals();
                 showAlert(Alert.AlertType.INFORMATION, "Succès", "Local ajouté avec succès");
-            } catch (Exception e) {
+            }, e -> {
                 showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de l'ajout du local: " + e.getMessage());
-            }
+            });
         } else {
             currentLocal.setNom(formNom.getText());
             currentLocal.setEmplacement(formEmplacement.getText());
@@ -494,13 +449,13 @@ public class LocalController implements Initializable {
                 currentLocal.setCreatedAt(null);
             }
             currentLocal.setConsommateur(formConsommateur.getValue());
-            try {
-                localDAO.update(currentLocal);
+            Local updated = currentLocal;
+            dataAccess.run(() -> localDAO.update(updated), () -> {
                 loadLocals();
                 showAlert(Alert.AlertType.INFORMATION, "Succès", "Local mis à jour avec succès");
-            } catch (Exception e) {
+            }, e -> {
                 showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la mise à jour du local: " + e.getMessage());
-            }
+            });
             isEditing = false;
             btnAjouter.setText("Ajouter");
         }
@@ -530,13 +485,12 @@ public class LocalController implements Initializable {
 
         Optional<ButtonType> result = confirmAlert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            try {
-                localDAO.delete(local.getId());
+            dataAccess.run(() -> localDAO.delete(local.getId()), () -> {
                 loadLocals();
                 showAlert(Alert.AlertType.INFORMATION, "Succès", "Local supprimé avec succès");
-            } catch (Exception e) {
+            }, e -> {
                 showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la suppression du local: " + e.getMessage());
-            }
+            });
         }
     }
 
@@ -564,7 +518,7 @@ public class LocalController implements Initializable {
             new LoginApp().start(new Stage());
             ((Stage) logoutBtn.getScene().getWindow()).close();
         } catch (Exception ex) {
-            ex.printStackTrace();
+            LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
         }
     }
 
@@ -5,6 +5,7 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
+import utils.LogConfig;
 
 public class LoginApp extends Application {
 
@@ -26,6 +27,7 @@ public class LoginApp extends Application {
     }
 
     public static void main(String[] args) {
+        LogConfig.install();
         launch(args);
     }
 }
\ No newline at end of file
@@ -7,14 +7,18 @@ import javafx.scene.control.PasswordField;
 import javafx.scene.control.TextField;
 import javafx.scene.image.ImageView;
 import javafx.stage.Stage;
-import model.dao.MagasinierDAOImpl;
-import model.entities.Magasinier;
+import model.dao.EntityCounters;
+import utils.DataAccessExecutor;
+import utils.LoginService;
 import utils.UserSession;
 
-import java.time.LocalDateTime;
+import java.util.logging.Logger;
+import java.util.logging.Level;
 
 public class LoginController {
 
+    private static final Logger LOGGER = Logger.getLogger(LoginController.class.getName());
+
     @FXML
     private ImageView profileImage;
 
@@ -33,41 +37,58 @@ public class LoginController {
     @FXML
     private Label signupLabel;
 
-    private MagasinierDAOImpl magasinierDAO;
+    private DataAccessExecutor.Scope dataAccess;
 
     @FXML
     private void initialize() {
-        magasinierDAO = new MagasinierDAOImpl();
+        // Credentials are checked in the background and the check is dropped if this window closes
+        dataAccess = DataAccessExecutor.scopeFor(loginButton);
         profileImage.setFitHeight(100);
         profileImage.setFitWidth(100);
+
+        // Count the home-screen entities while the user signs in, so the dashboard opens from memory
+        DataAccessExecutor.submit(EntityCounters.getInstance()::getCounts, counts -> { },
+                e -> LOGGER.warning("Comptage initial impossible: " + e.getMessage()));
+        // Load the hashing code now rather than during the first attempt
+        DataAccessExecutor.submit(() -> {
+            LoginService.warmUp();
+            return null;
+        }, ignored -> { }, e -> LOGGER.warning("Préchauffage du hachage impossible: " + e.getMessage()));
     }
 
     @FXML
     private void handleLogin() {
         String username = usernameField.getText();
-        String password = passwordField.getText();
-
-        Magasinier magasinier = magasinierDAO.getByNomUtilisateur(username);
-        if (magasinier != null && magasinier.getHashedPassword().equals(password) && magasinier.isActif()) {
+        char[] password = passwordField.getText().toCharArray();
+
+        loginButton.setDisable(true);
+        errorLabel.setText("");
+        dataAccess.submit(() -> LoginService.authenticate(username, password), magasinier -> {
+            loginButton.setDisable(false);
+            if (magasinier == null) {
+                errorLabel.setText("Identifiants incorrects ou compte inactif !");
+                return;
+            }
             try {
                 // Store user details in UserSession
                 UserSession session = UserSession.getInstance();
                 session.setUser(username, magasinier.getNom()); // Adjust if field name differs
 
-                // Update last login time
-                magasinier.setDernierConnexion(LocalDateTime.now());
-                magasinierDAO.update(magasinier);
+                // The last login time is written in the background
+                LoginService.recordLogin(magasinier, password);
 
                 // Start dashboard and close login window
                 new StockDashboard().start(new Stage());
                 ((Stage) loginButton.getScene().getWindow()).close();
             } catch (Exception ex) {
-                ex.printStackTrace();
+                LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
                 errorLabel.setText("Erreur lors du chargement du tableau de bord: " + ex.getMessage());
             }
-        } else {
-            errorLabel.setText("Identifiants incorrects ou compte inactif !");
-        }
+        }, e -> {
+            loginButton.setDisable(false);
+            LOGGER.severe("Erreur lors de la connexion: " + e.getMessage());
+            errorLabel.setText("Erreur lors de la connexion: " + e.getMessage());
+        });
     }
 
     @FXML
@@ -75,7 +96,7 @@ public class LoginController {
         try {
             new SignupApp().start((Stage) loginButton.getScene().getWindow());
         } catch (Exception ex) {
-            ex.printStackTrace();
+            LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
             errorLabel.setText("Erreur lors du chargement de l'inscription: " + ex.getMessage());
         }
     }
@@ -9,9 +9,16 @@ import javafx.scene.image.ImageView;
 import javafx.stage.Stage;
 import model.dao.MagasinierDAOImpl;
 import model.entities.Magasinier;
+import utils.DataAccessExecutor;
+import utils.PasswordHasher;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class SignupController {
 
+    private static final Logger LOGGER = Logger.getLogger(SignupController.class.getName());
+
     @FXML
     private ImageView profileImage;
 
@@ -37,10 +44,13 @@ public class SignupController {
     private Label loginLabel;
 
     private MagasinierDAOImpl magasinierDAO;
+    private DataAccessExecutor.Scope dataAccess;
 
     @FXML
     private void initialize() {
         magasinierDAO = new MagasinierDAOImpl();
+        // The account is hashed and stored in the background
+        dataAccess = DataAccessExecutor.scopeFor(signupButton);
         profileImage.setFitHeight(100);
         profileImage.setFitWidth(100);
     }
@@ -56,18 +66,32 @@ public class SignupController {
             errorLabel.setText("Veuillez remplir tous les champs.");
         } else if (!password.equals(confirmPassword)) {
             errorLabel.setText("Les mots de passe ne correspondent pas.");
-        } else if (magasinierDAO.getByNomUtilisateur(username) != null) {
-            errorLabel.setText("Ce nom d'utilisateur existe déjà.");
         } else {
-            Magasinier magasinier = new Magasinier(fullName, username, password); // Plain text password for simplicity
-            try {
-                magasinierDAO.insert(magasinier);
-                errorLabel.setText("Inscription réussie !");
-                new LoginApp().start((Stage) signupButton.getScene().getWindow());
-            } catch (Exception ex) {
-                ex.printStackTrace();
+            signupButton.setDisable(true);
+            dataAccess.write(() -> {
+                if (magasinierDAO.getByNomUtilisateur(username) != null) {
+                    return false;
+                }
+                magasinierDAO.insert(new Magasinier(fullName, username, PasswordHasher.hash(password.toCharArray())));
+                return true;
+            }, created -> {
+                signupButton.setDisable(false);
+                if (!created) {
+                    errorLabel.setText("Ce nom d'utilisateur existe déjà.");
+                    return;
+                }
+                try {
+                    errorLabel.setText("Inscription réussie !");
+                    new LoginApp().start((Stage) signupButton.getScene().getWindow());
+                } catch (Exception ex) {
+                    LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
+                    errorLabel.setText("Erreur lors du retour à la connexion.");
+                }
+            }, e -> {
+                signupButton.setDisable(false);
+                LOGGER.log(Level.SEVERE, e.getMessage(), e);
                 errorLabel.setText("Erreur lors de l'inscription.");
-            }
+            });
         }
     }
 
@@ -76,7 +100,7 @@ public class SignupController {
         try {
             new LoginApp().start((Stage) signupButton.getScene().getWindow());
         } catch (Exception ex) {
-            ex.printStackTrace();
+            LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
             errorLabel.setText("Erreur lors du retour à la connexion.");
         }
     }
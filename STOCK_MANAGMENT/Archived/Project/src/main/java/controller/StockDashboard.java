@@ -4,9 +4,15 @@ import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import utils.LogConfig;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class StockDashboard extends Application {
 
+    private static final Logger LOGGER = Logger.getLogger(StockDashboard.class.getName());
+
     @Override
     public void start(Stage primaryStage) throws Exception {
         try {
@@ -18,24 +24,25 @@ public class StockDashboard extends Application {
             try {
                 scene.getStylesheets().add(getClass().getResource("/styles/dashboard.css").toExternalForm());
             } catch (Exception e) {
-                System.err.println("Failed to load dashboard.css: " + e.getMessage());
+                LOGGER.warning("Failed to load dashboard.css: " + e.getMessage());
             }
             try {
                 scene.getStylesheets().add(getClass().getResource("/styles/login.css").toExternalForm());
             } catch (Exception e) {
-                System.err.println("Failed to load login.css: " + e.getMessage());
+                LOGGER.warning("Failed to load login.css: " + e.getMessage());
             }
             primaryStage.setTitle("ISIMM - Gestion de Stock");
             primaryStage.setScene(scene);
             primaryStage.setMaximized(true); // Maximize the window to fill the screen
             primaryStage.show();
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.log(Level.SEVERE, e.getMessage(), e);
             throw new RuntimeException("Failed to start StockDashboard: " + e.getMessage(), e);
         }
     }
 
     public static void main(String[] args) {
+        LogConfig.install();
         launch(args);
     }
 }
\ No newline at end of file
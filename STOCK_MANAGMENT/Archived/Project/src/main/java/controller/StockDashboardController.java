@@ -1,31 +1,54 @@
 package controller;
 
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.ChoiceDialog;
 import javafx.scene.control.Label;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.scene.control.ScrollPane;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import model.dao.BulkImporter;
+import model.dao.CommandeJournal;
+import model.dao.EntityCounters;
+import model.dao.StockReports;
 import utils.UserSession;
+import utils.BackupService;
+import utils.DataAccessExecutor;
 import utils.DatabaseConnection;
-
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.ArrayList;
+import utils.ExpiryNotificationService;
+import utils.IncrementalExportService;
+import utils.PdfReportWriter;
+import utils.ReportFormat;
+import utils.ReportOutput;
+import utils.ReportWriter;
+import utils.SchemaMigrator;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
+import java.nio.file.Path;
 
 public class StockDashboardController {
 
@@ -39,6 +62,8 @@ public class StockDashboardController {
     @FXML private VBox menuContainer;
     @FXML private HBox categories;
     @FXML private Button generatePdfBtn;
+    @FXML private Button importBtn;
+    @FXML private Button backupBtn;
     @FXML private Button logoutBtn;
     @FXML private Label usernameLabel;
     @FXML private ImageView notificationIcon;
@@ -46,12 +71,23 @@ public class StockDashboardController {
 
     private static final String[] MENU_ITEMS = {"Accueil", "Produits", "Locaux", "Fournisseurs", "Consommateurs", "Commandes internes", "Commandes externes", "Inventaire"};
     private static final String[] MENU_ICONS = {"🏠", "📦", "🏢", "🚚", "👥", "📥", "📤", "📊"};
-    private ObservableList<String> expiringProducts = FXCollections.observableArrayList();
+    /** Lines written between two progress updates. */
+    private static final int PROGRESS_STEP = 1000;
+    private static final String BACKUP_NOW = "Sauvegarder maintenant";
+    private static final String RESTORE = "Restaurer une sauvegarde…";
+    private final ObservableList<String> expiringProducts = ExpiryNotificationService.getInstance().getExpiringArticles();
+    // Getting the service starts the scheduled backups
+    private final BackupService backups = BackupService.getInstance();
+    private DataAccessExecutor.Scope dataAccess;
 
     @FXML
     private void initialize() {
+        // Database work runs in the background and is cancelled when this window closes
+        dataAccess = DataAccessExecutor.scopeFor(menuContainer);
+
         initializeDatabase();
-        logAllProducts();
+        // Getting the service schedules the nightly export of changes
+        IncrementalExportService.getInstance();
 
         String magasinierName = getLoggedInMagasinierName();
         usernameLabel.setText(magasinierName);
@@ -77,25 +113,22 @@ public class StockDashboardController {
             LOGGER.severe("Notification icon is null. Check fx:id in FXML.");
         }
 
-        refreshNotifications();
         notificationBadge.textProperty().bind(Bindings.createStringBinding(() -> String.valueOf(expiringProducts.size()), expiringProducts));
 
-        generatePdfBtn.setOnAction(event -> generateCommandesText());
+        generatePdfBtn.setOnAction(event -> generateReport());
+        importBtn.setOnAction(event -> importCsv());
+        backupBtn.setOnAction(event -> manageBackups());
     }
 
     private void initializeDatabase() {
-        // Schema is already created as per provided SQL; no changes needed here
-    }
-
-    private void logAllProducts() {
-        String query = "SELECT id, reference, nom, stock_minimal, date_peremption FROM article";
-        try (Connection conn = DatabaseConnection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(query); ResultSet rs = pstmt.executeQuery()) {
-            while (rs.next()) {
-                LOGGER.info("Product: [ID=" + rs.getInt("id") + ", Nom=" + rs.getString("nom") + ", Stock Minimal=" + rs.getInt("stock_minimal") + "]");
+        // Opening the pool applies any pending schema migration
+        dataAccess.submit(DatabaseConnection::isHealthy, healthy -> {
+            if (!healthy) {
+                LOGGER.severe("Base de données indisponible");
+                return;
             }
-        } catch (SQLException e) {
-            LOGGER.severe("SQL Error while logging products: " + e.getMessage());
-        }
+            LOGGER.info("Schéma de la base en version " + SchemaMigrator.getCurrentVersion());
+        }, e -> LOGGER.severe("Base de données indisponible: " + e.getMessage()));
     }
 
     private String getLoggedInMagasinierName() {
@@ -104,14 +137,8 @@ public class StockDashboardController {
         return fullName != null ? fullName : "Utilisateur Inconnu";
     }
 
-    private void refreshNotifications() {
-        List<String> updatedProducts = getExpiringProducts();
-        expiringProducts.setAll(updatedProducts);
-    }
-
     @FXML
     private void handleNotificationClick() {
-        refreshNotifications();
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Notifications - Produits en Péremption");
         alert.setHeaderText(null);
@@ -120,128 +147,254 @@ public class StockDashboardController {
         alert.showAndWait();
     }
 
-    private List<String> getExpiringProducts() {
-        List<String> products = new ArrayList<>();
-        String query = "SELECT nom, date_peremption FROM article WHERE date_peremption IS NOT NULL AND date_peremption <= datetime('now', '+7 days')";
-        try (Connection conn = DatabaseConnection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(query); ResultSet rs = pstmt.executeQuery()) {
-            while (rs.next()) {
-                products.add(rs.getString("nom") + " (Périme le: " + rs.getString("date_peremption") + ")");
-            }
-        } catch (SQLException e) {
-            LOGGER.severe("SQL Error: " + e.getMessage());
-            showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la récupération des produits en péremption: " + e.getMessage());
-        }
-        return products;
-    }
-
     private void updateCategories() {
-        categories.getChildren().clear();
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            categories.getChildren().addAll(
-                    createCategoryBox("Produits", getCount(conn, "SELECT COUNT(*) FROM article"), "📦"),
-                    createCategoryBox("Commandes internes", getCount(conn, "SELECT COUNT(*) FROM commande_interne"), "📥"),
-                    createCategoryBox("Commandes externes", getCount(conn, "SELECT COUNT(*) FROM commande_externe"), "📤"),
-                    createCategoryBox("Fournisseurs", getCount(conn, "SELECT COUNT(*) FROM fournisseur"), "🚚"),
-                    createCategoryBox("Consommateurs", getCount(conn, "SELECT COUNT(*) FROM consommateur"), "👥"),
-                    createCategoryBox("Locaux", getCount(conn, "SELECT COUNT(*) FROM local"), "🏢")
-            );
-        } catch (SQLException e) {
+        EntityCounters counters = EntityCounters.getInstance();
+        if (counters.isLoaded()) {
+            showCategories(counters.getCounts());
+            return;
+        }
+        // Only the first screen opened before the startup count finishes waits for the database
+        categories.getChildren().setAll(new Label("Chargement…"));
+        dataAccess.submit(counters::getCounts, this::showCategories, e -> {
+            categories.getChildren().clear();
             LOGGER.severe("Error updating categories: " + e.getMessage());
             showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la mise à jour des catégories: " + e.getMessage());
-        }
+        });
+    }
+
+    private void showCategories(Map<EntityCounters.Entity, Long> counts) {
+        categories.getChildren().setAll(
+                createCategoryBox("Produits", counts.get(EntityCounters.Entity.ARTICLE), "📦"),
+                createCategoryBox("Commandes internes", counts.get(EntityCounters.Entity.COMMANDE_INTERNE), "📥"),
+                createCategoryBox("Commandes externes", counts.get(EntityCounters.Entity.COMMANDE_EXTERNE), "📤"),
+                createCategoryBox("Fournisseurs", counts.get(EntityCounters.Entity.FOURNISSEUR), "🚚"),
+                createCategoryBox("Consommateurs", counts.get(EntityCounters.Entity.CONSOMMATEUR), "👥"),
+                createCategoryBox("Locaux", counts.get(EntityCounters.Entity.LOCAL), "🏢")
+        );
     }
 
-    private int getCount(Connection conn, String query) throws SQLException {
-        try (PreparedStatement pstmt = conn.prepareStatement(query); ResultSet rs = pstmt.executeQuery()) {
-            return rs.next() ? rs.getInt(1) : 0;
+    private void generateReport() {
+        ChoiceDialog<Rapport> choice = new ChoiceDialog<>(Rapport.JOURNAL, Rapport.values());
+        choice.setTitle("Rapports");
+        choice.setHeaderText(null);
+        choice.setContentText("Rapport à générer:");
+        Optional<Rapport> rapport = choice.showAndWait();
+        if (rapport.isEmpty()) {
+            return;
         }
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle(rapport.get().toString());
+        chooser.setInitialDirectory(new File(".").getAbsoluteFile());
+        chooser.setInitialFileName(rapport.get().fichier + ".pdf");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("PDF (*.pdf)", "*.pdf"));
+        for (ReportFormat format : ReportFormat.values()) {
+            chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(
+                    format.getDescription() + " (*." + format.getExtension() + ")", "*." + format.getExtension()));
+        }
+        File file = chooser.showSaveDialog(generatePdfBtn.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        // The extension typed wins over the filter selected; a null format stands for PDF
+        int selected = chooser.getExtensionFilters().indexOf(chooser.getSelectedExtensionFilter());
+        ReportFormat format = file.getName().toLowerCase(Locale.ROOT).endsWith(".pdf") ? null
+                : ReportFormat.forFileName(file.getName(), selected > 0 ? ReportFormat.values()[selected - 1] : null);
+
+        String label = generatePdfBtn.getText();
+        generatePdfBtn.setDisable(true);
+        DoubleConsumer progress = DataAccessExecutor.progressTo(
+                done -> generatePdfBtn.setText("Génération… " + Math.round(done * 100) + " %"));
+        dataAccess.submit(() -> writeReport(rapport.get(), file.toPath(), format, progress), outputPath -> {
+            generatePdfBtn.setText(label);
+            generatePdfBtn.setDisable(false);
+            showAlert(Alert.AlertType.INFORMATION, "Succès", "Fichier généré à: " + outputPath);
+        }, e -> {
+            generatePdfBtn.setText(label);
+            generatePdfBtn.setDisable(false);
+            LOGGER.severe("Error saving report: " + e.getMessage());
+            showAlert(Alert.AlertType.ERROR, "Erreur", e.getMessage());
+        });
     }
 
-    private void generateCommandesText() {
-        List<Commande> commandes = new ArrayList<>();
-        String query = "SELECT 'Interne' AS type, ci.id, ci.created_at AS date, GROUP_CONCAT(a.nom) AS articles, SUM(cia.quantite) AS quantite, COALESCE(l.nom, 'No Location') AS local " +
-                "FROM commande_interne ci " +
-                "LEFT JOIN commande_interne_article cia ON ci.id = cia.commande_interne_id " +
-                "LEFT JOIN article a ON cia.article_id = a.id " +
-                "LEFT JOIN local l ON ci.local_id = l.id " +
-                "GROUP BY ci.id " +
-                "UNION ALL " +
-                "SELECT 'Externe' AS type, ce.id, ce.created_at AS date, GROUP_CONCAT(a.nom) AS articles, SUM(cea.quantite) AS quantite, COALESCE(l.nom, 'No Location') AS local " +
-                "FROM commande_externe ce " +
-                "LEFT JOIN commande_externe_article cea ON ce.id = cea.commande_externe_id " +
-                "LEFT JOIN article a ON cea.article_id = a.id " +
-                "LEFT JOIN local l ON ce.local_id = l.id " +
-                "GROUP BY ce.id";
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            // Log table counts for debugging
-            LOGGER.info("Commande_interne count: " + getCount(conn, "SELECT COUNT(*) FROM commande_interne"));
-            LOGGER.info("Commande_externe count: " + getCount(conn, "SELECT COUNT(*) FROM commande_externe"));
-            LOGGER.info("Commande_interne_article count: " + getCount(conn, "SELECT COUNT(*) FROM commande_interne_article"));
-            LOGGER.info("Commande_externe_article count: " + getCount(conn, "SELECT COUNT(*) FROM commande_externe_article"));
-            LOGGER.info("Article count: " + getCount(conn, "SELECT COUNT(*) FROM article"));
-            LOGGER.info("Local count: " + getCount(conn, "SELECT COUNT(*) FROM local"));
-
-            try (PreparedStatement pstmt = conn.prepareStatement(query); ResultSet rs = pstmt.executeQuery()) {
-                int count = 0;
-                while (rs.next()) {
-                    count++;
-                    String articles = rs.getString("articles") != null ? rs.getString("articles") : "Aucun article";
-                    String local = rs.getString("local"); // COALESCE ensures non-null value
-                    int quantite = rs.getInt("quantite"); // Will be 0 if no articles
-                    commandes.add(new Commande(
-                            rs.getInt("id"),
-                            rs.getString("date"),
-                            articles,
-                            quantite,
-                            local,
-                            rs.getString("type")
-                    ));
-                    LOGGER.fine("Commande found: [ID=" + rs.getInt("id") + ", Type=" + rs.getString("type") + ", Articles=" + articles + ", Local=" + local + "]");
-                }
-                LOGGER.info("Total commandes retrieved: " + count);
-                if (count == 0) {
-                    LOGGER.warning("No commandes found in the database.");
+    private void importCsv() {
+        ChoiceDialog<BulkImporter.Cible> choice = new ChoiceDialog<>(BulkImporter.Cible.ARTICLES, BulkImporter.Cible.values());
+        choice.setTitle("Import CSV");
+        choice.setHeaderText(null);
+        choice.setContentText("Importer dans:");
+        Optional<BulkImporter.Cible> cible = choice.showAndWait();
+        if (cible.isEmpty()) {
+            return;
+        }
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Importer des " + cible.get().toString().toLowerCase(Locale.ROOT)
+                + " (colonnes: " + String.join(", ", cible.get().getEntetes()) + ")");
+        chooser.setInitialDirectory(new File(".").getAbsoluteFile());
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV (*.csv)", "*.csv"));
+        File file = chooser.showOpenDialog(importBtn.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        String name = file.getName();
+        Path rejets = file.toPath().resolveSibling(
+                (name.contains(".") ? name.substring(0, name.lastIndexOf('.')) : name) + "_rejets.csv");
+
+        String label = importBtn.getText();
+        importBtn.setDisable(true);
+        DoubleConsumer progress = DataAccessExecutor.progressTo(
+                done -> importBtn.setText("Import… " + Math.round(done * 100) + " %"));
+        // The import has its own thread and its outcome is shown even if this window is closed by then
+        new BulkImporter().lancer(cible.get(), file.toPath(), rejets, progress).whenComplete((resultat, e) -> Platform.runLater(() -> {
+            importBtn.setText(label);
+            importBtn.setDisable(false);
+            updateCategories();
+            if (e == null) {
+                String message = resultat.getImportees() + " ligne(s) importée(s) depuis " + name + ".";
+                if (resultat.getRejetees() > 0) {
+                    message += "\n" + resultat.getRejetees() + " ligne(s) rejetée(s), détail dans: " + resultat.getRapportRejets();
                 }
+                showAlert(resultat.getRejetees() > 0 ? Alert.AlertType.WARNING : Alert.AlertType.INFORMATION, "Import terminé", message);
+                return;
             }
-        } catch (SQLException e) {
-            LOGGER.severe("Error retrieving commandes: " + e.getMessage());
-            showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la récupération des commandes: " + e.getMessage());
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            LOGGER.severe("Erreur d'import de " + name + ": " + cause.getMessage());
+            showAlert(Alert.AlertType.ERROR, "Erreur", "Import de " + name + " interrompu: " + cause.getMessage());
+        }));
+    }
+
+    private void manageBackups() {
+        ChoiceDialog<String> choice = new ChoiceDialog<>(BACKUP_NOW, BACKUP_NOW, RESTORE);
+        choice.setTitle("Sauvegardes");
+        choice.setHeaderText("Les sauvegardes automatiques sont dans " + backups.getDirectory());
+        choice.setContentText("Action:");
+        Optional<String> action = choice.showAndWait();
+        if (action.isEmpty()) {
+            return;
+        }
+        if (BACKUP_NOW.equals(action.get())) {
+            runBackupJob("Sauvegarde… ", progress -> backups.backupNow(progress),
+                    path -> showAlert(Alert.AlertType.INFORMATION, "Succès", "Base sauvegardée dans: " + path));
             return;
         }
 
-        // Format text file content
-        StringBuilder textContent = new StringBuilder();
-        textContent.append("Commandes Log\n");
-        textContent.append("-------------\n");
-        textContent.append(String.format("%-4s | %-19s | %-30s | %-8s | %-20s | %-8s\n",
-                "ID", "Date", "Articles", "Quantité", "Local", "Type"));
-        textContent.append(String.format("%-4s | %-19s | %-30s | %-8s | %-20s | %-8s\n",
-                "----", "-------------------", "------------------------------", "--------", "--------------------", "--------"));
-
-        if (commandes.isEmpty()) {
-            textContent.append("Aucune commande trouvée\n");
-        } else {
-            for (Commande cmd : commandes) {
-                // Truncate or pad fields to align columns
-                String articles = cmd.articles.length() > 30 ? cmd.articles.substring(0, 27) + "..." : String.format("%-30s", cmd.articles);
-                String local = cmd.local.length() > 20 ? cmd.local.substring(0, 17) + "..." : String.format("%-20s", cmd.local);
-                textContent.append(String.format("%-4d | %-19s | %s | %-8d | %s | %-8s\n",
-                        cmd.id, cmd.date, articles, cmd.quantite, local, cmd.type));
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle(RESTORE);
+        File directory = backups.getDirectory().toFile();
+        chooser.setInitialDirectory(directory.isDirectory() ? directory : new File(".").getAbsoluteFile());
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Base SQLite (*.db)", "*.db"));
+        File file = chooser.showOpenDialog(backupBtn.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION,
+                "Toutes les données actuelles seront remplacées par celles de " + file.getName()
+                        + ".\nL'état actuel sera sauvegardé avant la restauration.", ButtonType.OK, ButtonType.CANCEL);
+        confirm.setTitle("Restaurer une sauvegarde");
+        confirm.setHeaderText(null);
+        if (confirm.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+            return;
+        }
+        runBackupJob("Restauration… ", progress -> backups.restoreNow(file.toPath(), progress), before -> {
+            updateCategories();
+            showAlert(Alert.AlertType.INFORMATION, "Succès", "Base restaurée depuis " + file.getName()
+                    + ".\nL'état précédent a été sauvegardé dans: " + before);
+        });
+    }
+
+    /**
+     * Runs a job of the backup service, which has its own thread, with its progress on the
+     * backup button, and hands its result to {@code onSuccess} on the JavaFX Application Thread.
+     */
+    private void runBackupJob(String progressText, Function<DoubleConsumer, CompletableFuture<Path>> job,
+                              Consumer<Path> onSuccess) {
+        String label = backupBtn.getText();
+        backupBtn.setDisable(true);
+        DoubleConsumer progress = DataAccessExecutor.progressTo(
+                done -> backupBtn.setText(progressText + Math.round(done * 100) + " %"));
+        job.apply(progress).whenComplete((path, e) -> Platform.runLater(() -> {
+            backupBtn.setText(label);
+            backupBtn.setDisable(false);
+            if (e == null) {
+                onSuccess.accept(path);
+                return;
             }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            LOGGER.severe(cause.getMessage());
+            showAlert(Alert.AlertType.ERROR, "Erreur", cause.getMessage());
+        }));
+    }
+
+    /**
+     * Streams {@code rapport} to {@code target}, as a PDF when {@code format} is null, and returns
+     * its path. Runs on the data-access executor; only one line, or one PDF page, is held in
+     * memory at a time.
+     */
+    private Path writeReport(Rapport rapport, Path target, ReportFormat format, DoubleConsumer progress) throws Exception {
+        LOGGER.info("Génération du rapport " + rapport.name() + " au format " + (format != null ? format : "PDF"));
+        try (ReportOutput output = format == null
+                ? new PdfReportWriter(target, rapport.titre, rapport.columns)
+                : new ReportWriter(target, format, rapport.titre, rapport.columns)) {
+            switch (rapport) {
+                case JOURNAL: {
+                    CommandeJournal journal = new CommandeJournal();
+                    long total = journal.count();
+                    journal.forEach(ligne -> {
+                        output.writeRow(ligne.getId(), ligne.getDate(), ligne.getArticles(), ligne.getQuantite(),
+                                ligne.getLocal(), ligne.getType());
+                        reportProgress(output, total, progress);
+                    });
+                    break;
+                }
+                case INVENTAIRE: {
+                    StockReports reports = new StockReports();
+                    long total = reports.countSoldes();
+                    // Each local starts a new section, that is a new page in a PDF
+                    long[] currentLocal = {-1};
+                    reports.forEachSoldeParLocal(ligne -> {
+                        if (ligne.getLocalId() != currentLocal[0]) {
+                            currentLocal[0] = ligne.getLocalId();
+                            output.startSection("Local: " + ligne.getLocal());
+                        }
+                        output.writeRow(ligne.getLocal(), ligne.getReference(), ligne.getArticle(), ligne.getCategorie(),
+                                ligne.getQuantite(), ligne.getStockMinimal(),
+                                ligne.getQuantite() < ligne.getStockMinimal() ? "BAS" : "");
+                        reportProgress(output, total, progress);
+                    });
+                    break;
+                }
+                case PEREMPTION: {
+                    StockReports reports = new StockReports();
+                    LocalDate today = LocalDate.now();
+                    LocalDateTime limit = today.plusDays(ExpiryNotificationService.HORIZON_DAYS).atTime(23, 59, 59);
+                    long total = reports.countPeremptions(limit);
+                    reports.forEachPeremption(limit, ligne -> {
+                        LocalDate date = parseDate(ligne.getDatePeremption());
+                        output.writeRow(ligne.getReference(), ligne.getNom(), ligne.getCategorie(),
+                                date != null ? date.toString() : ligne.getDatePeremption(),
+                                date != null ? ChronoUnit.DAYS.between(today, date) : null, ligne.getQuantite());
+                        reportProgress(output, total, progress);
+                    });
+                    break;
+                }
+            }
+            return output.finish(rapport.vide);
         }
+    }
 
-        // Save to text file in project folder
-        String outputPath = "./commandes_log.txt";
-        try (FileWriter writer = new FileWriter(outputPath)) {
-            writer.write(textContent.toString());
-            LOGGER.info("Text file saved to: " + new File(outputPath).getAbsolutePath());
-        } catch (IOException e) {
-            LOGGER.severe("Error saving text file: " + e.getMessage());
-            showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la sauvegarde du fichier texte: " + e.getMessage());
-            return;
+    private static void reportProgress(ReportOutput output, long total, DoubleConsumer progress) {
+        if (output.getRowCount() % PROGRESS_STEP == 0 && total > 0) {
+            progress.accept(Math.min(1.0, (double) output.getRowCount() / total));
         }
+    }
 
-        showAlert(Alert.AlertType.INFORMATION, "Succès", "Fichier texte généré à: " + outputPath);
+    /** The day of a stored "yyyy-MM-dd HH:mm:ss" value, or null if it is not one. */
+    private static LocalDate parseDate(String value) {
+        try {
+            return value != null && value.length() >= 10 ? LocalDate.parse(value.substring(0, 10)) : null;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
     }
 
     private VBox createMenuItem(String text, String icon, boolean isActive) {
@@ -310,7 +463,7 @@ public class StockDashboardController {
         return item;
     }
 
-    private VBox createCategoryBox(String name, int count, String icon) {
+    private VBox createCategoryBox(String name, long count, String icon) {
         VBox box = new VBox(8);
         box.getStyleClass().add("category-box");
         box.setPrefSize(200, 120);
@@ -347,21 +500,53 @@ public class StockDashboardController {
         alert.showAndWait();
     }
 
-    private static class Commande {
-        int id;
-        String date;
-        String articles;
-        int quantite;
-        String local;
-        String type;
-
-        Commande(int id, String date, String articles, int quantite, String local, String type) {
-            this.id = id;
-            this.date = date;
-            this.articles = articles;
-            this.quantite = quantite;
-            this.local = local;
-            this.type = type;
+    /**
+     * The reports behind the report button, with their columns.
+     */
+    private enum Rapport {
+        JOURNAL("Journal des commandes", "commandes_log", "Commandes Log", "Aucune commande trouvée", List.of(
+                new ReportWriter.Column("id", "ID", 4),
+                new ReportWriter.Column("date", "Date", 19),
+                new ReportWriter.Column("articles", "Articles", 30),
+                new ReportWriter.Column("quantite", "Quantité", 8),
+                new ReportWriter.Column("local", "Local", 20),
+                new ReportWriter.Column("type", "Type", 8))),
+        INVENTAIRE("Fiche d'inventaire par local", "inventaire_par_local", "Inventaire par local",
+                "Aucun stock enregistré", List.of(
+                new ReportWriter.Column("local", "Local", 20),
+                new ReportWriter.Column("reference", "Référence", 12),
+                new ReportWriter.Column("article", "Article", 30),
+                new ReportWriter.Column("categorie", "Catégorie", 15),
+                new ReportWriter.Column("quantite", "Quantité", 8),
+                new ReportWriter.Column("stockMinimal", "Stock min", 9),
+                new ReportWriter.Column("alerte", "Alerte", 6))),
+        PEREMPTION("Articles bientôt périmés", "articles_perimes",
+                "Articles périmés ou périmant sous " + ExpiryNotificationService.HORIZON_DAYS + " jours",
+                "Aucun article en péremption", List.of(
+                new ReportWriter.Column("reference", "Référence", 12),
+                new ReportWriter.Column("nom", "Article", 30),
+                new ReportWriter.Column("categorie", "Catégorie", 15),
+                new ReportWriter.Column("datePeremption", "Périme le", 10),
+                new ReportWriter.Column("joursRestants", "Jours", 6),
+                new ReportWriter.Column("quantite", "En stock", 8)));
+
+        private final String libelle;
+        private final String fichier;
+        private final String titre;
+        private final String vide;
+        private final List<ReportWriter.Column> columns;
+
+        Rapport(String libelle, String fichier, String titre, String vide, List<ReportWriter.Column> columns) {
+            this.libelle = libelle;
+            this.fichier = fichier;
+            this.titre = titre;
+            this.vide = vide;
+            this.columns = columns;
+        }
+
+        @Override
+        public String toString() {
+            return libelle;
         }
     }
 }
\ No newline at end of file
@@ -4,12 +4,16 @@ package model.dao;
 
 import model.entities.Article;
 
+import java.time.LocalDate;
 import java.util.List;
 
 public interface ArticleDAO {
     void insert(Article article);
     Article getById(Long id);
     List<Article> getAll();
+    List<Article> getPage(Long afterId, int limit, SortDirection sort);
+    long count();
+    List<Article> getExpiringBetween(LocalDate from, LocalDate to);
     void update(Article article);
     void delete(Long id);
 }
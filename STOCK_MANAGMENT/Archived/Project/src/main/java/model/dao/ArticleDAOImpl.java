@@ -4,21 +4,29 @@ import model.entities.Article;
 import utils.DatabaseConnection;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class ArticleDAOImpl implements ArticleDAO {
 
+    private static final Logger LOGGER = Logger.getLogger(ArticleDAOImpl.class.getName());
+
     private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    private final MouvementStockDAO mouvementStockDAO = new MouvementStockDAOImpl();
+
     @Override
     public void insert(Article article) {
         String sql = "INSERT INTO article (reference, nom, categorie, stock_minimal, date_peremption, est_critique, est_consommable, created_at, updated_at) " +
                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
+        boolean cached = false;
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, article.getReference());
@@ -36,21 +44,27 @@ public class ArticleDAOImpl implements ArticleDAO {
             stmt.setString(9, article.getUpdatedAt().format(SQLITE_DATETIME_FORMATTER));
 
             stmt.executeUpdate();
+            EntityCounters.getInstance().added(EntityCounters.Entity.ARTICLE);
 
             ResultSet rs = stmt.getGeneratedKeys();
             if (rs.next()) {
                 article.setId(rs.getLong(1));
+                cached = putInCache(article.getId());
             }
 
         } catch (SQLException e) {
             throw new RuntimeException("Erreur lors de l'insertion de l'article: " + e.getMessage(), e);
+        } finally {
+            if (!cached) {
+                ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.ARTICLES);
+            }
         }
     }
 
     @Override
     public Article getById(Long id) {
         String sql = "SELECT * FROM article WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setLong(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
@@ -78,7 +92,7 @@ public class ArticleDAOImpl implements ArticleDAO {
             try {
                 article.setDatePeremption(LocalDateTime.parse(datePeremptionStr, SQLITE_DATETIME_FORMATTER));
             } catch (DateTimeParseException e) {
-                System.err.println("Erreur lors du parsing de date_peremption: '" + datePeremptionStr + "' pour article ID: " + articleId);
+                LOGGER.warning("Erreur lors du parsing de date_peremption: '" + datePeremptionStr + "' pour article ID: " + articleId);
                 article.setDatePeremption(null);
             }
         }
@@ -91,11 +105,11 @@ public class ArticleDAOImpl implements ArticleDAO {
             try {
                 article.setCreatedAt(LocalDateTime.parse(createdAtStr, SQLITE_DATETIME_FORMATTER));
             } catch (DateTimeParseException e) {
-                System.err.println("Erreur lors du parsing de created_at: '" + createdAtStr + "' pour article ID: " + articleId);
+                LOGGER.warning("Erreur lors du parsing de created_at: '" + createdAtStr + "' pour article ID: " + articleId);
                 article.setCreatedAt(LocalDateTime.now());
             }
         } else {
-            System.err.println("created_at est NULL pour article ID: " + articleId);
+            LOGGER.warning("created_at est NULL pour article ID: " + articleId);
             article.setCreatedAt(LocalDateTime.now());
         }
 
@@ -104,11 +118,11 @@ public class ArticleDAOImpl implements ArticleDAO {
             try {
                 article.setUpdatedAt(LocalDateTime.parse(updatedAtStr, SQLITE_DATETIME_FORMATTER));
             } catch (DateTimeParseException e) {
-                System.err.println("Erreur lors du parsing de updated_at: '" + updatedAtStr + "' pour article ID: " + articleId);
+                LOGGER.warning("Erreur lors du parsing de updated_at: '" + updatedAtStr + "' pour article ID: " + articleId);
                 article.setUpdatedAt(LocalDateTime.now());
             }
         } else {
-            System.err.println("updated_at est NULL pour article ID: " + articleId);
+            LOGGER.warning("updated_at est NULL pour article ID: " + articleId);
             article.setUpdatedAt(LocalDateTime.now());
         }
 
@@ -119,7 +133,7 @@ public class ArticleDAOImpl implements ArticleDAO {
     public List<Article> getAll() {
         List<Article> articles = new ArrayList<>();
         String sql = "SELECT * FROM article";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -128,16 +142,67 @@ public class ArticleDAOImpl implements ArticleDAO {
                     articles.add(extractArticleFromResultSet(rs));
                 } catch (SQLException e) {
                     long articleId = rs.getLong("id");
-                    System.err.println("Erreur lors de l'extraction de l'article ID: " + articleId + " - " + e.getMessage());
-                    e.printStackTrace();
+                    LOGGER.log(Level.SEVERE, "Erreur lors de l'extraction de l'article ID: " + articleId + " - " + e.getMessage(), e);
                 }
             }
 
         } catch (SQLException e) {
-            System.err.println("Erreur SQL lors de la récupération des articles: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.log(Level.SEVERE, "Erreur SQL lors de la récupération des articles: " + e.getMessage(), e);
+        }
+        LOGGER.fine(() -> "Nombre d'articles récupérés: " + articles.size());
+        return articles;
+    }
+
+    @Override
+    public List<Article> getPage(Long afterId, int limit, SortDirection sort) {
+        List<Article> articles = new ArrayList<>();
+        String sql = sort.pageSql("SELECT * FROM article", "id", afterId);
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            SortDirection.bindPage(stmt, afterId, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    articles.add(extractArticleFromResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors de la récupération d'une page d'articles: " + e.getMessage(), e);
+        }
+        return articles;
+    }
+
+    @Override
+    public long count() {
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM article");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors du comptage des articles: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Articles whose expiry date falls on a day from {@code from} to {@code to}, both included,
+     * soonest first. The bounds compare the stored text directly, as "yyyy-MM-dd" sorts before
+     * any time of that day, so the range scan is served by idx_article_date_peremption.
+     */
+    @Override
+    public List<Article> getExpiringBetween(LocalDate from, LocalDate to) {
+        List<Article> articles = new ArrayList<>();
+        String sql = "SELECT * FROM article WHERE date_peremption >= ? AND date_peremption < ? ORDER BY date_peremption";
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, from.toString());
+            stmt.setString(2, to.plusDays(1).toString());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    articles.add(extractArticleFromResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors de la récupération des articles en péremption: " + e.getMessage(), e);
         }
-        System.out.println("Nombre d'articles récupérés: " + articles.size());
         return articles;
     }
 
@@ -146,6 +211,7 @@ public class ArticleDAOImpl implements ArticleDAO {
         String sql = "UPDATE article SET reference = ?, nom = ?, categorie = ?, stock_minimal = ?, date_peremption = ?, " +
                 "est_critique = ?, est_consommable = ?, updated_at = ? WHERE id = ?";
 
+        boolean cached = false;
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, article.getReference());
@@ -163,21 +229,107 @@ public class ArticleDAOImpl implements ArticleDAO {
             stmt.setLong(9, article.getId());
 
             stmt.executeUpdate();
+            cached = putInCache(article.getId());
 
         } catch (SQLException e) {
             throw new RuntimeException("Erreur lors de la mise à jour de l'article: " + e.getMessage(), e);
+        } finally {
+            if (!cached) {
+                ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.ARTICLES);
+            }
         }
     }
 
     @Override
     public void delete(Long id) {
         String sql = "DELETE FROM article WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setLong(1, id);
-            stmt.executeUpdate();
+        boolean cached = false;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // The order lines of the article go with it (ON DELETE CASCADE)
+                List<Long> commandesInternes = commandesWith("commande_interne", id, conn);
+                List<Long> commandesExternes = commandesWith("commande_externe", id, conn);
+
+                int deleted;
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setLong(1, id);
+                    deleted = stmt.executeUpdate();
+                }
+
+                // The orders lost a line: the incremental export must send them again
+                String now = LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER);
+                touchCommandes("commande_interne", commandesInternes, now, conn);
+                touchCommandes("commande_externe", commandesExternes, now, conn);
+                for (Long commandeInterneId : commandesInternes) {
+                    mouvementStockDAO.recordCommandeInterne(commandeInterneId, conn);
+                }
+                for (Long commandeExterneId : commandesExternes) {
+                    mouvementStockDAO.recordCommandeExterne(commandeExterneId, conn);
+                }
+                mouvementStockDAO.purgeArticle(id, conn);
+
+                conn.commit();
+                EntityCounters.getInstance().removed(EntityCounters.Entity.ARTICLE, deleted);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            ReferenceDataCache.getInstance().remove(ReferenceDataCache.ARTICLES, id);
+            cached = true;
         } catch (SQLException e) {
             throw new RuntimeException("Erreur lors de la suppression de l'article: " + e.getMessage(), e);
+        } finally {
+            if (!cached) {
+                ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.ARTICLES);
+            }
+        }
+    }
+
+    /**
+     * Ids of the orders from {@code source} ("commande_interne" or "commande_externe") with a
+     * line for the article.
+     */
+    private static List<Long> commandesWith(String source, Long articleId, Connection conn) throws SQLException {
+        String sql = "SELECT DISTINCT " + source + "_id FROM " + source + "_article WHERE article_id = ?";
+        List<Long> ids = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, articleId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static void touchCommandes(String source, List<Long> ids, String now, Connection conn) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("UPDATE " + source + " SET updated_at = ? WHERE id = ?")) {
+            for (Long id : ids) {
+                stmt.setString(1, now);
+                stmt.setLong(2, id);
+                stmt.addBatch();
+            }
+            BatchSupport.executeBatch(stmt, ids.size());
+        }
+    }
+
+    /**
+     * Stores the article as just written in the cached articles, instead of having them all read
+     * again. Called while the writer connection is held, so no other write comes in between.
+     */
+    private boolean putInCache(Long id) {
+        Article written = getById(id);
+        if (written == null) {
+            return false;
         }
+        ReferenceDataCache.getInstance().put(ReferenceDataCache.ARTICLES, written);
+        return true;
     }
 }
\ No newline at end of file
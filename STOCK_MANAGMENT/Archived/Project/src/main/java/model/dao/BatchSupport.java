@@ -0,0 +1,141 @@
+package model.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Helpers shared by the set-based read and write paths of the order DAOs.
+ */
+final class BatchSupport {
+    /** Stays well below SQLite's limit on bound parameters per statement. */
+    static final int MAX_IN_PARAMETERS = 500;
+
+    /**
+     * Maps the current row of a result set; mirrors the DAOs' {@code extractXFromResultSet} methods.
+     */
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private BatchSupport() {
+    }
+
+    /**
+     * Runs {@code selectSql} for the given parent IDs (or for all rows if {@code parentIds} is null)
+     * and groups the mapped rows by {@code parentColumn}, keeping the row order of each group.
+     */
+    static <T> Map<Long, List<T>> queryGrouped(Connection connection, String selectSql, String parentColumn,
+                                               String parentLabel, Collection<Long> parentIds,
+                                               RowMapper<T> mapper) throws SQLException {
+        Map<Long, List<T>> grouped = new HashMap<>();
+        if (parentIds == null) {
+            try (PreparedStatement stmt = connection.prepareStatement(selectSql);
+                 ResultSet rs = stmt.executeQuery()) {
+                collect(rs, parentLabel, mapper, grouped);
+            }
+            return grouped;
+        }
+
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(parentIds));
+        for (int from = 0; from < ids.size(); from += MAX_IN_PARAMETERS) {
+            List<Long> chunk = ids.subList(from, Math.min(from + MAX_IN_PARAMETERS, ids.size()));
+            String sql = selectSql + " WHERE " + parentColumn + " IN (" + placeholders(chunk.size()) + ")";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setLong(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    collect(rs, parentLabel, mapper, grouped);
+                }
+            }
+        }
+        return grouped;
+    }
+
+    private static <T> void collect(ResultSet rs, String parentLabel, RowMapper<T> mapper,
+                                    Map<Long, List<T>> grouped) throws SQLException {
+        while (rs.next()) {
+            Long parentId = rs.getLong(parentLabel);
+            grouped.computeIfAbsent(parentId, id -> new ArrayList<>()).add(mapper.map(rs));
+        }
+    }
+
+    /**
+     * Returns the IDs from {@code ids} that have no row in {@code table}, using one
+     * {@code IN (...)} query per chunk instead of one query per ID.
+     */
+    static Set<Long> findMissingIds(Connection connection, String table, Collection<Long> ids) throws SQLException {
+        Set<Long> wanted = new LinkedHashSet<>(ids);
+        if (wanted.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Set<Long> found = new HashSet<>();
+        List<Long> all = new ArrayList<>(wanted);
+        for (int from = 0; from < all.size(); from += MAX_IN_PARAMETERS) {
+            List<Long> chunk = all.subList(from, Math.min(from + MAX_IN_PARAMETERS, all.size()));
+            String sql = "SELECT id FROM " + table + " WHERE id IN (" + placeholders(chunk.size()) + ")";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setLong(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        found.add(rs.getLong(1));
+                    }
+                }
+            }
+        }
+
+        wanted.removeAll(found);
+        return wanted;
+    }
+
+    static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ",?");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Runs the batch and checks that every row was written.
+     */
+    static void executeBatch(PreparedStatement stmt, int expectedRows) throws SQLException {
+        int[] counts = stmt.executeBatch();
+        if (counts.length != expectedRows) {
+            throw new SQLException("Batch incomplet: " + counts.length + " lignes sur " + expectedRows);
+        }
+        for (int count : counts) {
+            if (count != 1 && count != Statement.SUCCESS_NO_INFO) {
+                throw new SQLException("Batch incomplet: une ligne n'a pas été insérée");
+            }
+        }
+    }
+
+    /**
+     * Rowid of the first row of a batch of {@code rowCount} inserts just run on {@code connection}.
+     * Rows inserted by one connection inside a transaction get consecutive rowids.
+     */
+    static long firstBatchRowId(Connection connection, int rowCount) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT last_insert_rowid()");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1) - rowCount + 1;
+        }
+    }
+}
@@ -0,0 +1,595 @@
+package model.dao;
+
+import utils.CsvReader;
+import utils.DatabaseConnection;
+import utils.PrefixIndex;
+import utils.ReportFormat;
+import utils.ReportWriter;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.DoubleConsumer;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Imports a CSV file into one of the reference tables: articles, fournisseurs, locaux or
+ * consommateurs.
+ * <p>
+ * The file is read as a stream, {@code stock.import.chunkSize} records (5000) at a time. Each
+ * chunk is validated in parallel while the previous one is inserted, then inserted in a single
+ * transaction with multi-row {@code INSERT} statements. The writer connection is released between
+ * chunks, so other writes are never held up for more than one chunk. Rejected records are written
+ * with their reason to a CSV report; the valid ones are imported.
+ * <p>
+ * The first line names the columns, matched to the table's columns ignoring case, accents,
+ * spaces and underscores. A failure stops the import; the chunks committed before it stay.
+ * <p>
+ * Screens start imports with {@link #lancer}, which runs them one at a time on a thread of
+ * their own, so that a long import neither holds one of the screens' data-access threads nor
+ * depends on the window that started it.
+ */
+public final class BulkImporter {
+
+    private static final Logger LOGGER = Logger.getLogger(BulkImporter.class.getName());
+
+    private static final int CHUNK_SIZE = Integer.getInteger("stock.import.chunkSize", 5000);
+    private static final ExecutorService IMPORTS = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "csv-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    /** Accepted date formats, strict so that 31/02 is rejected rather than moved to 28/02. */
+    private static final DateTimeFormatter[] DATE_FORMATTERS = {
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("dd/MM/uuuu").withResolverStyle(ResolverStyle.STRICT)
+    };
+    private static final DateTimeFormatter[] DATE_TIME_FORMATTERS = {
+            DateTimeFormatter.ofPattern("uuuu-MM-dd HH:mm:ss").withResolverStyle(ResolverStyle.STRICT),
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME
+    };
+    private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+\\.[^@\\s]+");
+    private static final Set<String> TRUE_VALUES = Set.of("1", "oui", "o", "vrai", "true", "yes", "x");
+    private static final Set<String> FALSE_VALUES = Set.of("0", "non", "n", "faux", "false", "no");
+
+    private enum Type {
+        TEXTE, ENTIER_POSITIF, DATE, BOOLEEN, EMAIL, CONSOMMATEUR
+    }
+
+    /**
+     * A column of the table, read from the CSV column named {@code entete}.
+     */
+    private static final class Champ {
+        private final String entete;
+        private final String colonne;
+        private final Type type;
+        private final boolean requis;
+
+        private Champ(String entete, String colonne, Type type, boolean requis) {
+            this.entete = entete;
+            this.colonne = colonne;
+            this.type = type;
+            this.requis = requis;
+        }
+
+        private Champ(String colonne, Type type, boolean requis) {
+            this(colonne, colonne, type, requis);
+        }
+    }
+
+    /**
+     * The tables a file can be imported into.
+     */
+    public enum Cible {
+        ARTICLES("Articles", "article", EntityCounters.Entity.ARTICLE, ReferenceDataCache.ARTICLES, "reference", List.of(
+                new Champ("reference", Type.TEXTE, true),
+                new Champ("nom", Type.TEXTE, true),
+                new Champ("categorie", Type.TEXTE, false),
+                new Champ("stock_minimal", Type.ENTIER_POSITIF, false),
+                new Champ("date_peremption", Type.DATE, false),
+                new Champ("est_critique", Type.BOOLEEN, false),
+                new Champ("est_consommable", Type.BOOLEEN, false))),
+        FOURNISSEURS("Fournisseurs", "fournisseur", EntityCounters.Entity.FOURNISSEUR, ReferenceDataCache.FOURNISSEURS, null, List.of(
+                new Champ("nom", Type.TEXTE, true),
+                new Champ("adresse", Type.TEXTE, false),
+                new Champ("telephone", Type.TEXTE, false),
+                new Champ("email", Type.EMAIL, false),
+                new Champ("site_web", Type.TEXTE, false),
+                new Champ("personne_contact", Type.TEXTE, false),
+                new Champ("notes", Type.TEXTE, false))),
+        LOCAUX("Locaux", "local", EntityCounters.Entity.LOCAL, ReferenceDataCache.LOCALS, null, List.of(
+                new Champ("nom", Type.TEXTE, true),
+                new Champ("emplacement", Type.TEXTE, false),
+                new Champ("type", Type.TEXTE, false),
+                new Champ("consommateur", "consommateur_id", Type.CONSOMMATEUR, false))),
+        CONSOMMATEURS("Consommateurs", "consommateur", EntityCounters.Entity.CONSOMMATEUR, ReferenceDataCache.CONSOMMATEURS, null, List.of(
+                new Champ("nom", Type.TEXTE, true),
+                new Champ("email", Type.EMAIL, false),
+                new Champ("telephone", Type.TEXTE, false),
+                new Champ("type", Type.TEXTE, false),
+                new Champ("description", Type.TEXTE, false)));
+
+        private final String libelle;
+        private final String table;
+        private final EntityCounters.Entity entity;
+        private final ReferenceDataCache.Table<?> cacheTable;
+        /** A column that must be unique, checked before inserting; null when there is none. */
+        private final String cleUnique;
+        private final List<Champ> champs;
+
+        Cible(String libelle, String table, EntityCounters.Entity entity, ReferenceDataCache.Table<?> cacheTable,
+              String cleUnique, List<Champ> champs) {
+            this.libelle = libelle;
+            this.table = table;
+            this.entity = entity;
+            this.cacheTable = cacheTable;
+            this.cleUnique = cleUnique;
+            this.champs = champs;
+        }
+
+        /** The CSV column names expected, in table order. */
+        public List<String> getEntetes() {
+            List<String> entetes = new ArrayList<>();
+            for (Champ champ : champs) {
+                entetes.add(champ.entete);
+            }
+            return entetes;
+        }
+
+        @Override
+        public String toString() {
+            return libelle;
+        }
+    }
+
+    /**
+     * The outcome of an import.
+     */
+    public static final class Resultat {
+        private final long importees;
+        private final long rejetees;
+        private final Path rapportRejets;
+
+        private Resultat(long importees, long rejetees, Path rapportRejets) {
+            this.importees = importees;
+            this.rejetees = rejetees;
+            this.rapportRejets = rapportRejets;
+        }
+
+        public long getImportees() {
+            return importees;
+        }
+
+        public long getRejetees() {
+            return rejetees;
+        }
+
+        /** The report of the rejected records, or null when none was rejected. */
+        public Path getRapportRejets() {
+            return rapportRejets;
+        }
+    }
+
+    /** One record of the file, once validated: its values, or the reason it was rejected. */
+    private static final class Ligne {
+        private final long numero;
+        private final String[] brut;
+        private Object[] valeurs;
+        private String motif;
+
+        private Ligne(long numero, String[] brut) {
+            this.numero = numero;
+            this.brut = brut;
+        }
+    }
+
+    /**
+     * Runs {@link #importer} on the import thread, after any import already running.
+     */
+    public CompletableFuture<Resultat> lancer(Cible cible, Path fichier, Path rejets, DoubleConsumer progress) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return importer(cible, fichier, rejets, progress);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }, IMPORTS);
+    }
+
+    /**
+     * Imports {@code fichier} into {@code cible}, writing the rejected records to
+     * {@code rejets}, and reports the share of the file read so far to {@code progress}.
+     * Runs in the caller's thread.
+     */
+    public Resultat importer(Cible cible, Path fichier, Path rejets, DoubleConsumer progress) throws Exception {
+        long size = Math.max(1, Files.size(fichier));
+        long[] read = new long[1];
+        Map<String, Long> consommateurs = cible.champs.stream().anyMatch(c -> c.type == Type.CONSOMMATEUR)
+                ? loadConsommateurs() : Collections.emptyMap();
+        String now = LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER);
+        long importees = 0;
+        long start = System.nanoTime();
+
+        try (CsvReader csv = new CsvReader(new InputStreamReader(counting(Files.newInputStream(fichier), read),
+                StandardCharsets.UTF_8))) {
+            String[] entetes = csv.next();
+            if (entetes == null) {
+                throw new IllegalArgumentException("Le fichier est vide.");
+            }
+            int[] positions = positions(cible, entetes);
+            List<ReportWriter.Column> colonnes = new ArrayList<>();
+            colonnes.add(new ReportWriter.Column("ligne", "Ligne", 6));
+            colonnes.add(new ReportWriter.Column("motif", "Motif", 40));
+            for (String entete : entetes) {
+                colonnes.add(new ReportWriter.Column(entete, entete, 20));
+            }
+
+            // Without rejections the report is never finished, so closing it deletes it
+            try (ReportWriter rapport = new ReportWriter(rejets, ReportFormat.CSV, "Lignes rejetées", colonnes)) {
+                CompletableFuture<Ligne[]> pending = validateNext(csv, cible, positions, consommateurs, now);
+                while (pending != null) {
+                    Ligne[] chunk = join(pending);
+                    // Read and validate the next chunk while this one is inserted
+                    pending = validateNext(csv, cible, positions, consommateurs, now);
+                    importees += insert(cible, chunk);
+                    for (Ligne ligne : chunk) {
+                        if (ligne.motif != null) {
+                            Object[] row = new Object[colonnes.size()];
+                            row[0] = ligne.numero;
+                            row[1] = ligne.motif;
+                            System.arraycopy(ligne.brut, 0, row, 2, Math.min(ligne.brut.length, entetes.length));
+                            rapport.writeRow(row);
+                        }
+                    }
+                    progress.accept(Math.min(1.0, (double) read[0] / size));
+                }
+                long rejetees = rapport.getRowCount();
+                Path chemin = rejetees > 0 ? rapport.finish(null) : null;
+                long total = importees;
+                LOGGER.info(() -> "Import " + cible.name() + ": " + total + " lignes importées, " + rejetees
+                        + " rejetées en " + (System.nanoTime() - start) / 1_000_000 + " ms");
+                return new Resultat(importees, rejetees, chemin);
+            }
+        } finally {
+            ReferenceDataCache.getInstance().invalidate(cible.cacheTable);
+        }
+    }
+
+    /** The position in the file of each column of {@code cible}, -1 when the file lacks it. */
+    private static int[] positions(Cible cible, String[] entetes) {
+        Map<String, Integer> parNom = new HashMap<>();
+        for (int i = 0; i < entetes.length; i++) {
+            parNom.putIfAbsent(key(entetes[i]), i);
+        }
+        int[] positions = new int[cible.champs.size()];
+        for (int i = 0; i < positions.length; i++) {
+            Champ champ = cible.champs.get(i);
+            positions[i] = parNom.getOrDefault(key(champ.entete), -1);
+            if (positions[i] < 0 && champ.requis) {
+                throw new IllegalArgumentException("Colonne obligatoire absente du fichier: " + champ.entete);
+            }
+        }
+        return positions;
+    }
+
+    private static String key(String entete) {
+        return PrefixIndex.normalize(entete).replaceAll("[^a-z0-9]", "");
+    }
+
+    /**
+     * Reads the next chunk of records and starts validating it in parallel; null at the end of
+     * the file.
+     */
+    private static CompletableFuture<Ligne[]> validateNext(CsvReader csv, Cible cible, int[] positions,
+                                                           Map<String, Long> consommateurs, String now) throws IOException {
+        List<Ligne> chunk = new ArrayList<>(CHUNK_SIZE);
+        String[] record;
+        while (chunk.size() < CHUNK_SIZE && (record = csv.next()) != null) {
+            chunk.add(new Ligne(csv.getLineNumber(), record));
+        }
+        if (chunk.isEmpty()) {
+            return null;
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            IntStream.range(0, chunk.size()).parallel()
+                    .forEach(i -> validate(cible, positions, consommateurs, now, chunk.get(i)));
+            return chunk.toArray(new Ligne[0]);
+        });
+    }
+
+    private static void validate(Cible cible, int[] positions, Map<String, Long> consommateurs, String now, Ligne ligne) {
+        Object[] valeurs = new Object[cible.champs.size() + 2];
+        for (int i = 0; i < positions.length; i++) {
+            Champ champ = cible.champs.get(i);
+            String texte = positions[i] >= 0 && positions[i] < ligne.brut.length ? ligne.brut[positions[i]].trim() : "";
+            if (texte.isEmpty() && champ.requis) {
+                ligne.motif = "Champ obligatoire vide: " + champ.entete;
+                return;
+            }
+            try {
+                valeurs[i] = convert(champ, texte, consommateurs);
+            } catch (IllegalArgumentException e) {
+                ligne.motif = champ.entete + ": " + e.getMessage();
+                return;
+            }
+        }
+        valeurs[positions.length] = now;
+        valeurs[positions.length + 1] = now;
+        ligne.valeurs = valeurs;
+    }
+
+    private static Object convert(Champ champ, String texte, Map<String, Long> consommateurs) {
+        switch (champ.type) {
+            case ENTIER_POSITIF:
+                if (texte.isEmpty()) {
+                    return 0;
+                }
+                int value;
+                try {
+                    value = Integer.parseInt(texte);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("nombre invalide \"" + texte + "\"");
+                }
+                if (value < 0) {
+                    throw new IllegalArgumentException("doit être positif");
+                }
+                return value;
+            case DATE:
+                return texte.isEmpty() ? null : parseDate(texte);
+            case BOOLEEN: {
+                String lower = texte.toLowerCase(Locale.ROOT);
+                if (lower.isEmpty() || FALSE_VALUES.contains(lower)) {
+                    return 0;
+                }
+                if (TRUE_VALUES.contains(lower)) {
+                    return 1;
+                }
+                throw new IllegalArgumentException("valeur oui/non attendue, reçu \"" + texte + "\"");
+            }
+            case EMAIL:
+                if (!texte.isEmpty() && !EMAIL.matcher(texte).matches()) {
+                    throw new IllegalArgumentException("adresse invalide \"" + texte + "\"");
+                }
+                return texte.isEmpty() ? null : texte;
+            case CONSOMMATEUR: {
+                if (texte.isEmpty()) {
+                    return null;
+                }
+                Long id = consommateurs.get(PrefixIndex.normalize(texte));
+                if (id == null) {
+                    throw new IllegalArgumentException("consommateur inconnu \"" + texte + "\"");
+                }
+                return id;
+            }
+            default:
+                return texte.isEmpty() ? null : texte;
+        }
+    }
+
+    /** A date as stored by the DAOs, "yyyy-MM-dd HH:mm:ss". */
+    private static String parseDate(String texte) {
+        for (DateTimeFormatter formatter : DATE_TIME_FORMATTERS) {
+            try {
+                return LocalDateTime.parse(texte, formatter).format(SQLITE_DATETIME_FORMATTER);
+            } catch (DateTimeParseException e) {
+                // Try the next format
+            }
+        }
+        for (DateTimeFormatter formatter : DATE_FORMATTERS) {
+            try {
+                return LocalDate.parse(texte, formatter).atStartOfDay().format(SQLITE_DATETIME_FORMATTER);
+            } catch (DateTimeParseException e) {
+                // Try the next format
+            }
+        }
+        throw new IllegalArgumentException("date invalide \"" + texte + "\" (attendu aaaa-mm-jj ou jj/mm/aaaa)");
+    }
+
+    /**
+     * Inserts the valid records of {@code chunk} in one transaction and returns their number.
+     * Records whose unique key is already taken, in the table or earlier in the chunk, are
+     * rejected first.
+     */
+    private static int insert(Cible cible, Ligne[] chunk) throws SQLException {
+        List<Ligne> valides = new ArrayList<>(chunk.length);
+        for (Ligne ligne : chunk) {
+            if (ligne.motif == null) {
+                valides.add(ligne);
+            }
+        }
+        if (valides.isEmpty()) {
+            return 0;
+        }
+        int inserted;
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                if (cible.cleUnique != null) {
+                    valides = rejectDuplicates(connection, cible, valides);
+                }
+                insertRows(connection, cible, valides);
+                connection.commit();
+                inserted = valides.size();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw new SQLException("Import interrompu à la ligne " + valides.get(0).numero + ": " + e.getMessage(), e);
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        EntityCounters.getInstance().added(cible.entity, inserted);
+        return inserted;
+    }
+
+    private static List<Ligne> rejectDuplicates(Connection connection, Cible cible, List<Ligne> valides) throws SQLException {
+        int index = 0;
+        while (!cible.champs.get(index).colonne.equals(cible.cleUnique)) {
+            index++;
+        }
+        List<String> keys = new ArrayList<>(valides.size());
+        for (Ligne ligne : valides) {
+            keys.add((String) ligne.valeurs[index]);
+        }
+        Set<String> taken = new HashSet<>();
+        for (int from = 0; from < keys.size(); from += BatchSupport.MAX_IN_PARAMETERS) {
+            List<String> part = keys.subList(from, Math.min(from + BatchSupport.MAX_IN_PARAMETERS, keys.size()));
+            String sql = "SELECT " + cible.cleUnique + " FROM " + cible.table + " WHERE " + cible.cleUnique
+                    + " IN (" + BatchSupport.placeholders(part.size()) + ")";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                for (int i = 0; i < part.size(); i++) {
+                    stmt.setString(i + 1, part.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        taken.add(rs.getString(1));
+                    }
+                }
+            }
+        }
+        List<Ligne> kept = new ArrayList<>(valides.size());
+        Set<String> seen = new HashSet<>();
+        for (Ligne ligne : valides) {
+            String key = (String) ligne.valeurs[index];
+            if (taken.contains(key)) {
+                ligne.motif = cible.cleUnique + " déjà existant: " + key;
+            } else if (!seen.add(key)) {
+                ligne.motif = cible.cleUnique + " en double dans le fichier: " + key;
+            } else {
+                kept.add(ligne);
+            }
+        }
+        return kept;
+    }
+
+    /** Inserts the rows with as few statements as the bound parameter limit allows. */
+    private static void insertRows(Connection connection, Cible cible, List<Ligne> rows) throws SQLException {
+        int columns = cible.champs.size() + 2;
+        int perStatement = Math.max(1, BatchSupport.MAX_IN_PARAMETERS / columns);
+        PreparedStatement full = null;
+        try {
+            for (int from = 0; from < rows.size(); from += perStatement) {
+                int count = Math.min(perStatement, rows.size() - from);
+                PreparedStatement stmt;
+                if (count == perStatement) {
+                    if (full == null) {
+                        full = connection.prepareStatement(insertSql(cible, perStatement));
+                    }
+                    stmt = full;
+                } else {
+                    stmt = connection.prepareStatement(insertSql(cible, count));
+                }
+                try {
+                    int parameter = 1;
+                    for (int i = from; i < from + count; i++) {
+                        for (Object value : rows.get(i).valeurs) {
+                            stmt.setObject(parameter++, value);
+                        }
+                    }
+                    int written = stmt.executeUpdate();
+                    if (written != count) {
+                        throw new SQLException("Insertion incomplète: " + written + " lignes sur " + count);
+                    }
+                } finally {
+                    if (stmt != full) {
+                        stmt.close();
+                    }
+                }
+            }
+        } finally {
+            if (full != null) {
+                full.close();
+            }
+        }
+    }
+
+    private static String insertSql(Cible cible, int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(cible.table).append(" (");
+        for (Champ champ : cible.champs) {
+            sql.append(champ.colonne).append(", ");
+        }
+        sql.append("created_at, updated_at) VALUES ");
+        String row = "(" + BatchSupport.placeholders(cible.champs.size() + 2) + ")";
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "" : ", ").append(row);
+        }
+        return sql.toString();
+    }
+
+    /** Consommateur ids by normalized name, and by id written as text. */
+    private static Map<String, Long> loadConsommateurs() throws SQLException {
+        Map<String, Long> ids = new HashMap<>();
+        try (Connection connection = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = connection.prepareStatement("SELECT id, nom FROM consommateur");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                long id = rs.getLong(1);
+                ids.put(String.valueOf(id), id);
+                if (rs.getString(2) != null) {
+                    ids.putIfAbsent(PrefixIndex.normalize(rs.getString(2)), id);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /** Counts the bytes read from {@code in} into {@code read[0]}, for progress. */
+    private static InputStream counting(InputStream in, long[] read) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    read[0]++;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    read[0] += n;
+                }
+                return n;
+            }
+        };
+    }
+}
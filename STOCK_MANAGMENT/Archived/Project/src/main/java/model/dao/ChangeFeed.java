@@ -0,0 +1,188 @@
+package model.dao;
+
+import utils.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Reads the rows of a table changed since a previous read, for incremental exports.
+ * <p>
+ * Each {@link Flux} remembers in {@code export_marque} the last row it handed over, as the pair
+ * ({@code updated_at}, {@code id}). The next read resumes just after that pair with a range scan
+ * of the {@code updated_at} index, which also returns the rows in that order: the cost of a
+ * read depends on the number of changed rows, not on the size of the table. Rows modified
+ * within the same second as the mark are not lost, since the id breaks the tie.
+ * <p>
+ * The lines of an order have no mark of their own: every write that changes them, including
+ * the lines dropped with a deleted article, moves the order's {@code updated_at} in the same
+ * transaction. Deleted rows leave nothing to read and are not reported.
+ */
+public final class ChangeFeed {
+
+    private static final Logger LOGGER = Logger.getLogger(ChangeFeed.class.getName());
+    private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final int FETCH_SIZE = 500;
+
+    private static final String SELECT_MARQUE_SQL = "SELECT updated_at, last_id FROM export_marque WHERE flux = ?";
+    private static final String SAVE_MARQUE_SQL = "INSERT INTO export_marque (flux, updated_at, last_id, exported_at) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT(flux) DO UPDATE SET updated_at = excluded.updated_at, last_id = excluded.last_id, exported_at = excluded.exported_at";
+
+    /**
+     * The tables that can be exported, with the columns of their rows.
+     */
+    public enum Flux {
+        ARTICLES("article", "a",
+                "SELECT a.id, a.reference, a.nom, a.categorie, a.stock_minimal, a.date_peremption, a.est_critique, " +
+                        "a.est_consommable, a.created_at, a.updated_at FROM article a",
+                List.of("id", "reference", "nom", "categorie", "stock_minimal", "date_peremption", "est_critique",
+                        "est_consommable", "created_at", "updated_at")),
+        COMMANDES_EXTERNES("commande_externe", "ce",
+                "SELECT ce.id, ce.statut, ce.created_at, ce.confirmed_at, ce.updated_at, ce.magasinier_id, " +
+                        "ce.fournisseur_id, f.nom, ce.local_id, l.nom, " +
+                        "(SELECT GROUP_CONCAT(a.reference || ':' || cea.quantite, ';') FROM commande_externe_article cea " +
+                        "JOIN article a ON a.id = cea.article_id WHERE cea.commande_externe_id = ce.id) " +
+                        "FROM commande_externe ce " +
+                        "LEFT JOIN fournisseur f ON f.id = ce.fournisseur_id " +
+                        "LEFT JOIN local l ON l.id = ce.local_id",
+                List.of("id", "statut", "created_at", "confirmed_at", "updated_at", "magasinier_id",
+                        "fournisseur_id", "fournisseur", "local_id", "local", "lignes")),
+        COMMANDES_INTERNES("commande_interne", "ci",
+                "SELECT ci.id, ci.statut, ci.created_at, ci.confirmed_at, ci.updated_at, ci.magasinier_id, " +
+                        "ci.consommateur_id, c.nom, ci.local_id, l.nom, " +
+                        "(SELECT GROUP_CONCAT(a.reference || ':' || cia.quantite, ';') FROM commande_interne_article cia " +
+                        "JOIN article a ON a.id = cia.article_id WHERE cia.commande_interne_id = ci.id) " +
+                        "FROM commande_interne ci " +
+                        "LEFT JOIN consommateur c ON c.id = ci.consommateur_id " +
+                        "LEFT JOIN local l ON l.id = ci.local_id",
+                List.of("id", "statut", "created_at", "confirmed_at", "updated_at", "magasinier_id",
+                        "consommateur_id", "consommateur", "local_id", "local", "lignes"));
+
+        private final String table;
+        private final String sql;
+        private final List<String> colonnes;
+
+        Flux(String table, String alias, String select, List<String> colonnes) {
+            this.table = table;
+            // Served by the index on updated_at, whose entries end with the rowid
+            this.sql = select + " WHERE (" + alias + ".updated_at, " + alias + ".id) > (?, ?) AND " + alias
+                    + ".updated_at <= ? ORDER BY " + alias + ".updated_at, " + alias + ".id";
+            this.colonnes = colonnes;
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        /** The names of the values of each row, in order; lines are "reference:quantite" pairs separated by ';'. */
+        public List<String> getColonnes() {
+            return colonnes;
+        }
+    }
+
+    /**
+     * The position reached in a flux: the {@code updated_at} and id of the last row read.
+     */
+    public static final class Marque {
+        /** Before every row: the first read of a flux exports the whole table. */
+        public static final Marque DEBUT = new Marque("", 0);
+
+        private final String updatedAt;
+        private final long id;
+
+        private Marque(String updatedAt, long id) {
+            this.updatedAt = updatedAt;
+            this.id = id;
+        }
+
+        public String getUpdatedAt() {
+            return updatedAt;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return this == DEBUT ? "début" : updatedAt + " #" + id;
+        }
+    }
+
+    /**
+     * The position saved for {@code flux}, or {@link Marque#DEBUT} before its first export.
+     */
+    public Marque getMarque(Flux flux) {
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_MARQUE_SQL)) {
+            pstmt.setString(1, flux.name());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? new Marque(rs.getString(1), rs.getLong(2)) : Marque.DEBUT;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors de la lecture de la marque d'export " + flux + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Records that {@code flux} has been exported up to {@code marque}; call it once the rows
+     * read are safely stored, so that a failed export is read again.
+     */
+    public void saveMarque(Flux flux, Marque marque) {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SAVE_MARQUE_SQL)) {
+            pstmt.setString(1, flux.name());
+            pstmt.setString(2, marque.updatedAt);
+            pstmt.setLong(3, marque.id);
+            pstmt.setString(4, LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER));
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors de l'enregistrement de la marque d'export " + flux + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Hands each row of {@code flux} after {@code depuis} and modified no later than
+     * {@code jusqua} ("yyyy-MM-dd HH:mm:ss") to {@code handler}, in modification order, as an
+     * array of values matching {@link Flux#getColonnes()}. Returns the position of the last row,
+     * or {@code depuis} when none changed. A failure of the handler stops the reading and is
+     * rethrown as is.
+     */
+    public Marque forEachSince(Flux flux, Marque depuis, String jusqua, LineHandler<Object[]> handler) throws Exception {
+        Marque last = depuis;
+        long count = 0;
+        int columns = flux.colonnes.size();
+        int updatedAtColumn = flux.colonnes.indexOf("updated_at") + 1;
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(flux.sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(FETCH_SIZE);
+            pstmt.setString(1, depuis.updatedAt);
+            pstmt.setLong(2, depuis.id);
+            pstmt.setString(3, jusqua);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Object[] row = new Object[columns];
+                    for (int i = 0; i < columns; i++) {
+                        row[i] = rs.getObject(i + 1);
+                    }
+                    handler.handle(row);
+                    last = new Marque(rs.getString(updatedAtColumn), rs.getLong(1));
+                    count++;
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors de la lecture des modifications de " + flux.table + ": " + e.getMessage(), e);
+        }
+        long total = count;
+        LOGGER.fine(() -> "Modifications lues pour " + flux.table + ": " + total);
+        return last;
+    }
+}
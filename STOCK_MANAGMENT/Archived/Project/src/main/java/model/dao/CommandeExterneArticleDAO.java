@@ -4,15 +4,31 @@ import model.entities.CommandeExterneArticle;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Lines of external orders. The writes that open their own connection post the orders they change
+ * to the stock ledger; those given a connection leave that to the caller's transaction, as
+ * CommandeExterneDAOImpl does for a whole order.
+ */
 public interface CommandeExterneArticleDAO {
     void insert(CommandeExterneArticle commandeExterneArticle);
     void insert(CommandeExterneArticle commandeExterneArticle, Connection conn) throws SQLException;
+    void insertAll(List<CommandeExterneArticle> commandeExterneArticles, Connection conn) throws SQLException;
     CommandeExterneArticle getById(Long id);
     List<CommandeExterneArticle> getByCommandeExterneId(Long commandeExterneId);
     List<CommandeExterneArticle> getByCommandeExterneId(Long commandeExterneId, Connection conn) throws SQLException;
+
+    /**
+     * Loads the lines of several orders in set-based queries, grouped by order ID.
+     * Passing {@code null} loads the lines of every order.
+     */
+    Map<Long, List<CommandeExterneArticle>> getByCommandeExterneIds(Collection<Long> commandeExterneIds, Connection conn) throws SQLException;
+
     void update(CommandeExterneArticle commandeExterneArticle);
     void update(CommandeExterneArticle commandeExterneArticle, Connection conn) throws SQLException;
     void delete(Long id);
+    void delete(Long id, Connection conn) throws SQLException;
 }
\ No newline at end of file
@@ -9,13 +9,31 @@ import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Implementation of CommandeExterneArticleDAO for managing article associations with external orders.
  */
 public class CommandeExterneArticleDAOImpl implements CommandeExterneArticleDAO {
     private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String COMMANDE_OF_SQL = "SELECT commande_externe_id FROM commande_externe_article WHERE id = ?";
+    private static final String TOUCH_COMMANDE_SQL = "UPDATE commande_externe SET updated_at = ? WHERE id = ?";
+
+    private final MouvementStockDAO mouvementStockDAO = new MouvementStockDAOImpl();
+
+    @FunctionalInterface
+    private interface LineChange {
+        void apply() throws SQLException;
+    }
+    private static final String SELECT_SQL = "SELECT cea.id, cea.commande_externe_id, cea.article_id, cea.quantite, cea.created_at, cea.updated_at, " +
+            "a.nom AS article_nom " +
+            "FROM commande_externe_article cea " +
+            "JOIN article a ON cea.article_id = a.id";
+    private static final String INSERT_SQL = "INSERT INTO commande_externe_article (commande_externe_id, article_id, quantite, created_at, updated_at) VALUES (?, ?, ?, ?, ?)";
 
     @Override
     public void insert(CommandeExterneArticle commandeExterneArticle) {
@@ -23,7 +41,7 @@ public class CommandeExterneArticleDAOImpl implements CommandeExterneArticleDAO
             throw new IllegalArgumentException("CommandeExterneArticle, its CommandeExterne, and Article cannot be null");
         }
         try (Connection conn = DatabaseConnection.getConnection()) {
-            insert(commandeExterneArticle, conn);
+            changeLines(conn, null, commandeExterneArticle.getCommandeExterne().getId(), () -> insert(commandeExterneArticle, conn));
         } catch (SQLException e) {
             throw new RuntimeException("Error inserting CommandeExterneArticle: " + e.getMessage(), e);
         }
@@ -35,20 +53,8 @@ public class CommandeExterneArticleDAOImpl implements CommandeExterneArticleDAO
             throw new IllegalArgumentException("CommandeExterneArticle, its CommandeExterne, and Article cannot be null");
         }
 
-        String sql = "INSERT INTO commande_externe_article (commande_externe_id, article_id, quantite, created_at, updated_at) VALUES (?, ?, ?, ?, ?)";
-        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            try (Statement fkStmt = conn.createStatement()) {
-                fkStmt.execute("PRAGMA foreign_keys = ON;");
-            }
-            stmt.setLong(1, commandeExterneArticle.getCommandeExterne().getId());
-            stmt.setLong(2, commandeExterneArticle.getArticle().getId());
-            stmt.setInt(3, commandeExterneArticle.getQuantite());
-            stmt.setString(4, commandeExterneArticle.getCreatedAt() != null ?
-                    commandeExterneArticle.getCreatedAt().format(SQLITE_DATETIME_FORMATTER) :
-                    LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER));
-            stmt.setString(5, commandeExterneArticle.getUpdatedAt() != null ?
-                    commandeExterneArticle.getUpdatedAt().format(SQLITE_DATETIME_FORMATTER) :
-                    LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER));
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            setInsertParameters(stmt, commandeExterneArticle);
 
             stmt.executeUpdate();
 
@@ -60,6 +66,40 @@ public class CommandeExterneArticleDAOImpl implements CommandeExterneArticleDAO
         }
     }
 
+    @Override
+    public void insertAll(List<CommandeExterneArticle> commandeExterneArticles, Connection conn) throws SQLException {
+        if (commandeExterneArticles.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+            for (CommandeExterneArticle commandeExterneArticle : commandeExterneArticles) {
+                if (commandeExterneArticle == null || commandeExterneArticle.getCommandeExterne() == null || commandeExterneArticle.getArticle() == null) {
+                    throw new IllegalArgumentException("CommandeExterneArticle, its CommandeExterne, and Article cannot be null");
+                }
+                setInsertParameters(stmt, commandeExterneArticle);
+                stmt.addBatch();
+            }
+            BatchSupport.executeBatch(stmt, commandeExterneArticles.size());
+        }
+
+        long id = BatchSupport.firstBatchRowId(conn, commandeExterneArticles.size());
+        for (CommandeExterneArticle commandeExterneArticle : commandeExterneArticles) {
+            commandeExterneArticle.setId(id++);
+        }
+    }
+
+    private void setInsertParameters(PreparedStatement stmt, CommandeExterneArticle commandeExterneArticle) throws SQLException {
+        stmt.setLong(1, commandeExterneArticle.getCommandeExterne().getId());
+        stmt.setLong(2, commandeExterneArticle.getArticle().getId());
+        stmt.setInt(3, commandeExterneArticle.getQuantite());
+        stmt.setString(4, commandeExterneArticle.getCreatedAt() != null ?
+                commandeExterneArticle.getCreatedAt().format(SQLITE_DATETIME_FORMATTER) :
+                LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER));
+        stmt.setString(5, commandeExterneArticle.getUpdatedAt() != null ?
+                commandeExterneArticle.getUpdatedAt().format(SQLITE_DATETIME_FORMATTER) :
+                LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER));
+    }
+
     @Override
     public CommandeExterneArticle getById(Long id) {
         if (id == null || id <= 0) {
@@ -71,11 +111,8 @@ public class CommandeExterneArticleDAOImpl implements CommandeExterneArticleDAO
                 "FROM commande_externe_article cea " +
                 "JOIN article a ON cea.article_id = a.id " +
                 "WHERE cea.id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            try (Statement fkStmt = conn.createStatement()) {
-                fkStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setLong(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -93,7 +130,7 @@ public class CommandeExterneArticleDAOImpl implements CommandeExterneArticleDAO
         if (commandeExterneId == null || commandeExterneId <= 0) {
             return new ArrayList<>();
         }
-        try (Connection conn = DatabaseConnection.getConnection()) {
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
             return getByCommandeExterneId(commandeExterneId, conn);
         } catch (SQLException e) {
             throw new RuntimeException("Error retrieving CommandeExterneArticles for commande_externe_id: " + commandeExterneId + ", Message: " + e.getMessage(), e);
@@ -103,15 +140,8 @@ public class CommandeExterneArticleDAOImpl implements CommandeExterneArticleDAO
     @Override
     public List<CommandeExterneArticle> getByCommandeExterneId(Long commandeExterneId, Connection conn) throws SQLException {
         List<CommandeExterneArticle> articles = new ArrayList<>();
-        String sql = "SELECT cea.id, cea.commande_externe_id, cea.article_id, cea.quantite, cea.created_at, cea.updated_at, " +
-                "a.nom AS article_nom " +
-                "FROM commande_externe_article cea " +
-                "JOIN article a ON cea.article_id = a.id " +
-                "WHERE cea.commande_externe_id = ?";
+        String sql = SELECT_SQL + " WHERE cea.commande_externe_id = ?";
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            try (Statement fkStmt = conn.createStatement()) {
-                fkStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setLong(1, commandeExterneId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -123,13 +153,18 @@ public class CommandeExterneArticleDAOImpl implements CommandeExterneArticleDAO
         return articles;
     }
 
+    @Override
+    public Map<Long, List<CommandeExterneArticle>> getByCommandeExterneIds(Collection<Long> commandeExterneIds, Connection conn) throws SQLException {
+        return BatchSupport.queryGrouped(conn, SELECT_SQL, "cea.commande_externe_id", "commande_externe_id", commandeExterneIds, this::extractCommandeExterneArticleFromResultSet);
+    }
+
     @Override
     public void update(CommandeExterneArticle commandeExterneArticle) {
         if (commandeExterneArticle == null || commandeExterneArticle.getId() == null || commandeExterneArticle.getCommandeExterne() == null || commandeExterneArticle.getArticle() == null) {
             throw new IllegalArgumentException("CommandeExterneArticle, its ID, CommandeExterne, and Article cannot be null");
         }
         try (Connection conn = DatabaseConnection.getConnection()) {
-            update(commandeExterneArticle, conn);
+            changeLines(conn, commandeExterneArticle.getId(), commandeExterneArticle.getCommandeExterne().getId(), () -> update(commandeExterneArticle, conn));
         } catch (SQLException e) {
             throw new RuntimeException("Error updating CommandeExterneArticle ID: " + commandeExterneArticle.getId() + ", Message: " + e.getMessage(), e);
         }
@@ -157,16 +192,71 @@ public class CommandeExterneArticleDAOImpl implements CommandeExterneArticleDAO
             throw new IllegalArgumentException("Invalid CommandeExterneArticle ID: " + id);
         }
 
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            changeLines(conn, id, null, () -> delete(id, conn));
+        } catch (SQLException e) {
+            throw new RuntimeException("Error deleting CommandeExterneArticle ID: " + id + ", Message: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void delete(Long id, Connection conn) throws SQLException {
         String sql = "DELETE FROM commande_externe_article WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            try (Statement fkStmt = conn.createStatement()) {
-                fkStmt.execute("PRAGMA foreign_keys = ON;");
-            }
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setLong(1, id);
             stmt.executeUpdate();
-        } catch (SQLException e) {
-            throw new RuntimeException("Error deleting CommandeExterneArticle ID: " + id + ", Message: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Applies a change to lines made outside CommandeExterneDAOImpl, then posts the orders the line
+     * belonged to and now belongs to in the stock ledger and moves their updated_at, so that the
+     * incremental export sees their new lines, in one transaction (the caller's, if one is open).
+     */
+    private void changeLines(Connection conn, Long lineId, Long commandeExterneId, LineChange change) throws SQLException {
+        boolean ownTransaction = conn.getAutoCommit();
+        if (ownTransaction) {
+            conn.setAutoCommit(false);
+        }
+        try {
+            Set<Long> commandes = new LinkedHashSet<>();
+            if (lineId != null) {
+                try (PreparedStatement stmt = conn.prepareStatement(COMMANDE_OF_SQL)) {
+                    stmt.setLong(1, lineId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            commandes.add(rs.getLong(1));
+                        }
+                    }
+                }
+            }
+            if (commandeExterneId != null) {
+                commandes.add(commandeExterneId);
+            }
+            change.apply();
+            try (PreparedStatement touch = conn.prepareStatement(TOUCH_COMMANDE_SQL)) {
+                String now = LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER);
+                for (Long commandeId : commandes) {
+                    touch.setString(1, now);
+                    touch.setLong(2, commandeId);
+                    touch.executeUpdate();
+                }
+            }
+            for (Long commandeId : commandes) {
+                mouvementStockDAO.recordCommandeExterne(commandeId, conn);
+            }
+            if (ownTransaction) {
+                conn.commit();
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (ownTransaction) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (ownTransaction) {
+                conn.setAutoCommit(true);
+            }
         }
     }
 
@@ -178,10 +268,7 @@ public class CommandeExterneArticleDAOImpl implements CommandeExterneArticleDAO
         commandeExterne.setId(rs.getLong("commande_externe_id"));
         commandeExterneArticle.setCommandeExterne(commandeExterne);
 
-        Article article = new Article();
-        article.setId(rs.getLong("article_id"));
-        article.setNom(rs.getString("article_nom"));
-        commandeExterneArticle.setArticle(article);
+        commandeExterneArticle.setArticle(IdentityMap.article(rs.getLong("article_id"), rs.getString("article_nom")));
 
         commandeExterneArticle.setQuantite(rs.getInt("quantite"));
 
@@ -7,6 +7,8 @@ public interface CommandeExterneDAO {
     void insert(CommandeExterne commandeExterne);
     CommandeExterne getById(Long id);
     List<CommandeExterne> getAll();
+    List<CommandeExterne> getPage(Long afterId, int limit, SortDirection sort);
+    long count();
     void update(CommandeExterne commandeExterne);
     void delete(Long id);
 }
\ No newline at end of file
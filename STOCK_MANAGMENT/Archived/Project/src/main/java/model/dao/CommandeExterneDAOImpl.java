@@ -1,8 +1,6 @@
 package model.dao;
 
 import model.entities.CommandeExterne;
-import model.entities.Magasinier;
-import model.entities.Fournisseur;
 import model.entities.Local;
 import model.entities.CommandeExterneArticle;
 import model.entities.CommandeExterneLocal;
@@ -12,21 +10,33 @@ import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Implementation of CommandeExterneDAO for managing external orders in the database.
  */
 public class CommandeExterneDAOImpl implements CommandeExterneDAO {
     private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String SELECT_SQL = "SELECT ce.id, ce.created_at, ce.confirmed_at, ce.updated_at, ce.statut, " +
+            "m.id AS magasinier_id, m.nom AS magasinier_nom, " +
+            "f.id AS fournisseur_id, f.nom AS fournisseur_nom, " +
+            "l.id AS local_id, l.nom AS local_nom " +
+            "FROM commande_externe ce " +
+            "LEFT JOIN magasinier m ON ce.magasinier_id = m.id " +
+            "LEFT JOIN fournisseur f ON ce.fournisseur_id = f.id " +
+            "LEFT JOIN local l ON ce.local_id = l.id";
     private final CommandeExterneArticleDAO articleDAO;
     private final CommandeExterneLocalDAO localDAO;
+    private final MouvementStockDAO mouvementStockDAO;
 
     public CommandeExterneDAOImpl() {
         this.articleDAO = new CommandeExterneArticleDAOImpl();
         this.localDAO = new CommandeExterneLocalDAOImpl();
+        this.mouvementStockDAO = new MouvementStockDAOImpl();
     }
 
     @Override
@@ -39,10 +49,6 @@ public class CommandeExterneDAOImpl implements CommandeExterneDAO {
         try (Connection connection = DatabaseConnection.getConnection()) {
             connection.setAutoCommit(false);
             try {
-                try (Statement fkStmt = connection.createStatement()) {
-                    fkStmt.execute("PRAGMA foreign_keys = ON;");
-                }
-
                 try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
                     setCommandeExterneFields(stmt, commandeExterne);
                     stmt.executeUpdate();
@@ -56,8 +62,10 @@ public class CommandeExterneDAOImpl implements CommandeExterneDAO {
 
                 insertArticles(commandeExterne, connection);
                 insertLocals(commandeExterne, connection);
+                mouvementStockDAO.recordCommandeExterne(commandeExterne.getId(), connection);
 
                 connection.commit();
+                EntityCounters.getInstance().added(EntityCounters.Entity.COMMANDE_EXTERNE);
             } catch (SQLException e) {
                 connection.rollback();
                 throw new RuntimeException("Error inserting CommandeExterne: " + e.getMessage(), e);
@@ -75,20 +83,10 @@ public class CommandeExterneDAOImpl implements CommandeExterneDAO {
             return null;
         }
 
-        String sql = "SELECT ce.id, ce.created_at, ce.confirmed_at, ce.updated_at, ce.statut, " +
-                "m.id AS magasinier_id, m.nom AS magasinier_nom, " +
-                "f.id AS fournisseur_id, f.nom AS fournisseur_nom, " +
-                "l.id AS local_id, l.nom AS local_nom " +
-                "FROM commande_externe ce " +
-                "LEFT JOIN magasinier m ON ce.magasinier_id = m.id " +
-                "LEFT JOIN fournisseur f ON ce.fournisseur_id = f.id " +
-                "LEFT JOIN local l ON ce.local_id = l.id " +
-                "WHERE ce.id = ?";
-        try (Connection connection = DatabaseConnection.getConnection();
+        String sql = SELECT_SQL + " WHERE ce.id = ?";
+        IdentityMap unitOfWork = IdentityMap.open();
+        try (Connection connection = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = connection.prepareStatement(sql)) {
-            try (Statement fkStmt = connection.createStatement()) {
-                fkStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setLong(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -100,6 +98,8 @@ public class CommandeExterneDAOImpl implements CommandeExterneDAO {
             }
         } catch (SQLException e) {
             throw new RuntimeException("Error retrieving CommandeExterne by ID: " + id + ", Message: " + e.getMessage(), e);
+        } finally {
+            unitOfWork.close();
         }
         return null;
     }
@@ -107,33 +107,61 @@ public class CommandeExterneDAOImpl implements CommandeExterneDAO {
     @Override
     public List<CommandeExterne> getAll() {
         List<CommandeExterne> commandes = new ArrayList<>();
-        String sql = "SELECT ce.id, ce.created_at, ce.confirmed_at, ce.updated_at, ce.statut, " +
-                "m.id AS magasinier_id, m.nom AS magasinier_nom, " +
-                "f.id AS fournisseur_id, f.nom AS fournisseur_nom, " +
-                "l.id AS local_id, l.nom AS local_nom " +
-                "FROM commande_externe ce " +
-                "LEFT JOIN magasinier m ON ce.magasinier_id = m.id " +
-                "LEFT JOIN fournisseur f ON ce.fournisseur_id = f.id " +
-                "LEFT JOIN local l ON ce.local_id = l.id";
-
-        try (Connection connection = DatabaseConnection.getConnection();
+        String sql = SELECT_SQL;
+
+        IdentityMap unitOfWork = IdentityMap.open();
+        try (Connection connection = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = connection.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
-            try (Statement fkStmt = connection.createStatement()) {
-                fkStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             while (rs.next()) {
-                CommandeExterne commandeExterne = extractCommandeExterneFromResultSet(rs);
-                commandeExterne.setCommandeExterneArticles(articleDAO.getByCommandeExterneId(commandeExterne.getId(), connection));
-                commandeExterne.setCommandeExterneLocals(localDAO.getByCommandeExterneId(commandeExterne.getId(), connection));
-                commandes.add(commandeExterne);
+                commandes.add(extractCommandeExterneFromResultSet(rs));
             }
+            hydrateLines(commandes, null, connection);
         } catch (SQLException e) {
             throw new RuntimeException("Error retrieving all CommandeExterne records: " + e.getMessage(), e);
+        } finally {
+            unitOfWork.close();
+        }
+        return commandes;
+    }
+
+    @Override
+    public List<CommandeExterne> getPage(Long afterId, int limit, SortDirection sort) {
+        List<CommandeExterne> commandes = new ArrayList<>();
+        String sql = sort.pageSql(SELECT_SQL, "ce.id", afterId);
+        IdentityMap unitOfWork = IdentityMap.open();
+        try (Connection connection = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            SortDirection.bindPage(stmt, afterId, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    commandes.add(extractCommandeExterneFromResultSet(rs));
+                }
+            }
+            List<Long> ids = new ArrayList<>(commandes.size());
+            for (CommandeExterne commandeExterne : commandes) {
+                ids.add(commandeExterne.getId());
+            }
+            hydrateLines(commandes, ids, connection);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error retrieving CommandeExterne page after ID: " + afterId + ", Message: " + e.getMessage(), e);
+        } finally {
+            unitOfWork.close();
         }
         return commandes;
     }
 
+    @Override
+    public long count() {
+        try (Connection connection = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = connection.prepareStatement("SELECT COUNT(*) FROM commande_externe");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("Error counting CommandeExterne records: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public void update(CommandeExterne commandeExterne) {
         if (commandeExterne == null || commandeExterne.getId() == null) {
@@ -144,9 +172,6 @@ public class CommandeExterneDAOImpl implements CommandeExterneDAO {
         try (Connection connection = DatabaseConnection.getConnection()) {
             connection.setAutoCommit(false);
             try {
-                try (Statement fkStmt = connection.createStatement()) {
-                    fkStmt.execute("PRAGMA foreign_keys = ON;");
-                }
                 try (PreparedStatement stmt = connection.prepareStatement(sql)) {
                     setCommandeExterneFields(stmt, commandeExterne);
                     stmt.setLong(8, commandeExterne.getId());
@@ -154,6 +179,7 @@ public class CommandeExterneDAOImpl implements CommandeExterneDAO {
                 }
                 synchronizeArticles(commandeExterne, connection);
                 synchronizeLocals(commandeExterne, connection);
+                mouvementStockDAO.recordCommandeExterne(commandeExterne.getId(), connection);
                 connection.commit();
             } catch (SQLException e) {
                 connection.rollback();
@@ -173,13 +199,24 @@ public class CommandeExterneDAOImpl implements CommandeExterneDAO {
         }
 
         String sql = "DELETE FROM commande_externe WHERE id = ?";
-        try (Connection connection = DatabaseConnection.getConnection();
-             PreparedStatement stmt = connection.prepareStatement(sql)) {
-            try (Statement fkStmt = connection.createStatement()) {
-                fkStmt.execute("PRAGMA foreign_keys = ON;");
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                int rowsAffected;
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setLong(1, id);
+                    rowsAffected = stmt.executeUpdate();
+                }
+                // Lines are gone with the order, so this reverses everything it had booked
+                mouvementStockDAO.recordCommandeExterne(id, connection);
+                connection.commit();
+                EntityCounters.getInstance().removed(EntityCounters.Entity.COMMANDE_EXTERNE, rowsAffected);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
             }
-            stmt.setLong(1, id);
-            stmt.executeUpdate();
         } catch (SQLException e) {
             throw new RuntimeException("Error deleting CommandeExterne ID: " + id + ", Message: " + e.getMessage(), e);
         }
@@ -199,23 +236,65 @@ public class CommandeExterneDAOImpl implements CommandeExterneDAO {
         stmt.setObject(7, commandeExterne.getLocal() != null ? commandeExterne.getLocal().getId() : null, Types.INTEGER);
     }
 
+    /**
+     * Attaches lines and locals to already loaded headers with two set-based queries
+     * instead of two queries per order. {@code null} IDs means every order.
+     */
+    private void hydrateLines(List<CommandeExterne> commandes, Collection<Long> ids, Connection connection) throws SQLException {
+        Map<Long, List<CommandeExterneArticle>> articlesByCommande = articleDAO.getByCommandeExterneIds(ids, connection);
+        Map<Long, List<CommandeExterneLocal>> localsByCommande = localDAO.getByCommandeExterneIds(ids, connection);
+        for (CommandeExterne commandeExterne : commandes) {
+            commandeExterne.setCommandeExterneArticles(articlesByCommande.getOrDefault(commandeExterne.getId(), new ArrayList<>()));
+            commandeExterne.setCommandeExterneLocals(localsByCommande.getOrDefault(commandeExterne.getId(), new ArrayList<>()));
+        }
+    }
+
     private void insertArticles(CommandeExterne commandeExterne, Connection connection) throws SQLException {
-        for (CommandeExterneArticle article : commandeExterne.getCommandeExterneArticles()) {
-            if (article.getArticle() == null || !isArticleIdValid(article.getArticle().getId(), connection)) {
-                throw new IllegalArgumentException("Invalid or non-existent Article ID: " + (article.getArticle() != null ? article.getArticle().getId() : "null"));
-            }
+        List<CommandeExterneArticle> articles = commandeExterne.getCommandeExterneArticles();
+        validateArticleIds(articles, connection);
+        for (CommandeExterneArticle article : articles) {
             article.setCommandeExterne(commandeExterne);
-            articleDAO.insert(article, connection);
         }
+        articleDAO.insertAll(articles, connection);
     }
 
     private void insertLocals(CommandeExterne commandeExterne, Connection connection) throws SQLException {
-        for (CommandeExterneLocal local : commandeExterne.getCommandeExterneLocals()) {
-            if (local.getLocal() == null || !isLocalIdValid(local.getLocal().getId(), connection)) {
-                throw new IllegalArgumentException("Invalid or non-existent Local ID: " + (local.getLocal() != null ? local.getLocal().getId() : "null"));
-            }
+        List<CommandeExterneLocal> locals = commandeExterne.getCommandeExterneLocals();
+        validateLocalIds(locals, connection);
+        for (CommandeExterneLocal local : locals) {
             local.setCommandeExterne(commandeExterne);
-            localDAO.insert(local, connection);
+        }
+        localDAO.insertAll(locals, connection);
+    }
+
+    /**
+     * Checks every referenced article with one set-based query instead of one SELECT per line.
+     */
+    private void validateArticleIds(List<CommandeExterneArticle> articles, Connection connection) throws SQLException {
+        List<Long> ids = new ArrayList<>(articles.size());
+        for (CommandeExterneArticle article : articles) {
+            if (article.getArticle() == null || article.getArticle().getId() == null) {
+                throw new IllegalArgumentException("Invalid or non-existent Article ID: null");
+            }
+            ids.add(article.getArticle().getId());
+        }
+        Set<Long> missing = BatchSupport.findMissingIds(connection, "article", ids);
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Invalid or non-existent Article ID: " + missing.iterator().next());
+        }
+    }
+
+    private void validateLocalIds(List<CommandeExterneLocal> locals, Connection connection) throws SQLException {
+        List<Long> ids = new ArrayList<>(locals.size());
+        for (CommandeExterneLocal local : locals) {
+            if (local.getLocal() == null || local.getLocal().getId() == null) {
+                throw new IllegalArgumentException("Invalid or non-existent Local ID: null");
+            }
+            ids.add(local.getLocal().getId());
+        }
+        Set<Long> missing = BatchSupport.findMissingIds(connection, "local", ids);
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Invalid or non-existent Local ID: " + missing.iterator().next());
         }
     }
 
@@ -226,14 +305,13 @@ public class CommandeExterneDAOImpl implements CommandeExterneDAO {
             existingArticleMap.put(existing.getArticle().getId(), existing);
         }
 
+        validateArticleIds(commandeExterne.getCommandeExterneArticles(), connection);
+        List<CommandeExterneArticle> toInsert = new ArrayList<>();
         for (CommandeExterneArticle newArticle : commandeExterne.getCommandeExterneArticles()) {
-            if (newArticle.getArticle() == null || !isArticleIdValid(newArticle.getArticle().getId(), connection)) {
-                throw new IllegalArgumentException("Invalid or non-existent Article ID: " + (newArticle.getArticle() != null ? newArticle.getArticle().getId() : "null"));
-            }
             newArticle.setCommandeExterne(commandeExterne);
             CommandeExterneArticle existing = existingArticleMap.get(newArticle.getArticle().getId());
             if (existing == null) {
-                articleDAO.insert(newArticle, connection);
+                toInsert.add(newArticle);
             } else {
                 existing.setQuantite(newArticle.getQuantite());
                 existing.setCreatedAt(newArticle.getCreatedAt());
@@ -243,8 +321,10 @@ public class CommandeExterneDAOImpl implements CommandeExterneDAO {
             }
         }
 
+        articleDAO.insertAll(toInsert, connection);
+
         for (CommandeExterneArticle toDelete : existingArticleMap.values()) {
-            articleDAO.delete(toDelete.getId());
+            articleDAO.delete(toDelete.getId(), connection);
         }
     }
 
@@ -255,14 +335,13 @@ public class CommandeExterneDAOImpl implements CommandeExterneDAO {
             existingLocalMap.put(existing.getLocal().getId(), existing);
         }
 
+        validateLocalIds(commandeExterne.getCommandeExterneLocals(), connection);
+        List<CommandeExterneLocal> toInsert = new ArrayList<>();
         for (CommandeExterneLocal newLocal : commandeExterne.getCommandeExterneLocals()) {
-            if (newLocal.getLocal() == null || !isLocalIdValid(newLocal.getLocal().getId(), connection)) {
-                throw new IllegalArgumentException("Invalid or non-existent Local ID: " + (newLocal.getLocal() != null ? newLocal.getLocal().getId() : "null"));
-            }
             newLocal.setCommandeExterne(commandeExterne);
             CommandeExterneLocal existing = existingLocalMap.get(newLocal.getLocal().getId());
             if (existing == null) {
-                localDAO.insert(newLocal, connection);
+                toInsert.add(newLocal);
             } else {
                 existing.setCreatedAt(newLocal.getCreatedAt());
                 localDAO.update(existing, connection);
@@ -270,6 +349,8 @@ public class CommandeExterneDAOImpl implements CommandeExterneDAO {
             }
         }
 
+        localDAO.insertAll(toInsert, connection);
+
         for (CommandeExterneLocal toDelete : existingLocalMap.values()) {
             localDAO.delete(toDelete.getId());
         }
@@ -310,50 +391,19 @@ public class CommandeExterneDAOImpl implements CommandeExterneDAO {
 
         Long magasinierId = rs.getLong("magasinier_id");
         if (!rs.wasNull()) {
-            Magasinier magasinier = new Magasinier();
-            magasinier.setId(magasinierId);
-            magasinier.setNom(rs.getString("magasinier_nom"));
-            commandeExterne.setMagasinier(magasinier);
+            commandeExterne.setMagasinier(IdentityMap.magasinier(magasinierId, rs.getString("magasinier_nom")));
         }
 
         Long fournisseurId = rs.getLong("fournisseur_id");
         if (!rs.wasNull()) {
-            Fournisseur fournisseur = new Fournisseur();
-            fournisseur.setId(fournisseurId);
-            fournisseur.setNom(rs.getString("fournisseur_nom"));
-            commandeExterne.setFournisseur(fournisseur);
+            commandeExterne.setFournisseur(IdentityMap.fournisseur(fournisseurId, rs.getString("fournisseur_nom")));
         }
 
         Long localId = rs.getLong("local_id");
         if (!rs.wasNull()) {
-            Local local = new Local();
-            local.setId(localId);
-            local.setNom(rs.getString("local_nom"));
-            commandeExterne.setLocal(local);
+            commandeExterne.setLocal(IdentityMap.local(localId, rs.getString("local_nom")));
         }
 
         return commandeExterne;
     }
-
-    private boolean isArticleIdValid(Long articleId, Connection connection) throws SQLException {
-        if (articleId == null) return false;
-        String sql = "SELECT 1 FROM article WHERE id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setLong(1, articleId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                return rs.next();
-            }
-        }
-    }
-
-    private boolean isLocalIdValid(Long localId, Connection connection) throws SQLException {
-        if (localId == null) return false;
-        String sql = "SELECT 1 FROM local WHERE id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setLong(1, localId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                return rs.next();
-            }
-        }
-    }
-}
\ No newline at end of file
+}
@@ -4,14 +4,24 @@ import model.entities.CommandeExterneLocal;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface CommandeExterneLocalDAO {
     void insert(CommandeExterneLocal commandeExterneLocal);
     void insert(CommandeExterneLocal commandeExterneLocal, Connection conn) throws SQLException;
+    void insertAll(List<CommandeExterneLocal> commandeExterneLocals, Connection conn) throws SQLException;
     CommandeExterneLocal getById(Long id);
     List<CommandeExterneLocal> getByCommandeExterneId(Long commandeExterneId);
     List<CommandeExterneLocal> getByCommandeExterneId(Long commandeExterneId, Connection conn) throws SQLException;
+
+    /**
+     * Loads the lines of several orders in set-based queries, grouped by order ID.
+     * Passing {@code null} loads the lines of every order.
+     */
+    Map<Long, List<CommandeExterneLocal>> getByCommandeExterneIds(Collection<Long> commandeExterneIds, Connection conn) throws SQLException;
+
     void update(CommandeExterneLocal commandeExterneLocal);
     void update(CommandeExterneLocal commandeExterneLocal, Connection conn) throws SQLException;
     void delete(Long id);
@@ -9,13 +9,20 @@ import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Implementation of CommandeExterneLocalDAO for managing local associations with external orders.
  */
 public class CommandeExterneLocalDAOImpl implements CommandeExterneLocalDAO {
     private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String SELECT_SQL = "SELECT cel.id, cel.commande_externe_id, cel.local_id, cel.created_at, cel.updated_at, " +
+            "l.nom AS local_nom " +
+            "FROM commande_externe_local cel " +
+            "JOIN local l ON cel.local_id = l.id";
+    private static final String INSERT_SQL = "INSERT INTO commande_externe_local (commande_externe_id, local_id, created_at, updated_at) VALUES (?, ?, ?, ?)";
 
     @Override
     public void insert(CommandeExterneLocal commandeExterneLocal) {
@@ -35,19 +42,8 @@ public class CommandeExterneLocalDAOImpl implements CommandeExterneLocalDAO {
             throw new IllegalArgumentException("CommandeExterneLocal, its CommandeExterne, and Local cannot be null");
         }
 
-        String sql = "INSERT INTO commande_externe_local (commande_externe_id, local_id, created_at, updated_at) VALUES (?, ?, ?, ?)";
-        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            try (Statement fkStmt = conn.createStatement()) {
-                fkStmt.execute("PRAGMA foreign_keys = ON;");
-            }
-            stmt.setLong(1, commandeExterneLocal.getCommandeExterne().getId());
-            stmt.setLong(2, commandeExterneLocal.getLocal().getId());
-            stmt.setString(3, commandeExterneLocal.getCreatedAt() != null ?
-                    commandeExterneLocal.getCreatedAt().format(SQLITE_DATETIME_FORMATTER) :
-                    LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER));
-            stmt.setString(4, commandeExterneLocal.getUpdatedAt() != null ?
-                    commandeExterneLocal.getUpdatedAt().format(SQLITE_DATETIME_FORMATTER) :
-                    LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER));
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            setInsertParameters(stmt, commandeExterneLocal);
 
             stmt.executeUpdate();
 
@@ -59,6 +55,39 @@ public class CommandeExterneLocalDAOImpl implements CommandeExterneLocalDAO {
         }
     }
 
+    @Override
+    public void insertAll(List<CommandeExterneLocal> commandeExterneLocals, Connection conn) throws SQLException {
+        if (commandeExterneLocals.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+            for (CommandeExterneLocal commandeExterneLocal : commandeExterneLocals) {
+                if (commandeExterneLocal == null || commandeExterneLocal.getCommandeExterne() == null || commandeExterneLocal.getLocal() == null) {
+                    throw new IllegalArgumentException("CommandeExterneLocal, its CommandeExterne, and Local cannot be null");
+                }
+                setInsertParameters(stmt, commandeExterneLocal);
+                stmt.addBatch();
+            }
+            BatchSupport.executeBatch(stmt, commandeExterneLocals.size());
+        }
+
+        long id = BatchSupport.firstBatchRowId(conn, commandeExterneLocals.size());
+        for (CommandeExterneLocal commandeExterneLocal : commandeExterneLocals) {
+            commandeExterneLocal.setId(id++);
+        }
+    }
+
+    private void setInsertParameters(PreparedStatement stmt, CommandeExterneLocal commandeExterneLocal) throws SQLException {
+        stmt.setLong(1, commandeExterneLocal.getCommandeExterne().getId());
+        stmt.setLong(2, commandeExterneLocal.getLocal().getId());
+        stmt.setString(3, commandeExterneLocal.getCreatedAt() != null ?
+                commandeExterneLocal.getCreatedAt().format(SQLITE_DATETIME_FORMATTER) :
+                LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER));
+        stmt.setString(4, commandeExterneLocal.getUpdatedAt() != null ?
+                commandeExterneLocal.getUpdatedAt().format(SQLITE_DATETIME_FORMATTER) :
+                LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER));
+    }
+
     @Override
     public CommandeExterneLocal getById(Long id) {
         if (id == null || id <= 0) {
@@ -70,11 +99,8 @@ public class CommandeExterneLocalDAOImpl implements CommandeExterneLocalDAO {
                 "FROM commande_externe_local cel " +
                 "JOIN local l ON cel.local_id = l.id " +
                 "WHERE cel.id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            try (Statement fkStmt = conn.createStatement()) {
-                fkStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setLong(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -92,7 +118,7 @@ public class CommandeExterneLocalDAOImpl implements CommandeExterneLocalDAO {
         if (commandeExterneId == null || commandeExterneId <= 0) {
             return new ArrayList<>();
         }
-        try (Connection conn = DatabaseConnection.getConnection()) {
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
             return getByCommandeExterneId(commandeExterneId, conn);
         } catch (SQLException e) {
             throw new RuntimeException("Error retrieving CommandeExterneLocals for commande_externe_id: " + commandeExterneId + ", Message: " + e.getMessage(), e);
@@ -102,15 +128,8 @@ public class CommandeExterneLocalDAOImpl implements CommandeExterneLocalDAO {
     @Override
     public List<CommandeExterneLocal> getByCommandeExterneId(Long commandeExterneId, Connection conn) throws SQLException {
         List<CommandeExterneLocal> locals = new ArrayList<>();
-        String sql = "SELECT cel.id, cel.commande_externe_id, cel.local_id, cel.created_at, cel.updated_at, " +
-                "l.nom AS local_nom " +
-                "FROM commande_externe_local cel " +
-                "JOIN local l ON cel.local_id = l.id " +
-                "WHERE cel.commande_externe_id = ?";
+        String sql = SELECT_SQL + " WHERE cel.commande_externe_id = ?";
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            try (Statement fkStmt = conn.createStatement()) {
-                fkStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setLong(1, commandeExterneId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -122,6 +141,11 @@ public class CommandeExterneLocalDAOImpl implements CommandeExterneLocalDAO {
         return locals;
     }
 
+    @Override
+    public Map<Long, List<CommandeExterneLocal>> getByCommandeExterneIds(Collection<Long> commandeExterneIds, Connection conn) throws SQLException {
+        return BatchSupport.queryGrouped(conn, SELECT_SQL, "cel.commande_externe_id", "commande_externe_id", commandeExterneIds, this::extractCommandeExterneLocalFromResultSet);
+    }
+
     @Override
     public void update(CommandeExterneLocal commandeExterneLocal) {
         if (commandeExterneLocal == null || commandeExterneLocal.getId() == null || commandeExterneLocal.getCommandeExterne() == null || commandeExterneLocal.getLocal() == null) {
@@ -158,9 +182,6 @@ public class CommandeExterneLocalDAOImpl implements CommandeExterneLocalDAO {
         String sql = "DELETE FROM commande_externe_local WHERE id = ?";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            try (Statement fkStmt = conn.createStatement()) {
-                fkStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setLong(1, id);
             stmt.executeUpdate();
         } catch (SQLException e) {
@@ -176,10 +197,7 @@ public class CommandeExterneLocalDAOImpl implements CommandeExterneLocalDAO {
         commandeExterne.setId(rs.getLong("commande_externe_id"));
         commandeExterneLocal.setCommandeExterne(commandeExterne);
 
-        Local local = new Local();
-        local.setId(rs.getLong("local_id"));
-        local.setNom(rs.getString("local_nom"));
-        commandeExterneLocal.setLocal(local);
+        commandeExterneLocal.setLocal(IdentityMap.local(rs.getLong("local_id"), rs.getString("local_nom")));
 
         String createdAtStr = rs.getString("created_at");
         if (createdAtStr != null && !rs.wasNull()) {
@@ -4,15 +4,31 @@ import model.entities.CommandeInterneArticle;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Lines of internal orders. The writes that open their own connection post the orders they change
+ * to the stock ledger; those given a connection leave that to the caller's transaction, as
+ * CommandeInterneDAOImpl does for a whole order.
+ */
 public interface CommandeInterneArticleDAO {
     void insert(CommandeInterneArticle commandeInterneArticle);
     void insert(CommandeInterneArticle commandeInterneArticle, Connection connection) throws SQLException;
+    void insertAll(List<CommandeInterneArticle> commandeInterneArticles, Connection connection) throws SQLException;
     CommandeInterneArticle getById(Long id);
     List<CommandeInterneArticle> getByCommandeInterneId(Long commandeInterneId);
     List<CommandeInterneArticle> getByCommandeInterneId(Long commandeInterneId, Connection connection) throws SQLException;
+
+    /**
+     * Loads the lines of several orders in set-based queries, grouped by order ID.
+     * Passing {@code null} loads the lines of every order.
+     */
+    Map<Long, List<CommandeInterneArticle>> getByCommandeInterneIds(Collection<Long> commandeInterneIds, Connection connection) throws SQLException;
+
     void update(CommandeInterneArticle commandeInterneArticle);
     void update(CommandeInterneArticle commandeInterneArticle, Connection connection) throws SQLException;
     void delete(Long id);
+    void delete(Long id, Connection connection) throws SQLException;
 }
\ No newline at end of file
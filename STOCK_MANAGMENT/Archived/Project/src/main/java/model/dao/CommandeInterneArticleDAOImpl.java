@@ -9,13 +9,31 @@ import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Implementation of CommandeInterneArticleDAO for managing article associations with internal orders.
  */
 public class CommandeInterneArticleDAOImpl implements CommandeInterneArticleDAO {
     private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String COMMANDE_OF_SQL = "SELECT commande_interne_id FROM commande_interne_article WHERE id = ?";
+    private static final String TOUCH_COMMANDE_SQL = "UPDATE commande_interne SET updated_at = ? WHERE id = ?";
+
+    private final MouvementStockDAO mouvementStockDAO = new MouvementStockDAOImpl();
+
+    @FunctionalInterface
+    private interface LineChange {
+        void apply() throws SQLException;
+    }
+    private static final String SELECT_SQL = "SELECT cia.id, cia.commande_interne_id, cia.article_id, cia.quantite, cia.etat, cia.notes, cia.created_at, " +
+            "a.nom AS article_nom " +
+            "FROM commande_interne_article cia " +
+            "JOIN article a ON cia.article_id = a.id";
+    private static final String INSERT_SQL = "INSERT INTO commande_interne_article (commande_interne_id, article_id, quantite, etat, notes, created_at) VALUES (?, ?, ?, ?, ?, ?)";
 
     @Override
     public void insert(CommandeInterneArticle commandeInterneArticle) {
@@ -23,7 +41,7 @@ public class CommandeInterneArticleDAOImpl implements CommandeInterneArticleDAO
             throw new IllegalArgumentException("CommandeInterneArticle, its CommandeInterne, and Article cannot be null");
         }
         try (Connection conn = DatabaseConnection.getConnection()) {
-            insert(commandeInterneArticle, conn);
+            changeLines(conn, null, commandeInterneArticle.getCommandeInterne().getId(), () -> insert(commandeInterneArticle, conn));
         } catch (SQLException e) {
             throw new RuntimeException("Error inserting CommandeInterneArticle: " + e.getMessage(), e);
         }
@@ -34,19 +52,8 @@ public class CommandeInterneArticleDAOImpl implements CommandeInterneArticleDAO
             throw new IllegalArgumentException("CommandeInterneArticle, its CommandeInterne, and Article cannot be null");
         }
 
-        String sql = "INSERT INTO commande_interne_article (commande_interne_id, article_id, quantite, etat, notes, created_at) VALUES (?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            try (Statement fkStmt = conn.createStatement()) {
-                fkStmt.execute("PRAGMA foreign_keys = ON;");
-            }
-            stmt.setLong(1, commandeInterneArticle.getCommandeInterne().getId());
-            stmt.setLong(2, commandeInterneArticle.getArticle().getId());
-            stmt.setInt(3, commandeInterneArticle.getQuantite());
-            stmt.setString(4, commandeInterneArticle.getEtat());
-            stmt.setString(5, commandeInterneArticle.getNotes());
-            stmt.setString(6, commandeInterneArticle.getCreatedAt() != null ?
-                    commandeInterneArticle.getCreatedAt().format(SQLITE_DATETIME_FORMATTER) :
-                    LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER));
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            setInsertParameters(stmt, commandeInterneArticle);
 
             stmt.executeUpdate();
 
@@ -58,6 +65,39 @@ public class CommandeInterneArticleDAOImpl implements CommandeInterneArticleDAO
         }
     }
 
+    @Override
+    public void insertAll(List<CommandeInterneArticle> commandeInterneArticles, Connection conn) throws SQLException {
+        if (commandeInterneArticles.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+            for (CommandeInterneArticle commandeInterneArticle : commandeInterneArticles) {
+                if (commandeInterneArticle == null || commandeInterneArticle.getCommandeInterne() == null || commandeInterneArticle.getArticle() == null) {
+                    throw new IllegalArgumentException("CommandeInterneArticle, its CommandeInterne, and Article cannot be null");
+                }
+                setInsertParameters(stmt, commandeInterneArticle);
+                stmt.addBatch();
+            }
+            BatchSupport.executeBatch(stmt, commandeInterneArticles.size());
+        }
+
+        long id = BatchSupport.firstBatchRowId(conn, commandeInterneArticles.size());
+        for (CommandeInterneArticle commandeInterneArticle : commandeInterneArticles) {
+            commandeInterneArticle.setId(id++);
+        }
+    }
+
+    private void setInsertParameters(PreparedStatement stmt, CommandeInterneArticle commandeInterneArticle) throws SQLException {
+        stmt.setLong(1, commandeInterneArticle.getCommandeInterne().getId());
+        stmt.setLong(2, commandeInterneArticle.getArticle().getId());
+        stmt.setInt(3, commandeInterneArticle.getQuantite());
+        stmt.setString(4, commandeInterneArticle.getEtat());
+        stmt.setString(5, commandeInterneArticle.getNotes());
+        stmt.setString(6, commandeInterneArticle.getCreatedAt() != null ?
+                commandeInterneArticle.getCreatedAt().format(SQLITE_DATETIME_FORMATTER) :
+                LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER));
+    }
+
     @Override
     public CommandeInterneArticle getById(Long id) {
         if (id == null || id <= 0) {
@@ -69,11 +109,8 @@ public class CommandeInterneArticleDAOImpl implements CommandeInterneArticleDAO
                 "FROM commande_interne_article cia " +
                 "JOIN article a ON cia.article_id = a.id " +
                 "WHERE cia.id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            try (Statement fkStmt = conn.createStatement()) {
-                fkStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setLong(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -91,7 +128,7 @@ public class CommandeInterneArticleDAOImpl implements CommandeInterneArticleDAO
         if (commandeInterneId == null || commandeInterneId <= 0) {
             return new ArrayList<>();
         }
-        try (Connection conn = DatabaseConnection.getConnection()) {
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
             return getByCommandeInterneId(commandeInterneId, conn);
         } catch (SQLException e) {
             throw new RuntimeException("Error retrieving CommandeInterneArticles for commande_interne_id: " + commandeInterneId + ", Message: " + e.getMessage(), e);
@@ -100,15 +137,8 @@ public class CommandeInterneArticleDAOImpl implements CommandeInterneArticleDAO
 
     public List<CommandeInterneArticle> getByCommandeInterneId(Long commandeInterneId, Connection conn) throws SQLException {
         List<CommandeInterneArticle> articles = new ArrayList<>();
-        String sql = "SELECT cia.id, cia.commande_interne_id, cia.article_id, cia.quantite, cia.etat, cia.notes, cia.created_at, " +
-                "a.nom AS article_nom " +
-                "FROM commande_interne_article cia " +
-                "JOIN article a ON cia.article_id = a.id " +
-                "WHERE cia.commande_interne_id = ?";
+        String sql = SELECT_SQL + " WHERE cia.commande_interne_id = ?";
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            try (Statement fkStmt = conn.createStatement()) {
-                fkStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setLong(1, commandeInterneId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -120,13 +150,18 @@ public class CommandeInterneArticleDAOImpl implements CommandeInterneArticleDAO
         return articles;
     }
 
+    @Override
+    public Map<Long, List<CommandeInterneArticle>> getByCommandeInterneIds(Collection<Long> commandeInterneIds, Connection conn) throws SQLException {
+        return BatchSupport.queryGrouped(conn, SELECT_SQL, "cia.commande_interne_id", "commande_interne_id", commandeInterneIds, this::extractCommandeInterneArticleFromResultSet);
+    }
+
     @Override
     public void update(CommandeInterneArticle commandeInterneArticle) {
         if (commandeInterneArticle == null || commandeInterneArticle.getId() == null || commandeInterneArticle.getCommandeInterne() == null || commandeInterneArticle.getArticle() == null) {
             throw new IllegalArgumentException("CommandeInterneArticle, its ID, CommandeInterne, and Article cannot be null");
         }
         try (Connection conn = DatabaseConnection.getConnection()) {
-            update(commandeInterneArticle, conn);
+            changeLines(conn, commandeInterneArticle.getId(), commandeInterneArticle.getCommandeInterne().getId(), () -> update(commandeInterneArticle, conn));
         } catch (SQLException e) {
             throw new RuntimeException("Error updating CommandeInterneArticle ID: " + commandeInterneArticle.getId() + ", Message: " + e.getMessage(), e);
         }
@@ -154,16 +189,71 @@ public class CommandeInterneArticleDAOImpl implements CommandeInterneArticleDAO
             throw new IllegalArgumentException("Invalid CommandeInterneArticle ID: " + id);
         }
 
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            changeLines(conn, id, null, () -> delete(id, conn));
+        } catch (SQLException e) {
+            throw new RuntimeException("Error deleting CommandeInterneArticle ID: " + id + ", Message: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void delete(Long id, Connection conn) throws SQLException {
         String sql = "DELETE FROM commande_interne_article WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            try (Statement fkStmt = conn.createStatement()) {
-                fkStmt.execute("PRAGMA foreign_keys = ON;");
-            }
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setLong(1, id);
             stmt.executeUpdate();
-        } catch (SQLException e) {
-            throw new RuntimeException("Error deleting CommandeInterneArticle ID: " + id + ", Message: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Applies a change to lines made outside CommandeInterneDAOImpl, then posts the orders the line
+     * belonged to and now belongs to in the stock ledger and moves their updated_at, so that the
+     * incremental export sees their new lines, in one transaction (the caller's, if one is open).
+     */
+    private void changeLines(Connection conn, Long lineId, Long commandeInterneId, LineChange change) throws SQLException {
+        boolean ownTransaction = conn.getAutoCommit();
+        if (ownTransaction) {
+            conn.setAutoCommit(false);
+        }
+        try {
+            Set<Long> commandes = new LinkedHashSet<>();
+            if (lineId != null) {
+                try (PreparedStatement stmt = conn.prepareStatement(COMMANDE_OF_SQL)) {
+                    stmt.setLong(1, lineId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            commandes.add(rs.getLong(1));
+                        }
+                    }
+                }
+            }
+            if (commandeInterneId != null) {
+                commandes.add(commandeInterneId);
+            }
+            change.apply();
+            try (PreparedStatement touch = conn.prepareStatement(TOUCH_COMMANDE_SQL)) {
+                String now = LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER);
+                for (Long commandeId : commandes) {
+                    touch.setString(1, now);
+                    touch.setLong(2, commandeId);
+                    touch.executeUpdate();
+                }
+            }
+            for (Long commandeId : commandes) {
+                mouvementStockDAO.recordCommandeInterne(commandeId, conn);
+            }
+            if (ownTransaction) {
+                conn.commit();
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (ownTransaction) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (ownTransaction) {
+                conn.setAutoCommit(true);
+            }
         }
     }
 
@@ -175,10 +265,7 @@ public class CommandeInterneArticleDAOImpl implements CommandeInterneArticleDAO
         commandeInterne.setId(rs.getLong("commande_interne_id"));
         commandeInterneArticle.setCommandeInterne(commandeInterne);
 
-        Article article = new Article();
-        article.setId(rs.getLong("article_id"));
-        article.setNom(rs.getString("article_nom"));
-        commandeInterneArticle.setArticle(article);
+        commandeInterneArticle.setArticle(IdentityMap.article(rs.getLong("article_id"), rs.getString("article_nom")));
 
         commandeInterneArticle.setQuantite(rs.getInt("quantite"));
         commandeInterneArticle.setEtat(rs.getString("etat"));
@@ -7,6 +7,8 @@ public interface CommandeInterneDAO {
     void insert(CommandeInterne commandeInterne);
     CommandeInterne getById(Long id);
     List<CommandeInterne> getAll();
+    List<CommandeInterne> getPage(Long afterId, int limit, SortDirection sort);
+    long count();
     void update(CommandeInterne commandeInterne);
     void delete(Long id);
 }
\ No newline at end of file
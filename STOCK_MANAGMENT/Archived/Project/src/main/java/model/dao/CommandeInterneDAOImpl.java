@@ -1,8 +1,6 @@
 package model.dao;
 
 import model.entities.CommandeInterne;
-import model.entities.Magasinier;
-import model.entities.Consommateur;
 import model.entities.Local;
 import model.entities.CommandeInterneArticle;
 import model.entities.CommandeInterneLocal;
@@ -12,21 +10,36 @@ import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
 
 /**
  * Implementation of CommandeInterneDAO for managing internal orders in the database.
  */
 public class CommandeInterneDAOImpl implements CommandeInterneDAO {
+
+    private static final Logger LOGGER = Logger.getLogger(CommandeInterneDAOImpl.class.getName());
     private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String SELECT_SQL = "SELECT ci.id, ci.created_at, ci.confirmed_at, ci.updated_at, ci.statut, " +
+            "m.id AS magasinier_id, m.nom AS magasinier_nom, " +
+            "c.id AS consommateur_id, c.nom AS consommateur_nom, " +
+            "l.id AS local_id, l.nom AS local_nom " +
+            "FROM commande_interne ci " +
+            "LEFT JOIN magasinier m ON ci.magasinier_id = m.id " +
+            "LEFT JOIN consommateur c ON ci.consommateur_id = c.id " +
+            "LEFT JOIN local l ON ci.local_id = l.id";
     private final CommandeInterneArticleDAO articleDAO;
     private final CommandeInterneLocalDAO localDAO;
+    private final MouvementStockDAO mouvementStockDAO;
 
     public CommandeInterneDAOImpl() {
         this.articleDAO = new CommandeInterneArticleDAOImpl();
         this.localDAO = new CommandeInterneLocalDAOImpl();
+        this.mouvementStockDAO = new MouvementStockDAOImpl();
     }
 
     @Override
@@ -39,10 +52,6 @@ public class CommandeInterneDAOImpl implements CommandeInterneDAO {
         try (Connection connection = DatabaseConnection.getConnection()) {
             connection.setAutoCommit(false);
             try {
-                try (Statement fkStmt = connection.createStatement()) {
-                    fkStmt.execute("PRAGMA foreign_keys = ON;");
-                }
-
                 try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
                     setCommandeInterneFields(stmt, commandeInterne);
                     stmt.executeUpdate();
@@ -56,8 +65,10 @@ public class CommandeInterneDAOImpl implements CommandeInterneDAO {
 
                 insertArticles(commandeInterne, connection);
                 insertLocals(commandeInterne, connection);
+                mouvementStockDAO.recordCommandeInterne(commandeInterne.getId(), connection);
 
                 connection.commit();
+                EntityCounters.getInstance().added(EntityCounters.Entity.COMMANDE_INTERNE);
             } catch (SQLException e) {
                 connection.rollback();
                 throw new RuntimeException("Error inserting CommandeInterne: " + e.getMessage(), e);
@@ -75,20 +86,10 @@ public class CommandeInterneDAOImpl implements CommandeInterneDAO {
             return null;
         }
 
-        String sql = "SELECT ci.id, ci.created_at, ci.confirmed_at, ci.updated_at, ci.statut, " +
-                "m.id AS magasinier_id, m.nom AS magasinier_nom, " +
-                "c.id AS consommateur_id, c.nom AS consommateur_nom, " +
-                "l.id AS local_id, l.nom AS local_nom " +
-                "FROM commande_interne ci " +
-                "LEFT JOIN magasinier m ON ci.magasinier_id = m.id " +
-                "LEFT JOIN consommateur c ON ci.consommateur_id = c.id " +
-                "LEFT JOIN local l ON ci.local_id = l.id " +
-                "WHERE ci.id = ?";
-        try (Connection connection = DatabaseConnection.getConnection();
+        String sql = SELECT_SQL + " WHERE ci.id = ?";
+        IdentityMap unitOfWork = IdentityMap.open();
+        try (Connection connection = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = connection.prepareStatement(sql)) {
-            try (Statement fkStmt = connection.createStatement()) {
-                fkStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setLong(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -100,6 +101,8 @@ public class CommandeInterneDAOImpl implements CommandeInterneDAO {
             }
         } catch (SQLException e) {
             throw new RuntimeException("Error retrieving CommandeInterne by ID: " + id + ", Message: " + e.getMessage(), e);
+        } finally {
+            unitOfWork.close();
         }
         return null;
     }
@@ -107,41 +110,66 @@ public class CommandeInterneDAOImpl implements CommandeInterneDAO {
     @Override
     public List<CommandeInterne> getAll() {
         List<CommandeInterne> commandes = new ArrayList<>();
-        String sql = "SELECT ci.id, ci.created_at, ci.confirmed_at, ci.updated_at, ci.statut, " +
-                "m.id AS magasinier_id, m.nom AS magasinier_nom, " +
-                "c.id AS consommateur_id, c.nom AS consommateur_nom, " +
-                "l.id AS local_id, l.nom AS local_nom " +
-                "FROM commande_interne ci " +
-                "LEFT JOIN magasinier m ON ci.magasinier_id = m.id " +
-                "LEFT JOIN consommateur c ON ci.consommateur_id = c.id " +
-                "LEFT JOIN local l ON ci.local_id = l.id";
-
-        try (Connection connection = DatabaseConnection.getConnection();
+        String sql = SELECT_SQL;
+
+        IdentityMap unitOfWork = IdentityMap.open();
+        try (Connection connection = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = connection.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
                 CommandeInterne commandeInterne = extractCommandeInterneFromResultSet(rs);
                 commandes.add(commandeInterne);
             }
+            hydrateLines(commandes, null, connection);
         } catch (SQLException e) {
             throw new RuntimeException("Error retrieving all CommandeInterne records: " + e.getMessage(), e);
+        } finally {
+            unitOfWork.close();
         }
 
-        try (Connection connection = DatabaseConnection.getConnection()) {
+        return commandes;
+    }
+
+    @Override
+    public List<CommandeInterne> getPage(Long afterId, int limit, SortDirection sort) {
+        List<CommandeInterne> commandes = new ArrayList<>();
+        String sql = sort.pageSql(SELECT_SQL, "ci.id", afterId);
+        IdentityMap unitOfWork = IdentityMap.open();
+        try (Connection connection = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            SortDirection.bindPage(stmt, afterId, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    commandes.add(extractCommandeInterneFromResultSet(rs));
+                }
+            }
+            List<Long> ids = new ArrayList<>(commandes.size());
             for (CommandeInterne commandeInterne : commandes) {
-                commandeInterne.setCommandeInterneArticles(articleDAO.getByCommandeInterneId(commandeInterne.getId(), connection));
-                commandeInterne.setCommandeInterneLocals(localDAO.getByCommandeInterneId(commandeInterne.getId(), connection));
+                ids.add(commandeInterne.getId());
             }
+            hydrateLines(commandes, ids, connection);
         } catch (SQLException e) {
-            throw new RuntimeException("Error loading articles or locals for CommandeInterne records: " + e.getMessage(), e);
+            throw new RuntimeException("Error retrieving CommandeInterne page after ID: " + afterId + ", Message: " + e.getMessage(), e);
+        } finally {
+            unitOfWork.close();
         }
-
         return commandes;
     }
 
+    @Override
+    public long count() {
+        try (Connection connection = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = connection.prepareStatement("SELECT COUNT(*) FROM commande_interne");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("Error counting CommandeInterne records: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public void update(CommandeInterne commandeInterne) {
-        String sql = "UPDATE commande_interne SET statut = ?, magasinier_id = ?, consommateur_id = ?, created_at = ? WHERE id = ?";
+        String sql = "UPDATE commande_interne SET statut = ?, magasinier_id = ?, consommateur_id = ?, created_at = ?, updated_at = ? WHERE id = ?";
         try (Connection connection = DatabaseConnection.getConnection()) {
             connection.setAutoCommit(false);
             try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
@@ -149,11 +177,13 @@ public class CommandeInterneDAOImpl implements CommandeInterneDAO {
                 pstmt.setLong(2, commandeInterne.getMagasinier().getId());
                 pstmt.setObject(3, commandeInterne.getConsommateur() != null ? commandeInterne.getConsommateur().getId() : null, Types.INTEGER);
                 pstmt.setString(4, commandeInterne.getCreerA() != null ? commandeInterne.getCreerA().format(SQLITE_DATETIME_FORMATTER) : null);
-                pstmt.setLong(5, commandeInterne.getId());
+                pstmt.setString(5, LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER));
+                pstmt.setLong(6, commandeInterne.getId());
                 pstmt.executeUpdate();
             }
             synchronizeLocals(commandeInterne, connection);
             synchronizeArticles(commandeInterne, connection);
+            mouvementStockDAO.recordCommandeInterne(commandeInterne.getId(), connection);
             connection.commit();
         } catch (SQLException e) {
             throw new RuntimeException("Error updating commande: " + e.getMessage(), e);
@@ -167,21 +197,45 @@ public class CommandeInterneDAOImpl implements CommandeInterneDAO {
         }
 
         String sql = "DELETE FROM commande_interne WHERE id = ?";
-        try (Connection connection = DatabaseConnection.getConnection();
-             PreparedStatement stmt = connection.prepareStatement(sql)) {
-            try (Statement fkStmt = connection.createStatement()) {
-                fkStmt.execute("PRAGMA foreign_keys = ON;");
-            }
-            stmt.setLong(1, id);
-            int rowsAffected = stmt.executeUpdate();
-            if (rowsAffected > 0) {
-                System.out.println("Deleted CommandeInterne ID: " + id);
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                int rowsAffected;
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setLong(1, id);
+                    rowsAffected = stmt.executeUpdate();
+                }
+                // Lines are gone with the order, so this reverses everything it had booked
+                mouvementStockDAO.recordCommandeInterne(id, connection);
+                connection.commit();
+                EntityCounters.getInstance().removed(EntityCounters.Entity.COMMANDE_INTERNE, rowsAffected);
+                if (rowsAffected > 0) {
+                    LOGGER.fine(() -> "Deleted CommandeInterne ID: " + id);
+                }
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
             }
         } catch (SQLException e) {
             throw new RuntimeException("Error deleting CommandeInterne ID: " + id + ", Message: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Attaches lines and locals to already loaded headers with two set-based queries
+     * instead of two queries per order. {@code null} IDs means every order.
+     */
+    private void hydrateLines(List<CommandeInterne> commandes, Collection<Long> ids, Connection connection) throws SQLException {
+        Map<Long, List<CommandeInterneArticle>> articlesByCommande = articleDAO.getByCommandeInterneIds(ids, connection);
+        Map<Long, List<CommandeInterneLocal>> localsByCommande = localDAO.getByCommandeInterneIds(ids, connection);
+        for (CommandeInterne commandeInterne : commandes) {
+            commandeInterne.setCommandeInterneArticles(articlesByCommande.getOrDefault(commandeInterne.getId(), new ArrayList<>()));
+            commandeInterne.setCommandeInterneLocals(localsByCommande.getOrDefault(commandeInterne.getId(), new ArrayList<>()));
+        }
+    }
+
     private void setCommandeInterneFields(PreparedStatement stmt, CommandeInterne commandeInterne) throws SQLException {
         stmt.setString(1, commandeInterne.getCreerA() != null ? commandeInterne.getCreerA().format(SQLITE_DATETIME_FORMATTER) : LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER));
         if (commandeInterne.getConfirmerA() != null) {
@@ -194,34 +248,63 @@ public class CommandeInterneDAOImpl implements CommandeInterneDAO {
 
         Long magasinierId = commandeInterne.getMagasinier() != null ? commandeInterne.getMagasinier().getId() : null;
         stmt.setObject(5, magasinierId, Types.INTEGER);
-        System.out.println("Setting magasinier_id: " + magasinierId);
+        LOGGER.fine(() -> "Setting magasinier_id: " + magasinierId);
 
         Long consommateurId = commandeInterne.getConsommateur() != null ? commandeInterne.getConsommateur().getId() : null;
         stmt.setObject(6, consommateurId, Types.INTEGER);
-        System.out.println("Setting consommateur_id: " + consommateurId);
+        LOGGER.fine(() -> "Setting consommateur_id: " + consommateurId);
 
         Long localId = commandeInterne.getLocal() != null ? commandeInterne.getLocal().getId() : null;
         stmt.setObject(7, localId, Types.INTEGER);
-        System.out.println("Setting local_id: " + localId);
+        LOGGER.fine(() -> "Setting local_id: " + localId);
     }
 
     private void insertArticles(CommandeInterne commandeInterne, Connection connection) throws SQLException {
-        for (CommandeInterneArticle article : commandeInterne.getCommandeInterneArticles()) {
-            if (article.getArticle() == null || !isArticleIdValid(article.getArticle().getId(), connection)) {
-                throw new IllegalArgumentException("Invalid or non-existent Article ID: " + (article.getArticle() != null ? article.getArticle().getId() : "null"));
-            }
+        List<CommandeInterneArticle> articles = commandeInterne.getCommandeInterneArticles();
+        validateArticleIds(articles, connection);
+        for (CommandeInterneArticle article : articles) {
             article.setCommandeInterne(commandeInterne);
-            articleDAO.insert(article, connection);
         }
+        articleDAO.insertAll(articles, connection);
     }
 
     private void insertLocals(CommandeInterne commandeInterne, Connection connection) throws SQLException {
-        for (CommandeInterneLocal local : commandeInterne.getCommandeInterneLocals()) {
-            if (local.getLocal() == null || !isLocalIdValid(local.getLocal().getId(), connection)) {
-                throw new IllegalArgumentException("Invalid or non-existent Local ID: " + (local.getLocal() != null ? local.getLocal().getId() : "null"));
-            }
+        List<CommandeInterneLocal> locals = commandeInterne.getCommandeInterneLocals();
+        validateLocalIds(locals, connection);
+        for (CommandeInterneLocal local : locals) {
             local.setCommandeInterne(commandeInterne);
-            localDAO.insert(local, connection);
+        }
+        localDAO.insertAll(locals, connection);
+    }
+
+    /**
+     * Checks every referenced article with one set-based query instead of one SELECT per line.
+     */
+    private void validateArticleIds(List<CommandeInterneArticle> articles, Connection connection) throws SQLException {
+        List<Long> ids = new ArrayList<>(articles.size());
+        for (CommandeInterneArticle article : articles) {
+            if (article.getArticle() == null || article.getArticle().getId() == null) {
+                throw new IllegalArgumentException("Invalid or non-existent Article ID: null");
+            }
+            ids.add(article.getArticle().getId());
+        }
+        Set<Long> missing = BatchSupport.findMissingIds(connection, "article", ids);
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Invalid or non-existent Article ID: " + missing.iterator().next());
+        }
+    }
+
+    private void validateLocalIds(List<CommandeInterneLocal> locals, Connection connection) throws SQLException {
+        List<Long> ids = new ArrayList<>(locals.size());
+        for (CommandeInterneLocal local : locals) {
+            if (local.getLocal() == null || local.getLocal().getId() == null) {
+                throw new IllegalArgumentException("Invalid or non-existent Local ID: null");
+            }
+            ids.add(local.getLocal().getId());
+        }
+        Set<Long> missing = BatchSupport.findMissingIds(connection, "local", ids);
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Invalid or non-existent Local ID: " + missing.iterator().next());
         }
     }
 
@@ -232,14 +315,13 @@ public class CommandeInterneDAOImpl implements CommandeInterneDAO {
             existingArticleMap.put(existing.getArticle().getId(), existing);
         }
 
+        validateArticleIds(commandeInterne.getCommandeInterneArticles(), connection);
+        List<CommandeInterneArticle> toInsert = new ArrayList<>();
         for (CommandeInterneArticle newArticle : commandeInterne.getCommandeInterneArticles()) {
-            if (newArticle.getArticle() == null || !isArticleIdValid(newArticle.getArticle().getId(), connection)) {
-                throw new IllegalArgumentException("Invalid or non-existent Article ID: " + (newArticle.getArticle() != null ? newArticle.getArticle().getId() : "null"));
-            }
             newArticle.setCommandeInterne(commandeInterne);
             CommandeInterneArticle existing = existingArticleMap.get(newArticle.getArticle().getId());
             if (existing == null) {
-                articleDAO.insert(newArticle, connection);
+                toInsert.add(newArticle);
             } else {
                 existing.setQuantite(newArticle.getQuantite());
                 existing.setEtat(newArticle.getEtat());
@@ -250,8 +332,10 @@ public class CommandeInterneDAOImpl implements CommandeInterneDAO {
             }
         }
 
+        articleDAO.insertAll(toInsert, connection);
+
         for (CommandeInterneArticle toDelete : existingArticleMap.values()) {
-            articleDAO.delete(toDelete.getId());
+            articleDAO.delete(toDelete.getId(), connection);
         }
     }
 
@@ -262,14 +346,13 @@ public class CommandeInterneDAOImpl implements CommandeInterneDAO {
             existingLocalMap.put(existing.getLocal().getId(), existing);
         }
 
+        validateLocalIds(commandeInterne.getCommandeInterneLocals(), connection);
+        List<CommandeInterneLocal> toInsert = new ArrayList<>();
         for (CommandeInterneLocal newLocal : commandeInterne.getCommandeInterneLocals()) {
-            if (newLocal.getLocal() == null || !isLocalIdValid(newLocal.getLocal().getId(), connection)) {
-                throw new IllegalArgumentException("Invalid or non-existent Local ID: " + (newLocal.getLocal() != null ? newLocal.getLocal().getId() : "null"));
-            }
             newLocal.setCommandeInterne(commandeInterne);
             CommandeInterneLocal existing = existingLocalMap.get(newLocal.getLocal().getId());
             if (existing == null) {
-                localDAO.insert(newLocal, connection);
+                toInsert.add(newLocal);
             } else {
                 existing.setNotes(newLocal.getNotes());
                 existing.setCreatedAt(newLocal.getCreatedAt());
@@ -278,6 +361,8 @@ public class CommandeInterneDAOImpl implements CommandeInterneDAO {
             }
         }
 
+        localDAO.insertAll(toInsert, connection);
+
         for (CommandeInterneLocal toDelete : existingLocalMap.values()) {
             localDAO.delete(toDelete.getId());
         }
@@ -317,57 +402,23 @@ public class CommandeInterneDAOImpl implements CommandeInterneDAO {
         commandeInterne.setStatut(rs.getString("statut"));
 
         Long magasinierId = rs.getLong("magasinier_id");
-        System.out.println("Retrieved magasinier_id: " + magasinierId + ", wasNull: " + rs.wasNull());
+        LOGGER.finest(() -> "Retrieved magasinier_id: " + magasinierId);
         if (!rs.wasNull()) {
-            Magasinier magasinier = new Magasinier();
-            magasinier.setId(magasinierId);
-            magasinier.setNom(rs.getString("magasinier_nom"));
-            commandeInterne.setMagasinier(magasinier);
+            commandeInterne.setMagasinier(IdentityMap.magasinier(magasinierId, rs.getString("magasinier_nom")));
         }
 
         Long consommateurId = rs.getLong("consommateur_id");
-        System.out.println("Retrieved consommateur_id: " + consommateurId + ", wasNull: " + rs.wasNull());
+        LOGGER.finest(() -> "Retrieved consommateur_id: " + consommateurId);
         if (!rs.wasNull()) {
-            Consommateur consommateur = new Consommateur();
-            consommateur.setId(consommateurId);
-            consommateur.setNom(rs.getString("consommateur_nom"));
-            commandeInterne.setConsommateur(consommateur);
+            commandeInterne.setConsommateur(IdentityMap.consommateur(consommateurId, rs.getString("consommateur_nom")));
         }
 
         Long localId = rs.getLong("local_id");
-        System.out.println("Retrieved local_id: " + localId + ", wasNull: " + rs.wasNull());
+        LOGGER.finest(() -> "Retrieved local_id: " + localId);
         if (!rs.wasNull()) {
-            Local local = new Local();
-            local.setId(localId);
-            local.setNom(rs.getString("local_nom"));
-            commandeInterne.setLocal(local);
+            commandeInterne.setLocal(IdentityMap.local(localId, rs.getString("local_nom")));
         }
 
         return commandeInterne;
     }
-
-    private boolean isArticleIdValid(Long articleId, Connection connection) throws SQLException {
-        if (articleId == null) return false;
-        String sql = "SELECT 1 FROM article WHERE id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setLong(1, articleId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                return rs.next();
-            }
-        }
-    }
-
-    private boolean isLocalIdValid(Long localId, Connection connection) throws SQLException {
-        if (localId == null) return false;
-        if (connection.isClosed()) {
-            throw new IllegalStateException("Connection is closed before executing isLocalIdValid");
-        }
-        String sql = "SELECT 1 FROM local WHERE id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setLong(1, localId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                return rs.next();
-            }
-        }
-    }
-}
\ No newline at end of file
+}
@@ -4,14 +4,24 @@ import model.entities.CommandeInterneLocal;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface CommandeInterneLocalDAO {
     void insert(CommandeInterneLocal local);
     void insert(CommandeInterneLocal local, Connection connection) throws SQLException;
+    void insertAll(List<CommandeInterneLocal> locals, Connection connection) throws SQLException;
     CommandeInterneLocal getById(Long id);
     List<CommandeInterneLocal> getByCommandeInterneId(Long commandeInterneId);
     List<CommandeInterneLocal> getByCommandeInterneId(Long commandeInterneId, Connection connection) throws SQLException;
+
+    /**
+     * Loads the lines of several orders in set-based queries, grouped by order ID.
+     * Passing {@code null} loads the lines of every order.
+     */
+    Map<Long, List<CommandeInterneLocal>> getByCommandeInterneIds(Collection<Long> commandeInterneIds, Connection connection) throws SQLException;
+
     void update(CommandeInterneLocal local);
     void update(CommandeInterneLocal local, Connection connection) throws SQLException;
     void delete(Long id);
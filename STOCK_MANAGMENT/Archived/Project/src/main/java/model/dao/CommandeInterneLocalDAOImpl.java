@@ -2,17 +2,25 @@ package model.dao;
 
 import model.entities.CommandeInterneLocal;
 import model.entities.CommandeInterne;
-import model.entities.Local;
 import utils.DatabaseConnection;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
 
 public class CommandeInterneLocalDAOImpl implements CommandeInterneLocalDAO {
+
+    private static final Logger LOGGER = Logger.getLogger(CommandeInterneLocalDAOImpl.class.getName());
     private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String SELECT_SQL = "SELECT cil.*, l.nom AS local_nom " +
+            "FROM commande_interne_local cil " +
+            "LEFT JOIN local l ON cil.local_id = l.id";
+    private static final String INSERT_SQL = "INSERT INTO commande_interne_local (commande_interne_id, local_id, notes, created_at, updated_at) VALUES (?, ?, ?, ?, ?)";
 
     public CommandeInterneLocalDAOImpl() {
     }
@@ -23,16 +31,8 @@ public class CommandeInterneLocalDAOImpl implements CommandeInterneLocalDAO {
     }
 
     public void insert(CommandeInterneLocal local, Connection connection) throws SQLException {
-        String sql = "INSERT INTO commande_interne_local (commande_interne_id, local_id, notes, created_at, updated_at) VALUES (?, ?, ?, ?, ?)";
-        try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            try (Statement pragmaStmt = connection.createStatement()) {
-                pragmaStmt.execute("PRAGMA foreign_keys = ON;");
-            }
-            stmt.setLong(1, local.getCommandeInterne().getId());
-            stmt.setLong(2, local.getLocal().getId());
-            stmt.setString(3, local.getNotes() != null ? local.getNotes() : "");
-            stmt.setString(4, local.getCreatedAt() != null ? local.getCreatedAt().format(SQLITE_DATETIME_FORMATTER) : LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER));
-            stmt.setString(5, local.getUpdatedAt() != null ? local.getUpdatedAt().format(SQLITE_DATETIME_FORMATTER) : LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER));
+        try (PreparedStatement stmt = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            setInsertParameters(stmt, local);
 
             stmt.executeUpdate();
 
@@ -42,22 +42,49 @@ public class CommandeInterneLocalDAOImpl implements CommandeInterneLocalDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error inserting CommandeInterneLocal: " + e.getMessage());
+            LOGGER.warning("Error inserting CommandeInterneLocal: " + e.getMessage());
             throw e;
         }
     }
 
+    @Override
+    public void insertAll(List<CommandeInterneLocal> locals, Connection connection) throws SQLException {
+        if (locals.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(INSERT_SQL)) {
+            for (CommandeInterneLocal local : locals) {
+                setInsertParameters(stmt, local);
+                stmt.addBatch();
+            }
+            BatchSupport.executeBatch(stmt, locals.size());
+        } catch (SQLException e) {
+            LOGGER.warning("Error inserting CommandeInterneLocal batch: " + e.getMessage());
+            throw e;
+        }
+
+        long id = BatchSupport.firstBatchRowId(connection, locals.size());
+        for (CommandeInterneLocal local : locals) {
+            local.setId(id++);
+        }
+    }
+
+    private void setInsertParameters(PreparedStatement stmt, CommandeInterneLocal local) throws SQLException {
+        stmt.setLong(1, local.getCommandeInterne().getId());
+        stmt.setLong(2, local.getLocal().getId());
+        stmt.setString(3, local.getNotes() != null ? local.getNotes() : "");
+        stmt.setString(4, local.getCreatedAt() != null ? local.getCreatedAt().format(SQLITE_DATETIME_FORMATTER) : LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER));
+        stmt.setString(5, local.getUpdatedAt() != null ? local.getUpdatedAt().format(SQLITE_DATETIME_FORMATTER) : LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER));
+    }
+
     @Override
     public CommandeInterneLocal getById(Long id) {
         String sql = "SELECT cil.*, l.nom AS local_nom " +
                 "FROM commande_interne_local cil " +
                 "LEFT JOIN local l ON cil.local_id = l.id " +
                 "WHERE cil.id = ?";
-        try (Connection connection = DatabaseConnection.getConnection();
+        try (Connection connection = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = connection.prepareStatement(sql)) {
-            try (Statement pragmaStmt = connection.createStatement()) {
-                pragmaStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setLong(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -65,7 +92,7 @@ public class CommandeInterneLocalDAOImpl implements CommandeInterneLocalDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error retrieving CommandeInterneLocal by ID " + id + ": " + e.getMessage());
+            LOGGER.warning("Error retrieving CommandeInterneLocal by ID " + id + ": " + e.getMessage());
             throw new RuntimeException("Erreur lors de la récupération du local de commande interne par ID", e);
         }
         return null;
@@ -73,41 +100,40 @@ public class CommandeInterneLocalDAOImpl implements CommandeInterneLocalDAO {
 
     @Override
     public List<CommandeInterneLocal> getByCommandeInterneId(Long commandeInterneId) {
-        try (Connection connection = DatabaseConnection.getConnection()) {
+        try (Connection connection = DatabaseConnection.getReadConnection()) {
             return getByCommandeInterneId(commandeInterneId, connection);
         } catch (SQLException e) {
-            System.err.println("Error retrieving CommandeInterneLocal for commande_interne_id " + commandeInterneId + ": " + e.getMessage());
+            LOGGER.warning("Error retrieving CommandeInterneLocal for commande_interne_id " + commandeInterneId + ": " + e.getMessage());
             throw new RuntimeException("Erreur lors de la récupération des locaux de commande interne", e);
         }
     }
 
     public List<CommandeInterneLocal> getByCommandeInterneId(Long commandeInterneId, Connection connection) throws SQLException {
         List<CommandeInterneLocal> locals = new ArrayList<>();
-        String sql = "SELECT cil.*, l.nom AS local_nom " +
-                "FROM commande_interne_local cil " +
-                "LEFT JOIN local l ON cil.local_id = l.id " +
-                "WHERE cil.commande_interne_id = ?";
+        String sql = SELECT_SQL + " WHERE cil.commande_interne_id = ?";
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            try (Statement pragmaStmt = connection.createStatement()) {
-                pragmaStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setLong(1, commandeInterneId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
                     locals.add(extractCommandeInterneLocalFromResultSet(rs));
                 }
             }
-            System.out.println("Loaded " + locals.size() + " locals for commande_interne_id: " + commandeInterneId);
+            LOGGER.fine(() -> "Loaded " + locals.size() + " locals for commande_interne_id: " + commandeInterneId);
         }
         return locals;
     }
 
+    @Override
+    public Map<Long, List<CommandeInterneLocal>> getByCommandeInterneIds(Collection<Long> commandeInterneIds, Connection connection) throws SQLException {
+        return BatchSupport.queryGrouped(connection, SELECT_SQL, "cil.commande_interne_id", "commande_interne_id", commandeInterneIds, this::extractCommandeInterneLocalFromResultSet);
+    }
+
     @Override
     public void update(CommandeInterneLocal local) {
         try (Connection connection = DatabaseConnection.getConnection()) {
             update(local, connection);
         } catch (SQLException e) {
-            System.err.println("Error updating CommandeInterneLocal ID " + local.getId() + ": " + e.getMessage());
+            LOGGER.warning("Error updating CommandeInterneLocal ID " + local.getId() + ": " + e.getMessage());
             throw new RuntimeException("Erreur lors de la mise à jour du local de commande interne", e);
         }
     }
@@ -130,13 +156,10 @@ public class CommandeInterneLocalDAOImpl implements CommandeInterneLocalDAO {
         String sql = "DELETE FROM commande_interne_local WHERE id = ?";
         try (Connection connection = DatabaseConnection.getConnection();
              PreparedStatement stmt = connection.prepareStatement(sql)) {
-            try (Statement pragmaStmt = connection.createStatement()) {
-                pragmaStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setLong(1, id);
             stmt.executeUpdate();
         } catch (SQLException e) {
-            System.err.println("Error deleting CommandeInterneLocal ID " + id + ": " + e.getMessage());
+            LOGGER.warning("Error deleting CommandeInterneLocal ID " + id + ": " + e.getMessage());
             throw new RuntimeException("Erreur lors de la suppression du local de commande interne", e);
         }
     }
@@ -151,7 +174,7 @@ public class CommandeInterneLocalDAOImpl implements CommandeInterneLocalDAO {
             try {
                 local.setCreatedAt(LocalDateTime.parse(createdAtStr, SQLITE_DATETIME_FORMATTER));
             } catch (Exception e) {
-                System.err.println("Error parsing created_at: " + createdAtStr + ", Message: " + e.getMessage());
+                LOGGER.warning("Error parsing created_at: " + createdAtStr + ", Message: " + e.getMessage());
                 throw new SQLException("Erreur lors du parsing de created_at: " + createdAtStr, e);
             }
         }
@@ -161,7 +184,7 @@ public class CommandeInterneLocalDAOImpl implements CommandeInterneLocalDAO {
             try {
                 local.setUpdatedAt(LocalDateTime.parse(updatedAtStr, SQLITE_DATETIME_FORMATTER));
             } catch (Exception e) {
-                System.err.println("Error parsing updated_at: " + updatedAtStr + ", Message: " + e.getMessage());
+                LOGGER.warning("Error parsing updated_at: " + updatedAtStr + ", Message: " + e.getMessage());
                 throw new SQLException("Erreur lors du parsing de updated_at: " + updatedAtStr, e);
             }
         }
@@ -175,10 +198,7 @@ public class CommandeInterneLocalDAOImpl implements CommandeInterneLocalDAO {
 
         Long localId = rs.getLong("local_id");
         if (!rs.wasNull()) {
-            Local l = new Local();
-            l.setId(localId);
-            l.setNom(rs.getString("local_nom"));
-            local.setLocal(l);
+            local.setLocal(IdentityMap.local(localId, rs.getString("local_nom")));
         }
 
         return local;
@@ -0,0 +1,132 @@
+package model.dao;
+
+import utils.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.logging.Logger;
+
+/**
+ * Reads the order journal, internal and external orders together, one line per order.
+ * <p>
+ * Lines are handed over one at a time from a forward-only cursor and never collected, so a
+ * report over a year of orders needs no more memory than a report over a day. The cursor holds
+ * a read connection until the last line has been handled: keep the handler to formatting and
+ * writing.
+ */
+public final class CommandeJournal {
+
+    private static final Logger LOGGER = Logger.getLogger(CommandeJournal.class.getName());
+
+    private static final int FETCH_SIZE = 500;
+
+    private static final String COUNT_SQL = "SELECT (SELECT COUNT(*) FROM commande_interne) + " +
+            "(SELECT COUNT(*) FROM commande_externe)";
+    private static final String LINES_SQL = "SELECT 'Interne' AS type, ci.id, ci.created_at AS date, GROUP_CONCAT(a.nom) AS articles, SUM(cia.quantite) AS quantite, COALESCE(l.nom, 'No Location') AS local " +
+            "FROM commande_interne ci " +
+            "LEFT JOIN commande_interne_article cia ON ci.id = cia.commande_interne_id " +
+            "LEFT JOIN article a ON cia.article_id = a.id " +
+            "LEFT JOIN local l ON ci.local_id = l.id " +
+            "GROUP BY ci.id " +
+            "UNION ALL " +
+            "SELECT 'Externe' AS type, ce.id, ce.created_at AS date, GROUP_CONCAT(a.nom) AS articles, SUM(cea.quantite) AS quantite, COALESCE(l.nom, 'No Location') AS local " +
+            "FROM commande_externe ce " +
+            "LEFT JOIN commande_externe_article cea ON ce.id = cea.commande_externe_id " +
+            "LEFT JOIN article a ON cea.article_id = a.id " +
+            "LEFT JOIN local l ON ce.local_id = l.id " +
+            "GROUP BY ce.id";
+
+    /**
+     * One order of the journal. The handler may keep it: each line is a new object.
+     */
+    public static final class Ligne {
+        private final long id;
+        private final String date;
+        private final String articles;
+        private final int quantite;
+        private final String local;
+        private final String type;
+
+        private Ligne(long id, String date, String articles, int quantite, String local, String type) {
+            this.id = id;
+            this.date = date;
+            this.articles = articles;
+            this.quantite = quantite;
+            this.local = local;
+            this.type = type;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getDate() {
+            return date;
+        }
+
+        /** The article names, separated by commas, or "Aucun article". */
+        public String getArticles() {
+            return articles;
+        }
+
+        /** The total quantity ordered, 0 without articles. */
+        public int getQuantite() {
+            return quantite;
+        }
+
+        public String getLocal() {
+            return local;
+        }
+
+        /** "Interne" or "Externe". */
+        public String getType() {
+            return type;
+        }
+    }
+
+    /**
+     * The number of lines {@link #forEach} will produce, barring concurrent writes; for progress.
+     */
+    public long count() {
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(COUNT_SQL);
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors du comptage des commandes: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Hands every line to {@code handler} and returns the number of lines. A failure of the
+     * handler stops the reading and is rethrown as is.
+     */
+    public long forEach(LineHandler<Ligne> handler) throws Exception {
+        long count = 0;
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(LINES_SQL,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String articles = rs.getString("articles");
+                    handler.handle(new Ligne(
+                            rs.getLong("id"),
+                            rs.getString("date"),
+                            articles != null ? articles : "Aucun article",
+                            rs.getInt("quantite"), // 0 when there are no articles
+                            rs.getString("local"), // COALESCE ensures non-null value
+                            rs.getString("type")));
+                    count++;
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors de la récupération des commandes: " + e.getMessage(), e);
+        }
+        long total = count;
+        LOGGER.fine(() -> "Lignes du journal des commandes lues: " + total);
+        return count;
+    }
+}
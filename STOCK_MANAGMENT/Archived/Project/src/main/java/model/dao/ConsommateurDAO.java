@@ -7,6 +7,8 @@ public interface ConsommateurDAO {
     void insert(Consommateur consommateur);
     Consommateur getById(Long id);
     List<Consommateur> getAll();
+    List<Consommateur> getPage(Long afterId, int limit, SortDirection sort);
+    long count();
     void update(Consommateur consommateur);
     void delete(Long id);
 }
\ No newline at end of file
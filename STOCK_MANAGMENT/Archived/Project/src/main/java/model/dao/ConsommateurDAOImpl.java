@@ -21,10 +21,6 @@ public class ConsommateurDAOImpl implements ConsommateurDAO {
         String sql = "INSERT INTO consommateur (nom, email, telephone, type, description, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            // Enable foreign keys
-            try (Statement pragmaStmt = conn.createStatement()) {
-                pragmaStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setString(1, consommateur.getNom());
             stmt.setString(2, consommateur.getEmail());
             stmt.setString(3, consommateur.getTelephone());
@@ -34,6 +30,7 @@ public class ConsommateurDAOImpl implements ConsommateurDAO {
             stmt.setString(7, consommateur.getUpdatedAt() != null ? consommateur.getUpdatedAt().format(SQLITE_DATETIME_FORMATTER) : LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER));
 
             stmt.executeUpdate();
+            EntityCounters.getInstance().added(EntityCounters.Entity.CONSOMMATEUR);
 
             try (ResultSet rs = stmt.getGeneratedKeys()) {
                 if (rs.next()) {
@@ -42,18 +39,16 @@ public class ConsommateurDAOImpl implements ConsommateurDAO {
             }
         } catch (SQLException e) {
             throw new RuntimeException("Erreur lors de l'insertion du consommateur: " + e.getMessage(), e);
+        } finally {
+            ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.CONSOMMATEURS);
         }
     }
 
     @Override
     public Consommateur getById(Long id) {
         String sql = "SELECT * FROM consommateur WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            // Enable foreign keys
-            try (Statement pragmaStmt = conn.createStatement()) {
-                pragmaStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setLong(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -70,13 +65,9 @@ public class ConsommateurDAOImpl implements ConsommateurDAO {
     public List<Consommateur> getAll() {
         List<Consommateur> consommateurs = new ArrayList<>();
         String sql = "SELECT * FROM consommateur";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
-            // Enable foreign keys
-            try (Statement pragmaStmt = conn.createStatement()) {
-                pragmaStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             while (rs.next()) {
                 consommateurs.add(extractConsommateurFromResultSet(rs));
             }
@@ -86,15 +77,40 @@ public class ConsommateurDAOImpl implements ConsommateurDAO {
         return consommateurs;
     }
 
+    @Override
+    public List<Consommateur> getPage(Long afterId, int limit, SortDirection sort) {
+        List<Consommateur> consommateurs = new ArrayList<>();
+        String sql = sort.pageSql("SELECT * FROM consommateur", "id", afterId);
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            SortDirection.bindPage(stmt, afterId, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consommateurs.add(extractConsommateurFromResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors de la récupération d'une page de consommateurs: " + e.getMessage(), e);
+        }
+        return consommateurs;
+    }
+
+    @Override
+    public long count() {
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM consommateur");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors du comptage des consommateurs: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public void update(Consommateur consommateur) {
         String sql = "UPDATE consommateur SET nom = ?, email = ?, telephone = ?, type = ?, description = ?, updated_at = ? WHERE id = ?";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            // Enable foreign keys
-            try (Statement pragmaStmt = conn.createStatement()) {
-                pragmaStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setString(1, consommateur.getNom());
             stmt.setString(2, consommateur.getEmail());
             stmt.setString(3, consommateur.getTelephone());
@@ -106,6 +122,8 @@ public class ConsommateurDAOImpl implements ConsommateurDAO {
             stmt.executeUpdate();
         } catch (SQLException e) {
             throw new RuntimeException("Erreur lors de la mise à jour du consommateur: " + e.getMessage(), e);
+        } finally {
+            ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.CONSOMMATEURS);
         }
     }
 
@@ -114,14 +132,12 @@ public class ConsommateurDAOImpl implements ConsommateurDAO {
         String sql = "DELETE FROM consommateur WHERE id = ?";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            // Enable foreign keys
-            try (Statement pragmaStmt = conn.createStatement()) {
-                pragmaStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setLong(1, id);
-            stmt.executeUpdate();
+            EntityCounters.getInstance().removed(EntityCounters.Entity.CONSOMMATEUR, stmt.executeUpdate());
         } catch (SQLException e) {
             throw new RuntimeException("Erreur lors de la suppression du consommateur: " + e.getMessage(), e);
+        } finally {
+            ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.CONSOMMATEURS);
         }
     }
 
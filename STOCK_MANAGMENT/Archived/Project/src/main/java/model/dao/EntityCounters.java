@@ -0,0 +1,159 @@
+package model.dao;
+
+import utils.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Row counts of the tables shown on the home screen, kept in memory.
+ * <p>
+ * All counts are read with a single statement the first time they are needed. After that the
+ * DAOs report each committed insert and delete, so reading the counts never touches the database.
+ * None of the counted tables loses rows through a cascade, so the DAO hooks see every change.
+ */
+public final class EntityCounters {
+
+    private static final Logger LOGGER = Logger.getLogger(EntityCounters.class.getName());
+
+    /** Reloads attempted when writes keep landing while the counts are being read. */
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    public enum Entity {
+        ARTICLE("article"),
+        COMMANDE_INTERNE("commande_interne"),
+        COMMANDE_EXTERNE("commande_externe"),
+        FOURNISSEUR("fournisseur"),
+        CONSOMMATEUR("consommateur"),
+        LOCAL("local");
+
+        private final String table;
+
+        Entity(String table) {
+            this.table = table;
+        }
+
+        public String getTable() {
+            return table;
+        }
+    }
+
+    private static final EntityCounters INSTANCE = new EntityCounters();
+
+    /** Null until loaded; guarded by {@code this}. */
+    private Map<Entity, Long> counts;
+    /** Number of hooks run since the last load started; guarded by {@code this}. */
+    private long writesSinceLoad;
+
+    private EntityCounters() {
+    }
+
+    public static EntityCounters getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized boolean isLoaded() {
+        return counts != null;
+    }
+
+    /**
+     * Current count of every entity, read from the database only on the first call.
+     * The returned map is a copy.
+     */
+    public Map<Entity, Long> getCounts() {
+        synchronized (this) {
+            if (counts != null) {
+                return new EnumMap<>(counts);
+            }
+        }
+        load();
+        synchronized (this) {
+            return new EnumMap<>(counts);
+        }
+    }
+
+    public long get(Entity entity) {
+        return getCounts().get(entity);
+    }
+
+    /**
+     * Reads every count again. A write reported while the statement runs may or may not be in
+     * its result, so the read is repeated until none was. A write that commits just before the
+     * statement but is reported after the load ends is still counted twice; that window is the
+     * few instructions between a DAO's commit and its call to this class.
+     */
+    public void load() {
+        for (int attempt = 1; ; attempt++) {
+            synchronized (this) {
+                writesSinceLoad = 0;
+            }
+            Map<Entity, Long> fresh = queryCounts();
+            synchronized (this) {
+                if (writesSinceLoad == 0 || attempt == MAX_LOAD_ATTEMPTS) {
+                    counts = fresh;
+                    LOGGER.fine(() -> "Compteurs chargés: " + fresh);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Called by the DAOs once an insert is committed.
+     */
+    public void added(Entity entity) {
+        adjust(entity, 1);
+    }
+
+    /**
+     * Called once a bulk insert is committed, with the number of rows it added.
+     */
+    public void added(Entity entity, int rows) {
+        if (rows > 0) {
+            adjust(entity, rows);
+        }
+    }
+
+    /**
+     * Called by the DAOs once a delete is committed, with the number of rows it removed.
+     */
+    public void removed(Entity entity, int rows) {
+        if (rows > 0) {
+            adjust(entity, -rows);
+        }
+    }
+
+    private synchronized void adjust(Entity entity, long delta) {
+        writesSinceLoad++;
+        if (counts != null) {
+            counts.merge(entity, delta, Long::sum);
+        }
+    }
+
+    private static Map<Entity, Long> queryCounts() {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (Entity entity : Entity.values()) {
+            if (entity.ordinal() > 0) {
+                sql.append(", ");
+            }
+            sql.append("(SELECT COUNT(*) FROM ").append(entity.table).append(')');
+        }
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString());
+             ResultSet rs = stmt.executeQuery()) {
+            Map<Entity, Long> result = new EnumMap<>(Entity.class);
+            rs.next();
+            for (Entity entity : Entity.values()) {
+                result.put(entity, rs.getLong(entity.ordinal() + 1));
+            }
+            return result;
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors du comptage des entités: " + e.getMessage(), e);
+        }
+    }
+}
@@ -7,6 +7,8 @@ public interface FournisseurDAO {
     void create(Fournisseur fournisseur) throws Exception;
     Fournisseur findById(Long id) throws Exception;
     List<Fournisseur> findAll() throws Exception;
+    List<Fournisseur> findPage(Long afterId, int limit, SortDirection sort) throws Exception;
+    long count() throws Exception;
     void update(Fournisseur fournisseur) throws Exception;
     void delete(Long id) throws Exception;
 }
\ No newline at end of file
@@ -25,10 +25,6 @@ public class FournisseurDAOImpl implements FournisseurDAO {
     public void create(Fournisseur fournisseur) throws Exception {
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
-            // Enable foreign keys
-            try (Statement pragmaStmt = conn.createStatement()) {
-                pragmaStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setString(1, fournisseur.getNom());
             stmt.setString(2, fournisseur.getAdresse());
             stmt.setString(3, fournisseur.getTelephone());
@@ -40,6 +36,7 @@ public class FournisseurDAOImpl implements FournisseurDAO {
             stmt.setString(9, fournisseur.getUpdatedAt() != null ? fournisseur.getUpdatedAt().format(SQLITE_TIMESTAMP_FORMAT) : LocalDateTime.now().format(SQLITE_TIMESTAMP_FORMAT));
 
             stmt.executeUpdate();
+            EntityCounters.getInstance().added(EntityCounters.Entity.FOURNISSEUR);
 
             try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
@@ -48,17 +45,15 @@ public class FournisseurDAOImpl implements FournisseurDAO {
             }
         } catch (SQLException e) {
             throw new RuntimeException("Erreur lors de l'insertion du fournisseur: " + e.getMessage(), e);
+        } finally {
+            ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.FOURNISSEURS);
         }
     }
 
     @Override
     public Fournisseur findById(Long id) throws Exception {
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(SELECT_BY_ID)) {
-            // Enable foreign keys
-            try (Statement pragmaStmt = conn.createStatement()) {
-                pragmaStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setLong(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -74,13 +69,9 @@ public class FournisseurDAOImpl implements FournisseurDAO {
     @Override
     public List<Fournisseur> findAll() throws Exception {
         List<Fournisseur> fournisseurs = new ArrayList<>();
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(SELECT_ALL)) {
-            // Enable foreign keys
-            try (Statement pragmaStmt = conn.createStatement()) {
-                pragmaStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             while (rs.next()) {
                 fournisseurs.add(mapResultSetToFournisseur(rs));
             }
@@ -90,14 +81,38 @@ public class FournisseurDAOImpl implements FournisseurDAO {
         }
     }
 
+    @Override
+    public List<Fournisseur> findPage(Long afterId, int limit, SortDirection sort) throws Exception {
+        List<Fournisseur> fournisseurs = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sort.pageSql(SELECT_ALL, "id", afterId))) {
+            SortDirection.bindPage(stmt, afterId, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    fournisseurs.add(mapResultSetToFournisseur(rs));
+                }
+            }
+            return fournisseurs;
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors de la récupération d'une page de fournisseurs: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long count() throws Exception {
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM fournisseur");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors du comptage des fournisseurs: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public void update(Fournisseur fournisseur) throws Exception {
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(UPDATE_SQL)) {
-            // Enable foreign keys
-            try (Statement pragmaStmt = conn.createStatement()) {
-                pragmaStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setString(1, fournisseur.getNom());
             stmt.setString(2, fournisseur.getAdresse());
             stmt.setString(3, fournisseur.getTelephone());
@@ -111,6 +126,8 @@ public class FournisseurDAOImpl implements FournisseurDAO {
             stmt.executeUpdate();
         } catch (SQLException e) {
             throw new RuntimeException("Erreur lors de la mise à jour du fournisseur: " + e.getMessage(), e);
+        } finally {
+            ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.FOURNISSEURS);
         }
     }
 
@@ -118,14 +135,12 @@ public class FournisseurDAOImpl implements FournisseurDAO {
     public void delete(Long id) throws Exception {
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(DELETE_SQL)) {
-            // Enable foreign keys
-            try (Statement pragmaStmt = conn.createStatement()) {
-                pragmaStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setLong(1, id);
-            stmt.executeUpdate();
+            EntityCounters.getInstance().removed(EntityCounters.Entity.FOURNISSEUR, stmt.executeUpdate());
         } catch (SQLException e) {
             throw new RuntimeException("Erreur lors de la suppression du fournisseur: " + e.getMessage(), e);
+        } finally {
+            ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.FOURNISSEURS);
         }
     }
 
@@ -0,0 +1,170 @@
+package model.dao;
+
+import model.entities.Article;
+import model.entities.Consommateur;
+import model.entities.Fournisseur;
+import model.entities.Local;
+import model.entities.Magasinier;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Shares the id-and-name references that the order, stock and ledger DAOs attach to each row,
+ * so that one article, local, magasinier, consommateur or fournisseur is one object however many
+ * rows point to it.
+ * <p>
+ * Inside a unit of work, opened with {@link #open()}, every reference to an id resolves to the
+ * same instance. Units of work are per thread and reentrant: a DAO call made inside another
+ * one joins it, and the map is dropped when the outermost one closes.
+ * <p>
+ * A second-level cache, bounded to {@code stock.entityCache.size} references per entity type
+ * (0, the default, disables it), keeps references between units of work. It is emptied for a
+ * type whenever a DAO writes to its table, through the {@link ReferenceDataCache} invalidation
+ * listeners. A reference whose name no longer matches the row is replaced in both levels.
+ * <p>
+ * References are shared, so callers must not modify them.
+ */
+public final class IdentityMap implements AutoCloseable {
+
+    private static final int SECOND_LEVEL_SIZE = Integer.getInteger("stock.entityCache.size", 0);
+
+    private static final ThreadLocal<IdentityMap> CURRENT = new ThreadLocal<>();
+    private static final Map<Class<?>, Map<Long, Object>> SECOND_LEVEL = new ConcurrentHashMap<>();
+
+    static {
+        evictOnWrite(ReferenceDataCache.ARTICLES, Article.class);
+        evictOnWrite(ReferenceDataCache.LOCALS, Local.class);
+        evictOnWrite(ReferenceDataCache.MAGASINIERS, Magasinier.class);
+        evictOnWrite(ReferenceDataCache.CONSOMMATEURS, Consommateur.class);
+        evictOnWrite(ReferenceDataCache.FOURNISSEURS, Fournisseur.class);
+    }
+
+    private final Map<Class<?>, Map<Long, Object>> references = new HashMap<>();
+    private int depth = 1;
+
+    private IdentityMap() {
+    }
+
+    /**
+     * Opens a unit of work on the calling thread, or joins the one already open.
+     * Close it in a finally block around the reads that share it.
+     */
+    public static IdentityMap open() {
+        IdentityMap current = CURRENT.get();
+        if (current != null) {
+            current.depth++;
+            return current;
+        }
+        current = new IdentityMap();
+        CURRENT.set(current);
+        return current;
+    }
+
+    @Override
+    public void close() {
+        if (--depth == 0) {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Empties the second-level cache of every entity type.
+     */
+    public static void clearSecondLevel() {
+        SECOND_LEVEL.clear();
+    }
+
+    static Article article(Long id, String nom) {
+        return resolve(Article.class, id, nom, Article::getNom, (refId, refNom) -> {
+            Article article = new Article();
+            article.setId(refId);
+            article.setNom(refNom);
+            return article;
+        });
+    }
+
+    static Local local(Long id, String nom) {
+        return resolve(Local.class, id, nom, Local::getNom, (refId, refNom) -> {
+            Local local = new Local();
+            local.setId(refId);
+            local.setNom(refNom);
+            return local;
+        });
+    }
+
+    static Magasinier magasinier(Long id, String nom) {
+        return resolve(Magasinier.class, id, nom, Magasinier::getNom, (refId, refNom) -> {
+            Magasinier magasinier = new Magasinier();
+            magasinier.setId(refId);
+            magasinier.setNom(refNom);
+            return magasinier;
+        });
+    }
+
+    static Consommateur consommateur(Long id, String nom) {
+        return resolve(Consommateur.class, id, nom, Consommateur::getNom, (refId, refNom) -> {
+            Consommateur consommateur = new Consommateur();
+            consommateur.setId(refId);
+            consommateur.setNom(refNom);
+            return consommateur;
+        });
+    }
+
+    static Fournisseur fournisseur(Long id, String nom) {
+        return resolve(Fournisseur.class, id, nom, Fournisseur::getNom, (refId, refNom) -> {
+            Fournisseur fournisseur = new Fournisseur();
+            fournisseur.setId(refId);
+            fournisseur.setNom(refNom);
+            return fournisseur;
+        });
+    }
+
+    private static <T> T resolve(Class<T> type, Long id, String nom, Function<T, String> nomOf, BiFunction<Long, String, T> create) {
+        IdentityMap current = CURRENT.get();
+        Map<Long, Object> local = current == null ? null : current.references.computeIfAbsent(type, t -> new HashMap<>());
+        if (local != null) {
+            T reference = type.cast(local.get(id));
+            if (reference != null && Objects.equals(nomOf.apply(reference), nom)) {
+                return reference;
+            }
+        }
+
+        T reference = null;
+        Map<Long, Object> shared = SECOND_LEVEL_SIZE > 0 ? SECOND_LEVEL.computeIfAbsent(type, t -> newLruMap()) : null;
+        if (shared != null) {
+            synchronized (shared) {
+                reference = type.cast(shared.get(id));
+                if (reference == null || !Objects.equals(nomOf.apply(reference), nom)) {
+                    reference = create.apply(id, nom);
+                    shared.put(id, reference);
+                }
+            }
+        } else {
+            reference = create.apply(id, nom);
+        }
+
+        if (local != null) {
+            local.put(id, reference);
+        }
+        return reference;
+    }
+
+    private static Map<Long, Object> newLruMap() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Object> eldest) {
+                return size() > SECOND_LEVEL_SIZE;
+            }
+        };
+    }
+
+    private static void evictOnWrite(ReferenceDataCache.Table<?> table, Class<?> type) {
+        ReferenceDataCache.getInstance().addInvalidationListener(table, () -> SECOND_LEVEL.remove(type));
+    }
+}
@@ -0,0 +1,11 @@
+package model.dao;
+
+/**
+ * Receives the lines of a report query one at a time, while its cursor is open.
+ *
+ * @param <L> the line type
+ */
+@FunctionalInterface
+public interface LineHandler<L> {
+    void handle(L line) throws Exception;
+}
@@ -7,6 +7,8 @@ public interface LocalDAO {
     void insert(Local local);
     Local getById(Long id);
     List<Local> getAll();
+    List<Local> getPage(Long afterId, int limit, SortDirection sort);
+    long count();
     void update(Local local);
     void delete(Long id);
 }
\ No newline at end of file
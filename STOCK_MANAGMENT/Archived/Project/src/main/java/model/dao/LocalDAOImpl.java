@@ -8,11 +8,17 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Logger;
 
 public class LocalDAOImpl implements LocalDAO {
+
+    private static final Logger LOGGER = Logger.getLogger(LocalDAOImpl.class.getName());
     private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    private final MouvementStockDAO mouvementStockDAO;
+
     public LocalDAOImpl() {
+        this.mouvementStockDAO = new MouvementStockDAOImpl();
     }
 
     @Override
@@ -20,9 +26,6 @@ public class LocalDAOImpl implements LocalDAO {
         String sql = "INSERT INTO local (nom, emplacement, type, created_at, updated_at, consommateur_id) VALUES (?, ?, ?, ?, ?, ?)";
         try (Connection connection = DatabaseConnection.getConnection();
              PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            try (Statement pragmaStmt = connection.createStatement()) {
-                pragmaStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setString(1, local.getNom());
             stmt.setString(2, local.getEmplacement());
             stmt.setString(3, local.getType());
@@ -31,6 +34,7 @@ public class LocalDAOImpl implements LocalDAO {
             stmt.setObject(6, local.getConsommateur() != null ? local.getConsommateur().getId() : null, Types.INTEGER);
 
             stmt.executeUpdate();
+            EntityCounters.getInstance().added(EntityCounters.Entity.LOCAL);
 
             try (ResultSet rs = stmt.getGeneratedKeys()) {
                 if (rs.next()) {
@@ -39,17 +43,16 @@ public class LocalDAOImpl implements LocalDAO {
             }
         } catch (SQLException e) {
             throw new RuntimeException("Erreur lors de l'insertion du local: " + e.getMessage(), e);
+        } finally {
+            ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.LOCALS);
         }
     }
 
     @Override
     public Local getById(Long id) {
         String sql = "SELECT * FROM local WHERE id = ?";
-        try (Connection connection = DatabaseConnection.getConnection();
+        try (Connection connection = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = connection.prepareStatement(sql)) {
-            try (Statement pragmaStmt = connection.createStatement()) {
-                pragmaStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setLong(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -66,11 +69,8 @@ public class LocalDAOImpl implements LocalDAO {
     public List<Local> getAll() {
         List<Local> locals = new ArrayList<>();
         String sql = "SELECT * FROM local";
-        try (Connection connection = DatabaseConnection.getConnection();
+        try (Connection connection = DatabaseConnection.getReadConnection();
              Statement stmt = connection.createStatement()) {
-            try (Statement pragmaStmt = connection.createStatement()) {
-                pragmaStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             try (ResultSet rs = stmt.executeQuery(sql)) {
                 while (rs.next()) {
                     locals.add(extractLocalFromResultSet(rs));
@@ -82,14 +82,40 @@ public class LocalDAOImpl implements LocalDAO {
         return locals;
     }
 
+    @Override
+    public List<Local> getPage(Long afterId, int limit, SortDirection sort) {
+        List<Local> locals = new ArrayList<>();
+        String sql = sort.pageSql("SELECT * FROM local", "id", afterId);
+        try (Connection connection = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            SortDirection.bindPage(stmt, afterId, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    locals.add(extractLocalFromResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors de la récupération d'une page de locaux: " + e.getMessage(), e);
+        }
+        return locals;
+    }
+
+    @Override
+    public long count() {
+        try (Connection connection = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = connection.prepareStatement("SELECT COUNT(*) FROM local");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors du comptage des locaux: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public void update(Local local) {
         String sql = "UPDATE local SET nom = ?, emplacement = ?, type = ?, created_at = ?, updated_at = ?, consommateur_id = ? WHERE id = ?";
         try (Connection connection = DatabaseConnection.getConnection();
              PreparedStatement stmt = connection.prepareStatement(sql)) {
-            try (Statement pragmaStmt = connection.createStatement()) {
-                pragmaStmt.execute("PRAGMA foreign_keys = ON;");
-            }
             stmt.setString(1, local.getNom());
             stmt.setString(2, local.getEmplacement());
             stmt.setString(3, local.getType());
@@ -101,56 +127,80 @@ public class LocalDAOImpl implements LocalDAO {
             stmt.executeUpdate();
         } catch (SQLException e) {
             throw new RuntimeException("Erreur lors de la mise à jour du local: " + e.getMessage(), e);
+        } finally {
+            ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.LOCALS);
         }
     }
 
     @Override
     public void delete(Long id) {
         try (Connection connection = DatabaseConnection.getConnection()) {
-            try (Statement pragmaStmt = connection.createStatement()) {
-                pragmaStmt.execute("PRAGMA foreign_keys = ON;");
-            }
-            // Explicitly delete dependent records to avoid trigger issues
-            String deleteCommandeInterneLocalSql = "DELETE FROM commande_interne_local WHERE local_id = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(deleteCommandeInterneLocalSql)) {
-                stmt.setLong(1, id);
-                stmt.executeUpdate();
-            } catch (SQLException e) {
-                if (!e.getMessage().contains("no such table")) {
-                    throw e;
+            connection.setAutoCommit(false);
+            try {
+                // Orders booked to this local move to the next local of the order, or to "no local"
+                List<Long> commandesInternes = referencingCommandes("commande_interne", id, connection);
+                List<Long> commandesExternes = referencingCommandes("commande_externe", id, connection);
+
+                // Explicitly delete dependent records to avoid trigger issues
+                for (String deleteSql : new String[] {
+                        "DELETE FROM commande_interne_local WHERE local_id = ?",
+                        "DELETE FROM commande_externe_local WHERE local_id = ?",
+                        "DELETE FROM stock WHERE local_id = ?"}) {
+                    try (PreparedStatement stmt = connection.prepareStatement(deleteSql)) {
+                        stmt.setLong(1, id);
+                        stmt.executeUpdate();
+                    }
                 }
-            }
 
-            String deleteCommandeExterneLocalSql = "DELETE FROM commande_externe_local WHERE local_id = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(deleteCommandeExterneLocalSql)) {
-                stmt.setLong(1, id);
-                stmt.executeUpdate();
-            } catch (SQLException e) {
-                if (!e.getMessage().contains("no such table")) {
-                    throw e;
+                // Delete the local; the local_id of the order headers is set to NULL
+                String sql = "DELETE FROM local WHERE id = ?";
+                int deleted;
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    LOGGER.fine(() -> "Executing DELETE with id: " + id);
+                    stmt.setLong(1, id);
+                    deleted = stmt.executeUpdate();
                 }
-            }
 
-            String deleteStockSql = "DELETE FROM stock WHERE local_id = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(deleteStockSql)) {
-                stmt.setLong(1, id);
-                stmt.executeUpdate();
-            } catch (SQLException e) {
-                if (!e.getMessage().contains("no such table")) {
-                    throw e;
+                for (Long commandeInterneId : commandesInternes) {
+                    mouvementStockDAO.recordCommandeInterne(commandeInterneId, connection);
+                }
+                for (Long commandeExterneId : commandesExternes) {
+                    mouvementStockDAO.recordCommandeExterne(commandeExterneId, connection);
                 }
-            }
 
-            // Delete the local
-            String sql = "DELETE FROM local WHERE id = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                System.out.println("Executing DELETE with id: " + id);
-                stmt.setLong(1, id);
-                stmt.executeUpdate();
+                connection.commit();
+                EntityCounters.getInstance().removed(EntityCounters.Entity.LOCAL, deleted);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
             }
         } catch (SQLException e) {
             throw new RuntimeException("Erreur lors de la suppression du local: " + e.getMessage(), e);
+        } finally {
+            ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.LOCALS);
+        }
+    }
+
+    /**
+     * Ids of the orders from {@code source} ("commande_interne" or "commande_externe") that
+     * name the local, in their header or in their list of locals.
+     */
+    private static List<Long> referencingCommandes(String source, Long localId, Connection connection) throws SQLException {
+        String sql = "SELECT id FROM " + source + " WHERE local_id = ? " +
+                "UNION SELECT " + source + "_id FROM " + source + "_local WHERE local_id = ?";
+        List<Long> ids = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, localId);
+            stmt.setLong(2, localId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
         }
+        return ids;
     }
 
     private Local extractLocalFromResultSet(ResultSet rs) throws SQLException {
@@ -1,6 +1,8 @@
 package model.dao;
 
 import model.entities.Magasinier;
+
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface MagasinierDAO {
@@ -8,6 +10,9 @@ public interface MagasinierDAO {
     Magasinier getById(Long id);
     Magasinier getByNomUtilisateur(String nomUtilisateur);
     List<Magasinier> getAll();
+    List<Magasinier> getPage(Long afterId, int limit, SortDirection sort);
+    long count();
     void update(Magasinier magasinier);
+    void recordConnexion(Long id, LocalDateTime dernierConnexion, String newHashedPassword);
     void delete(Long id);
 }
\ No newline at end of file
@@ -8,20 +8,13 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Logger;
 
 public class MagasinierDAOImpl implements MagasinierDAO {
 
-    private final Connection connection;
-    private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Logger LOGGER = Logger.getLogger(MagasinierDAOImpl.class.getName());
 
-    public MagasinierDAOImpl() {
-        try {
-            this.connection = DatabaseConnection.getConnection();
-            System.out.println("Connected to database: " + connection.getMetaData().getURL());
-        } catch (SQLException e) {
-            throw new RuntimeException("Impossible d'obtenir la connexion à la base de données", e);
-        }
-    }
+    private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     @Override
     public void insert(Magasinier magasinier) {
@@ -29,7 +22,8 @@ public class MagasinierDAOImpl implements MagasinierDAO {
         String sql = "INSERT INTO magasinier (nom, nom_utilisateur, hashed_password, actif, dernier_connexion, created_at) " +
                 "VALUES (?, ?, ?, ?, ?, datetime('now'))";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, magasinier.getNom());
             stmt.setString(2, magasinier.getNomUtilisateur());
             stmt.setString(3, magasinier.getHashedPassword());
@@ -40,7 +34,7 @@ public class MagasinierDAOImpl implements MagasinierDAO {
                 stmt.setNull(5, Types.VARCHAR);
             }
 
-            System.out.println("Executing insert for magasinier: " + magasinier.getNomUtilisateur());
+            LOGGER.fine(() -> "Executing insert for magasinier: " + magasinier.getNomUtilisateur());
             stmt.executeUpdate();
 
             // Retrieve generated key
@@ -50,17 +44,20 @@ public class MagasinierDAOImpl implements MagasinierDAO {
             }
 
         } catch (SQLException e) {
-            System.err.println("SQLException during insert: " + e.getMessage());
-            System.err.println("SQLState: " + e.getSQLState());
-            System.err.println("ErrorCode: " + e.getErrorCode());
+            LOGGER.warning("SQLException during insert: " + e.getMessage());
+            LOGGER.warning("SQLState: " + e.getSQLState());
+            LOGGER.warning("ErrorCode: " + e.getErrorCode());
             throw new RuntimeException("Erreur lors de l'insertion du magasinier: " + e.getMessage(), e);
+        } finally {
+            ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.MAGASINIERS);
         }
     }
 
     @Override
     public Magasinier getById(Long id) {
         String sql = "SELECT * FROM magasinier WHERE id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection connection = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setLong(1, id);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
@@ -75,7 +72,8 @@ public class MagasinierDAOImpl implements MagasinierDAO {
     @Override
     public Magasinier getByNomUtilisateur(String nomUtilisateur) {
         String sql = "SELECT * FROM magasinier WHERE nom_utilisateur = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection connection = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, nomUtilisateur);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
@@ -104,7 +102,7 @@ public class MagasinierDAOImpl implements MagasinierDAO {
                 try {
                     magasinier.setDernierConnexion(LocalDateTime.parse(dernierConnexionStr.replace(" ", "T")));
                 } catch (Exception ex) {
-                    System.err.println("Failed to parse dernier_connexion: " + dernierConnexionStr);
+                    LOGGER.warning("Failed to parse dernier_connexion: " + dernierConnexionStr);
                     // Don't throw, just leave as null
                 }
             }
@@ -119,7 +117,7 @@ public class MagasinierDAOImpl implements MagasinierDAO {
                 try {
                     magasinier.setCreatedAt(LocalDateTime.parse(createdAtStr.replace(" ", "T")));
                 } catch (Exception ex) {
-                    System.err.println("Failed to parse created_at: " + createdAtStr);
+                    LOGGER.warning("Failed to parse created_at: " + createdAtStr);
                     // Use current time as fallback
                     magasinier.setCreatedAt(LocalDateTime.now());
                 }
@@ -137,7 +135,7 @@ public class MagasinierDAOImpl implements MagasinierDAO {
                     try {
                         magasinier.setUpdatedAt(LocalDateTime.parse(updatedAtStr.replace(" ", "T")));
                     } catch (Exception ex) {
-                        System.err.println("Failed to parse updated_at: " + updatedAtStr);
+                        LOGGER.warning("Failed to parse updated_at: " + updatedAtStr);
                         // Use current time as fallback
                         magasinier.setUpdatedAt(LocalDateTime.now());
                     }
@@ -148,7 +146,7 @@ public class MagasinierDAOImpl implements MagasinierDAO {
             }
         } catch (SQLException e) {
             // Column doesn't exist, use createdAt
-            System.err.println("updated_at column not found, using current time");
+            LOGGER.warning("updated_at column not found, using current time");
             magasinier.setUpdatedAt(LocalDateTime.now());
         }
 
@@ -159,7 +157,8 @@ public class MagasinierDAOImpl implements MagasinierDAO {
     public List<Magasinier> getAll() {
         List<Magasinier> magasiniers = new ArrayList<>();
         String sql = "SELECT * FROM magasinier";
-        try (Statement stmt = connection.createStatement();
+        try (Connection connection = DatabaseConnection.getReadConnection();
+             Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
@@ -173,30 +172,42 @@ public class MagasinierDAOImpl implements MagasinierDAO {
     }
 
     @Override
-    public void update(Magasinier magasinier) {
-        // Modified query to handle updated_at column that might not exist
-        String sql;
-        try {
-            // First check if the updated_at column exists
-            DatabaseMetaData meta = connection.getMetaData();
-            ResultSet columns = meta.getColumns(null, null, "magasinier", "updated_at");
-            boolean updatedAtExists = columns.next();
-            columns.close();
-
-            if (updatedAtExists) {
-                sql = "UPDATE magasinier SET nom = ?, nom_utilisateur = ?, hashed_password = ?, actif = ?, " +
-                        "dernier_connexion = ?, updated_at = datetime('now') WHERE id = ?";
-            } else {
-                sql = "UPDATE magasinier SET nom = ?, nom_utilisateur = ?, hashed_password = ?, actif = ?, " +
-                        "dernier_connexion = ? WHERE id = ?";
+    public List<Magasinier> getPage(Long afterId, int limit, SortDirection sort) {
+        List<Magasinier> magasiniers = new ArrayList<>();
+        String sql = sort.pageSql("SELECT * FROM magasinier", "id", afterId);
+        try (Connection connection = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            SortDirection.bindPage(stmt, afterId, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    magasiniers.add(extractMagasinierFromResultSet(rs));
+                }
             }
         } catch (SQLException e) {
-            // Fall back to safer SQL without updated_at
-            sql = "UPDATE magasinier SET nom = ?, nom_utilisateur = ?, hashed_password = ?, actif = ?, " +
-                    "dernier_connexion = ? WHERE id = ?";
+            throw new RuntimeException("Erreur lors de la récupération d'une page de magasiniers: " + e.getMessage(), e);
         }
+        return magasiniers;
+    }
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+    @Override
+    public long count() {
+        try (Connection connection = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = connection.prepareStatement("SELECT COUNT(*) FROM magasinier");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors du comptage des magasiniers: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void update(Magasinier magasinier) {
+        // The migrations guarantee updated_at (SchemaMigrator.VERSION_MAGASINIER_UPDATED_AT)
+        String sql = "UPDATE magasinier SET nom = ?, nom_utilisateur = ?, hashed_password = ?, actif = ?, " +
+                "dernier_connexion = ?, updated_at = datetime('now') WHERE id = ?";
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, magasinier.getNom());
             stmt.setString(2, magasinier.getNomUtilisateur());
             stmt.setString(3, magasinier.getHashedPassword());
@@ -211,10 +222,33 @@ public class MagasinierDAOImpl implements MagasinierDAO {
             stmt.executeUpdate();
 
         } catch (SQLException e) {
-            System.err.println("SQLException during update: " + e.getMessage());
-            System.err.println("SQLState: " + e.getSQLState());
-            System.err.println("ErrorCode: " + e.getErrorCode());
+            LOGGER.warning("SQLException during update: " + e.getMessage());
+            LOGGER.warning("SQLState: " + e.getSQLState());
+            LOGGER.warning("ErrorCode: " + e.getErrorCode());
             throw new RuntimeException("Erreur lors de la mise à jour du magasinier: " + e.getMessage(), e);
+        } finally {
+            ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.MAGASINIERS);
+        }
+    }
+
+    /**
+     * Stores the last login time and, if {@code newHashedPassword} is not null, replaces the
+     * stored password hash, without rewriting the rest of the row.
+     */
+    @Override
+    public void recordConnexion(Long id, LocalDateTime dernierConnexion, String newHashedPassword) {
+        String sql = "UPDATE magasinier SET dernier_connexion = ?, hashed_password = COALESCE(?, hashed_password), " +
+                "updated_at = datetime('now') WHERE id = ?";
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, dernierConnexion.format(SQLITE_DATETIME_FORMATTER));
+            stmt.setString(2, newHashedPassword);
+            stmt.setLong(3, id);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors de l'enregistrement de la connexion du magasinier: " + e.getMessage(), e);
+        } finally {
+            ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.MAGASINIERS);
         }
     }
 
@@ -222,16 +256,19 @@ public class MagasinierDAOImpl implements MagasinierDAO {
     public void delete(Long id) {
         // Simple delete query that only relies on ID column
         String sql = "DELETE FROM magasinier WHERE id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setLong(1, id);
-            System.out.println("Executing delete for magasinier with ID: " + id);
+            LOGGER.fine(() -> "Executing delete for magasinier with ID: " + id);
             int rowsAffected = stmt.executeUpdate();
-            System.out.println("Delete operation affected " + rowsAffected + " rows");
+            LOGGER.fine(() -> "Delete operation affected " + rowsAffected + " rows");
         } catch (SQLException e) {
-            System.err.println("SQLException during delete: " + e.getMessage());
-            System.err.println("SQLState: " + e.getSQLState());
-            System.err.println("ErrorCode: " + e.getErrorCode());
+            LOGGER.warning("SQLException during delete: " + e.getMessage());
+            LOGGER.warning("SQLState: " + e.getSQLState());
+            LOGGER.warning("ErrorCode: " + e.getErrorCode());
             throw new RuntimeException("Erreur lors de la suppression du magasinier: " + e.getMessage(), e);
+        } finally {
+            ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.MAGASINIERS);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package model.dao;
+
+import model.entities.Stock;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Append-only ledger of stock movements and the per-(article, local) balances it maintains.
+ * <p>
+ * The order DAOs call the {@code record} methods inside their own transaction after writing
+ * an order. The ledger compares what it already posted for that order with the order's
+ * current lines and appends only the difference, updating the matching balance rows.
+ */
+public interface MouvementStockDAO {
+    void recordCommandeExterne(Long commandeExterneId, Connection connection) throws SQLException;
+    void recordCommandeInterne(Long commandeInterneId, Connection connection) throws SQLException;
+
+    /**
+     * Drops the movements and balances of a deleted article, inside the caller's transaction,
+     * so that an article later given the same id starts from zero.
+     */
+    void purgeArticle(Long articleId, Connection connection) throws SQLException;
+
+    /**
+     * Returns the current balance rows. The local is null for stock booked by orders without a local.
+     */
+    List<Stock> getSoldes();
+}
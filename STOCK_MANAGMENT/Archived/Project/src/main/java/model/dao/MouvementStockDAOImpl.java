@@ -0,0 +1,170 @@
+package model.dao;
+
+import model.entities.Stock;
+import utils.DatabaseConnection;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Ledger of stock movements. Incoming (external) orders post positive quantities and outgoing
+ * (internal) orders negative ones. An order line is booked to the first local of its order,
+ * or to the order's header local; {@code local_id = 0} stands for "no local".
+ * The tables are created, and existing orders posted, by migration V4.
+ */
+public class MouvementStockDAOImpl implements MouvementStockDAO {
+    private static final Logger LOGGER = Logger.getLogger(MouvementStockDAOImpl.class.getName());
+    private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String COMMANDE_EXTERNE = "commande_externe";
+    private static final String COMMANDE_INTERNE = "commande_interne";
+
+    private static final String POSTED_SQL = "SELECT article_id, local_id, SUM(quantite) AS quantite " +
+            "FROM mouvement_stock WHERE source = ? AND source_id = ? GROUP BY article_id, local_id";
+    private static final String INSERT_MOUVEMENT_SQL = "INSERT INTO mouvement_stock " +
+            "(article_id, local_id, quantite, source, source_id, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPSERT_SOLDE_SQL = "INSERT INTO stock_solde (article_id, local_id, quantite, updated_at) " +
+            "VALUES (?, ?, ?, ?) ON CONFLICT (article_id, local_id) " +
+            "DO UPDATE SET quantite = quantite + excluded.quantite, updated_at = excluded.updated_at";
+    private static final String SELECT_SOLDES_SQL = "SELECT s.article_id, s.local_id, s.quantite, s.updated_at, " +
+            "a.nom AS article_nom, l.nom AS local_nom " +
+            "FROM stock_solde s " +
+            "JOIN article a ON s.article_id = a.id " +
+            "LEFT JOIN local l ON s.local_id = l.id " +
+            "ORDER BY s.article_id, s.local_id";
+
+    @Override
+    public void recordCommandeExterne(Long commandeExterneId, Connection connection) throws SQLException {
+        record(COMMANDE_EXTERNE, 1, commandeExterneId, connection);
+    }
+
+    @Override
+    public void recordCommandeInterne(Long commandeInterneId, Connection connection) throws SQLException {
+        record(COMMANDE_INTERNE, -1, commandeInterneId, connection);
+    }
+
+    @Override
+    public void purgeArticle(Long articleId, Connection connection) throws SQLException {
+        for (String sql : new String[] {
+                "DELETE FROM mouvement_stock WHERE article_id = ?",
+                "DELETE FROM stock_solde WHERE article_id = ?"}) {
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setLong(1, articleId);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    @Override
+    public List<Stock> getSoldes() {
+        List<Stock> soldes = new ArrayList<>();
+        IdentityMap unitOfWork = IdentityMap.open();
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(SELECT_SOLDES_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                soldes.add(extractSoldeFromResultSet(rs));
+            }
+        } catch (SQLException e) {
+            LOGGER.severe("Erreur lors de la récupération des soldes de stock: " + e.getMessage());
+            throw new RuntimeException("Erreur lors de la récupération des soldes de stock", e);
+        } finally {
+            unitOfWork.close();
+        }
+        return soldes;
+    }
+
+    /**
+     * Posts the difference between what the order contributes now and what the ledger holds for it.
+     * A deleted order contributes nothing, so its movements are reversed.
+     */
+    private void record(String source, int sign, Long sourceId, Connection connection) throws SQLException {
+        Map<List<Long>, Integer> deltas = new LinkedHashMap<>();
+        String currentSql = contributionSql(source) + " WHERE c.id = ? GROUP BY line.article_id, solde_local_id";
+        try (PreparedStatement stmt = connection.prepareStatement(currentSql)) {
+            stmt.setLong(1, sourceId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    deltas.merge(List.of(rs.getLong("article_id"), rs.getLong("solde_local_id")),
+                            sign * rs.getInt("quantite"), Integer::sum);
+                }
+            }
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(POSTED_SQL)) {
+            stmt.setString(1, source);
+            stmt.setLong(2, sourceId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    deltas.merge(List.of(rs.getLong("article_id"), rs.getLong("local_id")),
+                            -rs.getInt("quantite"), Integer::sum);
+                }
+            }
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        String now = LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER);
+        try (PreparedStatement mouvementStmt = connection.prepareStatement(INSERT_MOUVEMENT_SQL);
+             PreparedStatement soldeStmt = connection.prepareStatement(UPSERT_SOLDE_SQL)) {
+            for (Map.Entry<List<Long>, Integer> delta : deltas.entrySet()) {
+                long articleId = delta.getKey().get(0);
+                long localId = delta.getKey().get(1);
+
+                mouvementStmt.setLong(1, articleId);
+                mouvementStmt.setLong(2, localId);
+                mouvementStmt.setInt(3, delta.getValue());
+                mouvementStmt.setString(4, source);
+                mouvementStmt.setLong(5, sourceId);
+                mouvementStmt.setString(6, now);
+                mouvementStmt.addBatch();
+
+                soldeStmt.setLong(1, articleId);
+                soldeStmt.setLong(2, localId);
+                soldeStmt.setInt(3, delta.getValue());
+                soldeStmt.setString(4, now);
+                soldeStmt.addBatch();
+            }
+            BatchSupport.executeBatch(mouvementStmt, deltas.size());
+            BatchSupport.executeBatch(soldeStmt, deltas.size());
+        }
+    }
+
+    /**
+     * Quantity per (article, local) of the lines of orders from {@code source}; the caller appends
+     * the WHERE and GROUP BY clauses.
+     */
+    private static String contributionSql(String source) {
+        return "SELECT c.id AS source_id, line.article_id, " +
+                "COALESCE((SELECT cl.local_id FROM " + source + "_local cl WHERE cl." + source + "_id = c.id ORDER BY cl.id LIMIT 1), " +
+                "c.local_id, 0) AS solde_local_id, " +
+                "SUM(line.quantite) AS quantite " +
+                "FROM " + source + " c " +
+                "JOIN " + source + "_article line ON line." + source + "_id = c.id";
+    }
+
+    private Stock extractSoldeFromResultSet(ResultSet rs) throws SQLException {
+        Stock stock = new Stock();
+
+        stock.setArticle(IdentityMap.article(rs.getLong("article_id"), rs.getString("article_nom")));
+
+        long localId = rs.getLong("local_id");
+        if (localId != 0) {
+            stock.setLocal(IdentityMap.local(localId, rs.getString("local_nom")));
+        }
+
+        stock.setQuantite(rs.getInt("quantite"));
+        String updatedAt = rs.getString("updated_at");
+        if (updatedAt != null) {
+            stock.setUpdatedAt(LocalDateTime.parse(updatedAt, SQLITE_DATETIME_FORMATTER));
+        }
+        return stock;
+    }
+}
@@ -0,0 +1,468 @@
+package model.dao;
+
+import model.entities.Article;
+import model.entities.Consommateur;
+import model.entities.Fournisseur;
+import model.entities.Local;
+import model.entities.Magasinier;
+import utils.PrefixIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Process-wide cache of the catalog tables that the screens offer in their filters and forms.
+ * <p>
+ * A table is read in full the first time it is asked for, indexed by id, by name and by name
+ * prefix (articles also by reference prefix), and kept until a DAO writes to it. The DAOs invalidate after the write has been committed (or has
+ * failed), so a reader never caches rows older than the last write it could see. A DAO that
+ * writes one row may instead {@link #put} or {@link #remove} it, which updates a table in memory
+ * without reading it again. Locals are linked to the cached consommateurs, so a change to the
+ * consommateurs drops the locals too.
+ * <p>
+ * Cached entities are shared between screens; a screen that edits one in place must save it
+ * through its DAO, which invalidates the table.
+ */
+public final class ReferenceDataCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ReferenceDataCache.class.getName());
+
+    @FunctionalInterface
+    private interface Loader<T> {
+        List<T> load() throws Exception;
+    }
+
+    /**
+     * A cached table; also the key under which it is cached.
+     */
+    public static final class Table<T> {
+        private final String name;
+        private final Loader<T> loader;
+        private final Function<T, Long> idOf;
+        private final Function<T, String> nomOf;
+        private final Function<T, String> referenceOf;
+        private final Table<?> dependsOn;
+
+        private Table(String name, Loader<T> loader, Function<T, Long> idOf, Function<T, String> nomOf,
+                      Function<T, String> referenceOf, Table<?> dependsOn) {
+            this.name = name;
+            this.loader = loader;
+            this.idOf = idOf;
+            this.nomOf = nomOf;
+            this.referenceOf = referenceOf;
+            this.dependsOn = dependsOn;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    public static final Table<Magasinier> MAGASINIERS = new Table<>("magasinier",
+            () -> new MagasinierDAOImpl().getAll(), Magasinier::getId, Magasinier::getNom, null, null);
+    public static final Table<Fournisseur> FOURNISSEURS = new Table<>("fournisseur",
+            () -> new FournisseurDAOImpl().findAll(), Fournisseur::getId, Fournisseur::getNom, null, null);
+    public static final Table<Consommateur> CONSOMMATEURS = new Table<>("consommateur",
+            () -> new ConsommateurDAOImpl().getAll(), Consommateur::getId, Consommateur::getNom, null, null);
+    public static final Table<Local> LOCALS = new Table<>("local",
+            ReferenceDataCache::loadLocals, Local::getId, Local::getNom, null, CONSOMMATEURS);
+    public static final Table<Article> ARTICLES = new Table<>("article",
+            () -> new ArticleDAOImpl().getAll(), Article::getId, Article::getNom, Article::getReference, null);
+
+    private static final List<Table<?>> TABLES = List.of(MAGASINIERS, FOURNISSEURS, CONSOMMATEURS, LOCALS, ARTICLES);
+
+    private static final ReferenceDataCache INSTANCE = new ReferenceDataCache();
+
+    /**
+     * Hit, miss and invalidation counts of one table or of the whole cache.
+     */
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long invalidations;
+
+        private Stats(long hits, long misses, long invalidations) {
+            this.hits = hits;
+            this.misses = misses;
+            this.invalidations = invalidations;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getInvalidations() {
+            return invalidations;
+        }
+
+        public double getHitRatio() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, misses=%d, invalidations=%d, ratio=%.2f", hits, misses, invalidations, getHitRatio());
+        }
+    }
+
+    private static final class Entry<T> {
+        private final List<T> rows;
+        private final Map<Long, T> byId;
+        private final Map<String, T> byNom;
+        private final PrefixIndex<T> byNomPrefix;
+        private final PrefixIndex<T> byReferencePrefix;
+
+        private Entry(List<T> rows, Map<Long, T> byId, Map<String, T> byNom,
+                      PrefixIndex<T> byNomPrefix, PrefixIndex<T> byReferencePrefix) {
+            this.rows = rows;
+            this.byId = byId;
+            this.byNom = byNom;
+            this.byNomPrefix = byNomPrefix;
+            this.byReferencePrefix = byReferencePrefix;
+        }
+
+        private PrefixIndex<T> byNomPrefix() {
+            return byNomPrefix;
+        }
+
+        private PrefixIndex<T> byReferencePrefix() {
+            return byReferencePrefix;
+        }
+
+        /** A copy with {@code row} in place of the row with this id; a null row removes it. */
+        private Entry<T> with(Table<T> table, Long id, T row) {
+            T old = byId.get(id);
+            List<T> newRows = new ArrayList<>(rows);
+            // Rows are in id order
+            int low = 0;
+            int high = newRows.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (table.idOf.apply(newRows.get(mid)) < id) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (old != null) {
+                newRows.remove(low);
+            }
+            if (row != null) {
+                newRows.add(low, row);
+            }
+            return build(table, newRows, byNomPrefix.replace(old, row),
+                    byReferencePrefix == null ? null : byReferencePrefix.replace(old, row));
+        }
+    }
+
+    /** The ids a prefix matched in one entry of the cache. */
+    private static final class Matches<T> {
+        private final Entry<T> entry;
+        private final Set<Long> ids;
+
+        private Matches(Entry<T> entry, Set<Long> ids) {
+            this.entry = entry;
+            this.ids = ids;
+        }
+    }
+
+    /** Loading and invalidating a table synchronize on its slot; hits only read the volatile entry. */
+    private static final class Slot {
+        private volatile Entry<?> entry;
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong invalidations = new AtomicLong();
+        private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    }
+
+    private final Map<Table<?>, Slot> slots = new ConcurrentHashMap<>();
+
+    private ReferenceDataCache() {
+        for (Table<?> table : TABLES) {
+            slots.put(table, new Slot());
+        }
+    }
+
+    public static ReferenceDataCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Every row of the table, in id order. The list is read-only.
+     */
+    public <T> List<T> getAll(Table<T> table) {
+        return entry(table).rows;
+    }
+
+    /**
+     * The row with this id, or null.
+     */
+    public <T> T getById(Table<T> table, Long id) {
+        return id == null ? null : entry(table).byId.get(id);
+    }
+
+    /**
+     * The first row (lowest id) with exactly this name, or null.
+     */
+    public <T> T getByNom(Table<T> table, String nom) {
+        return nom == null ? null : entry(table).byNom.get(nom);
+    }
+
+    /**
+     * The rows whose name starts with {@code prefix}, ignoring case and accents, ordered by name.
+     * The list is read-only.
+     */
+    public <T> List<T> findByNomPrefix(Table<T> table, String prefix) {
+        return entry(table).byNomPrefix.search(prefix);
+    }
+
+    /**
+     * The rows whose reference starts with {@code prefix}, ignoring case and accents. Only
+     * articles have a reference; the other tables return an empty list.
+     */
+    public <T> List<T> findByReferencePrefix(Table<T> table, String prefix) {
+        PrefixIndex<T> index = entry(table).byReferencePrefix;
+        return index == null ? List.of() : index.search(prefix);
+    }
+
+    /**
+     * A test for "the row's name starts with {@code prefix}", ignoring case and accents, that
+     * does not touch the database. A row that the table in memory holds with the same name is
+     * looked up in its prefix index, as the table is at the time of the test; any other row, or
+     * every row while the table is not in memory, has its name normalized as it is tested. The
+     * rows tested need not be the cached instances, and the test stays right across writes.
+     */
+    public <T> Predicate<T> nomStartsWith(Table<T> table, String prefix) {
+        return startsWith(table, prefix, table.nomOf, Entry::byNomPrefix);
+    }
+
+    /**
+     * As {@link #nomStartsWith}, on the reference. Only articles have one.
+     */
+    public <T> Predicate<T> referenceStartsWith(Table<T> table, String prefix) {
+        return startsWith(table, prefix, table.referenceOf, Entry::byReferencePrefix);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Predicate<T> startsWith(Table<T> table, String prefix, Function<T, String> keyOf,
+                                        Function<Entry<T>, PrefixIndex<T>> indexOf) {
+        if (keyOf == null) {
+            return row -> false;
+        }
+        String normalized = PrefixIndex.normalize(prefix);
+        Slot slot = slots.get(table);
+        AtomicReference<Matches<T>> last = new AtomicReference<>();
+        return row -> {
+            String key = keyOf.apply(row);
+            if (key == null) {
+                return false;
+            }
+            Entry<T> entry = (Entry<T>) slot.entry;
+            Long id = table.idOf.apply(row);
+            T cached = entry == null || id == null ? null : entry.byId.get(id);
+            if (cached == null || !key.equals(keyOf.apply(cached))) {
+                // Not in memory, or changed since it was read
+                return PrefixIndex.normalize(key).startsWith(normalized);
+            }
+            Matches<T> matches = last.get();
+            if (matches == null || matches.entry != entry) {
+                Set<Long> ids = new HashSet<>();
+                for (T match : indexOf.apply(entry).search(normalized)) {
+                    ids.add(table.idOf.apply(match));
+                }
+                matches = new Matches<>(entry, ids);
+                last.set(matches);
+            }
+            return matches.ids.contains(id);
+        };
+    }
+
+    /**
+     * Whether the table is in memory, so that reading it will not touch the database.
+     */
+    public boolean isLoaded(Table<?> table) {
+        return slots.get(table).entry != null;
+    }
+
+    /**
+     * Drops the table, and the tables that depend on it, so that the next read reloads them.
+     * Waits for a load of the table that is in progress.
+     */
+    public void invalidate(Table<?> table) {
+        Slot slot = slots.get(table);
+        synchronized (slot) {
+            if (slot.entry != null) {
+                slot.entry = null;
+                slot.invalidations.incrementAndGet();
+                LOGGER.fine(() -> "Cache de référence invalidé: " + table);
+            }
+        }
+        for (Runnable listener : slot.listeners) {
+            listener.run();
+        }
+        for (Table<?> dependent : TABLES) {
+            if (dependent.dependsOn == table) {
+                invalidate(dependent);
+            }
+        }
+    }
+
+    /**
+     * Stores {@code row}, as just committed, in place of the row with the same id, or adds it.
+     * A table in memory is updated without being read again; a table others depend on is
+     * invalidated instead. The listeners run as for an invalidation.
+     */
+    public <T> void put(Table<T> table, T row) {
+        patch(table, table.idOf.apply(row), row);
+    }
+
+    /**
+     * Drops the row with this id, once its delete is committed; see {@link #put}.
+     */
+    public <T> void remove(Table<T> table, Long id) {
+        patch(table, id, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void patch(Table<T> table, Long id, T row) {
+        for (Table<?> dependent : TABLES) {
+            if (dependent.dependsOn == table) {
+                invalidate(table);
+                return;
+            }
+        }
+        Slot slot = slots.get(table);
+        synchronized (slot) {
+            Entry<T> entry = (Entry<T>) slot.entry;
+            if (entry != null) {
+                slot.entry = entry.with(table, id, row);
+                LOGGER.fine(() -> "Cache de référence mis à jour: " + table + " #" + id);
+            }
+        }
+        for (Runnable listener : slot.listeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Runs {@code listener} after every invalidation or update of the table, that is after every
+     * DAO write to it, on the writing thread. Listeners should only schedule work.
+     */
+    public void addInvalidationListener(Table<?> table, Runnable listener) {
+        slots.get(table).listeners.add(listener);
+    }
+
+    public void invalidateAll() {
+        for (Table<?> table : TABLES) {
+            invalidate(table);
+        }
+    }
+
+    public Stats getStats(Table<?> table) {
+        Slot slot = slots.get(table);
+        return new Stats(slot.hits.get(), slot.misses.get(), slot.invalidations.get());
+    }
+
+    public Stats getStats() {
+        long hits = 0;
+        long misses = 0;
+        long invalidations = 0;
+        for (Slot slot : slots.values()) {
+            hits += slot.hits.get();
+            misses += slot.misses.get();
+            invalidations += slot.invalidations.get();
+        }
+        return new Stats(hits, misses, invalidations);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Entry<T> entry(Table<T> table) {
+        Slot slot = slots.get(table);
+        Entry<T> entry = (Entry<T>) slot.entry;
+        if (entry != null) {
+            slot.hits.incrementAndGet();
+            return entry;
+        }
+        synchronized (slot) {
+            entry = (Entry<T>) slot.entry;
+            if (entry != null) {
+                slot.hits.incrementAndGet();
+                return entry;
+            }
+            slot.misses.incrementAndGet();
+            entry = load(table);
+            slot.entry = entry;
+            int rows = entry.rows.size();
+            LOGGER.fine(() -> "Cache de référence chargé: " + table + " (" + rows + " lignes)");
+            return entry;
+        }
+    }
+
+    private static <T> Entry<T> load(Table<T> table) {
+        List<T> rows;
+        try {
+            rows = new ArrayList<>(table.loader.load());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Erreur lors du chargement de la table " + table + ": " + e.getMessage(), e);
+        }
+        rows.sort((a, b) -> Long.compare(table.idOf.apply(a), table.idOf.apply(b)));
+        return build(table, rows, new PrefixIndex<>(rows, table.nomOf),
+                table.referenceOf == null ? null : new PrefixIndex<>(rows, table.referenceOf));
+    }
+
+    private static <T> Entry<T> build(Table<T> table, List<T> rows, PrefixIndex<T> byNomPrefix,
+                                      PrefixIndex<T> byReferencePrefix) {
+        Map<Long, T> byId = new LinkedHashMap<>();
+        Map<String, T> byNom = new LinkedHashMap<>();
+        for (T row : rows) {
+            byId.put(table.idOf.apply(row), row);
+            String nom = table.nomOf.apply(row);
+            if (nom != null) {
+                byNom.putIfAbsent(nom, row);
+            }
+        }
+        return new Entry<>(Collections.unmodifiableList(rows),
+                Collections.unmodifiableMap(byId), Collections.unmodifiableMap(byNom),
+                byNomPrefix, byReferencePrefix);
+    }
+
+    /**
+     * Locals as stored, with their consommateur replaced by the cached one so that it carries its name.
+     */
+    private static List<Local> loadLocals() {
+        List<Local> locals = new LocalDAOImpl().getAll();
+        for (Local local : locals) {
+            if (local.getConsommateur() != null) {
+                Consommateur consommateur = INSTANCE.getById(CONSOMMATEURS, local.getConsommateur().getId());
+                if (consommateur != null) {
+                    local.setConsommateur(consommateur);
+                }
+            }
+        }
+        return locals;
+    }
+}
@@ -0,0 +1,39 @@
+package model.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Order of a keyset page. Pages are always sorted by primary key, so the last ID of
+ * one page is the {@code afterId} of the next and no OFFSET scan is ever needed.
+ */
+public enum SortDirection {
+    ASC(">"),
+    DESC("<");
+
+    private final String comparator;
+
+    SortDirection(String comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * Appends the keyset condition, ordering and limit to a SELECT that has no WHERE clause.
+     */
+    String pageSql(String selectSql, String idColumn, Long afterId) {
+        return selectSql
+                + (afterId != null ? " WHERE " + idColumn + " " + comparator + " ?" : "")
+                + " ORDER BY " + idColumn + " " + name() + " LIMIT ?";
+    }
+
+    static void bindPage(PreparedStatement stmt, Long afterId, int limit) throws SQLException {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("La taille de page doit être positive: " + limit);
+        }
+        int index = 1;
+        if (afterId != null) {
+            stmt.setLong(index++, afterId);
+        }
+        stmt.setInt(index, limit);
+    }
+}
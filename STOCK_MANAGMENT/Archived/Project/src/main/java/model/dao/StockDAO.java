@@ -7,6 +7,8 @@ public interface StockDAO {
     void insert(Stock stock);
     Stock getById(Long id);
     List<Stock> getAll();
+    List<Stock> getPage(Long afterId, int limit, SortDirection sort);
+    long count();
     void update(Stock stock);
     void delete(Long id);
 }
\ No newline at end of file
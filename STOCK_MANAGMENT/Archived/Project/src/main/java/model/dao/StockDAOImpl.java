@@ -1,8 +1,6 @@
 package model.dao;
 
 import model.entities.Stock;
-import model.entities.Article;
-import model.entities.Local;
 import utils.DatabaseConnection;
 import java.sql.*;
 import java.time.LocalDateTime;
@@ -14,6 +12,10 @@ import java.util.logging.Logger;
 public class StockDAOImpl implements StockDAO {
     private static final Logger LOGGER = Logger.getLogger(StockDAOImpl.class.getName());
     private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String SELECT_SQL = "SELECT s.id, s.quantite, s.created_at, s.updated_at, s.article_id, s.local_id, a.nom as article_nom, l.nom as local_nom " +
+            "FROM stock s " +
+            "JOIN article a ON s.article_id = a.id " +
+            "JOIN local l ON s.local_id = l.id";
 
     @Override
     public void insert(Stock stock) {
@@ -47,7 +49,7 @@ public class StockDAOImpl implements StockDAO {
                 "JOIN article a ON s.article_id = a.id " +
                 "JOIN local l ON s.local_id = l.id " +
                 "WHERE s.id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setLong(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
@@ -66,11 +68,9 @@ public class StockDAOImpl implements StockDAO {
     @Override
     public List<Stock> getAll() {
         List<Stock> stocks = new ArrayList<>();
-        String sql = "SELECT s.id, s.quantite, s.created_at, s.updated_at, s.article_id, s.local_id, a.nom as article_nom, l.nom as local_nom " +
-                "FROM stock s " +
-                "JOIN article a ON s.article_id = a.id " +
-                "JOIN local l ON s.local_id = l.id";
-        try (Connection conn = DatabaseConnection.getConnection();
+        String sql = SELECT_SQL;
+        IdentityMap unitOfWork = IdentityMap.open();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
@@ -80,10 +80,44 @@ public class StockDAOImpl implements StockDAO {
         } catch (SQLException e) {
             LOGGER.severe("Erreur lors de la récupération des stocks: " + e.getMessage());
             throw new RuntimeException("Erreur lors de la récupération des stocks", e);
+        } finally {
+            unitOfWork.close();
+        }
+        return stocks;
+    }
+
+    @Override
+    public List<Stock> getPage(Long afterId, int limit, SortDirection sort) {
+        List<Stock> stocks = new ArrayList<>();
+        String sql = sort.pageSql(SELECT_SQL, "s.id", afterId);
+        IdentityMap unitOfWork = IdentityMap.open();
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            SortDirection.bindPage(stmt, afterId, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    stocks.add(extractStockFromResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors de la récupération d'une page de stocks: " + e.getMessage(), e);
+        } finally {
+            unitOfWork.close();
         }
         return stocks;
     }
 
+    @Override
+    public long count() {
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM stock");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors du comptage des stocks: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public void update(Stock stock) {
         String sql = "UPDATE stock SET quantite = ?, created_at = ?, updated_at = ?, article_id = ?, local_id = ? WHERE id = ?";
@@ -144,19 +178,13 @@ public class StockDAOImpl implements StockDAO {
         Long articleId = rs.getLong("article_id");
         String articleNom = rs.getString("article_nom");
         if (!rs.wasNull() && articleNom != null) {
-            Article article = new Article();
-            article.setId(articleId);
-            article.setNom(articleNom);
-            stock.setArticle(article);
+            stock.setArticle(IdentityMap.article(articleId, articleNom));
         }
 
         Long localId = rs.getLong("local_id");
         String localNom = rs.getString("local_nom");
         if (!rs.wasNull() && localNom != null) {
-            Local local = new Local();
-            local.setId(localId);
-            local.setNom(localNom);
-            stock.setLocal(local);
+            stock.setLocal(IdentityMap.local(localId, localNom));
         }
 
         return stock;
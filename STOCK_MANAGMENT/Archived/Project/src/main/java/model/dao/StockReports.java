@@ -0,0 +1,212 @@
+package model.dao;
+
+import utils.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.logging.Logger;
+
+/**
+ * Reads the stock reports: the stock of each local and the articles about to expire.
+ * <p>
+ * As with {@link CommandeJournal}, lines come from a forward-only cursor and are handed over
+ * one at a time; the ordering is left to SQLite, so no report is ever held in memory.
+ */
+public final class StockReports {
+
+    private static final Logger LOGGER = Logger.getLogger(StockReports.class.getName());
+
+    private static final int FETCH_SIZE = 500;
+    private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String COUNT_SOLDES_SQL = "SELECT COUNT(*) FROM stock_solde s JOIN article a ON s.article_id = a.id";
+    private static final String SOLDES_PAR_LOCAL_SQL = "SELECT s.local_id, COALESCE(l.nom, 'Sans local') AS local_nom, " +
+            "a.reference, a.nom, a.categorie, s.quantite, a.stock_minimal " +
+            "FROM stock_solde s " +
+            "JOIN article a ON s.article_id = a.id " +
+            "LEFT JOIN local l ON s.local_id = l.id " +
+            "ORDER BY local_nom, s.local_id, a.nom";
+    private static final String COUNT_PEREMPTIONS_SQL = "SELECT COUNT(*) FROM article " +
+            "WHERE date_peremption IS NOT NULL AND date_peremption <= ?";
+    private static final String PEREMPTIONS_SQL = "SELECT a.reference, a.nom, a.categorie, a.date_peremption, " +
+            "COALESCE((SELECT SUM(s.quantite) FROM stock_solde s WHERE s.article_id = a.id), 0) AS quantite " +
+            "FROM article a " +
+            "WHERE a.date_peremption IS NOT NULL AND a.date_peremption <= ? " +
+            "ORDER BY a.date_peremption, a.nom";
+
+    /**
+     * The stock of one article in one local.
+     */
+    public static final class SoldeLigne {
+        private final long localId;
+        private final String local;
+        private final String reference;
+        private final String article;
+        private final String categorie;
+        private final int quantite;
+        private final int stockMinimal;
+
+        private SoldeLigne(long localId, String local, String reference, String article, String categorie,
+                           int quantite, int stockMinimal) {
+            this.localId = localId;
+            this.local = local;
+            this.reference = reference;
+            this.article = article;
+            this.categorie = categorie;
+            this.quantite = quantite;
+            this.stockMinimal = stockMinimal;
+        }
+
+        /** 0 for stock booked without a local. */
+        public long getLocalId() {
+            return localId;
+        }
+
+        /** The local's name, or "Sans local". */
+        public String getLocal() {
+            return local;
+        }
+
+        public String getReference() {
+            return reference;
+        }
+
+        public String getArticle() {
+            return article;
+        }
+
+        public String getCategorie() {
+            return categorie;
+        }
+
+        public int getQuantite() {
+            return quantite;
+        }
+
+        public int getStockMinimal() {
+            return stockMinimal;
+        }
+    }
+
+    /**
+     * An article expiring before the report's limit, with its stock over all locals.
+     */
+    public static final class PeremptionLigne {
+        private final String reference;
+        private final String nom;
+        private final String categorie;
+        private final String datePeremption;
+        private final int quantite;
+
+        private PeremptionLigne(String reference, String nom, String categorie, String datePeremption, int quantite) {
+            this.reference = reference;
+            this.nom = nom;
+            this.categorie = categorie;
+            this.datePeremption = datePeremption;
+            this.quantite = quantite;
+        }
+
+        public String getReference() {
+            return reference;
+        }
+
+        public String getNom() {
+            return nom;
+        }
+
+        public String getCategorie() {
+            return categorie;
+        }
+
+        /** The date as stored, "yyyy-MM-dd HH:mm:ss". */
+        public String getDatePeremption() {
+            return datePeremption;
+        }
+
+        public int getQuantite() {
+            return quantite;
+        }
+    }
+
+    /**
+     * The number of lines {@link #forEachSoldeParLocal} will produce; for progress.
+     */
+    public long countSoldes() {
+        return count(COUNT_SOLDES_SQL, null);
+    }
+
+    /**
+     * Hands the stock of every article, local by local, to {@code handler}; the lines of a local
+     * follow each other and are ordered by article name. Returns the number of lines.
+     */
+    public long forEachSoldeParLocal(LineHandler<SoldeLigne> handler) throws Exception {
+        return forEach(SOLDES_PAR_LOCAL_SQL, null, rs -> handler.handle(new SoldeLigne(
+                rs.getLong("local_id"),
+                rs.getString("local_nom"),
+                rs.getString("reference"),
+                rs.getString("nom"),
+                rs.getString("categorie"),
+                rs.getInt("quantite"),
+                rs.getInt("stock_minimal"))));
+    }
+
+    /**
+     * The number of lines {@link #forEachPeremption} will produce for {@code limit}; for progress.
+     */
+    public long countPeremptions(LocalDateTime limit) {
+        return count(COUNT_PEREMPTIONS_SQL, limit.format(SQLITE_DATETIME_FORMATTER));
+    }
+
+    /**
+     * Hands every article expiring by {@code limit}, soonest first, to {@code handler}.
+     * Returns the number of lines.
+     */
+    public long forEachPeremption(LocalDateTime limit, LineHandler<PeremptionLigne> handler) throws Exception {
+        return forEach(PEREMPTIONS_SQL, limit.format(SQLITE_DATETIME_FORMATTER), rs -> handler.handle(new PeremptionLigne(
+                rs.getString("reference"),
+                rs.getString("nom"),
+                rs.getString("categorie"),
+                rs.getString("date_peremption"),
+                rs.getInt("quantite"))));
+    }
+
+    private long count(String sql, String parameter) {
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            if (parameter != null) {
+                pstmt.setString(1, parameter);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors du comptage des lignes du rapport: " + e.getMessage(), e);
+        }
+    }
+
+    private long forEach(String sql, String parameter, LineHandler<ResultSet> handler) throws Exception {
+        long count = 0;
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(FETCH_SIZE);
+            if (parameter != null) {
+                pstmt.setString(1, parameter);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                    count++;
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors de la lecture du rapport: " + e.getMessage(), e);
+        }
+        long total = count;
+        LOGGER.fine(() -> "Lignes de rapport lues: " + total);
+        return count;
+    }
+}
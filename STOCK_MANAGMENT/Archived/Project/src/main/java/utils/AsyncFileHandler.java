@@ -0,0 +1,150 @@
+package utils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Appends log records to a file from a background thread.
+ * <p>
+ * {@link #publish} only queues the record, so the logging thread (often the JavaFX Application
+ * Thread) never waits for the disk. When the queue is full, records are dropped and counted
+ * rather than blocking the caller; the count is written once there is room again.
+ */
+public class AsyncFileHandler extends Handler {
+
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final LogRecord STOP = new LogRecord(Level.OFF, "");
+
+    private final BlockingQueue<LogRecord> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final Writer writer;
+    private final Thread worker;
+    private volatile boolean closed;
+
+    public AsyncFileHandler(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        setFormatter(new LineFormatter());
+        worker = new Thread(this::drain, "log-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        if (!queue.offer(record)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Waits briefly for the queued records to be written.
+     */
+    @Override
+    public void flush() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (!queue.isEmpty() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queue.put(STOP);
+            worker.join(TimeUnit.SECONDS.toMillis(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                LogRecord record = queue.take();
+                if (record == STOP) {
+                    break;
+                }
+                write(record);
+                if (queue.isEmpty()) {
+                    writer.flush();
+                }
+            }
+            writer.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            reportError("Écriture du journal impossible: " + e.getMessage(), e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    private void write(LogRecord record) throws IOException {
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            writer.write(getFormatter().format(new LogRecord(Level.WARNING,
+                    lost + " messages perdus, file du journal pleine")));
+        }
+        try {
+            writer.write(getFormatter().format(record));
+        } catch (RuntimeException e) {
+            reportError("Formatage du journal impossible: " + e.getMessage(), e, ErrorManager.FORMAT_FAILURE);
+        }
+    }
+
+    /**
+     * One line per record: time, level, logger and message, followed by the stack trace if any.
+     */
+    static final class LineFormatter extends Formatter {
+        private static final DateTimeFormatter TIME_FORMATTER =
+                DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+        @Override
+        public String format(LogRecord record) {
+            StringBuilder line = new StringBuilder(128)
+                    .append(TIME_FORMATTER.format(Instant.ofEpochMilli(record.getMillis())))
+                    .append(' ').append(record.getLevel().getName())
+                    .append(' ').append(record.getLoggerName())
+                    .append(" - ").append(formatMessage(record))
+                    .append(System.lineSeparator());
+            if (record.getThrown() != null) {
+                StringWriter trace = new StringWriter();
+                record.getThrown().printStackTrace(new PrintWriter(trace));
+                line.append(trace);
+            }
+            return line.toString();
+        }
+    }
+}
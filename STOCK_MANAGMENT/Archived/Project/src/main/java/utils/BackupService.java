@@ -0,0 +1,320 @@
+package utils;
+
+import model.dao.EntityCounters;
+import model.dao.ReferenceDataCache;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.core.Codes;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Takes snapshots of the live database while the application runs, and restores them.
+ * <p>
+ * A snapshot is copied with SQLite's online backup API from a dedicated read-only connection,
+ * {@code stock.backup.pagesPerStep} pages (256) at a time with a short pause between steps. In
+ * WAL mode that connection keeps one read transaction open across the steps: the copy is the
+ * state of the database when it started, writers are never blocked, and their commits cannot
+ * restart it. In rollback-journal mode a reader would block writers, so each step reads on its
+ * own and a writer only waits for the current step, at the cost of a restart after each
+ * write. The copy is checked with {@code PRAGMA quick_check} before it is published as
+ * {@code sauvegarde-yyyyMMdd-HHmmss-SSS.db} in {@code stock.backup.dir} ("sauvegardes"), where only
+ * the {@code stock.backup.keep} (7) most recent snapshots are kept.
+ * <p>
+ * Snapshots are taken every {@code stock.backup.intervalMinutes} minutes (60; 0 turns the
+ * schedule off) and on demand. All work runs on the service's own thread, one job at a time.
+ */
+public final class BackupService {
+
+    private static final Logger LOGGER = Logger.getLogger(BackupService.class.getName());
+
+    private static final Path DIRECTORY = Paths.get(System.getProperty("stock.backup.dir", "sauvegardes"));
+    private static final long INTERVAL_MINUTES = Long.getLong("stock.backup.intervalMinutes", 60);
+    private static final int KEEP = Math.max(1, Integer.getInteger("stock.backup.keep", 7));
+    private static final int PAGES_PER_STEP = Integer.getInteger("stock.backup.pagesPerStep", 256);
+    private static final long STEP_PAUSE_MS = Long.getLong("stock.backup.stepPauseMs", 5);
+    /** Retries of a step that finds the database locked, {@value #BUSY_RETRY_MS} ms apart. */
+    private static final int BUSY_RETRIES = 200;
+    private static final int BUSY_RETRY_MS = 50;
+    /**
+     * In rollback-journal mode a write restarts the copy; after this many restarts the steps no
+     * longer pause, so that the copy can complete between two writes.
+     */
+    private static final int MAX_PACED_RESTARTS = 3;
+
+    private static final String PREFIX = "sauvegarde-";
+    private static final String EXTENSION = ".db";
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private static BackupService instance;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "database-backup");
+        thread.setDaemon(true);
+        // Copying competes with the screens for the disk, never for the UI
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private BackupService() {
+        if (INTERVAL_MINUTES > 0) {
+            scheduler.scheduleWithFixedDelay(this::scheduledBackup, INTERVAL_MINUTES, INTERVAL_MINUTES, TimeUnit.MINUTES);
+        }
+    }
+
+    public static synchronized BackupService getInstance() {
+        if (instance == null) {
+            instance = new BackupService();
+        }
+        return instance;
+    }
+
+    public Path getDirectory() {
+        return DIRECTORY.toAbsolutePath();
+    }
+
+    /**
+     * Takes a snapshot now, after any job already running. Completes with its path.
+     */
+    public CompletableFuture<Path> backupNow(DoubleConsumer progress) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return backup(progress);
+            } catch (SQLException | IOException e) {
+                throw new IllegalStateException("Sauvegarde impossible: " + e.getMessage(), e);
+            }
+        }, scheduler);
+    }
+
+    /**
+     * Replaces the live database with {@code snapshot}, after any job already running.
+     * <p>
+     * The snapshot must pass {@code PRAGMA integrity_check} and must not come from a newer schema;
+     * the current state is saved first, so a restore can be undone. The copy goes through the
+     * writer connection in one transaction, the schema is then migrated to the current version
+     * and the result checked again. Completes with the path of the snapshot of the former state.
+     */
+    public CompletableFuture<Path> restoreNow(Path snapshot, DoubleConsumer progress) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return restore(snapshot, progress);
+            } catch (SQLException | IOException e) {
+                throw new IllegalStateException("Restauration impossible: " + e.getMessage(), e);
+            }
+        }, scheduler);
+    }
+
+    /**
+     * The published snapshots, most recent first.
+     */
+    public List<Path> listSnapshots() throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(DIRECTORY)) {
+            return snapshots;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(DIRECTORY, PREFIX + "*" + EXTENSION)) {
+            for (Path file : files) {
+                snapshots.add(file.toAbsolutePath());
+            }
+        }
+        // The timestamp in the name sorts in chronological order
+        snapshots.sort(Collections.reverseOrder());
+        return snapshots;
+    }
+
+    private void scheduledBackup() {
+        try {
+            backup(done -> { });
+        } catch (SQLException | IOException | RuntimeException e) {
+            // An exception would also cancel the schedule
+            LOGGER.severe("Échec de la sauvegarde planifiée: " + e.getMessage());
+        }
+    }
+
+    private Path backup(DoubleConsumer progress) throws SQLException, IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(DIRECTORY);
+        Path target = DIRECTORY.resolve(PREFIX + LocalDateTime.now().format(FILE_TIMESTAMP) + EXTENSION).toAbsolutePath();
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        Files.deleteIfExists(partial);
+        try {
+            int restarts;
+            try (SQLiteConnection source = DatabaseConnection.openUnpooledReadConnection()) {
+                boolean snapshot = DatabaseConnection.getStorageMode() == DatabaseConnection.StorageMode.WAL;
+                if (snapshot) {
+                    // The backup steps reuse an open read transaction instead of starting their own
+                    source.setAutoCommit(false);
+                    try (Statement stmt = source.createStatement();
+                         ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM sqlite_master")) {
+                        rs.next();
+                    }
+                }
+                try {
+                    restarts = copy(source, partial, progress);
+                } finally {
+                    if (snapshot) {
+                        source.rollback();
+                    }
+                }
+            }
+            int version = verify(partial, false);
+            publish(partial, target);
+            long ms = (System.nanoTime() - start) / 1_000_000;
+            LOGGER.info("Sauvegarde " + target + " (schéma v" + version + ", " + Files.size(target) / 1024 + " Ko) en "
+                    + ms + " ms" + (restarts > 0 ? ", " + restarts + " reprise(s)" : ""));
+        } finally {
+            Files.deleteIfExists(partial);
+            Files.deleteIfExists(partial.resolveSibling(partial.getFileName() + "-journal"));
+        }
+        rotate();
+        return target;
+    }
+
+    /**
+     * Copies the database of {@code source} to {@code destination} step by step. Returns the
+     * number of times SQLite restarted the copy because another connection wrote to the source.
+     */
+    private static int copy(SQLiteConnection source, Path destination, DoubleConsumer progress) throws SQLException {
+        int[] restarts = new int[1];
+        int[] lastRemaining = {Integer.MAX_VALUE};
+        int rc = source.getDatabase().backup("main", destination.toString(), (remaining, pageCount) -> {
+            if (remaining > lastRemaining[0]) {
+                restarts[0]++;
+            }
+            lastRemaining[0] = remaining;
+            if (pageCount > 0) {
+                progress.accept((double) (pageCount - remaining) / pageCount);
+            }
+            if (remaining > 0 && restarts[0] < MAX_PACED_RESTARTS) {
+                pause();
+            }
+        }, BUSY_RETRY_MS, BUSY_RETRIES, PAGES_PER_STEP);
+        if (rc != Codes.SQLITE_OK && rc != Codes.SQLITE_DONE) {
+            throw new SQLException("Copie interrompue (code SQLite " + rc + ")");
+        }
+        return restarts[0];
+    }
+
+    private static void pause() {
+        // Leaves the disk and the source database to the clerks between two steps
+        try {
+            Thread.sleep(STEP_PAUSE_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Path restore(Path snapshot, DoubleConsumer progress) throws SQLException, IOException {
+        int version = verify(snapshot, true);
+        if (version > SchemaMigrator.getLatestVersion()) {
+            throw new SQLException("La sauvegarde vient d'une version plus récente du schéma (v" + version
+                    + ", cette application gère jusqu'à v" + SchemaMigrator.getLatestVersion() + ")");
+        }
+        Path before = backup(done -> progress.accept(done / 2));
+
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            SQLiteConnection writer = connection.unwrap(SQLiteConnection.class);
+            int rc = writer.getDatabase().restore("main", snapshot.toAbsolutePath().toString(), (remaining, pageCount) -> {
+                if (pageCount > 0) {
+                    progress.accept(0.5 + (double) (pageCount - remaining) / pageCount / 2);
+                }
+            }, BUSY_RETRY_MS, BUSY_RETRIES, -1);
+            if (rc != Codes.SQLITE_OK && rc != Codes.SQLITE_DONE) {
+                throw new SQLException("Copie interrompue (code SQLite " + rc + ")");
+            }
+            int migrated = SchemaMigrator.migrate(connection);
+            String check = check(connection, "quick_check");
+            if (!"ok".equals(check)) {
+                throw new SQLException("Base restaurée incohérente: " + check + ". L'état précédent est dans " + before);
+            }
+            LOGGER.info("Base restaurée depuis " + snapshot + " (schéma v" + version + " migré en v" + migrated + ") en "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms; état précédent sauvegardé dans " + before);
+        } finally {
+            // Every cached list and count may describe the former database
+            ReferenceDataCache.getInstance().invalidateAll();
+            EntityCounters.getInstance().load();
+        }
+        return before;
+    }
+
+    /**
+     * Checks {@code file} with {@code integrity_check}, or the faster {@code quick_check}, and
+     * returns its schema version. A snapshot still being written is also switched to the
+     * rollback journal, so that it stays a single self-contained file.
+     */
+    private static int verify(Path file, boolean full) throws SQLException {
+        if (!Files.isRegularFile(file)) {
+            throw new SQLException("Fichier introuvable: " + file);
+        }
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(full);
+        try (Connection connection = config.createConnection("jdbc:sqlite:" + file.toAbsolutePath())) {
+            if (!full) {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("PRAGMA journal_mode=DELETE");
+                }
+            }
+            String check = check(connection, full ? "integrity_check" : "quick_check");
+            if (!"ok".equals(check)) {
+                throw new SQLException("Sauvegarde corrompue (" + file.getFileName() + "): " + check);
+            }
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+                return rs.next() ? rs.getInt(1) : 0;
+            } catch (SQLException e) {
+                throw new SQLException("Le fichier n'est pas une sauvegarde de la base de stock: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /** The first line reported by {@code PRAGMA name}: "ok" when the database is sound. */
+    private static String check(Connection connection, String pragma) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA " + pragma)) {
+            return rs.next() ? rs.getString(1) : "aucun résultat";
+        }
+    }
+
+    private static void publish(Path partial, Path target) throws IOException {
+        try {
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partial, target);
+        }
+    }
+
+    /** Deletes the snapshots beyond the {@code stock.backup.keep} most recent. */
+    private void rotate() {
+        try {
+            List<Path> snapshots = listSnapshots();
+            for (Path old : snapshots.subList(Math.min(KEEP, snapshots.size()), snapshots.size())) {
+                Files.deleteIfExists(old);
+                LOGGER.info("Ancienne sauvegarde supprimée: " + old.getFileName());
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Rotation des sauvegardes impossible: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package utils;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Indexes the rows of a list by the ids they refer to, such as the locals and articles of an
+ * order, with one {@link IdBitmap} of row ids per referenced id.
+ * <p>
+ * The index follows the list: rows are indexed as they are added, a page at a time, and
+ * dropped as they are removed. Asking for the rows referring to every one of several ids is
+ * then a single intersection of their bitmaps, instead of walking each row's lines.
+ * <p>
+ * The list is only modified on the JavaFX Application Thread, but the predicates built here may
+ * be tested by a background filter run. Each change therefore publishes new bitmaps for the ids
+ * it touches and never modifies a published one.
+ */
+public final class BitmapIndex<T> {
+
+    private final Function<T, Long> idOf;
+    private final Function<T, Collection<Long>> keysOf;
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyMap(), new IdBitmap());
+
+    /**
+     * Indexes the rows of {@code rows} by their id, {@code idOf}, under each id returned by
+     * {@code keysOf}. Null ids are ignored, and rows whose id does not fit an {@link IdBitmap}
+     * are always tested directly.
+     */
+    public BitmapIndex(ObservableList<T> rows, Function<T, Long> idOf, Function<T, Collection<Long>> keysOf) {
+        this.idOf = idOf;
+        this.keysOf = keysOf;
+        update(rows, Collections.emptyList(), rows);
+        rows.addListener((ListChangeListener<T>) change -> {
+            List<T> added = new ArrayList<>();
+            List<T> removed = new ArrayList<>();
+            while (change.next()) {
+                added.addAll(change.getAddedSubList());
+                removed.addAll(change.getRemoved());
+            }
+            update(added, removed, change.getList());
+        });
+    }
+
+    /**
+     * Accepts the rows referring to every id of {@code keys}; null when {@code keys} is empty,
+     * as expected by {@link TableFilter#addCriterion}. The intersection is computed once and
+     * again only after the rows change. Rows the index has not seen yet are tested directly.
+     */
+    public Predicate<T> containingAll(Collection<Long> keys) {
+        if (keys.isEmpty()) {
+            return null;
+        }
+        List<Long> wanted = List.copyOf(keys);
+        return new Predicate<>() {
+            private volatile Intersection last;
+
+            @Override
+            public boolean test(T row) {
+                Long id = idOf.apply(row);
+                Snapshot current = snapshot;
+                if (id == null || !current.indexed.contains(id)) {
+                    return keysOf.apply(row).containsAll(wanted);
+                }
+                Intersection intersection = last;
+                if (intersection == null || intersection.snapshot != current) {
+                    // Concurrent tests may both compute it, with the same result
+                    intersection = new Intersection(current, current.and(wanted));
+                    last = intersection;
+                }
+                return intersection.ids.contains(id);
+            }
+        };
+    }
+
+    private void update(List<? extends T> added, List<? extends T> removed, List<? extends T> all) {
+        if (all.isEmpty()) {
+            snapshot = new Snapshot(Collections.emptyMap(), new IdBitmap());
+            return;
+        }
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        Snapshot current = snapshot;
+        Map<Long, IdBitmap> bitmaps = new HashMap<>(current.bitmaps);
+        IdBitmap indexed = current.indexed.copy();
+        Set<Long> copied = new HashSet<>();
+        for (T row : removed) {
+            Long id = idOf.apply(row);
+            if (id == null || !indexed.remove(id)) {
+                continue;
+            }
+            for (Long key : keysOf.apply(row)) {
+                IdBitmap bitmap = writable(bitmaps, copied, key, false);
+                if (bitmap != null) {
+                    bitmap.remove(id);
+                    if (bitmap.isEmpty()) {
+                        bitmaps.remove(key);
+                    }
+                }
+            }
+        }
+        for (T row : added) {
+            Long id = idOf.apply(row);
+            if (id == null || !IdBitmap.accepts(id) || !indexed.add(id)) {
+                continue;
+            }
+            for (Long key : keysOf.apply(row)) {
+                if (key != null) {
+                    writable(bitmaps, copied, key, true).add(id);
+                }
+            }
+        }
+        snapshot = new Snapshot(bitmaps, indexed);
+    }
+
+    /** The bitmap of {@code key} in {@code bitmaps}, copied the first time it is modified. */
+    private static IdBitmap writable(Map<Long, IdBitmap> bitmaps, Set<Long> copied, Long key, boolean create) {
+        IdBitmap bitmap = bitmaps.get(key);
+        if (bitmap == null) {
+            if (!create) {
+                return null;
+            }
+            bitmap = new IdBitmap();
+            copied.add(key);
+            bitmaps.put(key, bitmap);
+        } else if (copied.add(key)) {
+            bitmap = bitmap.copy();
+            bitmaps.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    private static final class Snapshot {
+        private final Map<Long, IdBitmap> bitmaps;
+        /** The ids of every indexed row. */
+        private final IdBitmap indexed;
+
+        private Snapshot(Map<Long, IdBitmap> bitmaps, IdBitmap indexed) {
+            this.bitmaps = bitmaps;
+            this.indexed = indexed;
+        }
+
+        private IdBitmap and(List<Long> keys) {
+            List<IdBitmap> selected = new ArrayList<>(keys.size());
+            for (Long key : keys) {
+                IdBitmap bitmap = bitmaps.get(key);
+                if (bitmap == null) {
+                    return new IdBitmap();
+                }
+                selected.add(bitmap);
+            }
+            return IdBitmap.and(selected);
+        }
+    }
+
+    private static final class Intersection {
+        private final Snapshot snapshot;
+        private final IdBitmap ids;
+
+        private Intersection(Snapshot snapshot, IdBitmap ids) {
+            this.snapshot = snapshot;
+            this.ids = ids;
+        }
+    }
+}
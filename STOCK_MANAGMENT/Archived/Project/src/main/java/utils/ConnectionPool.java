@@ -0,0 +1,604 @@
+package utils;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Bounded pool of physical SQLite connections exposed as a {@link DataSource}.
+ * <p>
+ * Connections are opened once, configured once and then reused. The object handed
+ * out by {@link #getConnection()} is a handle: closing it gives the physical connection
+ * back to the pool instead of closing the SQLite file.
+ * <p>
+ * Leases are reentrant per thread: a thread that already holds a connection gets the
+ * same physical connection again. Nested DAO calls therefore join the transaction of
+ * their caller instead of competing with it for the database lock.
+ * <p>
+ * Each physical connection keeps an LRU cache of its prepared statements, so the SQL
+ * text of a DAO method is parsed once per connection rather than once per call.
+ */
+public class ConnectionPool implements DataSource {
+
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+    /**
+     * Applied once to every physical connection right after it is opened.
+     */
+    @FunctionalInterface
+    public interface ConnectionInitializer {
+        void initialize(Connection connection) throws SQLException;
+    }
+
+    private final String name;
+    private final String url;
+    private final Properties properties;
+    private final ConnectionInitializer initializer;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final int statementCacheSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final ThreadLocal<Lease> currentLease = new ThreadLocal<>();
+    private int totalConnections;
+    private int activeLeases;
+    private volatile boolean closed;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong reentrantAcquired = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final StatementCache.Counters statementCounters = new StatementCache.Counters();
+
+    private PrintWriter logWriter;
+    private int loginTimeout;
+
+    public ConnectionPool(String name, String url, Properties properties, ConnectionInitializer initializer,
+                          int maxSize, long acquireTimeoutMillis, long validationIntervalMillis,
+                          int statementCacheSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("La taille du pool doit être positive: " + maxSize);
+        }
+        this.name = name;
+        this.url = url;
+        this.properties = properties != null ? properties : new Properties();
+        this.initializer = initializer;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Whether the calling thread currently holds a connection from this pool.
+     */
+    public boolean isHeldByCurrentThread() {
+        return currentLease.get() != null;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Le pool de connexions '" + name + "' est fermé");
+        }
+
+        Lease lease = currentLease.get();
+        if (lease != null) {
+            lease.holds++;
+            reentrantAcquired.incrementAndGet();
+            return lease.newHandle();
+        }
+
+        PooledConnection pooled = borrow();
+        lease = new Lease(pooled);
+        lease.holds = 1;
+        currentLease.set(lease);
+        acquired.incrementAndGet();
+        return lease.newHandle();
+    }
+
+    /**
+     * Borrows a connection and hands it back at once, so that a pool still empty opens its
+     * first physical connection, with whatever that does to the database file, now.
+     */
+    public void warmUp() throws SQLException {
+        getConnection().close();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("SQLite n'utilise pas d'authentification");
+    }
+
+    private PooledConnection borrow() throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+        long waitStart = 0;
+
+        while (true) {
+            PooledConnection pooled = null;
+            boolean mayOpen = false;
+
+            lock.lock();
+            try {
+                while (pooled == null && !mayOpen) {
+                    if (closed) {
+                        throw new SQLException("Le pool de connexions '" + name + "' est fermé");
+                    }
+                    pooled = idle.pollFirst();
+                    if (pooled == null && totalConnections < maxSize) {
+                        totalConnections++;
+                        mayOpen = true;
+                    }
+                    if (pooled == null && !mayOpen) {
+                        if (waitStart == 0) {
+                            waitStart = System.nanoTime();
+                            waits.incrementAndGet();
+                        }
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            timeouts.incrementAndGet();
+                            throw new SQLException("Aucune connexion disponible dans le pool '" + name
+                                    + "' après " + acquireTimeoutMillis + " ms (" + maxSize + " connexions utilisées)");
+                        }
+                        try {
+                            available.awaitNanos(remaining);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new SQLException("Attente d'une connexion interrompue", e);
+                        }
+                    }
+                }
+                activeLeases++;
+            } finally {
+                lock.unlock();
+            }
+            recordWait(waitStart);
+            waitStart = 0;
+
+            if (mayOpen) {
+                try {
+                    return open();
+                } catch (SQLException | RuntimeException e) {
+                    lock.lock();
+                    try {
+                        totalConnections--;
+                        activeLeases--;
+                        available.signal();
+                    } finally {
+                        lock.unlock();
+                    }
+                    throw e;
+                }
+            }
+
+            if (validate(pooled)) {
+                return pooled;
+            }
+            lock.lock();
+            try {
+                activeLeases--;
+            } finally {
+                lock.unlock();
+            }
+            discard(pooled);
+        }
+    }
+
+    private void recordWait(long waitStart) {
+        if (waitStart == 0) {
+            return;
+        }
+        long waited = System.nanoTime() - waitStart;
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, properties);
+        try {
+            if (initializer != null) {
+                initializer.initialize(physical);
+            }
+        } catch (SQLException | RuntimeException e) {
+            physical.close();
+            throw e;
+        }
+        created.incrementAndGet();
+        StatementCache cache = statementCacheSize > 0
+                ? new StatementCache(physical, statementCacheSize, statementCounters)
+                : null;
+        return new PooledConnection(physical, cache);
+    }
+
+    private boolean validate(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastUsedAt < validationIntervalMillis) {
+            return true;
+        }
+        try {
+            return !pooled.physical.isClosed() && pooled.physical.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        try {
+            if (pooled.statementCache != null) {
+                pooled.statementCache.closeAll();
+            }
+            pooled.physical.close();
+        } catch (SQLException e) {
+            LOGGER.warning("Erreur lors de la fermeture d'une connexion du pool '" + name + "': " + e.getMessage());
+        }
+        destroyed.incrementAndGet();
+        lock.lock();
+        try {
+            totalConnections--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Lease lease) {
+        currentLease.remove();
+        PooledConnection pooled = lease.pooled;
+        boolean healthy = lease.reset();
+
+        lock.lock();
+        try {
+            activeLeases--;
+            if (healthy && !closed) {
+                pooled.lastUsedAt = System.currentTimeMillis();
+                idle.addFirst(pooled);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        discard(pooled);
+    }
+
+    /**
+     * Runs a trivial query on a pooled connection to check that the database answers.
+     */
+    public boolean isHealthy() {
+        try (Connection connection = getConnection();
+             Statement stmt = connection.createStatement()) {
+            return stmt.execute("SELECT 1");
+        } catch (SQLException e) {
+            LOGGER.warning("Contrôle de santé du pool '" + name + "' échoué: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public Stats getStats() {
+        lock.lock();
+        try {
+            return new Stats(name, maxSize, totalConnections, idle.size(), activeLeases,
+                    created.get(), destroyed.get(), acquired.get(), reentrantAcquired.get(),
+                    waits.get(), timeouts.get(), totalWaitNanos.get(), maxWaitNanos.get(),
+                    statementCounters.hits.get(), statementCounters.misses.get(),
+                    statementCounters.evictions.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes idle connections immediately; leased ones are closed when they are given back.
+     */
+    public void close() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (PooledConnection pooled : toClose) {
+            discard(pooled);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        this.loginTimeout = seconds;
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return loginTimeout;
+    }
+
+    @Override
+    public Logger getParentLogger() {
+        return LOGGER;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        throw new SQLException("ConnectionPool n'implémente pas " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    private static final class PooledConnection {
+        private final Connection physical;
+        private final StatementCache statementCache;
+        private long lastUsedAt = System.currentTimeMillis();
+
+        private PooledConnection(Connection physical, StatementCache statementCache) {
+            this.physical = physical;
+            this.statementCache = statementCache;
+        }
+    }
+
+    /**
+     * One thread's hold on a physical connection, shared by all the handles it opened.
+     */
+    private final class Lease {
+        private final PooledConnection pooled;
+        private final List<Statement> statements = new ArrayList<>();
+        private int holds;
+
+        private Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        private Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+
+        private void closeHandle() {
+            if (--holds == 0) {
+                release(this);
+            }
+        }
+
+        /**
+         * Puts the connection back into a neutral state. Returns false if it cannot be reused.
+         */
+        private boolean reset() {
+            Connection physical = pooled.physical;
+            try {
+                if (pooled.statementCache != null) {
+                    pooled.statementCache.releaseAll();
+                }
+                for (Statement statement : statements) {
+                    if (!statement.isClosed()) {
+                        statement.close();
+                    }
+                }
+                statements.clear();
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                return true;
+            } catch (SQLException e) {
+                LOGGER.warning("Connexion rejetée par le pool '" + name + "': " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Proxy behind each handed-out {@link Connection}. Statements created through it are
+     * tracked so that the ones a caller forgets to close do not pile up on a reused connection.
+     */
+    private static final class Handle implements InvocationHandler {
+        private final Lease lease;
+        private boolean closed;
+
+        private Handle(Lease lease) {
+            this.lease = lease;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        lease.closeHandle();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || lease.pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + lease.pooled.physical + "]";
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(lease.pooled.physical)) {
+                        return lease.pooled.physical;
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Connexion déjà rendue au pool");
+            }
+
+            StatementCache cache = lease.pooled.statementCache;
+            if (cache != null && method.getName().equals("prepareStatement") && isCacheable(method)) {
+                PreparedStatement cached = cache.prepare((String) args[0], args.length == 2 ? (Integer) args[1] : -1);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+
+            Object result;
+            try {
+                result = method.invoke(lease.pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement) {
+                lease.statements.add((Statement) result);
+            }
+            return result;
+        }
+
+        private static boolean isCacheable(Method method) {
+            Class<?>[] types = method.getParameterTypes();
+            return types.length == 1 || (types.length == 2 && types[1] == int.class);
+        }
+    }
+
+    /**
+     * Point-in-time snapshot of the pool counters.
+     */
+    public static final class Stats {
+        private final String name;
+        private final int maxSize;
+        private final int total;
+        private final int idle;
+        private final int active;
+        private final long created;
+        private final long destroyed;
+        private final long acquired;
+        private final long reentrantAcquired;
+        private final long waits;
+        private final long timeouts;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+        private final long statementHits;
+        private final long statementMisses;
+        private final long statementEvictions;
+
+        private Stats(String name, int maxSize, int total, int idle, int active, long created, long destroyed,
+                      long acquired, long reentrantAcquired, long waits, long timeouts,
+                      long totalWaitNanos, long maxWaitNanos,
+                      long statementHits, long statementMisses, long statementEvictions) {
+            this.name = name;
+            this.maxSize = maxSize;
+            this.total = total;
+            this.idle = idle;
+            this.active = active;
+            this.created = created;
+            this.destroyed = destroyed;
+            this.acquired = acquired;
+            this.reentrantAcquired = reentrantAcquired;
+            this.waits = waits;
+            this.timeouts = timeouts;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.statementHits = statementHits;
+            this.statementMisses = statementMisses;
+            this.statementEvictions = statementEvictions;
+        }
+
+        public String getName() { return name; }
+        public int getMaxSize() { return maxSize; }
+        public int getTotal() { return total; }
+        public int getIdle() { return idle; }
+        public int getActive() { return active; }
+        public long getCreated() { return created; }
+        public long getDestroyed() { return destroyed; }
+        public long getAcquired() { return acquired; }
+        public long getReentrantAcquired() { return reentrantAcquired; }
+        public long getWaits() { return waits; }
+        public long getTimeouts() { return timeouts; }
+        public long getStatementHits() { return statementHits; }
+        public long getStatementMisses() { return statementMisses; }
+        public long getStatementEvictions() { return statementEvictions; }
+
+        public double getStatementHitRatio() {
+            long lookups = statementHits + statementMisses;
+            return lookups == 0 ? 0 : (double) statementHits / lookups;
+        }
+
+        public double getAverageWaitMillis() {
+            return waits == 0 ? 0 : totalWaitNanos / 1_000_000.0 / waits;
+        }
+
+        public double getMaxWaitMillis() {
+            return maxWaitNanos / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Pool[%s] total=%d/%d, actives=%d, libres=%d, créées=%d, fermées=%d, "
+                            + "emprunts=%d (réentrants=%d), attentes=%d (moy=%.2f ms, max=%.2f ms), timeouts=%d, "
+                            + "statements: hits=%d, misses=%d, évictions=%d",
+                    name, total, maxSize, active, idle, created, destroyed, acquired, reentrantAcquired,
+                    waits, getAverageWaitMillis(), getMaxWaitMillis(), timeouts,
+                    statementHits, statementMisses, statementEvictions);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads CSV records one at a time, as described by RFC 4180.
+ * <p>
+ * Fields may be quoted, with doubled quotes inside, and quoted fields may hold separators and
+ * line breaks. The separator is a comma or, as written by spreadsheets set to French, a
+ * semicolon: it is taken from the first line, whichever of the two appears more often outside
+ * quotes. A leading byte order mark is skipped. Only the record being read is kept in memory.
+ */
+public final class CsvReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder field = new StringBuilder(64);
+    private int length;
+    private int position;
+    private char separator;
+    private long lineNumber = 1;
+    private long recordLine;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * The fields of the next record, or null at the end of the input. Blank lines are skipped.
+     *
+     * @throws IOException if the input cannot be read or ends inside a quoted field
+     */
+    public String[] next() throws IOException {
+        if (separator == 0) {
+            detectSeparator();
+        }
+        int c;
+        // Skip blank lines between records
+        while ((c = peek()) == '\r' || c == '\n') {
+            consumeLineBreak();
+        }
+        if (c < 0) {
+            return null;
+        }
+        recordLine = lineNumber;
+        List<String> fields = new ArrayList<>();
+        while (true) {
+            fields.add(readField());
+            c = peek();
+            if (c == separator) {
+                position++;
+            } else {
+                if (c == '\r' || c == '\n') {
+                    consumeLineBreak();
+                }
+                return fields.toArray(new String[0]);
+            }
+        }
+    }
+
+    /**
+     * The line where the last record returned by {@link #next} starts, counting from 1.
+     */
+    public long getLineNumber() {
+        return recordLine;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private String readField() throws IOException {
+        field.setLength(0);
+        if (peek() != '"') {
+            int c;
+            while ((c = peek()) >= 0 && c != separator && c != '\r' && c != '\n') {
+                field.append((char) c);
+                position++;
+            }
+            return field.toString();
+        }
+        position++;
+        long startLine = lineNumber;
+        while (true) {
+            int c = peek();
+            if (c < 0) {
+                throw new IOException("Guillemet non fermé à partir de la ligne " + startLine);
+            }
+            position++;
+            if (c == '"') {
+                if (peek() != '"') {
+                    break;
+                }
+                position++;
+            } else if (c == '\n') {
+                lineNumber++;
+            }
+            field.append((char) c);
+        }
+        // Text after the closing quote is kept, as spreadsheets do
+        int c;
+        while ((c = peek()) >= 0 && c != separator && c != '\r' && c != '\n') {
+            field.append((char) c);
+            position++;
+        }
+        return field.toString();
+    }
+
+    private void consumeLineBreak() throws IOException {
+        if (peek() == '\r') {
+            position++;
+        }
+        if (peek() == '\n') {
+            position++;
+        }
+        lineNumber++;
+    }
+
+    private void detectSeparator() throws IOException {
+        if (peek() == '\uFEFF') {
+            position++;
+        }
+        // Look at the first line, as far as the buffer goes
+        int commas = 0;
+        int semicolons = 0;
+        boolean quoted = false;
+        for (int i = position; i < length; i++) {
+            char c = buffer[i];
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted && (c == '\n' || c == '\r')) {
+                break;
+            } else if (!quoted && c == ',') {
+                commas++;
+            } else if (!quoted && c == ';') {
+                semicolons++;
+            }
+        }
+        separator = semicolons > commas ? ';' : ',';
+    }
+
+    /** The next character without consuming it, or -1 at the end of the input. */
+    private int peek() throws IOException {
+        if (position == length) {
+            length = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (length <= 0) {
+                length = 0;
+                return -1;
+            }
+        }
+        return buffer[position];
+    }
+}
@@ -0,0 +1,259 @@
+package utils;
+
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.concurrent.Task;
+import javafx.event.EventHandler;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableView;
+import javafx.stage.Window;
+import javafx.stage.WindowEvent;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs database work off the JavaFX Application Thread.
+ * <p>
+ * Work is wrapped in a {@link Task} and executed on a small shared pool of daemon threads.
+ * Its outcome reaches the UI in a single {@link Platform#runLater}, which is skipped when the
+ * task was cancelled in the meantime. Screens submit through a {@link Scope} so that their
+ * pending reads are cancelled when their window is closed; their writes still run, and only
+ * their callbacks are dropped.
+ */
+public final class DataAccessExecutor {
+
+    private static final Logger LOGGER = Logger.getLogger(DataAccessExecutor.class.getName());
+
+    /** Readers run in parallel in WAL mode; writes are serialized by the pool anyway. */
+    private static final int THREAD_COUNT = Integer.getInteger("stock.ui.dataThreads", 2);
+
+    private static final String LOADING_TEXT = "Chargement…";
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREAD_COUNT, runnable -> {
+        Thread thread = new Thread(runnable, "data-access-" + THREAD_NUMBER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @FunctionalInterface
+    public interface Work<T> {
+        T call() throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    private DataAccessExecutor() {
+    }
+
+    /**
+     * Runs {@code work} in the background, then hands its result or its failure to the
+     * matching callback on the JavaFX Application Thread.
+     */
+    public static <T> Task<T> submit(Work<T> work, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        Task<T> task = newTask(work, onSuccess, onFailure);
+        EXECUTOR.execute(task);
+        return task;
+    }
+
+    private static <T> Task<T> newTask(Work<T> work, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        return new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                T result;
+                try {
+                    result = work.call();
+                } catch (Exception e) {
+                    if (!isCancelled()) {
+                        Platform.runLater(() -> {
+                            if (!isCancelled()) {
+                                onFailure.accept(e);
+                            }
+                        });
+                    }
+                    throw e;
+                }
+                if (!isCancelled()) {
+                    Platform.runLater(() -> {
+                        if (!isCancelled()) {
+                            onSuccess.accept(result);
+                        }
+                    });
+                }
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Wraps {@code onProgress} so that background work can report its progress, from 0 to 1, as
+     * often as it likes: the JavaFX Application Thread only sees the latest value, at most once
+     * per pulse. Updates are delivered before the work's own result.
+     */
+    public static DoubleConsumer progressTo(DoubleConsumer onProgress) {
+        AtomicLong latest = new AtomicLong();
+        AtomicBoolean scheduled = new AtomicBoolean();
+        return progress -> {
+            latest.set(Double.doubleToLongBits(progress));
+            if (scheduled.compareAndSet(false, true)) {
+                Platform.runLater(() -> {
+                    scheduled.set(false);
+                    onProgress.accept(Double.longBitsToDouble(latest.get()));
+                });
+            }
+        };
+    }
+
+    /**
+     * Replaces the table's placeholder with a loading message. The returned action puts the
+     * previous placeholder back.
+     */
+    public static Runnable showLoading(TableView<?> table) {
+        Node previous = table.getPlaceholder();
+        Label loading = new Label(LOADING_TEXT);
+        table.setPlaceholder(loading);
+        return () -> {
+            if (table.getPlaceholder() == loading) {
+                table.setPlaceholder(previous);
+            }
+        };
+    }
+
+    /**
+     * Creates a scope whose work is cancelled once the window showing {@code node} is hidden.
+     * The node does not need to be attached to a scene yet.
+     */
+    public static Scope scopeFor(Node node) {
+        Scope scope = new Scope();
+        scope.bindTo(node);
+        return scope;
+    }
+
+    /**
+     * The background work of one screen.
+     */
+    public static final class Scope {
+        private final Set<Task<?>> tasks = ConcurrentHashMap.newKeySet();
+        private volatile boolean closed;
+
+        public <T> Task<T> submit(Work<T> work, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+            if (closed) {
+                return null;
+            }
+            Task<?>[] self = new Task<?>[1];
+            Task<T> task = newTask(() -> {
+                try {
+                    return work.call();
+                } finally {
+                    tasks.remove(self[0]);
+                }
+            }, onSuccess, onFailure);
+            self[0] = task;
+            tasks.add(task);
+            EXECUTOR.execute(task);
+            return task;
+        }
+
+        /**
+         * Variant of {@link #submit} for work that must not be lost, such as a write: it is not
+         * cancelled with the scope, even when still queued, and only its callbacks are dropped
+         * once the window is closed. A failure nobody can be told about any more is logged.
+         */
+        public <T> Task<T> write(Work<T> work, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+            return DataAccessExecutor.submit(work, result -> {
+                if (!closed) {
+                    onSuccess.accept(result);
+                }
+            }, e -> {
+                if (closed) {
+                    LOGGER.log(Level.SEVERE, "Échec d'une écriture après la fermeture de l'écran: " + e.getMessage(), e);
+                } else {
+                    onFailure.accept(e);
+                }
+            });
+        }
+
+        /**
+         * Variant of {@link #write} for work without a result.
+         */
+        public Task<Void> run(Action action, Runnable onSuccess, Consumer<Throwable> onFailure) {
+            return write(() -> {
+                action.run();
+                return null;
+            }, ignored -> onSuccess.run(), onFailure);
+        }
+
+        /**
+         * Cancels pending reads; results that are still in flight are dropped.
+         */
+        public void close() {
+            closed = true;
+            for (Task<?> task : tasks) {
+                task.cancel(false);
+            }
+            tasks.clear();
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        private void bindTo(Node node) {
+            if (node.getScene() != null) {
+                bindTo(node.getScene());
+                return;
+            }
+            node.sceneProperty().addListener(new ChangeListener<>() {
+                @Override
+                public void changed(ObservableValue<? extends Scene> obs, Scene oldScene, Scene newScene) {
+                    if (newScene != null) {
+                        node.sceneProperty().removeListener(this);
+                        bindTo(newScene);
+                    }
+                }
+            });
+        }
+
+        private void bindTo(Scene scene) {
+            if (scene.getWindow() != null) {
+                bindTo(scene.getWindow());
+                return;
+            }
+            scene.windowProperty().addListener(new ChangeListener<>() {
+                @Override
+                public void changed(ObservableValue<? extends Window> obs, Window oldWindow, Window newWindow) {
+                    if (newWindow != null) {
+                        scene.windowProperty().removeListener(this);
+                        bindTo(newWindow);
+                    }
+                }
+            });
+        }
+
+        private void bindTo(Window window) {
+            EventHandler<WindowEvent> onHidden = event -> {
+                if (!tasks.isEmpty()) {
+                    LOGGER.fine(() -> "Annulation de " + tasks.size() + " chargement(s) en cours");
+                }
+                close();
+            };
+            window.addEventHandler(WindowEvent.WINDOW_HIDDEN, onHidden);
+        }
+    }
+}
@@ -1,29 +1,172 @@
 package utils;
 
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteConnection;
+
+import javax.sql.DataSource;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
+/**
+ * Entry point for database access.
+ * <p>
+ * In {@link StorageMode#WAL} mode (the default) writes go through a single dedicated writer
+ * connection and reads are served by a pool of read-only connections, so readers never wait
+ * on a clerk's open transaction. {@link StorageMode#ROLLBACK_JOURNAL} keeps SQLite's classic
+ * journal and serves reads and writes from one shared pool.
+ */
 public class DatabaseConnection {
-    private static final String DB_URL = "jdbc:sqlite:stock_management.db";
-    private static Connection connection;
 
+    public enum StorageMode {
+        ROLLBACK_JOURNAL,
+        WAL
+    }
+
+    private static final String DB_URL = System.getProperty("stock.db.url", "jdbc:sqlite:stock_management.db");
+    private static final int POOL_SIZE = Integer.getInteger("stock.db.pool.size", 4);
+    private static final long ACQUIRE_TIMEOUT_MS = Long.getLong("stock.db.pool.acquireTimeoutMs", 10_000L);
+    private static final long VALIDATION_INTERVAL_MS = 30_000L;
+    private static final int BUSY_TIMEOUT_MS = 5_000;
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("stock.db.statementCacheSize", 64);
+
+    private static StorageMode storageMode = parseStorageMode(System.getProperty("stock.db.mode"));
+    private static ConnectionPool writerPool;
+    private static ConnectionPool readerPool;
+
+    /**
+     * Returns a pooled connection that may write. Closing it hands the connection back to the pool.
+     */
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connection = DriverManager.getConnection(DB_URL);
-            // Enable foreign keys in SQLite
-            connection.createStatement().execute("PRAGMA foreign_keys = ON");
+        return getPool().getConnection();
+    }
+
+    /**
+     * Returns a connection for queries only. A thread that is already inside a write
+     * transaction keeps its writer connection so it sees its own uncommitted changes.
+     */
+    public static Connection getReadConnection() throws SQLException {
+        ConnectionPool writer = getPool();
+        if (storageMode != StorageMode.WAL || writer.isHeldByCurrentThread()) {
+            return writer.getConnection();
         }
-        return connection;
+        return getReaderPool().getConnection();
     }
 
-    public static void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
+    public static DataSource getDataSource() {
+        return getPool();
+    }
+
+    public static synchronized ConnectionPool getPool() {
+        if (writerPool == null || writerPool.isClosed()) {
+            boolean wal = storageMode == StorageMode.WAL;
+            SQLiteConfig config = createConfig();
+            if (wal) {
+                config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+                config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+            } else {
+                config.setJournalMode(SQLiteConfig.JournalMode.DELETE);
             }
+            writerPool = new ConnectionPool(wal ? "writer" : "stock", DB_URL, config.toProperties(), null,
+                    wal ? 1 : POOL_SIZE, ACQUIRE_TIMEOUT_MS, VALIDATION_INTERVAL_MS, STATEMENT_CACHE_SIZE);
+            migrate(writerPool);
+        }
+        return writerPool;
+    }
+
+    /**
+     * Runs the schema migrations through the first connection of a new writer pool,
+     * so every entry point of the application starts on an up-to-date schema.
+     */
+    private static void migrate(ConnectionPool pool) {
+        try (Connection connection = pool.getConnection()) {
+            SchemaMigrator.migrate(connection);
+        } catch (SQLException e) {
+            pool.close();
+            writerPool = null;
+            throw new IllegalStateException("Migration du schéma impossible: " + e.getMessage(), e);
+        }
+    }
+
+    public static synchronized ConnectionPool getReaderPool() throws SQLException {
+        if (storageMode != StorageMode.WAL) {
+            return getPool();
+        }
+        if (readerPool == null || readerPool.isClosed()) {
+            // The writer switches the file to WAL; open it once before any read-only connection exists
+            getPool().warmUp();
+            SQLiteConfig config = createConfig();
+            config.setReadOnly(true);
+            readerPool = new ConnectionPool("reader", DB_URL, config.toProperties(), null,
+                    POOL_SIZE, ACQUIRE_TIMEOUT_MS, VALIDATION_INTERVAL_MS, STATEMENT_CACHE_SIZE);
+        }
+        return readerPool;
+    }
+
+    /**
+     * Opens a read-only connection outside the pools, for long reads such as backups that must
+     * not take a pooled connection away from the screens. The caller closes it.
+     */
+    static SQLiteConnection openUnpooledReadConnection() throws SQLException {
+        // Let the writer apply migrations and the journal mode first
+        getPool();
+        SQLiteConfig config = createConfig();
+        config.setReadOnly(true);
+        return (SQLiteConnection) config.createConnection(DB_URL);
+    }
+
+    private static SQLiteConfig createConfig() {
+        SQLiteConfig config = new SQLiteConfig();
+        // Enable foreign keys in SQLite, once per physical connection
+        config.enforceForeignKeys(true);
+        config.setBusyTimeout(BUSY_TIMEOUT_MS);
+        return config;
+    }
+
+    private static StorageMode parseStorageMode(String value) {
+        if (value == null || value.isBlank()) {
+            return StorageMode.WAL;
+        }
+        return StorageMode.valueOf(value.trim().toUpperCase());
+    }
+
+    public static StorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    /**
+     * Switches the storage mode. Open pools are closed and recreated on next use.
+     */
+    public static synchronized void setStorageMode(StorageMode mode) {
+        if (mode != storageMode) {
+            closeConnection();
+            storageMode = mode;
+        }
+    }
+
+    public static ConnectionPool.Stats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    public static ConnectionPool.Stats getReaderPoolStats() throws SQLException {
+        return getReaderPool().getStats();
+    }
+
+    public static boolean isHealthy() {
+        try {
+            return getPool().isHealthy() && getReaderPool().isHealthy();
         } catch (SQLException e) {
-            e.printStackTrace();
+            return false;
+        }
+    }
+
+    public static synchronized void closeConnection() {
+        if (readerPool != null) {
+            readerPool.close();
+            readerPool = null;
+        }
+        if (writerPool != null) {
+            writerPool.close();
+            writerPool = null;
         }
     }
-}
\ No newline at end of file
+}
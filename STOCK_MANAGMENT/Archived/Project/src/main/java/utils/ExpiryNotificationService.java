@@ -0,0 +1,100 @@
+package utils;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import model.dao.ArticleDAO;
+import model.dao.ArticleDAOImpl;
+import model.dao.ReferenceDataCache;
+import model.entities.Article;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the list of articles expiring within {@value #HORIZON_DAYS} days up to date for every screen:
+ * those whose expiry date is today or one of the next {@value #HORIZON_DAYS} days. Articles
+ * already expired are not listed.
+ * <p>
+ * The list is recomputed on a background thread when the service starts, every
+ * {@code stock.expiry.refreshMinutes} minutes (5 by default) and after each article write.
+ * Screens bind their notification badge to {@link #getExpiringArticles()}, which only changes
+ * on the JavaFX Application Thread.
+ */
+public final class ExpiryNotificationService {
+
+    private static final Logger LOGGER = Logger.getLogger(ExpiryNotificationService.class.getName());
+    private static final DateTimeFormatter DISPLAY_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    public static final int HORIZON_DAYS = 7;
+    private static final long REFRESH_MINUTES = Long.getLong("stock.expiry.refreshMinutes", 5);
+
+    private static ExpiryNotificationService instance;
+
+    private final ArticleDAO articleDAO = new ArticleDAOImpl();
+    private final ObservableList<String> expiringArticles = FXCollections.observableArrayList();
+    private final ObservableList<String> snapshot = FXCollections.unmodifiableObservableList(expiringArticles);
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "expiry-notifications");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ExpiryNotificationService() {
+        scheduler.scheduleWithFixedDelay(this::refreshNow, 0, REFRESH_MINUTES, TimeUnit.MINUTES);
+        ReferenceDataCache.getInstance().addInvalidationListener(ReferenceDataCache.ARTICLES, this::requestRefresh);
+    }
+
+    public static synchronized ExpiryNotificationService getInstance() {
+        if (instance == null) {
+            instance = new ExpiryNotificationService();
+        }
+        return instance;
+    }
+
+    /**
+     * Read-only list of "nom (Périme le: yyyy-MM-dd)" entries, soonest first.
+     */
+    public ObservableList<String> getExpiringArticles() {
+        return snapshot;
+    }
+
+    /**
+     * Schedules a recomputation. Requests made while one is already waiting are merged into it.
+     */
+    public void requestRefresh() {
+        if (refreshPending.compareAndSet(false, true)) {
+            scheduler.execute(this::refreshNow);
+        }
+    }
+
+    private void refreshNow() {
+        refreshPending.set(false);
+        List<String> lines = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        try {
+            for (Article article : articleDAO.getExpiringBetween(today, today.plusDays(HORIZON_DAYS))) {
+                if (article.getDatePeremption() != null) {
+                    lines.add(article.getNom() + " (Périme le: " + article.getDatePeremption().format(DISPLAY_DATE_FORMATTER) + ")");
+                }
+            }
+        } catch (RuntimeException e) {
+            // Keep the previous list; an exception would also cancel the schedule
+            LOGGER.severe("Erreur lors de la récupération des articles en péremption: " + e.getMessage());
+            return;
+        }
+        Platform.runLater(() -> {
+            if (!expiringArticles.equals(lines)) {
+                expiringArticles.setAll(lines);
+            }
+        });
+    }
+}
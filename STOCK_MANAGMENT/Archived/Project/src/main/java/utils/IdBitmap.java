@@ -0,0 +1,332 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A compressed set of ids from 0 to 2<sup>32</sup> - 1.
+ * <p>
+ * Ids are grouped in chunks of 65536 by their upper 16 bits. A chunk holding few ids keeps
+ * them in a sorted array of their lower 16 bits, two bytes per id; past {@value #ARRAY_MAX} ids
+ * it switches to a fixed 8 KB bitmap. Auto-incremented ids fall in a handful of chunks, so the
+ * set stays small and an intersection mostly works on whole 64-bit words.
+ * <p>
+ * Not thread-safe: publish a copy, or stop modifying the set, before sharing it.
+ */
+public final class IdBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+    private static final long MAX_ID = 0xFFFF_FFFFL;
+
+    /** Upper 16 bits of each chunk, sorted. */
+    private char[] highs = new char[0];
+    /** For each chunk, a sorted {@code char[]} of its lower bits or a {@code long[]} bitmap. */
+    private Object[] containers = new Object[0];
+    private int[] cardinalities = new int[0];
+
+    /**
+     * Whether {@code id} can be added to a set.
+     */
+    public static boolean accepts(long id) {
+        return id >= 0 && id <= MAX_ID;
+    }
+
+    /**
+     * Whether {@code id} is in the set. Ids out of range are never in it.
+     */
+    public boolean contains(long id) {
+        if (!accepts(id)) {
+            return false;
+        }
+        int chunk = Arrays.binarySearch(highs, (char) (id >>> 16));
+        if (chunk < 0) {
+            return false;
+        }
+        char low = (char) id;
+        Object container = containers[chunk];
+        if (container instanceof long[]) {
+            return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) container, 0, cardinalities[chunk], low) >= 0;
+    }
+
+    /**
+     * Adds {@code id}; returns false if it was already in the set.
+     *
+     * @throws IllegalArgumentException if {@code id} is negative or above 2<sup>32</sup> - 1
+     */
+    public boolean add(long id) {
+        if (!accepts(id)) {
+            throw new IllegalArgumentException("Identifiant hors limites: " + id);
+        }
+        char high = (char) (id >>> 16);
+        char low = (char) id;
+        int chunk = Arrays.binarySearch(highs, high);
+        if (chunk < 0) {
+            chunk = -chunk - 1;
+            insertChunk(chunk, high, new char[] {low}, 1);
+            return true;
+        }
+        Object container = containers[chunk];
+        if (container instanceof long[]) {
+            long[] words = (long[]) container;
+            long before = words[low >>> 6];
+            words[low >>> 6] = before | (1L << low);
+            if (before == words[low >>> 6]) {
+                return false;
+            }
+            cardinalities[chunk]++;
+            return true;
+        }
+        char[] values = (char[]) container;
+        int count = cardinalities[chunk];
+        int position = Arrays.binarySearch(values, 0, count, low);
+        if (position >= 0) {
+            return false;
+        }
+        position = -position - 1;
+        if (count == ARRAY_MAX) {
+            long[] words = toBitmap(values, count);
+            words[low >>> 6] |= 1L << low;
+            containers[chunk] = words;
+        } else {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, count * 2));
+                containers[chunk] = values;
+            }
+            System.arraycopy(values, position, values, position + 1, count - position);
+            values[position] = low;
+        }
+        cardinalities[chunk]++;
+        return true;
+    }
+
+    /**
+     * Removes {@code id}; returns false if it was not in the set.
+     */
+    public boolean remove(long id) {
+        if (!accepts(id)) {
+            return false;
+        }
+        int chunk = Arrays.binarySearch(highs, (char) (id >>> 16));
+        if (chunk < 0) {
+            return false;
+        }
+        char low = (char) id;
+        Object container = containers[chunk];
+        if (container instanceof long[]) {
+            long[] words = (long[]) container;
+            long before = words[low >>> 6];
+            words[low >>> 6] = before & ~(1L << low);
+            if (before == words[low >>> 6]) {
+                return false;
+            }
+            if (--cardinalities[chunk] <= ARRAY_MAX) {
+                containers[chunk] = toArray(words, cardinalities[chunk]);
+            }
+            return true;
+        }
+        char[] values = (char[]) container;
+        int count = cardinalities[chunk];
+        int position = Arrays.binarySearch(values, 0, count, low);
+        if (position < 0) {
+            return false;
+        }
+        if (count == 1) {
+            removeChunk(chunk);
+            return true;
+        }
+        System.arraycopy(values, position + 1, values, position, count - position - 1);
+        cardinalities[chunk]--;
+        return true;
+    }
+
+    /** The number of ids in the set. */
+    public int cardinality() {
+        int total = 0;
+        for (int cardinality : cardinalities) {
+            total += cardinality;
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return highs.length == 0;
+    }
+
+    /**
+     * An independent copy of this set.
+     */
+    public IdBitmap copy() {
+        IdBitmap copy = new IdBitmap();
+        copy.highs = highs.clone();
+        copy.cardinalities = cardinalities.clone();
+        copy.containers = new Object[containers.length];
+        for (int i = 0; i < containers.length; i++) {
+            Object container = containers[i];
+            copy.containers[i] = container instanceof long[]
+                    ? ((long[]) container).clone()
+                    : Arrays.copyOf((char[]) container, cardinalities[i]);
+        }
+        return copy;
+    }
+
+    /**
+     * The ids found in every one of {@code bitmaps}, as a new set; empty when the list is.
+     * The smallest sets are intersected first, so the result shrinks as fast as possible.
+     */
+    public static IdBitmap and(List<IdBitmap> bitmaps) {
+        if (bitmaps.isEmpty()) {
+            return new IdBitmap();
+        }
+        IdBitmap[] ordered = bitmaps.toArray(new IdBitmap[0]);
+        Arrays.sort(ordered, Comparator.comparingInt(IdBitmap::cardinality));
+        IdBitmap result = ordered[0].copy();
+        for (int i = 1; i < ordered.length && !result.isEmpty(); i++) {
+            result = result.and(ordered[i]);
+        }
+        return result;
+    }
+
+    private IdBitmap and(IdBitmap other) {
+        IdBitmap result = new IdBitmap();
+        int size = Math.min(highs.length, other.highs.length);
+        result.highs = new char[size];
+        result.containers = new Object[size];
+        result.cardinalities = new int[size];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < highs.length && j < other.highs.length) {
+            if (highs[i] < other.highs[j]) {
+                i++;
+            } else if (highs[i] > other.highs[j]) {
+                j++;
+            } else {
+                Object container = intersect(containers[i], cardinalities[i],
+                        other.containers[j], other.cardinalities[j]);
+                int cardinality = cardinalityOf(container);
+                if (cardinality > 0) {
+                    result.highs[count] = highs[i];
+                    result.containers[count] = container;
+                    result.cardinalities[count] = cardinality;
+                    count++;
+                }
+                i++;
+                j++;
+            }
+        }
+        result.highs = Arrays.copyOf(result.highs, count);
+        result.containers = Arrays.copyOf(result.containers, count);
+        result.cardinalities = Arrays.copyOf(result.cardinalities, count);
+        return result;
+    }
+
+    private static Object intersect(Object a, int countA, Object b, int countB) {
+        if (a instanceof long[] && b instanceof long[]) {
+            long[] wordsA = (long[]) a;
+            long[] wordsB = (long[]) b;
+            long[] words = new long[BITMAP_WORDS];
+            int cardinality = 0;
+            for (int k = 0; k < BITMAP_WORDS; k++) {
+                words[k] = wordsA[k] & wordsB[k];
+                cardinality += Long.bitCount(words[k]);
+            }
+            return cardinality > ARRAY_MAX ? words : toArray(words, cardinality);
+        }
+        if (a instanceof long[]) {
+            return filter((char[]) b, countB, (long[]) a);
+        }
+        if (b instanceof long[]) {
+            return filter((char[]) a, countA, (long[]) b);
+        }
+        char[] valuesA = (char[]) a;
+        char[] valuesB = (char[]) b;
+        char[] values = new char[Math.min(countA, countB)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < countA && j < countB) {
+            if (valuesA[i] < valuesB[j]) {
+                i++;
+            } else if (valuesA[i] > valuesB[j]) {
+                j++;
+            } else {
+                values[count++] = valuesA[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    /** The values of a sorted array also set in a bitmap. */
+    private static char[] filter(char[] values, int count, long[] words) {
+        char[] kept = new char[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            char low = values[i];
+            if ((words[low >>> 6] & (1L << low)) != 0) {
+                kept[size++] = low;
+            }
+        }
+        return Arrays.copyOf(kept, size);
+    }
+
+    private static int cardinalityOf(Object container) {
+        if (container instanceof char[]) {
+            return ((char[]) container).length;
+        }
+        int cardinality = 0;
+        for (long word : (long[]) container) {
+            cardinality += Long.bitCount(word);
+        }
+        return cardinality;
+    }
+
+    private static long[] toBitmap(char[] values, int count) {
+        long[] words = new long[BITMAP_WORDS];
+        for (int i = 0; i < count; i++) {
+            words[values[i] >>> 6] |= 1L << values[i];
+        }
+        return words;
+    }
+
+    private static char[] toArray(long[] words, int cardinality) {
+        char[] values = new char[cardinality];
+        int count = 0;
+        for (int k = 0; k < BITMAP_WORDS; k++) {
+            long word = words[k];
+            while (word != 0) {
+                values[count++] = (char) ((k << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return values;
+    }
+
+    private void insertChunk(int position, char high, char[] values, int cardinality) {
+        int size = highs.length;
+        highs = Arrays.copyOf(highs, size + 1);
+        containers = Arrays.copyOf(containers, size + 1);
+        cardinalities = Arrays.copyOf(cardinalities, size + 1);
+        System.arraycopy(highs, position, highs, position + 1, size - position);
+        System.arraycopy(containers, position, containers, position + 1, size - position);
+        System.arraycopy(cardinalities, position, cardinalities, position + 1, size - position);
+        highs[position] = high;
+        containers[position] = values;
+        cardinalities[position] = cardinality;
+    }
+
+    private void removeChunk(int position) {
+        int size = highs.length;
+        System.arraycopy(highs, position + 1, highs, position, size - position - 1);
+        System.arraycopy(containers, position + 1, containers, position, size - position - 1);
+        System.arraycopy(cardinalities, position + 1, cardinalities, position, size - position - 1);
+        highs = Arrays.copyOf(highs, size - 1);
+        containers = Arrays.copyOf(containers, size - 1);
+        cardinalities = Arrays.copyOf(cardinalities, size - 1);
+    }
+}
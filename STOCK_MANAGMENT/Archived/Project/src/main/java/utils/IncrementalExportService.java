@@ -0,0 +1,152 @@
+package utils;
+
+import model.dao.ChangeFeed;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Exports, once a day, the articles and orders changed since the previous export.
+ * <p>
+ * Every day at {@code stock.export.time} ("02:00"; empty turns the schedule off), each
+ * {@link ChangeFeed.Flux} with changes is written to {@code <table>-yyyyMMdd-HHmmss.<ext>} in
+ * {@code stock.export.dir} ("exports"), in the {@link ReportFormat} named by
+ * {@code stock.export.format} (JSON_LINES). The position of the flux is saved only once its
+ * file is complete, so an export that fails is simply done again by the next run.
+ * <p>
+ * Rows modified in the last {@code stock.export.settleMinutes} minutes (5) wait for the next
+ * run: {@code updated_at} is set before its transaction commits, and a row committed after the
+ * export read past its timestamp would otherwise be skipped for good.
+ */
+public final class IncrementalExportService {
+
+    private static final Logger LOGGER = Logger.getLogger(IncrementalExportService.class.getName());
+
+    private static final Path DIRECTORY = Paths.get(System.getProperty("stock.export.dir", "exports"));
+    private static final String TIME = System.getProperty("stock.export.time", "02:00").trim();
+    private static final ReportFormat FORMAT = ReportFormat.valueOf(
+            System.getProperty("stock.export.format", ReportFormat.JSON_LINES.name()).trim().toUpperCase(Locale.ROOT));
+    private static final long SETTLE_MINUTES = Long.getLong("stock.export.settleMinutes", 5);
+    private static final int COLUMN_WIDTH = 20;
+
+    private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static IncrementalExportService instance;
+
+    private final ChangeFeed changeFeed = new ChangeFeed();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "incremental-export");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private IncrementalExportService() {
+        if (!TIME.isEmpty()) {
+            scheduleNext();
+        }
+    }
+
+    public static synchronized IncrementalExportService getInstance() {
+        if (instance == null) {
+            instance = new IncrementalExportService();
+        }
+        return instance;
+    }
+
+    /**
+     * Exports every flux now, after any export already running. Completes with the files
+     * written, none when nothing changed.
+     */
+    public CompletableFuture<List<Path>> exportNow() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return exportAll();
+            } catch (IOException e) {
+                throw new IllegalStateException("Export incrémental impossible: " + e.getMessage(), e);
+            }
+        }, scheduler);
+    }
+
+    private void scheduleNext() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime today = now.toLocalDate().atTime(LocalTime.parse(TIME));
+        LocalDateTime next = today.isAfter(now) ? today : today.plusDays(1);
+        // Scheduled one day at a time so that the hour holds across daylight saving changes
+        scheduler.schedule(this::scheduledExport, Duration.between(now, next).toMillis(), TimeUnit.MILLISECONDS);
+        LOGGER.fine(() -> "Prochain export incrémental: " + next);
+    }
+
+    private void scheduledExport() {
+        try {
+            exportAll();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.severe("Échec de l'export incrémental: " + e.getMessage());
+        } finally {
+            scheduleNext();
+        }
+    }
+
+    private List<Path> exportAll() throws IOException {
+        Files.createDirectories(DIRECTORY);
+        LocalDateTime now = LocalDateTime.now();
+        String upTo = now.minusMinutes(SETTLE_MINUTES).format(SQLITE_DATETIME_FORMATTER);
+        List<Path> files = new ArrayList<>();
+        for (ChangeFeed.Flux flux : ChangeFeed.Flux.values()) {
+            Path file = export(flux, DIRECTORY.resolve(flux.getTable() + "-" + now.format(FILE_TIMESTAMP)
+                    + "." + FORMAT.getExtension()), upTo);
+            if (file != null) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Writes the rows of {@code flux} changed up to {@code upTo} to {@code target} and moves the
+     * mark of the flux past them. Returns the file, or null when no row changed.
+     */
+    private Path export(ChangeFeed.Flux flux, Path target, String upTo) throws IOException {
+        long start = System.nanoTime();
+        ChangeFeed.Marque since = changeFeed.getMarque(flux);
+        List<ReportWriter.Column> columns = new ArrayList<>();
+        for (String colonne : flux.getColonnes()) {
+            columns.add(new ReportWriter.Column(colonne, colonne, COLUMN_WIDTH));
+        }
+        // Without rows the file is never finished, so closing it deletes it
+        try (ReportWriter writer = new ReportWriter(target, FORMAT, "Modifications de " + flux.getTable()
+                + " depuis " + since, columns)) {
+            ChangeFeed.Marque reached;
+            try {
+                reached = changeFeed.forEachSince(flux, since, upTo, writer::writeRow);
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            if (writer.getRowCount() == 0) {
+                return null;
+            }
+            writer.finish(null);
+            changeFeed.saveMarque(flux, reached);
+            long rows = writer.getRowCount();
+            LOGGER.info(() -> "Export incrémental de " + flux.getTable() + ": " + rows + " lignes depuis " + since
+                    + " jusqu'à " + reached + ", en " + (System.nanoTime() - start) / 1_000_000 + " ms, dans " + target);
+            return target.toAbsolutePath();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Sets up {@code java.util.logging} for the application. Call {@link #install()} first thing in
+ * {@code main}.
+ * <p>
+ * Classes keep logging through their own {@link Logger}. Debug output goes through
+ * {@code LOGGER.fine(() -> ...)}, so the message is only built when FINE is enabled. Every record
+ * then passes one per-logger rate limit before going to:
+ * <ul>
+ *   <li>the log file, written by a background thread ({@link AsyncFileHandler});</li>
+ *   <li>the console, for warnings and errors only.</li>
+ * </ul>
+ * System properties:
+ * <ul>
+ *   <li>{@code stock.log.level}: lowest level recorded (INFO)</li>
+ *   <li>{@code stock.log.consoleLevel}: lowest level printed to the console (WARNING)</li>
+ *   <li>{@code stock.log.file}: log file, empty for none (stock_management.log)</li>
+ *   <li>{@code stock.log.maxPerSecond}: records per logger and per second (50)</li>
+ * </ul>
+ */
+public final class LogConfig {
+
+    private static boolean installed;
+
+    private LogConfig() {
+    }
+
+    public static synchronized void install() {
+        if (installed) {
+            return;
+        }
+        installed = true;
+
+        Level level = Level.parse(System.getProperty("stock.log.level", "INFO"));
+        Level consoleLevel = Level.parse(System.getProperty("stock.log.consoleLevel", "WARNING"));
+        String file = System.getProperty("stock.log.file", "stock_management.log");
+        int maxPerSecond = Integer.getInteger("stock.log.maxPerSecond", 50);
+
+        Logger root = LogManager.getLogManager().getLogger("");
+        for (Handler handler : root.getHandlers()) {
+            root.removeHandler(handler);
+        }
+        root.setLevel(level);
+
+        ConsoleHandler console = new ConsoleHandler();
+        console.setLevel(consoleLevel);
+        console.setFormatter(new AsyncFileHandler.LineFormatter());
+
+        Handler fileHandler = null;
+        if (!file.isEmpty()) {
+            try {
+                fileHandler = new AsyncFileHandler(Path.of(file));
+                fileHandler.setLevel(level);
+            } catch (IOException e) {
+                System.err.println("Journal " + file + " inaccessible, console seule: " + e.getMessage());
+            }
+        }
+
+        RateLimitedHandler dispatcher = fileHandler == null
+                ? new RateLimitedHandler(List.of(console))
+                : new RateLimitedHandler(List.of(fileHandler, console));
+        dispatcher.setFilter(new RateLimitFilter(maxPerSecond));
+        root.addHandler(dispatcher);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(dispatcher::close, "log-shutdown"));
+    }
+
+    /**
+     * Applies the rate limit once per record, then hands the record to each target.
+     */
+    private static final class RateLimitedHandler extends Handler {
+        private final List<Handler> targets;
+
+        private RateLimitedHandler(List<Handler> targets) {
+            this.targets = targets;
+        }
+
+        @Override
+        public void publish(LogRecord record) {
+            if (!isLoggable(record)) {
+                return;
+            }
+            for (Handler target : targets) {
+                target.publish(record);
+            }
+        }
+
+        @Override
+        public void flush() {
+            for (Handler target : targets) {
+                target.flush();
+            }
+        }
+
+        @Override
+        public void close() {
+            for (Handler target : targets) {
+                target.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package utils;
+
+import model.dao.MagasinierDAO;
+import model.dao.MagasinierDAOImpl;
+import model.entities.Magasinier;
+
+import java.time.LocalDateTime;
+import java.util.logging.Logger;
+
+/**
+ * Checks credentials for the login screen. Every method here does blocking work and must run
+ * off the JavaFX Application Thread.
+ * <p>
+ * The answer to a login costs one indexed lookup and one password hash, and must come within
+ * {@code stock.login.budgetMs} milliseconds (500 by default). Everything else (the last-login
+ * time, upgrading a password stored in clear or with an old cost) is written after the answer,
+ * in the background. {@link #warmUp()} pays the one-off cost of the crypto provider before the
+ * first attempt and warns if the configured hash cost cannot fit the budget.
+ */
+public final class LoginService {
+
+    private static final Logger LOGGER = Logger.getLogger(LoginService.class.getName());
+
+    public static final long BUDGET_MS = Long.getLong("stock.login.budgetMs", 500);
+
+    private static final int WARM_UP_ROUNDS = 3;
+
+    private static final MagasinierDAO MAGASINIER_DAO = new MagasinierDAOImpl();
+
+    /** Verified against when the user does not exist, so that unknown names take as long as wrong passwords. */
+    private static volatile String decoyHash;
+
+    private LoginService() {
+    }
+
+    /**
+     * Hashes a few times so that the PBKDF2 code is loaded and compiled, then checks the cost
+     * of the last hash against the budget.
+     */
+    public static void warmUp() {
+        decoyHash();
+        long elapsedMs = 0;
+        for (int round = 0; round < WARM_UP_ROUNDS; round++) {
+            long start = System.nanoTime();
+            PasswordHasher.verify(new char[0], decoyHash());
+            elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        }
+        if (elapsedMs > BUDGET_MS / 2) {
+            LOGGER.warning("Le hachage du mot de passe prend " + elapsedMs + " ms pour un budget de connexion de "
+                    + BUDGET_MS + " ms; réduire stock.password.iterations (" + PasswordHasher.ITERATIONS + ")");
+        }
+    }
+
+    /**
+     * The active account with these credentials, or null.
+     */
+    public static Magasinier authenticate(String nomUtilisateur, char[] password) {
+        long start = System.nanoTime();
+        try {
+            Magasinier magasinier = MAGASINIER_DAO.getByNomUtilisateur(nomUtilisateur);
+            if (magasinier == null) {
+                PasswordHasher.verify(password, decoyHash());
+                return null;
+            }
+            boolean valid = PasswordHasher.verify(password, magasinier.getHashedPassword());
+            return valid && magasinier.isActif() ? magasinier : null;
+        } finally {
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            if (elapsedMs > BUDGET_MS) {
+                LOGGER.warning("Connexion vérifiée en " + elapsedMs + " ms, au-delà du budget de " + BUDGET_MS + " ms");
+            }
+        }
+    }
+
+    /**
+     * Records a successful login in the background: the last-login time and, when the stored
+     * password is in clear or uses another cost, a fresh hash of {@code password}.
+     */
+    public static void recordLogin(Magasinier magasinier, char[] password) {
+        boolean rehash = PasswordHasher.needsRehash(magasinier.getHashedPassword());
+        LocalDateTime now = LocalDateTime.now();
+        magasinier.setDernierConnexion(now);
+        DataAccessExecutor.submit(() -> {
+            MAGASINIER_DAO.recordConnexion(magasinier.getId(), now, rehash ? PasswordHasher.hash(password) : null);
+            return null;
+        }, ignored -> { }, e -> LOGGER.warning("Dernière connexion non enregistrée: " + e.getMessage()));
+    }
+
+    private static String decoyHash() {
+        String hash = decoyHash;
+        if (hash == null) {
+            hash = PasswordHasher.hash(new char[0]);
+            decoyHash = hash;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,201 @@
+package utils;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableView;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Fills a table's backing list one keyset page at a time, fetching the next page
+ * when the user scrolls close to the bottom of the table. Pages are fetched in the
+ * background; the table shows a loading placeholder until the first one arrives.
+ */
+public class PagedTableLoader<T> {
+
+    private static final Logger LOGGER = Logger.getLogger(PagedTableLoader.class.getName());
+
+    public static final int DEFAULT_PAGE_SIZE = 200;
+
+    /** How close to the bottom (as a fraction of the scroll range) the next page is requested. */
+    private static final double PREFETCH_THRESHOLD = 0.9;
+
+    @FunctionalInterface
+    public interface PageFetcher<T> {
+        List<T> fetch(Long afterId, int limit);
+    }
+
+    private final ObservableList<T> items;
+    private final int pageSize;
+    private final Function<T, Long> idExtractor;
+    private final PageFetcher<T> fetcher;
+    private final DataAccessExecutor.Scope scope;
+    private Consumer<List<T>> onPageLoaded;
+    private TableView<?> table;
+
+    private Consumer<Throwable> onError;
+
+    private Long lastId;
+    private boolean exhausted;
+    private boolean loading;
+    /** Bumped by {@link #reset}, so that pages requested before it are dropped. */
+    private int generation;
+
+    /**
+     * Pages are fetched on the data-access executor through {@code scope} and appended on the
+     * JavaFX Application Thread.
+     */
+    public PagedTableLoader(ObservableList<T> items, int pageSize, Function<T, Long> idExtractor, PageFetcher<T> fetcher,
+                            DataAccessExecutor.Scope scope) {
+        this.items = items;
+        this.pageSize = pageSize;
+        this.idExtractor = idExtractor;
+        this.fetcher = fetcher;
+        this.scope = scope;
+    }
+
+    public void setOnPageLoaded(Consumer<List<T>> onPageLoaded) {
+        this.onPageLoaded = onPageLoaded;
+    }
+
+    public void setOnError(Consumer<Throwable> onError) {
+        this.onError = onError;
+    }
+
+    /**
+     * Watches the table's vertical scroll bar. The table may show a filtered view of the
+     * backing list; {@link #fillViewport()} uses its item count to decide whether to keep loading.
+     */
+    public void attachTo(TableView<?> table) {
+        this.table = table;
+        table.skinProperty().addListener((obs, oldSkin, newSkin) -> {
+            if (newSkin != null) {
+                Platform.runLater(this::bindScrollBar);
+            }
+        });
+        if (table.getSkin() != null) {
+            bindScrollBar();
+        }
+    }
+
+    private void bindScrollBar() {
+        for (Node node : table.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar && ((ScrollBar) node).getOrientation() == Orientation.VERTICAL) {
+                ScrollBar scrollBar = (ScrollBar) node;
+                scrollBar.valueProperty().addListener((obs, oldVal, newVal) -> {
+                    double range = scrollBar.getMax() - scrollBar.getMin();
+                    if (range > 0 && newVal.doubleValue() >= scrollBar.getMin() + range * PREFETCH_THRESHOLD) {
+                        loadNextPage();
+                    }
+                });
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drops everything loaded so far and loads the first page again. {@code onFirstPage}, if
+     * not null, runs once that page is in the list; pages still in flight are discarded.
+     */
+    public void reset(Consumer<List<T>> onFirstPage) {
+        generation++;
+        items.clear();
+        lastId = null;
+        exhausted = false;
+        loading = false;
+        Runnable restorePlaceholder = table != null ? DataAccessExecutor.showLoading(table) : null;
+        fetchNextPage(page -> {
+            if (restorePlaceholder != null) {
+                restorePlaceholder.run();
+            }
+            if (onFirstPage != null) {
+                onFirstPage.accept(page);
+            }
+        }, restorePlaceholder);
+    }
+
+    public void reset() {
+        reset(null);
+    }
+
+    /**
+     * Requests the next page; it is appended to the backing list when it arrives.
+     * Returns false when there is nothing left to load or a page is already on its way.
+     */
+    public boolean loadNextPage() {
+        if (exhausted || loading) {
+            return false;
+        }
+        fetchNextPage(null, null);
+        return true;
+    }
+
+    private void fetchNextPage(Consumer<List<T>> then, Runnable onFailure) {
+        loading = true;
+        int requestGeneration = generation;
+        Long afterId = lastId;
+        scope.submit(() -> fetcher.fetch(afterId, pageSize), page -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            loading = false;
+            if (page.size() < pageSize) {
+                exhausted = true;
+            }
+            if (!page.isEmpty()) {
+                lastId = idExtractor.apply(page.get(page.size() - 1));
+                items.addAll(page);
+                if (onPageLoaded != null) {
+                    onPageLoaded.accept(page);
+                }
+            }
+            if (then != null) {
+                then.accept(page);
+            }
+            fillViewport();
+        }, error -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            loading = false;
+            // Stop scrolling from retrying a failing query; reset() tries again
+            exhausted = true;
+            if (onFailure != null) {
+                onFailure.run();
+            }
+            if (onError != null) {
+                onError.accept(error);
+            } else {
+                LOGGER.severe("Échec du chargement d'une page: " + error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Keeps loading while the (possibly filtered) table shows less than one page, so that a
+     * restrictive filter still finds matches beyond the rows loaded so far. Each page that
+     * arrives checks again.
+     */
+    public void fillViewport() {
+        if (table == null || loading || exhausted) {
+            return;
+        }
+        if (table.getItems().size() < pageSize) {
+            loadNextPage();
+        }
+    }
+
+    public boolean hasMore() {
+        return !exhausted;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+}
@@ -0,0 +1,96 @@
+package utils;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Salted PBKDF2 password hashes.
+ * <p>
+ * A hash is stored as {@code pbkdf2-sha256$<iterations>$<salt>$<hash>} (salt and hash in Base64),
+ * so every hash carries the cost it was made with and the cost can be raised without breaking
+ * existing accounts. New hashes use {@code stock.password.iterations} iterations.
+ * <p>
+ * Accounts created before hashing existed hold their password in clear; {@link #verify} still
+ * accepts them and {@link #needsRehash} reports them so that the login can upgrade them.
+ */
+public final class PasswordHasher {
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    public static final int ITERATIONS = Integer.getInteger("stock.password.iterations", 120_000);
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private PasswordHasher() {
+    }
+
+    public static String hash(char[] password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + ITERATIONS + "$" + encoder.encodeToString(salt) + "$"
+                + encoder.encodeToString(derive(password, salt, ITERATIONS));
+    }
+
+    /**
+     * Whether {@code password} matches {@code stored}. Takes the same time whatever the
+     * position of the first wrong character.
+     */
+    public static boolean verify(char[] password, String stored) {
+        if (stored == null) {
+            return false;
+        }
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(new String(password).getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            int iterations = Integer.parseInt(parts[1]);
+            Base64.Decoder decoder = Base64.getDecoder();
+            byte[] salt = decoder.decode(parts[2]);
+            byte[] expected = decoder.decode(parts[3]);
+            return MessageDigest.isEqual(derive(password, salt, iterations), expected);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Whether {@code stored} should be replaced by a fresh hash: it is in clear or was made
+     * with a different cost than the configured one.
+     */
+    public static boolean needsRehash(String stored) {
+        if (stored == null || !isHashed(stored)) {
+            return true;
+        }
+        String[] parts = stored.split("\\$");
+        return parts.length != 4 || !parts[1].equals(String.valueOf(ITERATIONS));
+    }
+
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX + "$");
+    }
+
+    private static byte[] derive(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 indisponible: " + e.getMessage(), e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Writes a report as a PDF document, one A4 page at a time.
+ * <p>
+ * Lines are laid out as in {@link ReportFormat#FIXED_WIDTH}, in Courier so that the columns
+ * line up, under the report title and a header line repeated on every page. Only the page being
+ * filled is kept in memory: it is written out as soon as it is full, and the document catalog
+ * and cross-reference table, which only hold one offset per page, are written by
+ * {@link #finish}.
+ * <p>
+ * Text is encoded in the standard WinAnsi encoding, which covers French; other characters are
+ * printed as {@code ?}.
+ */
+public final class PdfReportWriter implements ReportOutput {
+
+    private static final Logger LOGGER = Logger.getLogger(PdfReportWriter.class.getName());
+
+    private static final float PAGE_WIDTH = 595;
+    private static final float PAGE_HEIGHT = 842;
+    private static final float MARGIN = 40;
+    private static final float TITLE_SIZE = 12;
+    private static final float MAX_FONT_SIZE = 8;
+    /** Width of a Courier character, per point of font size. */
+    private static final float CHAR_WIDTH = 0.6f;
+
+    private static final int CATALOG_ID = 1;
+    private static final int PAGES_ID = 2;
+    private static final int FONT_ID = 3;
+    private static final int BOLD_FONT_ID = 4;
+
+    /** WinAnsi codes of the characters of 0x80 to 0x9F, by position; 0 when not encoded. */
+    private static final char[] WIN_ANSI_80 = {
+            '€', 0, '‚', 'ƒ', '„', '…', '†', '‡',
+            'ˆ', '‰', 'Š', '‹', 'Œ', 0, 'Ž', 0,
+            0, '‘', '’', '“', '”', '•', '–', '—',
+            '˜', '™', 'š', '›', 'œ', 0, 'ž', 'Ÿ'};
+
+    private final Path target;
+    private final Path partial;
+    private final String title;
+    private final List<ReportWriter.Column> columns;
+    private final FileChannel channel;
+    private final float fontSize;
+    private final float leading;
+    private final int linesPerPage;
+    private final String headerLine;
+    private final StringBuilder line = new StringBuilder(256);
+    private final ByteArrayOutputStream page = new ByteArrayOutputStream(16 * 1024);
+    private long position;
+    /** File offset of each object, by object number. */
+    private long[] offsets = new long[64];
+    private int nextId = BOLD_FONT_ID + 1;
+    private int[] pageIds = new int[16];
+    private int pageCount;
+    private int linesOnPage;
+    private String section;
+    private long rowCount;
+    private boolean finished;
+    private boolean closed;
+
+    /**
+     * Creates the {@code .part} file and writes the document header and fonts.
+     */
+    public PdfReportWriter(Path target, String title, List<ReportWriter.Column> columns) throws IOException {
+        this.target = target.toAbsolutePath();
+        this.partial = this.target.resolveSibling(this.target.getFileName() + ".part");
+        this.title = title;
+        this.columns = List.copyOf(columns);
+
+        ReportFormat.FIXED_WIDTH.row(this.columns,
+                this.columns.stream().map(ReportWriter.Column::getLabel).toArray(), line);
+        this.headerLine = takeLine();
+        // Shrink the font when the lines would not fit the page width
+        this.fontSize = Math.min(MAX_FONT_SIZE, (PAGE_WIDTH - 2 * MARGIN) / (headerLine.length() * CHAR_WIDTH));
+        this.leading = fontSize * 1.35f;
+        this.linesPerPage = (int) ((PAGE_HEIGHT - 2 * MARGIN - 3 * TITLE_SIZE - 2 * leading) / leading);
+
+        this.channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        write(ascii("%PDF-1.4\n%âãÏÓ\n"));
+        writeObject(FONT_ID, "<< /Type /Font /Subtype /Type1 /BaseFont /Courier /Encoding /WinAnsiEncoding >>");
+        writeObject(BOLD_FONT_ID, "<< /Type /Font /Subtype /Type1 /BaseFont /Courier-Bold /Encoding /WinAnsiEncoding >>");
+    }
+
+    @Override
+    public void writeRow(Object... values) throws IOException {
+        if (values.length != columns.size()) {
+            throw new IllegalArgumentException("Attendu " + columns.size() + " valeurs, reçu " + values.length);
+        }
+        ReportFormat.FIXED_WIDTH.row(columns, values, line);
+        addLine(takeLine());
+        rowCount++;
+    }
+
+    /**
+     * Ends the current page, if it holds lines, and prints {@code heading} under the title of
+     * the following pages.
+     */
+    @Override
+    public void startSection(String heading) throws IOException {
+        if (linesOnPage > 0) {
+            endPage();
+        }
+        section = heading;
+    }
+
+    @Override
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public Path finish(String emptyText) throws IOException {
+        if (rowCount == 0 && emptyText != null) {
+            addLine(emptyText);
+        }
+        if (linesOnPage > 0) {
+            endPage();
+        } else if (pageCount == 0) {
+            // A document needs at least one page
+            beginPage();
+            endPage();
+        }
+        StringBuilder kids = new StringBuilder("<< /Type /Pages /Count ").append(pageCount).append(" /Kids [");
+        for (int i = 0; i < pageCount; i++) {
+            kids.append(i > 0 ? " " : "").append(pageIds[i]).append(" 0 R");
+        }
+        writeObject(PAGES_ID, kids.append("] >>").toString());
+        writeObject(CATALOG_ID, "<< /Type /Catalog /Pages " + PAGES_ID + " 0 R >>");
+
+        long xref = position;
+        StringBuilder table = new StringBuilder("xref\n0 ").append(nextId).append("\n0000000000 65535 f \n");
+        for (int id = 1; id < nextId; id++) {
+            String offset = Long.toString(offsets[id]);
+            table.append("0000000000", 0, 10 - offset.length()).append(offset).append(" 00000 n \n");
+        }
+        table.append("trailer\n<< /Size ").append(nextId).append(" /Root ").append(CATALOG_ID)
+                .append(" 0 R >>\nstartxref\n").append(xref).append("\n%%EOF\n");
+        write(ascii(table.toString()));
+        channel.close();
+        closed = true;
+        ReportWriter.publish(partial, target);
+        finished = true;
+        LOGGER.info("Rapport PDF de " + rowCount + " lignes sur " + pageCount + " pages écrit dans " + target);
+        return target;
+    }
+
+    /**
+     * Releases the file; an unfinished report is deleted.
+     */
+    @Override
+    public void close() throws IOException {
+        if (finished) {
+            return;
+        }
+        try {
+            if (!closed) {
+                channel.close();
+                closed = true;
+            }
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    private void addLine(String text) throws IOException {
+        if (linesOnPage == 0) {
+            beginPage();
+        }
+        page.writeBytes(ascii(linesOnPage == 0 ? "" : "T* "));
+        page.writeBytes(pdfString(text));
+        page.writeBytes(ascii(" Tj\n"));
+        if (++linesOnPage == linesPerPage) {
+            endPage();
+        }
+    }
+
+    private void beginPage() {
+        page.reset();
+        float y = PAGE_HEIGHT - MARGIN - TITLE_SIZE;
+        text("/F2", TITLE_SIZE, y, title);
+        if (section != null) {
+            y -= TITLE_SIZE * 1.5f;
+            text("/F2", fontSize + 1, y, section);
+        }
+        y -= TITLE_SIZE * 1.5f;
+        text("/F2", fontSize, y, headerLine);
+        float rule = y - fontSize * 0.4f;
+        page.writeBytes(ascii("0.5 w " + MARGIN + " " + rule + " m " + (PAGE_WIDTH - MARGIN) + " " + rule + " l S\n"));
+        page.writeBytes(ascii("BT /F1 " + fontSize + " Tf " + leading + " TL " + MARGIN + " " + (y - leading) + " Td\n"));
+    }
+
+    /** Closes the text of the page, adds its footer and writes the page out. */
+    private void endPage() throws IOException {
+        page.writeBytes(ascii("ET\n"));
+        text("/F1", fontSize, MARGIN / 2, "Page " + (pageCount + 1));
+
+        int contentId = nextId++;
+        int pageId = nextId++;
+        writeObject(contentId, "<< /Length " + page.size() + " >>\nstream\n", page.toByteArray(), "\nendstream");
+        writeObject(pageId, "<< /Type /Page /Parent " + PAGES_ID + " 0 R /MediaBox [0 0 " + PAGE_WIDTH + " " + PAGE_HEIGHT
+                + "] /Resources << /Font << /F1 " + FONT_ID + " 0 R /F2 " + BOLD_FONT_ID + " 0 R >> >> /Contents "
+                + contentId + " 0 R >>");
+        if (pageCount == pageIds.length) {
+            pageIds = Arrays.copyOf(pageIds, pageCount * 2);
+        }
+        pageIds[pageCount++] = pageId;
+        linesOnPage = 0;
+        page.reset();
+    }
+
+    private void text(String font, float size, float y, String text) {
+        page.writeBytes(ascii("BT " + font + " " + size + " Tf " + MARGIN + " " + y + " Td "));
+        page.writeBytes(pdfString(text));
+        page.writeBytes(ascii(" Tj ET\n"));
+    }
+
+    private void writeObject(int id, String dictionary) throws IOException {
+        writeObject(id, dictionary, null, "");
+    }
+
+    private void writeObject(int id, String head, byte[] stream, String tail) throws IOException {
+        if (id >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, Math.max(id + 1, offsets.length * 2));
+        }
+        offsets[id] = position;
+        write(ascii(id + " 0 obj\n" + head));
+        if (stream != null) {
+            write(stream);
+        }
+        write(ascii(tail + "\nendobj\n"));
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+    }
+
+    private String takeLine() {
+        // FIXED_WIDTH ends each line with a line feed
+        String text = line.substring(0, line.length() - 1);
+        line.setLength(0);
+        return text;
+    }
+
+    /** {@code text} as a PDF literal string in WinAnsi encoding. */
+    private static byte[] pdfString(String text) {
+        byte[] bytes = new byte[text.length() * 2 + 2];
+        int size = 0;
+        bytes[size++] = '(';
+        for (int i = 0; i < text.length(); i++) {
+            int code = winAnsi(text.charAt(i));
+            if (code == '(' || code == ')' || code == '\\') {
+                bytes[size++] = '\\';
+            }
+            bytes[size++] = (byte) code;
+        }
+        bytes[size++] = ')';
+        return Arrays.copyOf(bytes, size);
+    }
+
+    private static int winAnsi(char c) {
+        if (c < 0x20) {
+            return ' ';
+        }
+        if (c < 0x7F || (c >= 0xA0 && c <= 0xFF)) {
+            return c;
+        }
+        for (int i = 0; i < WIN_ANSI_80.length; i++) {
+            if (WIN_ANSI_80[i] == c) {
+                return 0x80 + i;
+            }
+        }
+        return '?';
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,182 @@
+package utils;
+
+import java.text.Normalizer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the rows whose key starts with a given text, ignoring case and accents.
+ * <p>
+ * Keys are normalized once, when the index is built, and kept in a sorted array: a prefix
+ * search is two binary searches, and its result is a view of the matching slice, so it costs
+ * O(log n) whatever the number of rows. The index never changes: {@link #replace} returns an
+ * updated copy, in O(n) array copies instead of a new sort.
+ */
+public final class PrefixIndex<T> {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final Function<T, String> keyOf;
+    private final String[] keys;
+    private final Object[] rows;
+
+    /**
+     * Indexes {@code rows} by {@code keyOf}; rows with a null key are left out. Rows with equal
+     * keys keep their order in {@code rows}.
+     */
+    public PrefixIndex(Collection<T> rows, Function<T, String> keyOf) {
+        this.keyOf = keyOf;
+        Object[][] entries = new Object[rows.size()][];
+        int count = 0;
+        for (T row : rows) {
+            String key = keyOf.apply(row);
+            if (key != null) {
+                entries[count++] = new Object[] {normalize(key), row};
+            }
+        }
+        // Stable sort, so equal keys stay in row order
+        Arrays.sort(entries, 0, count, Comparator.comparing(entry -> (String) entry[0]));
+        this.keys = new String[count];
+        this.rows = new Object[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = (String) entries[i][0];
+            this.rows[i] = entries[i][1];
+        }
+    }
+
+    private PrefixIndex(Function<T, String> keyOf, String[] keys, Object[] rows) {
+        this.keyOf = keyOf;
+        this.keys = keys;
+        this.rows = rows;
+    }
+
+    /**
+     * A copy of this index without {@code oldRow} and with {@code newRow}; either may be null.
+     * A row added with the same key as others comes after them.
+     */
+    public PrefixIndex<T> replace(T oldRow, T newRow) {
+        String[] newKeys = keys;
+        Object[] newRows = rows;
+        int removed = oldRow == null ? -1 : positionOf(oldRow);
+        if (removed >= 0) {
+            newKeys = new String[keys.length - 1];
+            newRows = new Object[keys.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, removed);
+            System.arraycopy(rows, 0, newRows, 0, removed);
+            System.arraycopy(keys, removed + 1, newKeys, removed, keys.length - removed - 1);
+            System.arraycopy(rows, removed + 1, newRows, removed, keys.length - removed - 1);
+        }
+        String key = newRow == null ? null : keyOf.apply(newRow);
+        if (key != null) {
+            String normalized = normalize(key);
+            // After the equal keys
+            int at = lowerBound(newKeys, normalized + Character.MIN_VALUE);
+            String[] withKeys = new String[newKeys.length + 1];
+            Object[] withRows = new Object[newKeys.length + 1];
+            System.arraycopy(newKeys, 0, withKeys, 0, at);
+            System.arraycopy(newRows, 0, withRows, 0, at);
+            withKeys[at] = normalized;
+            withRows[at] = newRow;
+            System.arraycopy(newKeys, at, withKeys, at + 1, newKeys.length - at);
+            System.arraycopy(newRows, at, withRows, at + 1, newKeys.length - at);
+            newKeys = withKeys;
+            newRows = withRows;
+        }
+        return new PrefixIndex<>(keyOf, newKeys, newRows);
+    }
+
+    /** The position of {@code row}, found by its key, or by a scan if its key changed since; -1 if absent. */
+    private int positionOf(T row) {
+        String key = keyOf.apply(row);
+        if (key != null) {
+            String normalized = normalize(key);
+            for (int i = lowerBound(keys, normalized); i < keys.length && keys[i].equals(normalized); i++) {
+                if (rows[i] == row) {
+                    return i;
+                }
+            }
+        }
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] == row) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The text as compared by the index: without accents, in lower case, trimmed.
+     * "Équipement " becomes "equipement".
+     */
+    public static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text.trim(), Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The rows whose key starts with {@code prefix}, ordered by key. An empty prefix matches
+     * every row. The list is a read-only view.
+     */
+    public List<T> search(String prefix) {
+        String normalized = normalize(prefix);
+        int from = lowerBound(keys, normalized);
+        int to = normalized.isEmpty() ? keys.length : lowerBound(keys, normalized + Character.MAX_VALUE);
+        return slice(from, to);
+    }
+
+    /**
+     * The rows whose key equals {@code text}, ignoring case and accents.
+     */
+    public List<T> find(String text) {
+        String normalized = normalize(text);
+        int from = lowerBound(keys, normalized);
+        int to = from;
+        while (to < keys.length && keys[to].equals(normalized)) {
+            to++;
+        }
+        return slice(from, to);
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /** The first position whose key is not less than {@code key}. */
+    private static int lowerBound(String[] keys, String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private List<T> slice(int from, int to) {
+        return new AbstractList<>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public T get(int index) {
+                if (index < 0 || index >= to - from) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                return (T) rows[from + index];
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+}
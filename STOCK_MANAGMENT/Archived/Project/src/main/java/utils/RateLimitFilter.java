@@ -0,0 +1,56 @@
+package utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Filter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Lets through at most {@code maxPerSecond} records per logger and per second.
+ * <p>
+ * Records above the limit are counted, and the next record let through from that logger says
+ * how many were suppressed. SEVERE records are never suppressed.
+ */
+public class RateLimitFilter implements Filter {
+
+    private final int maxPerSecond;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    public RateLimitFilter(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    private static final class Window {
+        private long second;
+        private int count;
+        private long suppressed;
+    }
+
+    @Override
+    public boolean isLoggable(LogRecord record) {
+        if (record.getLevel().intValue() >= Level.SEVERE.intValue()) {
+            return true;
+        }
+        String name = record.getLoggerName() == null ? "" : record.getLoggerName();
+        Window window = windows.computeIfAbsent(name, n -> new Window());
+        long second = record.getMillis() / 1000;
+        long suppressed;
+        synchronized (window) {
+            if (window.second != second) {
+                window.second = second;
+                window.count = 0;
+            }
+            if (++window.count > maxPerSecond) {
+                window.suppressed++;
+                return false;
+            }
+            suppressed = window.suppressed;
+            window.suppressed = 0;
+        }
+        if (suppressed > 0) {
+            record.setMessage("[" + suppressed + " messages supprimés] " + record.getMessage());
+        }
+        return true;
+    }
+}
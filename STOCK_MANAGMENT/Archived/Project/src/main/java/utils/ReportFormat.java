@@ -0,0 +1,217 @@
+package utils;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The file formats a {@link ReportWriter} can produce. Each one formats a single line at a
+ * time into a buffer supplied by the writer, so a report never exists in memory as a whole.
+ */
+public enum ReportFormat {
+
+    /** Aligned columns separated by {@code |}, to be read as is. */
+    FIXED_WIDTH("txt", "Texte aligné") {
+        @Override
+        void header(String title, List<ReportWriter.Column> columns, StringBuilder out) {
+            out.append(title).append('\n');
+            repeat(out, '-', title.length());
+            out.append('\n');
+            for (int i = 0; i < columns.size(); i++) {
+                separate(out, i);
+                pad(out, columns.get(i).getLabel(), columns.get(i).getWidth());
+            }
+            out.append('\n');
+            for (int i = 0; i < columns.size(); i++) {
+                separate(out, i);
+                repeat(out, '-', columns.get(i).getWidth());
+            }
+            out.append('\n');
+        }
+
+        @Override
+        void row(List<ReportWriter.Column> columns, Object[] values, StringBuilder out) {
+            for (int i = 0; i < columns.size(); i++) {
+                separate(out, i);
+                Object value = values[i];
+                int width = columns.get(i).getWidth();
+                String text = value == null ? "" : value.toString();
+                // Numbers are never cut, text is cut with "..." to keep the columns aligned
+                if (!(value instanceof Number) && text.length() > width) {
+                    out.append(text, 0, Math.max(0, width - 3)).append("...");
+                } else {
+                    pad(out, text, width);
+                }
+            }
+            out.append('\n');
+        }
+
+        @Override
+        void footer(long rows, String emptyText, StringBuilder out) {
+            if (rows == 0 && emptyText != null) {
+                out.append(emptyText).append('\n');
+            }
+        }
+
+        private void separate(StringBuilder out, int column) {
+            if (column > 0) {
+                out.append(" | ");
+            }
+        }
+    },
+
+    /** Comma-separated values as described by RFC 4180, with a line of column labels. */
+    CSV("csv", "CSV") {
+        @Override
+        void header(String title, List<ReportWriter.Column> columns, StringBuilder out) {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                quote(out, columns.get(i).getLabel());
+            }
+            out.append("\r\n");
+        }
+
+        @Override
+        void row(List<ReportWriter.Column> columns, Object[] values, StringBuilder out) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                if (values[i] != null) {
+                    quote(out, values[i].toString());
+                }
+            }
+            out.append("\r\n");
+        }
+
+        private void quote(StringBuilder out, String text) {
+            boolean quoted = false;
+            for (int i = 0; i < text.length() && !quoted; i++) {
+                char c = text.charAt(i);
+                quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quoted) {
+                out.append(text);
+                return;
+            }
+            out.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"') {
+                    out.append('"');
+                }
+                out.append(c);
+            }
+            out.append('"');
+        }
+    },
+
+    /** One JSON object per line, keyed by the column keys. */
+    JSON_LINES("jsonl", "JSON Lines") {
+        @Override
+        void header(String title, List<ReportWriter.Column> columns, StringBuilder out) {
+        }
+
+        @Override
+        void row(List<ReportWriter.Column> columns, Object[] values, StringBuilder out) {
+            out.append('{');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                string(out, columns.get(i).getKey());
+                out.append(':');
+                Object value = values[i];
+                if (value == null) {
+                    out.append("null");
+                } else if (value instanceof Number || value instanceof Boolean) {
+                    out.append(value);
+                } else {
+                    string(out, value.toString());
+                }
+            }
+            out.append("}\n");
+        }
+
+        private void string(StringBuilder out, String text) {
+            out.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '"':
+                        out.append("\\\"");
+                        break;
+                    case '\\':
+                        out.append("\\\\");
+                        break;
+                    case '\n':
+                        out.append("\\n");
+                        break;
+                    case '\r':
+                        out.append("\\r");
+                        break;
+                    case '\t':
+                        out.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            out.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            out.append(c);
+                        }
+                }
+            }
+            out.append('"');
+        }
+    };
+
+    private final String extension;
+    private final String description;
+
+    ReportFormat(String extension, String description) {
+        this.extension = extension;
+        this.description = description;
+    }
+
+    /** The usual file extension, without the dot. */
+    public String getExtension() {
+        return extension;
+    }
+
+    /** A short name to show in file choosers. */
+    public String getDescription() {
+        return description;
+    }
+
+    /** The format whose extension ends {@code fileName}, or {@code fallback}. */
+    public static ReportFormat forFileName(String fileName, ReportFormat fallback) {
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        for (ReportFormat format : values()) {
+            if (lower.endsWith("." + format.extension)) {
+                return format;
+            }
+        }
+        return fallback;
+    }
+
+    abstract void header(String title, List<ReportWriter.Column> columns, StringBuilder out);
+
+    /** {@code values} holds one value per column, possibly null. */
+    abstract void row(List<ReportWriter.Column> columns, Object[] values, StringBuilder out);
+
+    /** {@code emptyText} is only written by formats meant to be read by people. */
+    void footer(long rows, String emptyText, StringBuilder out) {
+    }
+
+    private static void pad(StringBuilder out, String text, int width) {
+        out.append(text);
+        repeat(out, ' ', width - text.length());
+    }
+
+    private static void repeat(StringBuilder out, char c, int count) {
+        for (int i = 0; i < count; i++) {
+            out.append(c);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A report being written line by line: a text file ({@link ReportWriter}) or a PDF document
+ * ({@link PdfReportWriter}).
+ * <p>
+ * A report is written to a {@code .part} file next to its target and only replaces the target
+ * in {@link #finish}. Closing it without finishing, after a failure, deletes it.
+ */
+public interface ReportOutput extends Closeable {
+
+    /**
+     * Appends one line with a value per column; null values are left blank.
+     */
+    void writeRow(Object... values) throws IOException;
+
+    /**
+     * Starts a new group of lines, such as the stock of another local. Paged outputs start it
+     * on a new page under {@code heading}; the others ignore it.
+     */
+    default void startSection(String heading) throws IOException {
+    }
+
+    long getRowCount();
+
+    /**
+     * Completes the report, with {@code emptyText} when there was no line, and moves it to its
+     * target. Returns the target.
+     */
+    Path finish(String emptyText) throws IOException;
+}
@@ -0,0 +1,167 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Writes a report line by line to a file, in one of the {@link ReportFormat}s.
+ * <p>
+ * Each line is formatted into a reused buffer, encoded as UTF-8 into a fixed
+ * {@value #CHUNK_SIZE}-byte buffer, and written to a {@link FileChannel} whenever that buffer is
+ * full. Memory use therefore does not depend on the number of lines.
+ */
+public final class ReportWriter implements ReportOutput {
+
+    private static final Logger LOGGER = Logger.getLogger(ReportWriter.class.getName());
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * A column of a report: {@code key} names it in JSON, {@code label} in the header of the
+     * other formats, and {@code width} is its size in the fixed-width format.
+     */
+    public static final class Column {
+        private final String key;
+        private final String label;
+        private final int width;
+
+        public Column(String key, String label, int width) {
+            this.key = key;
+            this.label = label;
+            this.width = width;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+    }
+
+    private final Path target;
+    private final Path partial;
+    private final ReportFormat format;
+    private final List<Column> columns;
+    private final FileChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+    private final StringBuilder line = new StringBuilder(256);
+    private long rowCount;
+    private boolean finished;
+    private boolean closed;
+
+    /**
+     * Creates the {@code .part} file and writes the header of {@code format}.
+     */
+    public ReportWriter(Path target, ReportFormat format, String title, List<Column> columns) throws IOException {
+        this.target = target.toAbsolutePath();
+        this.partial = this.target.resolveSibling(this.target.getFileName() + ".part");
+        this.format = format;
+        this.columns = List.copyOf(columns);
+        this.channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        format.header(title, this.columns, line);
+        encodeLine();
+    }
+
+    @Override
+    public void writeRow(Object... values) throws IOException {
+        if (values.length != columns.size()) {
+            throw new IllegalArgumentException("Attendu " + columns.size() + " valeurs, reçu " + values.length);
+        }
+        format.row(columns, values, line);
+        encodeLine();
+        rowCount++;
+    }
+
+    @Override
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public Path finish(String emptyText) throws IOException {
+        format.footer(rowCount, emptyText, line);
+        encodeLine();
+        encoder.encode(CharBuffer.allocate(0), chunk, true);
+        encoder.flush(chunk);
+        writeChunk();
+        channel.close();
+        closed = true;
+        publish(partial, target);
+        finished = true;
+        LOGGER.info("Rapport de " + rowCount + " lignes écrit dans " + target);
+        return target;
+    }
+
+    /**
+     * Releases the file; an unfinished report is deleted.
+     */
+    @Override
+    public void close() throws IOException {
+        if (finished) {
+            return;
+        }
+        try {
+            if (!closed) {
+                channel.close();
+                closed = true;
+            }
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    /** Replaces {@code target} with the completed {@code partial} file, atomically if possible. */
+    static void publish(Path partial, Path target) throws IOException {
+        try {
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void encodeLine() throws IOException {
+        CharBuffer chars = CharBuffer.wrap(line);
+        while (true) {
+            CoderResult result = encoder.encode(chars, chunk, false);
+            if (result.isOverflow()) {
+                writeChunk();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+        line.setLength(0);
+    }
+
+    private void writeChunk() throws IOException {
+        chunk.flip();
+        while (chunk.hasRemaining()) {
+            channel.write(chunk);
+        }
+        chunk.clear();
+    }
+}
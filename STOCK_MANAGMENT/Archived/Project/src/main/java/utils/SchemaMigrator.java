@@ -0,0 +1,189 @@
+package utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Brings the database schema up to date when the application starts.
+ * <p>
+ * Migrations are numbered and applied in order, each in its own transaction together with
+ * its row in {@code schema_version}. Scripts live in {@code /db/migration} and only use
+ * idempotent statements, so a database created before migrations existed is upgraded
+ * without touching its data.
+ */
+public final class SchemaMigrator {
+
+    private static final Logger LOGGER = Logger.getLogger(SchemaMigrator.class.getName());
+    private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String SCRIPT_DIRECTORY = "/db/migration/";
+
+    /** First version whose schema guarantees {@code magasinier.updated_at}. */
+    public static final int VERSION_MAGASINIER_UPDATED_AT = 2;
+
+    @FunctionalInterface
+    private interface Step {
+        void apply(Connection connection) throws SQLException;
+    }
+
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final Step step;
+
+        private Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    private static final Migration[] MIGRATIONS = {
+            new Migration(1, "Schéma initial", script("V1__schema_initial.sql")),
+            new Migration(VERSION_MAGASINIER_UPDATED_AT, "Colonne magasinier.updated_at",
+                    connection -> addColumnIfMissing(connection, "magasinier", "updated_at", "TEXT",
+                            "UPDATE magasinier SET updated_at = COALESCE(created_at, datetime('now'))")),
+            new Migration(3, "Index des chemins critiques", script("V3__index_chemins_critiques.sql")),
+            new Migration(4, "Journal des mouvements de stock", script("V4__journal_stock.sql")),
+            new Migration(5, "Export incrémental", script("V5__export_incremental.sql"))
+    };
+
+    private static volatile int currentVersion = -1;
+
+    private SchemaMigrator() {
+    }
+
+    /**
+     * Applies every migration newer than the recorded version. Returns the resulting version.
+     */
+    public static synchronized int migrate(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INTEGER PRIMARY KEY, " +
+                    "description TEXT NOT NULL, " +
+                    "applied_at TEXT NOT NULL)");
+        }
+
+        int version = readVersion(connection);
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version <= version) {
+                continue;
+            }
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                migration.step.apply(connection);
+                try (PreparedStatement stmt = connection.prepareStatement(
+                        "INSERT INTO schema_version (version, description, applied_at) VALUES (?, ?, ?)")) {
+                    stmt.setInt(1, migration.version);
+                    stmt.setString(2, migration.description);
+                    stmt.setString(3, LocalDateTime.now().format(SQLITE_DATETIME_FORMATTER));
+                    stmt.executeUpdate();
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw new SQLException("Échec de la migration " + migration.version + " (" + migration.description + "): " + e.getMessage(), e);
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            version = migration.version;
+            LOGGER.info("Migration appliquée: " + migration.version + " - " + migration.description);
+        }
+        currentVersion = version;
+        return version;
+    }
+
+    /**
+     * Version recorded by the last {@link #migrate} call of this process, or -1 before it ran.
+     */
+    public static int getCurrentVersion() {
+        return currentVersion;
+    }
+
+    /**
+     * Latest version known to this build.
+     */
+    public static int getLatestVersion() {
+        return MIGRATIONS[MIGRATIONS.length - 1].version;
+    }
+
+    private static int readVersion(Connection connection) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT COALESCE(MAX(version), 0) FROM schema_version");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static Step script(String fileName) {
+        return connection -> {
+            try (Statement stmt = connection.createStatement()) {
+                for (String sql : readStatements(fileName)) {
+                    stmt.execute(sql);
+                }
+            }
+        };
+    }
+
+    /**
+     * Splits a script on the semicolons that end a line; {@code --} comment lines are skipped.
+     */
+    private static List<String> readStatements(String fileName) throws SQLException {
+        String content;
+        try (InputStream in = SchemaMigrator.class.getResourceAsStream(SCRIPT_DIRECTORY + fileName)) {
+            if (in == null) {
+                throw new SQLException("Script de migration introuvable: " + fileName);
+            }
+            content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SQLException("Lecture impossible du script " + fileName + ": " + e.getMessage(), e);
+        }
+
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : content.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                statements.add(current.toString().trim());
+                current.setLength(0);
+            }
+        }
+        if (!current.toString().isBlank()) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+
+    /**
+     * SQLite has no {@code ADD COLUMN IF NOT EXISTS}; the column is looked up once, here,
+     * instead of by the DAOs at run time.
+     */
+    private static void addColumnIfMissing(Connection connection, String table, String column, String type,
+                                           String backfillSql) throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        try (ResultSet columns = meta.getColumns(null, null, table, column)) {
+            if (columns.next()) {
+                return;
+            }
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+            stmt.execute(backfillSql);
+        }
+    }
+}
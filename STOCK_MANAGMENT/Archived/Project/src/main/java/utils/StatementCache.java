@@ -0,0 +1,208 @@
+package utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of prepared statements for one physical connection, keyed by SQL text.
+ * <p>
+ * Callers get a proxy: closing it resets the statement and puts it back in the cache.
+ * A statement that is already checked out (same SQL used twice in a nested call) is
+ * not shared; the caller gets a plain uncached statement instead.
+ */
+final class StatementCache {
+
+    /**
+     * Counters shared by all the caches of one pool.
+     */
+    static final class Counters {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong evictions = new AtomicLong();
+    }
+
+    private final Connection physical;
+    private final int maxSize;
+    private final Counters counters;
+    private final Map<String, Entry> entries;
+
+    StatementCache(Connection physical, int maxSize, Counters counters) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.counters = counters;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= StatementCache.this.maxSize) {
+                    return false;
+                }
+                counters.evictions.incrementAndGet();
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns a cached statement, or {@code null} if the caller should prepare an uncached one.
+     */
+    PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys + ":" + sql;
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.checkout != null) {
+                counters.misses.incrementAndGet();
+                return null;
+            }
+            counters.hits.incrementAndGet();
+            return entry.checkOut();
+        }
+
+        counters.misses.incrementAndGet();
+        PreparedStatement statement = autoGeneratedKeys == -1
+                ? physical.prepareStatement(sql)
+                : physical.prepareStatement(sql, autoGeneratedKeys);
+        entry = new Entry(key, statement);
+        entries.put(key, entry);
+        return entry.checkOut();
+    }
+
+    /**
+     * Gives back every statement a caller forgot to close. Called when a lease ends.
+     */
+    void releaseAll() {
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            if (entry.checkout != null) {
+                entry.checkout.release();
+            }
+        }
+    }
+
+    void closeAll() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            iterator.next().closeQuietly();
+            iterator.remove();
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private final class Entry {
+        private final String key;
+        private final PreparedStatement statement;
+        private Checkout checkout;
+        private boolean evicted;
+
+        private Entry(String key, PreparedStatement statement) {
+            this.key = key;
+            this.statement = statement;
+        }
+
+        private PreparedStatement checkOut() {
+            checkout = new Checkout(this);
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    StatementCache.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    checkout);
+        }
+
+        private void evict() {
+            evicted = true;
+            if (checkout == null) {
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+                // The connection is going away or the statement is already unusable
+            }
+        }
+    }
+
+    /**
+     * One borrowing of a cached statement, from {@code prepareStatement} to {@code close}.
+     */
+    private final class Checkout implements InvocationHandler {
+        private final Entry entry;
+        private final List<ResultSet> resultSets = new ArrayList<>(1);
+        private boolean closed;
+
+        private Checkout(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    release();
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + entry.statement + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement déjà fermé");
+            }
+
+            Object result;
+            try {
+                result = method.invoke(entry.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof ResultSet) {
+                resultSets.add((ResultSet) result);
+            }
+            return result;
+        }
+
+        private void release() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            entry.checkout = null;
+            try {
+                for (ResultSet resultSet : resultSets) {
+                    resultSet.close();
+                }
+                resultSets.clear();
+                entry.statement.clearParameters();
+                entry.statement.clearBatch();
+                entry.statement.clearWarnings();
+                if (!entry.evicted) {
+                    return;
+                }
+            } catch (SQLException e) {
+                entries.remove(entry.key, entry);
+            }
+            entry.closeQuietly();
+        }
+    }
+}
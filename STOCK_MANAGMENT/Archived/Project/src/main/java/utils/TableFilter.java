@@ -0,0 +1,296 @@
+package utils;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.Observable;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
+import javafx.scene.control.TableView;
+import javafx.util.Duration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Filters and sorts a table's backing list from a set of filter inputs.
+ * <p>
+ * The table shows a {@link SortedList} over a {@link FilteredList} of the backing list, so
+ * the backing list is never copied and column sorting keeps working. Each filter input is a
+ * criterion; a row is shown when it passes every active criterion.
+ * <ul>
+ *   <li>Text inputs are debounced: the filter runs once typing pauses for
+ *       {@code stock.filter.debounceMs} milliseconds (200). Other inputs apply on the next pulse,
+ *       so resetting several of them at once filters only once.</li>
+ *   <li>When every change narrows the previous filter (a text criterion only got longer, the
+ *       other inputs did not change), only the rows currently shown are tested again.</li>
+ *   <li>From {@code stock.filter.parallelThreshold} rows to test (20000), the tests run in
+ *       parallel in the background and the table keeps the previous result until they finish.</li>
+ * </ul>
+ * Rows added to the backing list later, such as the next page, are tested as they arrive, and
+ * the next run after any change to the backing list tests every row again: the shown rows say
+ * nothing about rows that were not there when they were filtered. Criteria are built on the
+ * JavaFX Application Thread but their predicates may run on other threads, so they must only
+ * read the row, the values captured when they were built and thread-safe shared state; a
+ * predicate that looks rows up in such state must read it when it tests a row, not copy it
+ * when it is built, or rows arriving later are tested against stale data.
+ */
+public final class TableFilter<T> {
+
+    private static final Logger LOGGER = Logger.getLogger(TableFilter.class.getName());
+
+    private static final Duration DEBOUNCE = Duration.millis(Long.getLong("stock.filter.debounceMs", 200));
+    private static final int PARALLEL_THRESHOLD = Integer.getInteger("stock.filter.parallelThreshold", 20_000);
+
+    private final ObservableList<T> source;
+    private final FilteredList<T> filtered;
+    private final SortedList<T> sorted;
+    private final DataAccessExecutor.Scope scope;
+    private final List<Criterion<T>> criteria = new ArrayList<>();
+    private final PauseTransition debounce = new PauseTransition(DEBOUNCE);
+    private Runnable onFiltered;
+
+    /** Result of the last run for the rows it tested; other rows are tested directly. */
+    private Map<T, Boolean> results = Collections.emptyMap();
+    /** Criterion keys of the filter currently shown, used to detect a narrowing change. */
+    private Object[] appliedKeys;
+    private boolean pulseScheduled;
+    /** Bumped by each run, so that a background run finishing late is dropped. */
+    private int generation;
+
+    /**
+     * Large runs are evaluated through {@code scope} and dropped once its window closes.
+     */
+    public TableFilter(ObservableList<T> source, DataAccessExecutor.Scope scope) {
+        this.source = source;
+        this.filtered = new FilteredList<>(source);
+        this.sorted = new SortedList<>(filtered);
+        this.scope = scope;
+        debounce.setOnFinished(e -> refilter());
+        source.addListener((ListChangeListener<T>) change -> {
+            // Rows added or reloaded were not there for the filter shown, so it cannot be narrowed
+            appliedKeys = null;
+            while (change.next()) {
+                if (change.wasRemoved()) {
+                    // Do not keep removed rows alive; the shown rows stay the same
+                    results = Collections.emptyMap();
+                    return;
+                }
+            }
+        });
+    }
+
+    /**
+     * Shows the filtered rows in {@code table}, sorted by its sort columns.
+     */
+    public void bind(TableView<T> table) {
+        sorted.comparatorProperty().bind(table.comparatorProperty());
+        table.setItems(sorted);
+    }
+
+    /**
+     * The rows passing the filter, in the backing list order.
+     */
+    public ObservableList<T> getFiltered() {
+        return filtered;
+    }
+
+    /**
+     * Called on the JavaFX Application Thread each time a new filter is shown.
+     */
+    public void setOnFiltered(Runnable onFiltered) {
+        this.onFiltered = onFiltered;
+    }
+
+    /**
+     * Adds a criterion read from a text input. The text is normalized as by
+     * {@link PrefixIndex#normalize} (trimmed, lower-cased, without accents); an empty text lets
+     * every row through. {@code test} must keep rejecting a row once the text gets
+     * longer (as with {@code startsWith} or {@code contains}), so that typing only re-tests
+     * the rows already shown.
+     */
+    public void addTextCriterion(ObservableValue<String> input, BiPredicate<T, String> test) {
+        addTextCriterion(input, text -> row -> test.test(row, text));
+    }
+
+    /**
+     * As {@link #addTextCriterion(ObservableValue, BiPredicate)}, with the test built once per
+     * run from the normalized text, for tests that look the text up in an index first.
+     */
+    public void addTextCriterion(ObservableValue<String> input, Function<String, Predicate<T>> predicateFor) {
+        criteria.add(new TextCriterion<>(input, predicateFor));
+        input.addListener((obs, oldVal, newVal) -> debounce.playFromStart());
+    }
+
+    /**
+     * Adds a criterion rebuilt whenever one of {@code inputs} changes. {@code predicate} returns
+     * null when the criterion is inactive.
+     */
+    public void addCriterion(Supplier<Predicate<T>> predicate, Observable... inputs) {
+        GenericCriterion<T> criterion = new GenericCriterion<>(predicate);
+        criteria.add(criterion);
+        for (Observable input : inputs) {
+            input.addListener(obs -> {
+                criterion.version++;
+                schedulePulse();
+            });
+        }
+    }
+
+    /**
+     * Applies the current inputs now, without waiting for the debounce delay.
+     */
+    public void refilter() {
+        debounce.stop();
+        int run = ++generation;
+
+        Object[] keys = new Object[criteria.size()];
+        boolean narrowing = appliedKeys != null;
+        List<Predicate<T>> active = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            Criterion<T> criterion = criteria.get(i);
+            keys[i] = criterion.key();
+            narrowing &= appliedKeys != null && criterion.narrows(appliedKeys[i], keys[i]);
+            Predicate<T> predicate = criterion.predicate();
+            if (predicate != null) {
+                active.add(predicate);
+            }
+        }
+        Predicate<T> composite = row -> {
+            for (Predicate<T> predicate : active) {
+                if (!predicate.test(row)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+
+        // Rows outside the current filter already fail a narrower one
+        List<T> rows = new ArrayList<>(source);
+        List<T> candidates = narrowing ? new ArrayList<>(filtered) : rows;
+        if (candidates.size() < PARALLEL_THRESHOLD) {
+            show(run, keys, evaluate(rows, candidates, composite, false), composite);
+            return;
+        }
+        LOGGER.fine(() -> "Filtrage en arrière-plan de " + candidates.size() + " lignes sur " + rows.size());
+        scope.submit(() -> evaluate(rows, candidates, composite, true),
+                evaluated -> show(run, keys, evaluated, composite),
+                e -> LOGGER.warning("Filtrage impossible: " + e.getMessage()));
+    }
+
+    private void schedulePulse() {
+        if (!pulseScheduled) {
+            pulseScheduled = true;
+            Platform.runLater(() -> {
+                pulseScheduled = false;
+                refilter();
+            });
+        }
+    }
+
+    /**
+     * Tests the candidates and records every row of {@code rows}: the candidates with their
+     * result, the others as rejected.
+     */
+    private static <T> Map<T, Boolean> evaluate(List<T> rows, List<T> candidates, Predicate<T> composite,
+                                                boolean parallel) {
+        List<T> accepted = parallel
+                ? candidates.parallelStream().filter(composite).collect(Collectors.toList())
+                : candidates.stream().filter(composite).collect(Collectors.toList());
+        Map<T, Boolean> evaluated = new IdentityHashMap<>(rows.size() * 4 / 3 + 1);
+        for (T row : rows) {
+            evaluated.put(row, Boolean.FALSE);
+        }
+        for (T row : accepted) {
+            evaluated.put(row, Boolean.TRUE);
+        }
+        return evaluated;
+    }
+
+    private void show(int run, Object[] keys, Map<T, Boolean> evaluated, Predicate<T> composite) {
+        if (run != generation) {
+            return;
+        }
+        results = evaluated;
+        appliedKeys = keys;
+        filtered.setPredicate(row -> {
+            Boolean known = results.get(row);
+            return known != null ? known : composite.test(row);
+        });
+        if (onFiltered != null) {
+            onFiltered.run();
+        }
+    }
+
+    private interface Criterion<T> {
+        /** A snapshot of the input, compared with the one of the filter shown. */
+        Object key();
+
+        /** Whether every row rejected with {@code appliedKey} is still rejected with {@code key}. */
+        boolean narrows(Object appliedKey, Object key);
+
+        Predicate<T> predicate();
+    }
+
+    private static final class TextCriterion<T> implements Criterion<T> {
+        private final ObservableValue<String> input;
+        private final Function<String, Predicate<T>> predicateFor;
+
+        private TextCriterion(ObservableValue<String> input, Function<String, Predicate<T>> predicateFor) {
+            this.input = input;
+            this.predicateFor = predicateFor;
+        }
+
+        @Override
+        public Object key() {
+            String text = input.getValue();
+            return text == null ? "" : PrefixIndex.normalize(text);
+        }
+
+        @Override
+        public boolean narrows(Object appliedKey, Object key) {
+            return ((String) key).startsWith((String) appliedKey);
+        }
+
+        @Override
+        public Predicate<T> predicate() {
+            String text = (String) key();
+            return text.isEmpty() ? null : predicateFor.apply(text);
+        }
+    }
+
+    private static final class GenericCriterion<T> implements Criterion<T> {
+        private final Supplier<Predicate<T>> predicate;
+        private int version;
+
+        private GenericCriterion(Supplier<Predicate<T>> predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        public Object key() {
+            return version;
+        }
+
+        @Override
+        public boolean narrows(Object appliedKey, Object key) {
+            return appliedKey.equals(key);
+        }
+
+        @Override
+        public Predicate<T> predicate() {
+            return predicate.get();
+        }
+    }
+}
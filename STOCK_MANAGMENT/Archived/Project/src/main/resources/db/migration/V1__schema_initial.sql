@@ -0,0 +1,175 @@
+-- Schéma de référence de l'application, tel qu'il existait avant les migrations.
+-- Toutes les instructions sont idempotentes : sur une base existante, rien n'est modifié.
+
+CREATE TABLE IF NOT EXISTS magasinier (
+    id INTEGER PRIMARY KEY,
+    nom TEXT NOT NULL,
+    nom_utilisateur TEXT NOT NULL UNIQUE,
+    hashed_password TEXT NOT NULL,
+    actif INTEGER NOT NULL DEFAULT 1,
+    dernier_connexion TEXT,
+    created_at TEXT NOT NULL DEFAULT (datetime('now')),
+    updated_at TEXT NOT NULL DEFAULT (datetime('now'))
+);
+
+CREATE TABLE IF NOT EXISTS article (
+    id INTEGER PRIMARY KEY,
+    reference TEXT NOT NULL UNIQUE,
+    nom TEXT NOT NULL,
+    categorie TEXT,
+    stock_minimal INTEGER NOT NULL CHECK (stock_minimal >= 0),
+    date_peremption TEXT,
+    est_critique INTEGER NOT NULL DEFAULT 0,
+    est_consommable INTEGER NOT NULL DEFAULT 0,
+    created_at TEXT NOT NULL DEFAULT (datetime('now')),
+    updated_at TEXT NOT NULL DEFAULT (datetime('now'))
+);
+
+CREATE TABLE IF NOT EXISTS fournisseur (
+    id INTEGER PRIMARY KEY,
+    nom TEXT NOT NULL,
+    adresse TEXT,
+    telephone TEXT,
+    email TEXT,
+    site_web TEXT,
+    personne_contact TEXT,
+    notes TEXT,
+    created_at TEXT NOT NULL DEFAULT (datetime('now')),
+    updated_at TEXT NOT NULL DEFAULT (datetime('now'))
+);
+
+CREATE TABLE IF NOT EXISTS consommateur (
+    id INTEGER PRIMARY KEY,
+    nom TEXT NOT NULL,
+    email TEXT,
+    telephone TEXT,
+    type TEXT,
+    description TEXT,
+    created_at TEXT NOT NULL DEFAULT (datetime('now')),
+    updated_at TEXT NOT NULL DEFAULT (datetime('now'))
+);
+
+CREATE TABLE IF NOT EXISTS local (
+    id INTEGER PRIMARY KEY,
+    nom TEXT NOT NULL,
+    emplacement TEXT,
+    type TEXT,
+    consommateur_id INTEGER,
+    created_at TEXT NOT NULL DEFAULT (datetime('now')),
+    updated_at TEXT NOT NULL DEFAULT (datetime('now')),
+    FOREIGN KEY (consommateur_id) REFERENCES consommateur(id) ON DELETE SET NULL
+);
+
+CREATE TABLE IF NOT EXISTS stock (
+    id INTEGER PRIMARY KEY,
+    quantite INTEGER NOT NULL CHECK (quantite >= 0),
+    article_id INTEGER NOT NULL,
+    local_id INTEGER NOT NULL,
+    created_at TEXT NOT NULL DEFAULT (datetime('now')),
+    updated_at TEXT NOT NULL DEFAULT (datetime('now')),
+    FOREIGN KEY (article_id) REFERENCES article(id) ON DELETE CASCADE,
+    FOREIGN KEY (local_id) REFERENCES local(id) ON DELETE CASCADE,
+    UNIQUE (article_id, local_id)
+);
+
+CREATE TABLE IF NOT EXISTS commande_externe (
+    id INTEGER PRIMARY KEY,
+    confirmed_at TEXT,
+    created_at TEXT NOT NULL DEFAULT (datetime('now')),
+    updated_at TEXT NOT NULL DEFAULT (datetime('now')),
+    statut TEXT NOT NULL DEFAULT 'En attente',
+    magasinier_id INTEGER,
+    fournisseur_id INTEGER,
+    local_id INTEGER,
+    FOREIGN KEY (magasinier_id) REFERENCES magasinier(id) ON DELETE SET NULL,
+    FOREIGN KEY (fournisseur_id) REFERENCES fournisseur(id) ON DELETE SET NULL,
+    FOREIGN KEY (local_id) REFERENCES local(id) ON DELETE SET NULL
+);
+
+CREATE TABLE IF NOT EXISTS commande_interne (
+    id INTEGER PRIMARY KEY,
+    confirmed_at TEXT,
+    created_at TEXT NOT NULL DEFAULT (datetime('now')),
+    updated_at TEXT NOT NULL DEFAULT (datetime('now')),
+    statut TEXT NOT NULL DEFAULT 'En attente',
+    magasinier_id INTEGER,
+    consommateur_id INTEGER,
+    local_id INTEGER,
+    FOREIGN KEY (magasinier_id) REFERENCES magasinier(id) ON DELETE SET NULL,
+    FOREIGN KEY (consommateur_id) REFERENCES consommateur(id) ON DELETE SET NULL,
+    FOREIGN KEY (local_id) REFERENCES local(id) ON DELETE SET NULL
+);
+
+CREATE TABLE IF NOT EXISTS commande_externe_article (
+    id INTEGER PRIMARY KEY,
+    quantite INTEGER NOT NULL CHECK (quantite > 0),
+    commande_externe_id INTEGER NOT NULL,
+    article_id INTEGER NOT NULL,
+    created_at TEXT NOT NULL DEFAULT (datetime('now')),
+    updated_at TEXT NOT NULL DEFAULT (datetime('now')),
+    FOREIGN KEY (commande_externe_id) REFERENCES commande_externe(id) ON DELETE CASCADE,
+    FOREIGN KEY (article_id) REFERENCES article(id) ON DELETE CASCADE,
+    UNIQUE (commande_externe_id, article_id)
+);
+
+CREATE TABLE IF NOT EXISTS commande_interne_article (
+    id INTEGER PRIMARY KEY,
+    quantite INTEGER NOT NULL CHECK (quantite > 0),
+    etat TEXT NOT NULL DEFAULT 'Bon état',
+    notes TEXT,
+    commande_interne_id INTEGER NOT NULL,
+    article_id INTEGER NOT NULL,
+    created_at TEXT NOT NULL DEFAULT (datetime('now')),
+    updated_at TEXT NOT NULL DEFAULT (datetime('now')),
+    FOREIGN KEY (commande_interne_id) REFERENCES commande_interne(id) ON DELETE CASCADE,
+    FOREIGN KEY (article_id) REFERENCES article(id) ON DELETE CASCADE,
+    UNIQUE (commande_interne_id, article_id)
+);
+
+CREATE TABLE IF NOT EXISTS commande_externe_local (
+    id INTEGER PRIMARY KEY,
+    commande_externe_id INTEGER NOT NULL,
+    local_id INTEGER NOT NULL,
+    created_at TEXT NOT NULL DEFAULT (datetime('now')),
+    updated_at TEXT NOT NULL DEFAULT (datetime('now')),
+    FOREIGN KEY (commande_externe_id) REFERENCES commande_externe(id) ON DELETE CASCADE,
+    FOREIGN KEY (local_id) REFERENCES local(id) ON DELETE CASCADE,
+    UNIQUE (commande_externe_id, local_id)
+);
+
+CREATE TABLE IF NOT EXISTS commande_interne_local (
+    id INTEGER PRIMARY KEY,
+    notes TEXT,
+    commande_interne_id INTEGER NOT NULL,
+    local_id INTEGER NOT NULL,
+    created_at TEXT NOT NULL DEFAULT (datetime('now')),
+    updated_at TEXT NOT NULL DEFAULT (datetime('now')),
+    FOREIGN KEY (commande_interne_id) REFERENCES commande_interne(id) ON DELETE CASCADE,
+    FOREIGN KEY (local_id) REFERENCES local(id) ON DELETE CASCADE,
+    UNIQUE (commande_interne_id, local_id)
+);
+
+CREATE TABLE IF NOT EXISTS fournisseur_categorie (
+    id INTEGER PRIMARY KEY,
+    fournisseur_id INTEGER NOT NULL,
+    categorie TEXT NOT NULL,
+    FOREIGN KEY (fournisseur_id) REFERENCES fournisseur(id) ON DELETE CASCADE,
+    UNIQUE (fournisseur_id, categorie)
+);
+
+CREATE INDEX IF NOT EXISTS idx_article_reference ON article(reference);
+CREATE INDEX IF NOT EXISTS idx_fournisseur_nom ON fournisseur(nom);
+CREATE INDEX IF NOT EXISTS idx_stock_article_id ON stock(article_id);
+CREATE INDEX IF NOT EXISTS idx_stock_local_id ON stock(local_id);
+CREATE INDEX IF NOT EXISTS idx_commande_externe_statut ON commande_externe(statut);
+CREATE INDEX IF NOT EXISTS idx_commande_interne_statut ON commande_interne(statut);
+CREATE INDEX IF NOT EXISTS idx_commande_externe_article_commande_id ON commande_externe_article(commande_externe_id);
+CREATE INDEX IF NOT EXISTS idx_commande_externe_local_commande_id ON commande_externe_local(commande_externe_id);
+CREATE INDEX IF NOT EXISTS idx_commande_interne_local_commande_id ON commande_interne_local(commande_interne_id);
+CREATE INDEX IF NOT EXISTS idx_fournisseur_categorie_fournisseur_id ON fournisseur_categorie(fournisseur_id);
+
+CREATE VIEW IF NOT EXISTS Article_Quantite AS
+SELECT a.id, a.nom, COALESCE(SUM(s.quantite), 0) AS quantite
+FROM article a
+LEFT JOIN stock s ON a.id = s.article_id
+GROUP BY a.id, a.nom;
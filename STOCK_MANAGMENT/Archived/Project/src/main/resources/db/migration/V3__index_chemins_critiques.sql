@@ -0,0 +1,14 @@
+-- Index utilisés par les écrans et les DAO les plus sollicités.
+
+-- Lignes d'une commande interne (getById, hydratation des pages)
+CREATE INDEX IF NOT EXISTS idx_commande_interne_article_commande_id ON commande_interne_article(commande_interne_id);
+
+-- Agrégation de l'inventaire par article
+CREATE INDEX IF NOT EXISTS idx_commande_externe_article_article_id ON commande_externe_article(article_id);
+CREATE INDEX IF NOT EXISTS idx_commande_interne_article_article_id ON commande_interne_article(article_id);
+
+-- Notifications de péremption
+CREATE INDEX IF NOT EXISTS idx_article_date_peremption ON article(date_peremption);
+
+-- Connexion par nom d'utilisateur
+CREATE INDEX IF NOT EXISTS idx_magasinier_nom_utilisateur ON magasinier(nom_utilisateur);
@@ -0,0 +1,45 @@
+-- Journal des mouvements de stock et soldes par (article, local), voir MouvementStockDAOImpl.
+-- local_id = 0 : commande sans local.
+
+CREATE TABLE IF NOT EXISTS mouvement_stock (
+    id INTEGER PRIMARY KEY,
+    article_id INTEGER NOT NULL,
+    local_id INTEGER NOT NULL DEFAULT 0,
+    quantite INTEGER NOT NULL,
+    source TEXT NOT NULL,
+    source_id INTEGER NOT NULL,
+    created_at TEXT NOT NULL DEFAULT (datetime('now'))
+);
+
+CREATE INDEX IF NOT EXISTS idx_mouvement_stock_source ON mouvement_stock(source, source_id);
+
+CREATE TABLE IF NOT EXISTS stock_solde (
+    article_id INTEGER NOT NULL,
+    local_id INTEGER NOT NULL DEFAULT 0,
+    quantite INTEGER NOT NULL DEFAULT 0,
+    updated_at TEXT NOT NULL DEFAULT (datetime('now')),
+    PRIMARY KEY (article_id, local_id)
+);
+
+-- Mouvements d'ouverture pour les commandes existantes, si le journal est vide
+INSERT INTO mouvement_stock (article_id, local_id, quantite, source, source_id, created_at)
+SELECT line.article_id,
+       COALESCE((SELECT cl.local_id FROM commande_externe_local cl WHERE cl.commande_externe_id = c.id ORDER BY cl.id LIMIT 1), c.local_id, 0),
+       line.quantite, 'commande_externe', c.id, datetime('now')
+FROM commande_externe c
+JOIN commande_externe_article line ON line.commande_externe_id = c.id
+WHERE NOT EXISTS (SELECT 1 FROM mouvement_stock WHERE source = 'commande_externe');
+
+INSERT INTO mouvement_stock (article_id, local_id, quantite, source, source_id, created_at)
+SELECT line.article_id,
+       COALESCE((SELECT cl.local_id FROM commande_interne_local cl WHERE cl.commande_interne_id = c.id ORDER BY cl.id LIMIT 1), c.local_id, 0),
+       -line.quantite, 'commande_interne', c.id, datetime('now')
+FROM commande_interne c
+JOIN commande_interne_article line ON line.commande_interne_id = c.id
+WHERE NOT EXISTS (SELECT 1 FROM mouvement_stock WHERE source = 'commande_interne');
+
+INSERT INTO stock_solde (article_id, local_id, quantite, updated_at)
+SELECT article_id, local_id, SUM(quantite), datetime('now')
+FROM mouvement_stock
+WHERE NOT EXISTS (SELECT 1 FROM stock_solde)
+GROUP BY article_id, local_id;
@@ -0,0 +1,14 @@
+-- Export incrémental : index de parcours par date de modification et marques de reprise.
+-- Les index sur updated_at incluent le rowid, ce qui ordonne les lignes par (updated_at, id).
+
+CREATE INDEX IF NOT EXISTS idx_article_updated_at ON article(updated_at);
+CREATE INDEX IF NOT EXISTS idx_commande_externe_updated_at ON commande_externe(updated_at);
+CREATE INDEX IF NOT EXISTS idx_commande_interne_updated_at ON commande_interne(updated_at);
+
+-- Dernière ligne exportée par flux, voir ChangeFeed
+CREATE TABLE IF NOT EXISTS export_marque (
+    flux TEXT PRIMARY KEY,
+    updated_at TEXT NOT NULL,
+    last_id INTEGER NOT NULL,
+    exported_at TEXT NOT NULL
+);
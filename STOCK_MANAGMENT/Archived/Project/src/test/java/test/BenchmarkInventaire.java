@@ -0,0 +1,282 @@
+package test;
+
+import utils.DatabaseConnection;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Times the inventory queries on a copy of the database filled with synthetic orders,
+ * up to 1M order lines. The old fan-out query is only timed on the small sizes.
+ * <p>
+ * The fan-out-free queries compute the figures straight from the order lines (external minus
+ * internal): each side is aggregated on its own before the small per-article results are
+ * combined, so the cost grows with the number of lines rather than with their cross-product.
+ * The screens read the balances kept by the movement ledger instead; these queries stay here
+ * as the reference the ledger can be checked against.
+ * Usage: BenchmarkInventaire [source.db]
+ */
+public class BenchmarkInventaire {
+    private static final int ARTICLES = 1_000;
+    private static final int LOCALS = 50;
+    private static final int LINES_PER_ORDER = 10;
+    private static final int[] LEGACY_STEPS = {5_000, 10_000, 20_000};
+    private static final int[] STEPS = {125_000, 250_000, 500_000, 1_000_000};
+
+    private static final String LEGACY_SQL = """
+            SELECT a.id,
+                COALESCE(SUM(cea.quantite), 0) - COALESCE(SUM(cia.quantite), 0) AS total_quantite
+            FROM article a
+            LEFT JOIN commande_externe_article cea ON a.id = cea.article_id
+            LEFT JOIN commande_externe_local cel ON cea.commande_externe_id = cel.commande_externe_id
+            LEFT JOIN commande_interne_article cia ON a.id = cia.article_id
+            LEFT JOIN commande_interne_local cil ON cia.commande_interne_id = cil.commande_interne_id
+            LEFT JOIN local l ON l.id = cel.local_id OR l.id = cil.local_id
+            GROUP BY a.id
+            """;
+
+    private static final String TOTAUX_PAR_ARTICLE_SQL = """
+            WITH externe AS (
+                SELECT article_id, SUM(quantite) AS quantite FROM commande_externe_article GROUP BY article_id
+            ), interne AS (
+                SELECT article_id, SUM(quantite) AS quantite FROM commande_interne_article GROUP BY article_id
+            )
+            SELECT a.id, COALESCE(e.quantite, 0) - COALESCE(i.quantite, 0) AS quantite
+            FROM article a
+            LEFT JOIN externe e ON e.article_id = a.id
+            LEFT JOIN interne i ON i.article_id = a.id
+            ORDER BY a.id
+            """;
+
+    private static final String TOTAUX_PAR_LOCAL_SQL =
+            "WITH externe AS (" + totauxParLocal("commande_externe") + "), " +
+            "interne AS (" + totauxParLocal("commande_interne") + ") " +
+            "SELECT article_id, local_id, SUM(quantite) AS quantite FROM (" +
+            "    SELECT article_id, solde_local_id AS local_id, quantite FROM externe" +
+            "    UNION ALL" +
+            "    SELECT article_id, solde_local_id, -quantite FROM interne" +
+            ") GROUP BY article_id, local_id ORDER BY article_id, local_id";
+
+    private static final Random RANDOM = new Random(42);
+    private static long[] articleIds;
+    private static long[] localIds;
+    private static int lines;
+
+    public static void main(String[] args) throws Exception {
+        Path source = Paths.get(args.length > 0 ? args[0] : "stock_management.db");
+        Path copy = Files.createTempFile("benchmark_inventaire", ".db");
+        Files.copy(source, copy, StandardCopyOption.REPLACE_EXISTING);
+        System.setProperty("stock.db.url", "jdbc:sqlite:" + copy);
+        System.out.println("Base de test: " + copy);
+
+        try {
+            seedReferences();
+            System.out.printf("%10s %14s %14s %14s %12s%n", "lignes", "ancien (ms)", "article (ms)", "local (ms)", "ns/ligne");
+            for (int step : LEGACY_STEPS) {
+                growTo(step);
+                long legacy = time(BenchmarkInventaire::runLegacy);
+                report(legacy);
+            }
+            for (int step : STEPS) {
+                growTo(step);
+                report(-1);
+            }
+
+            checkConsistency();
+        } finally {
+            DatabaseConnection.closeConnection();
+            Files.deleteIfExists(copy);
+            Files.deleteIfExists(Paths.get(copy + "-wal"));
+            Files.deleteIfExists(Paths.get(copy + "-shm"));
+        }
+    }
+
+    /**
+     * Lines joined one-to-one with their order, booked to the order's first local as the
+     * movement ledger does (an indexed lookup per line), then grouped.
+     */
+    private static String totauxParLocal(String source) {
+        return "SELECT line.article_id, " +
+                "COALESCE((SELECT cl.local_id FROM " + source + "_local cl WHERE cl." + source + "_id = c.id ORDER BY cl.id LIMIT 1), " +
+                "c.local_id, 0) AS solde_local_id, " +
+                "SUM(line.quantite) AS quantite " +
+                "FROM " + source + "_article line " +
+                "JOIN " + source + " c ON c.id = line." + source + "_id " +
+                "GROUP BY line.article_id, solde_local_id";
+    }
+
+    /**
+     * Net quantity per article ID, in article ID order. Articles without lines map to 0.
+     */
+    private static Map<Long, Integer> getTotauxParArticle() {
+        Map<Long, Integer> totaux = new LinkedHashMap<>();
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(TOTAUX_PAR_ARTICLE_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                totaux.put(rs.getLong("id"), rs.getInt("quantite"));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors du calcul des totaux par article", e);
+        }
+        return totaux;
+    }
+
+    /**
+     * Net quantity per (article, local) as {article_id, local_id, quantite}; local 0 stands
+     * for "no local".
+     */
+    private static List<long[]> getTotauxParLocal() {
+        List<long[]> totaux = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(TOTAUX_PAR_LOCAL_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                totaux.add(new long[] {rs.getLong(1), rs.getLong(2), rs.getInt(3)});
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors du calcul des totaux par local", e);
+        }
+        return totaux;
+    }
+
+    private static void report(long legacyMs) throws Exception {
+        long parArticle = time(BenchmarkInventaire::getTotauxParArticle);
+        long parLocal = time(BenchmarkInventaire::getTotauxParLocal);
+        System.out.printf("%10d %14s %14d %14d %12d%n", lines, legacyMs < 0 ? "-" : String.valueOf(legacyMs),
+                parArticle, parLocal, (parArticle + parLocal) * 1_000_000L / lines);
+    }
+
+    /**
+     * Best of three runs, in milliseconds.
+     */
+    private static long time(Runnable query) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            query.run();
+            best = Math.min(best, (System.nanoTime() - start) / 1_000_000L);
+        }
+        return best;
+    }
+
+    private static void runLegacy() {
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(LEGACY_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                rs.getInt(2);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void seedReferences() throws SQLException {
+        articleIds = new long[ARTICLES];
+        localIds = new long[LOCALS];
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO article (reference, nom, categorie, stock_minimal) VALUES (?, ?, 'Fourniture', 0)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < ARTICLES; i++) {
+                    stmt.setString(1, "BENCH_" + i);
+                    stmt.setString(2, "Article " + i);
+                    stmt.executeUpdate();
+                    try (ResultSet rs = stmt.getGeneratedKeys()) {
+                        rs.next();
+                        articleIds[i] = rs.getLong(1);
+                    }
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO local (nom) VALUES (?)", Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < LOCALS; i++) {
+                    stmt.setString(1, "Local " + i);
+                    stmt.executeUpdate();
+                    try (ResultSet rs = stmt.getGeneratedKeys()) {
+                        rs.next();
+                        localIds[i] = rs.getLong(1);
+                    }
+                }
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Adds orders of {@link #LINES_PER_ORDER} lines each until there are {@code target} lines;
+     * three external orders for every two internal ones.
+     */
+    private static void growTo(int target) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            while (lines < target) {
+                String source = (lines / LINES_PER_ORDER) % 5 < 3 ? "commande_externe" : "commande_interne";
+                long orderId;
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO " + source + " (statut) VALUES ('Confirmée')", Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.executeUpdate();
+                    try (ResultSet rs = stmt.getGeneratedKeys()) {
+                        rs.next();
+                        orderId = rs.getLong(1);
+                    }
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO " + source + "_local (" + source + "_id, local_id) VALUES (?, ?)")) {
+                    stmt.setLong(1, orderId);
+                    stmt.setLong(2, localIds[RANDOM.nextInt(LOCALS)]);
+                    stmt.executeUpdate();
+                }
+                String lineSql = "commande_externe".equals(source)
+                        ? "INSERT INTO commande_externe_article (commande_externe_id, article_id, quantite) VALUES (?, ?, ?)"
+                        : "INSERT INTO commande_interne_article (commande_interne_id, article_id, quantite, etat) VALUES (?, ?, ?, 'Bon état')";
+                try (PreparedStatement stmt = conn.prepareStatement(lineSql)) {
+                    int first = RANDOM.nextInt(ARTICLES);
+                    for (int i = 0; i < LINES_PER_ORDER; i++) {
+                        stmt.setLong(1, orderId);
+                        stmt.setLong(2, articleIds[(first + i) % ARTICLES]);
+                        stmt.setInt(3, 1 + RANDOM.nextInt(20));
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+                lines += LINES_PER_ORDER;
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * The per-local totals of each article must add up to its per-article total.
+     */
+    private static void checkConsistency() {
+        Map<Long, Integer> parArticle = getTotauxParArticle();
+        List<long[]> parLocal = getTotauxParLocal();
+        Map<Long, Integer> sums = new HashMap<>();
+        for (long[] total : parLocal) {
+            sums.merge(total[0], (int) total[2], Integer::sum);
+        }
+        int mismatches = 0;
+        for (Map.Entry<Long, Integer> entry : parArticle.entrySet()) {
+            if (!entry.getValue().equals(sums.getOrDefault(entry.getKey(), 0))) {
+                mismatches++;
+            }
+        }
+        System.out.println(mismatches == 0
+                ? "✅ Totaux par article et par local cohérents (" + parArticle.size() + " articles)"
+                : "❌ " + mismatches + " articles incohérents");
+    }
+}
@@ -1,7 +1,10 @@
 package test;
 
 import model.dao.CommandeInterneDAO;
+import model.dao.ArticleDAOImpl;
+import model.dao.CommandeInterneArticleDAOImpl;
 import model.dao.CommandeInterneDAOImpl;
+import model.dao.LocalDAOImpl;
 import model.entities.CommandeInterne;
 import model.entities.Magasinier;
 import model.entities.Consommateur;
@@ -46,8 +49,13 @@ public class TestCommandeInterneDAO {
         CommandeInterneLocal local1 = new CommandeInterneLocal(commande, local, "Local note");
         commande.getCommandeInterneLocals().add(local1);
 
+        // Stock balances before the order, booked to its first local
+        int solde1 = soldeOf(1L, 1L);
+        int solde2 = soldeOf(2L, 1L);
+
         // Test insert
         dao.insert(commande);
+        checkSolde("après insertion, article 1", 1L, 1L, solde1 -10);
         System.out.println("✅ Commande interne insérée : " + commande.getId());
         System.out.println("CreerA: " + commande.getCreerA());
         System.out.println("Articles: " + commande.getCommandeInterneArticles().size());
@@ -76,6 +84,8 @@ public class TestCommandeInterneDAO {
         System.out.println("📦 Après mise à jour : " + fetched);
         System.out.println("Articles après mise à jour: " + fetched.getCommandeInterneArticles().size());
         System.out.println("Locals après mise à jour: " + fetched.getCommandeInterneLocals().size());
+        checkSolde("après mise à jour, article 1", 1L, 1L, solde1 -20);
+        checkSolde("après mise à jour, article 2", 2L, 1L, solde2 -5);
 
         // Test delete
         Long commandeId = fetched.getId();
@@ -84,6 +94,89 @@ public class TestCommandeInterneDAO {
 
         // Verify deletion
         verifyDeletion(commandeId);
+        checkSolde("après suppression, article 1", 1L, 1L, solde1);
+        checkSolde("après suppression, article 2", 2L, 1L, solde2);
+
+        // Deleting the local of an order moves its stock to "no local" (local_id 0)
+        LocalDAOImpl localDAO = new LocalDAOImpl();
+        Local tempLocal = new Local("Local temporaire", "Bâtiment B");
+        localDAO.insert(tempLocal);
+        int soldeSansLocal = soldeOf(1L, 0L);
+        CommandeInterne tempCommande = new CommandeInterne(null, "En attente", magasinier, consommateur, tempLocal);
+        tempCommande.getCommandeInterneArticles().add(new CommandeInterneArticle(tempCommande, article1, 10, "Bon état", "Article note"));
+        dao.insert(tempCommande);
+        checkSolde("avant suppression du local", 1L, tempLocal.getId(), -10);
+        localDAO.delete(tempLocal.getId());
+        checkSolde("après suppression du local, local supprimé", 1L, tempLocal.getId(), 0);
+        checkSolde("après suppression du local, sans local", 1L, 0L, soldeSansLocal -10);
+        dao.delete(tempCommande.getId());
+        checkSolde("après suppression de la commande, sans local", 1L, 0L, soldeSansLocal);
+
+        // Lines written on their own are posted too
+        CommandeInterneArticleDAOImpl lineDAO = new CommandeInterneArticleDAOImpl();
+        CommandeInterne lineCommande = new CommandeInterne(null, "En attente", magasinier, consommateur, local);
+        dao.insert(lineCommande);
+        CommandeInterneArticle line = new CommandeInterneArticle(lineCommande, article2, 7, "Bon état", null);
+        lineDAO.insert(line);
+        checkSolde("après ajout d'une ligne", 2L, 1L, solde2 - 7);
+        line.setQuantite(3);
+        lineDAO.update(line);
+        checkSolde("après modification d'une ligne", 2L, 1L, solde2 - 3);
+        lineDAO.delete(line.getId());
+        checkSolde("après suppression d'une ligne", 2L, 1L, solde2);
+
+        // Deleting an article drops its movements and balances with its lines
+        ArticleDAOImpl articleDAO = new ArticleDAOImpl();
+        Article tempArticle = new Article("TMP-INTERNE", "Article temporaire", "Test", 0, false, false);
+        articleDAO.insert(tempArticle);
+        lineDAO.insert(new CommandeInterneArticle(lineCommande, tempArticle, 4, "Bon état", null));
+        checkSolde("avant suppression de l'article", tempArticle.getId(), 1L, -4);
+        articleDAO.delete(tempArticle.getId());
+        int lignesJournal = ledgerRows(tempArticle.getId());
+        if (lignesJournal == 0) {
+            System.out.println("✅ Journal et soldes de l'article supprimé purgés.");
+        } else {
+            System.out.println("❌ " + lignesJournal + " lignes de journal ou de solde restent pour l'article supprimé.");
+        }
+        dao.delete(lineCommande.getId());
+    }
+
+    private static int ledgerRows(Long articleId) {
+        String sql = "SELECT (SELECT COUNT(*) FROM mouvement_stock WHERE article_id = ?) + " +
+                "(SELECT COUNT(*) FROM stock_solde WHERE article_id = ?)";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, articleId);
+            stmt.setLong(2, articleId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors de la lecture du journal de stock", e);
+        }
+    }
+
+    private static int soldeOf(Long articleId, Long localId) {
+        String sql = "SELECT quantite FROM stock_solde WHERE article_id = ? AND local_id = ?";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, articleId);
+            stmt.setLong(2, localId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors de la lecture du solde de stock", e);
+        }
+    }
+
+    private static void checkSolde(String etape, Long articleId, Long localId, int attendu) {
+        int solde = soldeOf(articleId, localId);
+        if (solde == attendu) {
+            System.out.println("✅ Solde " + etape + " : " + solde);
+        } else {
+            System.out.println("❌ Solde " + etape + " : " + solde + " au lieu de " + attendu);
+        }
     }
 
     private static void initializeTestData() {
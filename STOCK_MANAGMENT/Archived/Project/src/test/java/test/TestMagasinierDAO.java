@@ -3,6 +3,7 @@ package test;
 import model.dao.MagasinierDAO;
 import model.dao.MagasinierDAOImpl;
 import model.entities.Magasinier;
+import utils.PasswordHasher;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -75,6 +76,21 @@ public class TestMagasinierDAO {
             return;
         }
 
+        // Record a login that upgrades the password to a salted hash
+        try {
+            String hash = PasswordHasher.hash("secret".toCharArray());
+            dao.recordConnexion(magasinier.getId(), LocalDateTime.now(), hash);
+            Magasinier loggedIn = dao.getById(magasinier.getId());
+            System.out.println("🔑 Connexion enregistrée : " + loggedIn.getDernierConnexion());
+            System.out.println("   Mot de passe haché : " + PasswordHasher.isHashed(loggedIn.getHashedPassword()));
+            System.out.println("   Vérification (bon / mauvais) : " + PasswordHasher.verify("secret".toCharArray(), loggedIn.getHashedPassword())
+                    + " / " + PasswordHasher.verify("Secret".toCharArray(), loggedIn.getHashedPassword()));
+        } catch (RuntimeException e) {
+            System.err.println("❌ Erreur lors de l'enregistrement de la connexion : " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+
         // Delete magasinier
         try {
             System.out.println(magasinier.getId());